@@ -1,7 +1,9 @@
 package eu.simuline.m2latex.core;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 
 /**
  * Describe class AbstractLatexProcessor here.
@@ -60,8 +62,12 @@ abstract class AbstractLatexProcessor {
   /**
    * Logs if an error occurred running <code>command</code> 
    * by detecting that the log file <code>logFile</code> has not been created 
-   * or by detecting the error pattern <code>pattern</code> 
-   * in <code>logFile</code>. 
+   * or by detecting the pattern of kind {@link LogAnalysis.Kind#Error} 
+   * registered in <code>analysis</code> in <code>logFile</code>. 
+   * All other patterns registered in <code>analysis</code> 
+   * are detected in the same pass reading <code>logFile</code>, 
+   * so that the result returned can be used 
+   * to log warnings or to decide on reruns without reading <code>logFile</code> again. 
    * <p>
    * Logging: 
    * <ul>
@@ -70,46 +76,58 @@ abstract class AbstractLatexProcessor {
    * <li> WAP04 if <code>logFile</code> is not readable. 
    * <li> WFU03 cannot close 
    * </ul>
-   * @see #logWarns(File, String, String) 
+   *
+   * @return
+   *    the result of analyzing <code>logFile</code> 
+   *    which is {@link LogAnalysis.Result#UNREADABLE} 
+   *    if <code>logFile</code> does not exist or cannot be read. 
+   * @see #logErrsWarns(File, String, String, String) 
    */
-  protected void logErrs(File logFile, String command, String pattern) {
-    if (logFile.exists()) {
-      // hasErrsWarns may log warnings WFU03, WAP04 
-      if (hasErrsWarns(logFile, pattern)) {
-        this.log.error("EAP01: Running " + command
-            + " failed. Errors logged in '" + logFile.getName() + "'. ");
-      }
-    } else {
+  protected LogAnalysis.Result logErrs(File logFile, String command,
+      LogAnalysis analysis) {
+    if (!logFile.exists()) {
       this.log.error("EAP02: Running " + command + " failed: No log file '"
           + logFile.getName() + "' written. ");
+      return LogAnalysis.Result.UNREADABLE;
     }
+    // may log warnings WFU03, WAP04 
+    LogAnalysis.Result res = analyzeLog(logFile, analysis);
+    if (res.hasMatch(LogAnalysis.Kind.Error)) {
+      this.log.error("EAP01: Running " + command
+          + " failed. Errors logged in '" + logFile.getName() + "', first in line "
+          + res.getLineNumbers(LogAnalysis.Kind.Error).get(0) + ". ");
+    }
+    return res;
   }
 
   /**
-   * Logs if a warning occurred running <code>command</code> 
-   * by detecting the warning pattern <code>pattern</code> 
+   * Logs if an error or a warning occurred running <code>command</code> 
+   * by detecting that the log file <code>logFile</code> has not been created 
+   * or by detecting the error pattern <code>patternErr</code> 
+   * or the warning pattern <code>patternWarn</code> 
    * in <code>logFile</code>. 
-   * If <code>logFile</code> then an error occurred 
+   * Note that <code>logFile</code> is read once for both patterns. 
+   * If <code>logFile</code> does not exist then an error occurred 
    * making detection of warnings obsolete. 
    * <p>
    * Logging: 
    * <ul>
+   * <li> EAP01 Running <code>command</code> failed. For details...
+   * <li> EAP02 Running <code>command</code> failed. No log file 
    * <li> WAP03 Running <code>command</code> emitted warnings. 
    * <li> WAP04 if <code>logFile</code> is not readable. 
    * <li> WFU03 cannot close 
    * </ul>
-   *
-   * @see #logErrs(File, String, String) 
+   * @see #logErrs(File, String, LogAnalysis) 
    */
-  // for both LatexProcessor and LatexPreProcessor 
-  protected void logWarns(File logFile, String command, String pattern) {
-    // hasErrsWarns may log warnings WFU03, WAP04 
-    // It is ok that no log file exists, 
-    // because this is treated by logErrs invoked before. 
-    // TBD: this is bad design. 
-    // If so, then a singlel method to log errors and warnings is needed. 
-    // This may well be implemented by invoking both logErrs followed by logWarns. s
-    if (logFile.exists() && hasErrsWarns(logFile, pattern)) {
+  protected void logErrsWarns(File logFile, String command,
+      String patternErr, String patternWarn) {
+    LogAnalysis analysis = new LogAnalysis()
+        .add(LogAnalysis.Kind.Error, patternErr)
+        .add(LogAnalysis.Kind.Warning, patternWarn);
+    // may log EAP01, EAP02, WAP04, WFU03 
+    LogAnalysis.Result res = logErrs(logFile, command, analysis);
+    if (res.hasMatch(LogAnalysis.Kind.Warning)) {
       // logs warning WAP03: emitted warnings 
       logWarn(logFile, command);
     }
@@ -120,14 +138,16 @@ abstract class AbstractLatexProcessor {
    * Logging: 
    * WAP03 Running <code>command</code> emitted warnings. 
    */
-  // invoked by logWarns(File, String, String) and 
-  // LatexProcessor.logWarns(File, String)
+  // invoked by logErrsWarns(File, String, String, String) and 
+  // LatexProcessor.logWarns(LogAnalysis.Result, File, String)
   protected void logWarn(File logFile, String command) {
     this.log.warn("WAP03: Running " + command + " emitted warnings logged in '"
         + logFile.getName() + "'. ");
   }
 
   /**
+   * Returns the result of analyzing <code>logFile</code> 
+   * according to <code>analysis</code>. 
    * 
    * Logging: 
    * <ul>
@@ -135,22 +155,109 @@ abstract class AbstractLatexProcessor {
    * <li> WAP04 if <code>logFile</code> is not readable. 
    * </ul>
    */
-  // FIXME: command not clear. 
   // used in 
-  // logErrs (File, String, String)
-  // logWarns(File, String, String)
-  protected boolean hasErrsWarns(File logFile, String pattern) {
+  // logErrs (File, String, LogAnalysis)
+  protected LogAnalysis.Result analyzeLog(File logFile, LogAnalysis analysis) {
     assert logFile.exists()
         && !logFile.isDirectory() : "Expected existing (regular) log file "
             + logFile;
     // may log warning WFU03 cannot close
-    FileMatch fileMatch = this.fileUtils.getMatchInFile(logFile, pattern);
-    if (fileMatch.isFileReadable()) {
-      return fileMatch.doesExprMatch();
+    LogAnalysis.Result res = this.fileUtils.analyzeFile(logFile, analysis);
+    if (!res.isReadable()) {
+      this.log.warn("WAP04: Cannot read log file '" + logFile.getName()
+          + "'; may hide warnings/errors. ");
+    }
+    return res;
+  }
+
+  /**
+   * Executes <code>command</code> in <code>workingDir</code> 
+   * with arguments <code>args</code> creating <code>resFiles</code> 
+   * as {@link CommandExecutor#executeEnvR0(File, File, String, String[], File...)} 
+   * unless the result files are found in the build cache 
+   * given by {@link Settings#getBuildCacheDirectory()}. 
+   * In the latter case, the result files are restored from the build cache. 
+   * Else, after execution the result files are stored in the build cache. 
+   * If there is no build cache, if <code>inputs</code> is <code>null</code> 
+   * or if the version of <code>command</code> cannot be determined, 
+   * <code>command</code> is executed without build cache. 
+   * <p>
+   * Logging: 
+   * <ul>
+   * <li> WBC01: if accessing the build cache fails. 
+   * Then <code>command</code> is executed. 
+   * <li> EEX01, EEX02, EEX03, WEX04, WEX05: 
+   * if running <code>command</code> failed. 
+   * </ul>
+   *
+   * @param workingDir
+   *    the working directory. 
+   * @param command
+   *    the name of the program to be executed. 
+   * @param args
+   *    the list of arguments. 
+   * @param inputs
+   *    the files read by <code>command</code> 
+   *    which determine the result files together with <code>args</code> 
+   *    or <code>null</code> if these are not known. 
+   * @param resFiles
+   *    the result files created by <code>command</code>. 
+   * @throws BuildFailureException
+   *    TEX01 if invocation of <code>command</code> fails very basically. 
+   */
+  protected void executeCached(File workingDir, String command, String[] args,
+      Collection<File> inputs, File... resFiles) throws BuildFailureException {
+    File cacheDir = this.settings.getBuildCacheDirectory();
+    String version = null;
+    if (cacheDir != null && inputs != null) {
+      version = BuildCache.getVersion(command, this.settings.getTexPath(),
+          this.executor);
+    }
+    if (version == null) {
+      // may throw BuildFailureException TEX01,
+      // may log EEX01, EEX02, EEX03, WEX04, WEX05
+      this.executor.executeEnvR0(workingDir, this.settings.getTexPath(),
+          command, args, resFiles);
+      return;
+    }
+
+    BuildCache cache = BuildCache.getCache(cacheDir,
+        this.settings.getBuildCacheMaxSize() * 1024L * 1024L);
+    String key = null;
+    try {
+      // may throw IOException
+      key = cache.key(String.valueOf(this.settings.getTexPath()) + '|'
+          + command, version, args, workingDir, inputs, resFiles);
+      if (cache.restore(key, resFiles)) {
+        this.log.debug("Restored " + Arrays.asList(resFiles)
+            + " from build cache. ");
+        return;
+      }
+    } catch (IOException ioe) {
+      this.log.warn("WBC01: Cannot access build cache '" + cacheDir
+          + "' running " + command + ": " + ioe.getMessage() + ". ");
+    }
+
+    // may throw BuildFailureException TEX01,
+    // may log EEX01, EEX02, EEX03, WEX04, WEX05
+    CommandExecutor.CmdResult res = this.executor.executeEnvR0(workingDir,
+        this.settings.getTexPath(), command, args, resFiles);
+    if (key == null || !res.getSuccess()) {
+      return;
+    }
+    for (File resFile : resFiles) {
+      if (!resFile.exists()) {
+        // error logged already 
+        return;
+      }
+    }
+    try {
+      // may throw IOException
+      cache.store(key, resFiles);
+    } catch (IOException ioe) {
+      this.log.warn("WBC01: Cannot access build cache '" + cacheDir
+          + "' running " + command + ": " + ioe.getMessage() + ". ");
     }
-    this.log.warn("WAP04: Cannot read log file '" + logFile.getName()
-        + "'; may hide warnings/errors. ");
-    return false;
   }
 
   // for both LatexProcessor and LatexPreProcessor 
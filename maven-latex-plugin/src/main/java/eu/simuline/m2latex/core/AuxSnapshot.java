@@ -0,0 +1,213 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A snapshot of the contents of the files written by a LaTeX run 
+ * and read by the next one, 
+ * i.e. of the files given by {@link #SUFFIXES} 
+ * and of the inputs and outputs of the {@link Auxiliary}s. 
+ * LaTeX must be rerun if and only if one of these files changed 
+ * between the snapshot taken before a LaTeX run 
+ * and the one taken after that run and the auxiliary programs, 
+ * except for files written by packages not covered here. 
+ * This replaces forcing a fixed number of reruns 
+ * if a table of contents exists or if BibTeX ran. 
+ * <p>
+ * Comparing snapshots also allows to predict 
+ * whether a LaTeX run is likely followed by another one 
+ * by {@link #isFollowedByReRun(AuxSnapshot)}, 
+ * so that it can be performed in draft mode. 
+ * <p>
+ * For diagnostics, the number of LaTeX reruns 
+ * and the number of reruns saved compared with forcing reruns 
+ * are counted per build. 
+ * Note that this class is thread safe. 
+ */
+final class AuxSnapshot {
+
+  /**
+   * The suffixes of the files 
+   * written by a LaTeX run and read by the next one. 
+   */
+  private final static List<String> SUFFIXES = Arrays.asList(
+      LatexProcessor.SUFFIX_AUX, LatexProcessor.SUFFIX_TOC,
+      LatexProcessor.SUFFIX_LOF, LatexProcessor.SUFFIX_LOT,
+      LatexProcessor.SUFFIX_LOL, LatexProcessor.SUFFIX_OUT,
+      LatexProcessor.SUFFIX_BBL);
+
+  /**
+   * The suffixes of the lists written by a LaTeX run 
+   * and typeset by the next one, e.g. the table of contents. 
+   */
+  private final static List<String> SUFFIXES_LISTS = Arrays.asList(
+      LatexProcessor.SUFFIX_TOC, LatexProcessor.SUFFIX_LOF,
+      LatexProcessor.SUFFIX_LOT, LatexProcessor.SUFFIX_LOL);
+
+  /**
+   * The number of LaTeX reruns 
+   * since the last invocation of {@link #resetStatistics()}. 
+   */
+  private static long numReRuns = 0;
+
+  /**
+   * The number of LaTeX reruns saved 
+   * since the last invocation of {@link #resetStatistics()}. 
+   */
+  private static long numReRunsSaved = 0;
+
+  /**
+   * Maps the existing files of the snapshot to the identifiers of their contents 
+   * or is <code>null</code> if some file could not be read. 
+   */
+  private final Map<File, FileId> file2id;
+
+  /**
+   * The files of the snapshot written by auxiliary programs 
+   * rather than by LaTeX. 
+   */
+  private final Set<File> auxOutputs;
+
+  /**
+   * The files of the snapshot with suffix in {@link #SUFFIXES_LISTS}, 
+   * whether they exist or not. 
+   */
+  private final Set<File> lists;
+
+  private AuxSnapshot(Map<File, FileId> file2id, Set<File> auxOutputs,
+      Set<File> lists) {
+    this.file2id = file2id;
+    this.auxOutputs = auxOutputs;
+    this.lists = lists;
+  }
+
+  /**
+   * Takes a snapshot of the files of the latex main file 
+   * described by <code>desc</code> 
+   * as described in the class documentation. 
+   */
+  static AuxSnapshot take(LatexMainDesc desc) {
+    Map<File, FileId> file2id = new TreeMap<File, FileId>();
+    Set<File> auxOutputs = new TreeSet<File>();
+    Set<File> lists = new TreeSet<File>();
+    for (String suffix : SUFFIXES_LISTS) {
+      lists.add(desc.withSuffix(suffix));
+    }
+    try {
+      for (String suffix : SUFFIXES) {
+        // may throw IOException
+        put(file2id, desc.withSuffix(suffix));
+      }
+      for (Auxiliary aux : Auxiliary.values()) {
+        // may throw IOException
+        put(file2id, desc.withSuffix(aux.extension()));
+        for (File file : aux.getOutputFiles(desc)) {
+          // may throw IOException
+          put(file2id, file);
+          auxOutputs.add(file);
+        }
+      }
+    } catch (IOException ioe) {
+      return new AuxSnapshot(null, auxOutputs, lists);
+    }
+    return new AuxSnapshot(file2id, auxOutputs, lists);
+  }
+
+  private static void put(Map<File, FileId> file2id, File file)
+      throws IOException {
+    if (file.isFile() && !file2id.containsKey(file)) {
+      // may throw IOException
+      file2id.put(file,
+          Auxiliary.getContentIdent(Collections.singletonList(file)));
+    }
+  }
+
+  /**
+   * Returns whether this snapshot coincides with <code>other</code>, 
+   * i.e. whether the same files exist with the same contents. 
+   * If a file of one of the snapshots could not be read, 
+   * the snapshots are regarded as different. 
+   */
+  boolean isUnchanged(AuxSnapshot other) {
+    return this.file2id != null && other.file2id != null
+        && this.file2id.equals(other.file2id);
+  }
+
+  /**
+   * Returns whether the LaTeX run following this snapshot 
+   * is likely followed by another run, 
+   * where <code>before</code> is the snapshot 
+   * taken right before the previous LaTeX run, 
+   * so that this snapshot reflects the changes 
+   * by the previous LaTeX run and the auxiliary programs run after it. 
+   * <p>
+   * This is the case if a list like the table of contents 
+   * appeared or disappeared, 
+   * or if auxiliary programs wrote new output, 
+   * e.g. BibTeX wrote a new bbl file, 
+   * because typesetting these typically shifts pages 
+   * and so changes the aux file again. 
+   * In contrast, if just the aux file appeared or changed, 
+   * the next run resolves the references 
+   * but typically writes the same aux file again, 
+   * so that it is the last one. 
+   * If one of the snapshots is incomplete, 
+   * this method returns <code>false</code>. 
+   */
+  boolean isFollowedByReRun(AuxSnapshot before) {
+    if (this.file2id == null || before.file2id == null) {
+      return false;
+    }
+    for (File file : this.lists) {
+      if (this.file2id.containsKey(file) != before.file2id.containsKey(file)) {
+        return true;
+      }
+    }
+    Set<File> outputs = new TreeSet<File>(this.auxOutputs);
+    outputs.addAll(before.auxOutputs);
+    for (File file : outputs) {
+      if (!Objects.equals(this.file2id.get(file), before.file2id.get(file))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Counts <code>numReRunsDoc</code> LaTeX reruns 
+   * for a latex main file 
+   * for which forcing reruns would have caused 
+   * <code>numReRunsForced</code> reruns. 
+   */
+  static synchronized void count(int numReRunsDoc, int numReRunsForced) {
+    numReRuns += numReRunsDoc;
+    numReRunsSaved += Math.max(0, numReRunsForced - numReRunsDoc);
+  }
+
+  /**
+   * Resets the number of reruns and of reruns saved, 
+   * so that {@link #statistics()} refers to a single build. 
+   */
+  static synchronized void resetStatistics() {
+    numReRuns = 0;
+    numReRunsSaved = 0;
+  }
+
+  /**
+   * Returns a string with the number of reruns and of reruns saved 
+   * for diagnostics. 
+   */
+  static synchronized String statistics() {
+    return "LaTeX reruns: " + numReRuns + " run, " + numReRunsSaved
+        + " saved by snapshots. ";
+  }
+}
@@ -0,0 +1,250 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Records for a latex main file across builds 
+ * the identifiers of the input and of the output 
+ * of the auxiliary programs, i.e. of the {@link Auxiliary}s, 
+ * so that an auxiliary program need not be run 
+ * if both its input and its output are unchanged since the last build. 
+ * For example, BibTeX need not be run 
+ * if the citations in the AUX file, the bibliography databases 
+ * and the BBL file are as after the last run of BibTeX. 
+ * <p>
+ * The state is stored as a properties file 
+ * with suffix {@link #SUFFIX_AUX_STATE} besides the latex main file, 
+ * mapping <code>aux.in</code> and <code>aux.out</code> 
+ * for each {@link Auxiliary} <code>aux</code> to the according identifiers 
+ * and <code>aux.file.name</code> to the content of output file <code>name</code> 
+ * encoded in Base64. 
+ * It is read by {@link #read(File, LogWrapper)} 
+ * and written by {@link #write(LogWrapper)} if modified. 
+ * <p>
+ * Cleanup as given by {@link Settings#isCleanUp()} 
+ * keeps the state file but removes the output of the auxiliary programs. 
+ * So before the first LaTeX run of a build, 
+ * the output is restored from the state file 
+ * by {@link #restoreOutputs(File, LogWrapper)}. 
+ * Since the state file matches {@link Settings#getPatternCreatedFromLatexMain()}, 
+ * it is removed by clearing 
+ * together with the output of the auxiliary programs. 
+ * <p>
+ * Since auxiliary programs of a latex main file are run concurrently, 
+ * this class is thread safe. 
+ */
+final class AuxState {
+
+  /**
+   * The suffix of the state file of a latex main file. 
+   */
+  static final String SUFFIX_AUX_STATE = ".auxstate";
+
+  private static final String KEY_IN = ".in";
+  private static final String KEY_OUT = ".out";
+  private static final String KEY_FILE = ".file.";
+
+  /**
+   * The state file. 
+   */
+  private final File file;
+
+  /**
+   * The identifiers of inputs and outputs of the auxiliaries 
+   * as described in the class documentation. 
+   */
+  private final Properties props;
+
+  /**
+   * Whether {@link #props} was modified since read. 
+   */
+  private volatile boolean isModified;
+
+  private AuxState(File file, Properties props) {
+    this.file = file;
+    this.props = props;
+    this.isModified = false;
+  }
+
+  /**
+   * Reads the state file <code>file</code>. 
+   * If there is no state file, the state returned is empty. 
+   * <p>
+   * Logging: 
+   * WAS01: if the state file exists but cannot be read. 
+   * Then the state returned is empty 
+   * which means that all auxiliary programs are run as needed. 
+   *
+   * @param file
+   *    the state file of a latex main file. 
+   * @param log
+   *    the log to write a warning on if reading fails. 
+   * @return
+   *    the state read. 
+   */
+  static AuxState read(File file, LogWrapper log) {
+    Properties props = new Properties();
+    if (file.exists()) {
+      try (InputStream inStream = new FileInputStream(file)) {
+        // may throw IOException
+        props.load(inStream);
+      } catch (IOException ioe) {
+        log.warn("WAS01: Cannot read state file '" + file
+            + "'; run auxiliary programs as needed. ");
+        props.clear();
+      }
+    }
+    return new AuxState(file, props);
+  }
+
+  /**
+   * Returns whether the identifiers <code>inIdent</code> 
+   * and <code>outIdent</code> of input and output of <code>aux</code> 
+   * are recorded, i.e. are as after the last run of <code>aux</code>. 
+   */
+  boolean isUpToDate(Auxiliary aux, String inIdent, String outIdent) {
+    return inIdent.equals(this.props.getProperty(aux + KEY_IN))
+        && outIdent.equals(this.props.getProperty(aux + KEY_OUT));
+  }
+
+  /**
+   * Records the identifiers <code>inIdent</code> and <code>outIdent</code> 
+   * of input and output of <code>aux</code> 
+   * and the contents of the output files <code>outFiles</code>. 
+   * This is invoked after a successful run of <code>aux</code>. 
+   * If an output file cannot be read, no contents are recorded, 
+   * so that the output cannot be restored. 
+   */
+  synchronized void put(Auxiliary aux, String inIdent, String outIdent,
+      Collection<File> outFiles) {
+    Object oldIn = this.props.setProperty(aux + KEY_IN, inIdent);
+    Object oldOut = this.props.setProperty(aux + KEY_OUT, outIdent);
+    if (inIdent.equals(oldIn) && outIdent.equals(oldOut)) {
+      // the contents recorded are those of the output files 
+      return;
+    }
+    this.isModified = true;
+    removeFiles(aux);
+    try {
+      for (File file : outFiles) {
+        // may throw IOException 
+        byte[] content = Files.readAllBytes(file.toPath());
+        this.props.setProperty(aux + KEY_FILE + file.getName(),
+            Base64.getEncoder().encodeToString(content));
+      }
+    } catch (IOException ioe) {
+      removeFiles(aux);
+    }
+  }
+
+  /**
+   * Removes the identifiers and contents recorded for <code>aux</code>. 
+   * This is invoked before running <code>aux</code>, 
+   * so that <code>aux</code> is run again next time if running fails. 
+   */
+  synchronized void remove(Auxiliary aux) {
+    boolean removedIn = this.props.remove(aux + KEY_IN) != null;
+    boolean removedOut = this.props.remove(aux + KEY_OUT) != null;
+    boolean removedFiles = removeFiles(aux);
+    if (removedIn || removedOut || removedFiles) {
+      this.isModified = true;
+    }
+  }
+
+  /**
+   * Removes the contents of the output files recorded for <code>aux</code> 
+   * and returns whether there were any. 
+   */
+  private boolean removeFiles(Auxiliary aux) {
+    String prefix = aux + KEY_FILE;
+    return this.props.keySet()
+        .removeIf(key -> ((String) key).startsWith(prefix));
+  }
+
+  /**
+   * Writes the output files of the auxiliary programs 
+   * recorded in this state into directory <code>dir</code>, 
+   * the directory of the latex main file, 
+   * unless some output file of the according auxiliary program exists. 
+   * This restores the output removed by cleanup at the end of the last build, 
+   * so that the auxiliary programs need not be run again 
+   * if their input is unchanged. 
+   * If the input changed, the output restored is overwritten. 
+   * <p>
+   * Logging: 
+   * WAS03: if an output file cannot be written. 
+   * Then the output files written are deleted again. 
+   *
+   * @param dir
+   *    the directory of the latex main file. 
+   * @param log
+   *    the log to write a warning on if writing fails. 
+   */
+  synchronized void restoreOutputs(File dir, LogWrapper log) {
+    for (Auxiliary aux : Auxiliary.values()) {
+      String prefix = aux + KEY_FILE;
+      List<File> files = new ArrayList<File>();
+      for (String key : this.props.stringPropertyNames()) {
+        if (key.startsWith(prefix)) {
+          files.add(new File(dir, key.substring(prefix.length())));
+        }
+      }
+      if (files.isEmpty() || files.stream().anyMatch(File::exists)) {
+        continue;
+      }
+      List<File> written = new ArrayList<File>();
+      try {
+        for (File file : files) {
+          byte[] content = Base64.getDecoder()
+              .decode(this.props.getProperty(prefix + file.getName()));
+          written.add(file);
+          // may throw IOException 
+          Files.write(file.toPath(), content);
+        }
+        log.debug("Restored output of " + aux + " from state file. ");
+      } catch (IOException | IllegalArgumentException e) {
+        log.warn("WAS03: Cannot restore output of " + aux 
+            + " from state file '" + this.file + "'. ");
+        for (File file : written) {
+          file.delete();
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes this state to its file if it was modified since read. 
+   * <p>
+   * Logging: 
+   * WAS02: if the state file cannot be written. 
+   * Then auxiliary programs may be run although not needed 
+   * but this does not affect correctness. 
+   *
+   * @param log
+   *    the log to write a warning on if writing fails. 
+   */
+  synchronized void write(LogWrapper log) {
+    if (!this.isModified) {
+      return;
+    }
+    try (OutputStream outStream = new FileOutputStream(this.file)) {
+      // may throw IOException
+      this.props.store(outStream, "identifiers of auxiliary programs");
+      this.isModified = false;
+    } catch (IOException ioe) {
+      log.warn("WAS02: Cannot write state file '" + this.file
+          + "'; auxiliary programs may be run again. ");
+    }
+  }
+}
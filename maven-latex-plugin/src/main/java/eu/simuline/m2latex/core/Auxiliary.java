@@ -3,8 +3,21 @@ package eu.simuline.m2latex.core;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 
 import com.florianingerl.util.regex.Matcher;
 import com.florianingerl.util.regex.Pattern;
@@ -102,13 +115,74 @@ enum Auxiliary {
      * Takes not only the AUX file <code>file</code> 
      * into account, but also files included 
      * via command {@link #PATTERN_INPUT}. 
+     * Of the lines, only those starting with {@link #PREFIXES_BIBTEX} 
+     * are taken into account. 
      */
-    FileId getIdent(File file) throws IOException {
+    FileId updateIdent(File file, FileId fileId, List<FileIdCache.Stamp> stamps)
+        throws IOException {
       //System.out.println("update:Bibtex");
-      return updateIdent(file, new FileId(), PATTERN_BIBTEX);
+      return updateIdentBibtex(file, fileId, stamps);
     }
 
+    Collection<File> getOutputFiles(LatexMainDesc desc) {
+      return Collections.singletonList(desc.withSuffix(LatexProcessor.SUFFIX_BBL));
+    }
+
+    Collection<File> getWrittenFiles(LatexMainDesc desc) {
+      return Arrays.asList(desc.withSuffix(LatexProcessor.SUFFIX_BBL),
+          desc.withSuffix(LatexProcessor.SUFFIX_BLG));
+    }
+
+    /**
+     * Returns the bibliography databases 
+     * given by <code>\bibdata</code> in the AUX file 
+     * if they are in the directory of the latex main file 
+     * and the bibliography style given by <code>\bibstyle</code> 
+     * if it is in that directory. 
+     * A style not found there is assumed to be installed 
+     * and is not taken into account. 
+     *
+     * @throws IOException
+     *    if the AUX file cannot be read 
+     *    or if a bibliography database is not found 
+     *    in the directory of the latex main file, 
+     *    e.g. because it is found via BIBINPUTS. 
+     */
+    Collection<File> getFurtherInputs(LatexMainDesc desc, Settings settings)
+        throws IOException {
+      List<File> res = new ArrayList<File>();
+      try (BufferedReader bufferedReader =
+          new BufferedReader(new FileReader(desc.withSuffix(extension())))) {
+        Matcher matcher;
+        for (String line = bufferedReader.readLine(); line != null;
+            // readLine may thr. IOException
+            line = bufferedReader.readLine()) {
+          matcher = PATTERN_BIBSTYLE.matcher(line);
+          if (matcher.find()) {
+            addIfExists(res, new File(desc.parentDir,
+                matcher.group(GRP_BIBSTYLE).trim() + SUFFIX_BST));
+            continue;
+          }
+          matcher = PATTERN_BIBDATA.matcher(line);
+          if (!matcher.find()) {
+            continue;
+          }
+          for (String bib : matcher.group(GRP_BIBDATA).split(",")) {
+            File bibFile = new File(desc.parentDir, bib.trim() + SUFFIX_BIB);
+            if (!bibFile.exists()) {
+              throw new FileNotFoundException("Found no database " + bibFile);
+            }
+            res.add(bibFile);
+          }
+        } // for 
+      } // try 
+      return res;
+    }
 
+    String getToolIdent(Settings settings) throws BuildFailureException {
+      return settings.getCommand(ConverterCategory.BibTeX) + " "
+          + settings.getBibtexOptions();
+    }
   },
   // /**
   //  * Bibliography processing with biblatex and biber. 
@@ -135,6 +209,39 @@ enum Auxiliary {
         throws BuildFailureException {
       return proc.runMakeSplitIndex(desc);
     }
+
+    // the main index and the split indices 
+    Collection<File> getOutputFiles(LatexMainDesc desc) {
+      final String base = desc.xxxFile.getName();
+      File[] files = desc.parentDir.listFiles((File dir, String name) ->
+          name.endsWith(LatexProcessor.SUFFIX_IND) && (name.equals(
+              base + LatexProcessor.SUFFIX_IND) || name.startsWith(base + "-")));
+      return files == null ? Collections.emptyList() : Arrays.asList(files);
+    }
+
+    // also the main index if not yet written 
+    Collection<File> getWrittenFiles(LatexMainDesc desc) {
+      List<File> res = new ArrayList<File>(getOutputFiles(desc));
+      res.add(desc.indFile);
+      res.add(desc.ilgFile);
+      return res;
+    }
+
+    /**
+     * Returns the index styles given by option <code>-s</code> 
+     * in {@link Settings#getMakeIndexOptions()} 
+     * if they are in the directory of the latex main file. 
+     */
+    Collection<File> getFurtherInputs(LatexMainDesc desc, Settings settings) {
+      return getStyleFiles(settings.getMakeIndexOptions(), desc.parentDir);
+    }
+
+    String getToolIdent(Settings settings) throws BuildFailureException {
+      return settings.getCommand(ConverterCategory.MakeIndex) + " "
+          + settings.getMakeIndexOptions() + " "
+          + settings.getCommand(ConverterCategory.SplitIndex) + " "
+          + settings.getSplitIndexOptions();
+    }
   },
   Glo {
     String extension() {
@@ -145,6 +252,77 @@ enum Auxiliary {
         throws BuildFailureException {
       return proc.runMakeGlossary(desc);
     }
+
+    Collection<File> getOutputFiles(LatexMainDesc desc) {
+      return Collections.singletonList(desc.glsFile);
+    }
+
+    /**
+     * Returns the glossary file and its log file 
+     * and the output files and log files of all glossaries 
+     * given by {@link #PATTERN_NEW_GLOSSARY} in the AUX file, 
+     * since <code>makeglossaries</code> processes all of them. 
+     * For example, with option <code>index</code> of package glossaries 
+     * these are the files written by <code>makeindex</code> for {@link #Idx}. 
+     *
+     * @throws IOException
+     *    if the AUX file cannot be read. 
+     */
+    Collection<File> getWrittenFiles(LatexMainDesc desc) throws IOException {
+      List<File> res = new ArrayList<File>();
+      res.add(desc.glsFile);
+      res.add(desc.glgFile);
+      try (BufferedReader bufferedReader = new BufferedReader(
+          new FileReader(desc.withSuffix(LatexProcessor.SUFFIX_AUX)))) {
+        Matcher matcher;
+        for (String line = bufferedReader.readLine(); line != null;
+            // readLine may thr. IOException
+            line = bufferedReader.readLine()) {
+          matcher = PATTERN_NEW_GLOSSARY.matcher(line);
+          if (matcher.find()) {
+            res.add(desc.withSuffix("." + matcher.group(GRP_GLO_LOG)));
+            res.add(desc.withSuffix("." + matcher.group(GRP_GLO_OUT)));
+          }
+        } // for 
+      } // try 
+      return res;
+    }
+
+    /**
+     * Returns the style given by <code>\@istfilename</code> in the AUX file 
+     * if it is in the directory of the latex main file 
+     * and the styles given by option <code>-s</code> 
+     * in {@link Settings#getMakeGlossariesOptions()} 
+     * if they are in that directory. 
+     *
+     * @throws IOException
+     *    if the AUX file cannot be read. 
+     */
+    Collection<File> getFurtherInputs(LatexMainDesc desc, Settings settings)
+        throws IOException {
+      List<File> res = new ArrayList<File>();
+      try (BufferedReader bufferedReader = new BufferedReader(
+          new FileReader(desc.withSuffix(LatexProcessor.SUFFIX_AUX)))) {
+        Matcher matcher;
+        for (String line = bufferedReader.readLine(); line != null;
+            // readLine may thr. IOException
+            line = bufferedReader.readLine()) {
+          matcher = PATTERN_IST_FILENAME.matcher(line);
+          if (matcher.find()) {
+            addIfExists(res, new File(desc.parentDir,
+                matcher.group(GRP_IST_FILENAME).trim()));
+          }
+        } // for 
+      } // try 
+      res.addAll(getStyleFiles(settings.getMakeGlossariesOptions(),
+          desc.parentDir));
+      return res;
+    }
+
+    String getToolIdent(Settings settings) throws BuildFailureException {
+      return settings.getCommand(ConverterCategory.MakeGlossaries) + " "
+          + settings.getMakeGlossariesOptions();
+    }
   },
   Pyt {
     String extension() {
@@ -161,6 +339,21 @@ enum Auxiliary {
     }
   };
 
+  /**
+   * The cache of the identifiers returned by {@link #getIdent(File)}. 
+   */
+  private final FileIdCache idCache = new FileIdCache();
+
+  /**
+   * Clears the caches of the identifiers of all {@link Auxiliary}s 
+   * at the end of a build. 
+   */
+  static void clearIdCaches() {
+    for (Auxiliary aux : values()) {
+      aux.idCache.clear();
+    }
+  }
+
   // maybe this is bad performance, scanning twice 
   /**
    * The pattern signifying bibdata 
@@ -189,15 +382,120 @@ enum Auxiliary {
   private static final String GRP_INPUT = "fileName";
 
   /**
-   * The pattern of the aux file 
-   * read by <code>bibtex</code>. 
+   * The pattern for the bibliography databases in an aux file 
+   * with a group with name {@link #GRP_BIBDATA} 
+   * comprising the comma separated names of the databases without ending. 
+   */
+  private static final Pattern PATTERN_BIBDATA =
+      Pattern.compile("^\\\\bibdata\\{(?<bibdata>[^}]*)\\}");
+
+  /**
+   * The name of the group in pattern {@link #PATTERN_BIBDATA} 
+   * comprising the names of the bibliography databases. 
+   */
+  private static final String GRP_BIBDATA = "bibdata";
+
+  /**
+   * The suffix of bibliography databases. 
+   */
+  private static final String SUFFIX_BIB = ".bib";
+
+  /**
+   * The pattern for the bibliography style in an aux file 
+   * with a group with name {@link #GRP_BIBSTYLE} 
+   * comprising the name of the style without ending. 
+   */
+  private static final Pattern PATTERN_BIBSTYLE =
+      Pattern.compile("^\\\\bibstyle\\{(?<bibstyle>[^}]*)\\}");
+
+  /**
+   * The name of the group in pattern {@link #PATTERN_BIBSTYLE} 
+   * comprising the name of the bibliography style. 
+   */
+  private static final String GRP_BIBSTYLE = "bibstyle";
+
+  /**
+   * The suffix of bibliography styles. 
+   */
+  private static final String SUFFIX_BST = ".bst";
+
+  /**
+   * The pattern for the style of glossaries in an aux file 
+   * with a group with name {@link #GRP_IST_FILENAME} 
+   * comprising the name of the style with ending. 
+   */
+  private static final Pattern PATTERN_IST_FILENAME =
+      Pattern.compile("^\\\\@istfilename\\{(?<istfilename>[^}]*)\\}");
+
+  /**
+   * The name of the group in pattern {@link #PATTERN_IST_FILENAME} 
+   * comprising the name of the style of glossaries. 
+   */
+  private static final String GRP_IST_FILENAME = "istfilename";
+
+  /**
+   * The pattern for the declaration of a glossary in an aux file 
+   * with groups with names {@link #GRP_GLO_LOG} and {@link #GRP_GLO_OUT} 
+   * comprising the suffixes of the log file and of the output file 
+   * without the dot. 
+   * The declaration has the form 
+   * <code>\@newglossary{type}{log}{out}{in}</code>. 
+   */
+  private static final Pattern PATTERN_NEW_GLOSSARY =
+      Pattern.compile("^\\\\@newglossary\\{[^}]*\\}"
+          + "\\{(?<glolog>[^}]*)\\}\\{(?<gloout>[^}]*)\\}");
+
+  /**
+   * The name of the group in pattern {@link #PATTERN_NEW_GLOSSARY} 
+   * comprising the suffix of the log file of a glossary. 
+   */
+  private static final String GRP_GLO_LOG = "glolog";
+
+  /**
+   * The name of the group in pattern {@link #PATTERN_NEW_GLOSSARY} 
+   * comprising the suffix of the output file of a glossary. 
+   */
+  private static final String GRP_GLO_OUT = "gloout";
+
+  /**
+   * The option of <code>makeindex</code> and of <code>makeglossaries</code> 
+   * preceding the name of a style file. 
+   */
+  private static final String OPT_STYLE = "-s";
+
+  /**
+   * The prefixes of the lines of the aux file 
+   * read by <code>bibtex</code>, 
+   * given as bytes to be matched without decoding the lines. 
    * This does not include 
    * the pattern {@link #PATTERN_INPUT} 
    * for inputting other aux files. 
    * In fact only those patterns contributing to hashing. 
    */
-  static final Pattern PATTERN_BIBTEX =
-      Pattern.compile("^\\\\(citation|bibstyle|bibdata)");
+  private static final byte[][] PREFIXES_BIBTEX = new byte[][] {
+    "\\citation".getBytes(StandardCharsets.US_ASCII),
+    "\\bibstyle".getBytes(StandardCharsets.US_ASCII),
+    "\\bibdata".getBytes(StandardCharsets.US_ASCII)
+  };
+
+  /**
+   * The prefix of the lines matching {@link #PATTERN_INPUT} as bytes. 
+   */
+  private static final byte[] PREFIX_INPUT = 
+      "\\@input{".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The initial capacity of the buffers to read files into. 
+   */
+  private static final int BUFFER_CAPACITY = 64 * 1024;
+
+  /**
+   * The buffers to read files into, reused for each thread. 
+   * There is more than one buffer per thread 
+   * because {@link #BibTex} reads input files while reading a file. 
+   */
+  private static final ThreadLocal<Deque<ByteBuffer>> BUFFERS = 
+      ThreadLocal.withInitial(() -> new ArrayDeque<ByteBuffer>());
 
   /**
    * The file extension <code>.ext</code> triggering the action. 
@@ -234,7 +532,6 @@ enum Auxiliary {
   abstract boolean process(LatexMainDesc desc, LatexProcessor proc)
       throws BuildFailureException;
 
-  // overwritten for bibtex and one time also for bib2gls
   /**
    * Yields the identifier 
    * corresponding with the given text file. 
@@ -257,47 +554,304 @@ enum Auxiliary {
    *    could not be read completely. 
    *    This degrades rerun detection. 
    */
+  // the identifier returned is finalized and cached in idCache, 
+  // so that files which did not change since are not read again. 
   FileId getIdent(File file) throws IOException {
-    return updateIdent(file, new FileId());
+    FileId fileId = this.idCache.get(file);
+    if (fileId != null) {
+      return fileId;
+    }
+    List<FileIdCache.Stamp> stamps = new ArrayList<FileIdCache.Stamp>();
+    // may throw IOException 
+    fileId = updateIdent(file, new FileId(), stamps).finalizFileId();
+    this.idCache.put(file, stamps, fileId);
+    return fileId;
   }
 
-  FileId updateIdent(File file, FileId fileId) throws IOException {
+  /**
+   * Updates <code>fileId</code> with the lines of <code>file</code> 
+   * relevant for this {@link Auxiliary} 
+   * and adds the stamps of the files read to <code>stamps</code>. 
+   * By default all lines are relevant. 
+   *
+   * @throws IOException
+   *    if the file or files referred to within it 
+   *    could not be read completely. 
+   */
+  // overwritten for bibtex and one time also for bib2gls
+  FileId updateIdent(File file, FileId fileId, List<FileIdCache.Stamp> stamps)
+      throws IOException {
     //System.out.println("update:gen");
-    try (BufferedReader bufferedReader =
-        new BufferedReader(new FileReader(file))) {
-      for (String line = bufferedReader.readLine(); line != null;
-          // readLine may thr. IOException
-          line = bufferedReader.readLine()) {
-        fileId.update(line);
+    // stamp before reading, so that a modification while reading is detected 
+    // may throw IOException 
+    stamps.add(FileIdCache.Stamp.of(file));
+    ByteBuffer buf = acquireBuffer();
+    try {
+      // may throw IOException 
+      buf = readFully(file, buf);
+      int limit = buf.limit();
+      for (int off = 0, end; off < limit; off = nextLine(buf, end)) {
+        end = endOfLine(buf, off);
+        fileId.update(buf, off, end - off);
       }
+    } finally {
+      releaseBuffer(buf);
     }
     return fileId;
   }
 
-  FileId updateIdent(File file, FileId fileId, Pattern patternAux) throws IOException {
+  /**
+   * Updates <code>fileId</code> with the lines of <code>file</code> 
+   * starting with one of the {@link #PREFIXES_BIBTEX} 
+   * and recursively with those of the files input 
+   * via {@link #PATTERN_INPUT}. 
+   * The stamps of all files read are added to <code>stamps</code>. 
+   */
+  FileId updateIdentBibtex(File file, FileId fileId, 
+      List<FileIdCache.Stamp> stamps) throws IOException {
     File parent = file.getParentFile();
     String inFile;
-    try (BufferedReader bufferedReader =
-        new BufferedReader(new FileReader(file))) {
-      for (String line = bufferedReader.readLine(); line != null;
-          // readLine may thr. IOException
-          line = bufferedReader.readLine()) {
-        if (patternAux.matcher(line).find()) {
-          fileId.update(line);
+    // may throw IOException 
+    stamps.add(FileIdCache.Stamp.of(file));
+    ByteBuffer buf = acquireBuffer();
+    try {
+      // may throw IOException 
+      buf = readFully(file, buf);
+      int limit = buf.limit();
+      for (int off = 0, end; off < limit; off = nextLine(buf, end)) {
+        end = endOfLine(buf, off);
+        if (startsWithAny(buf, off, end, PREFIXES_BIBTEX)) {
+          fileId.update(buf, off, end - off);
           continue;
         }
-        Matcher matcher = PATTERN_INPUT.matcher(line);
+        if (!startsWith(buf, off, end, PREFIX_INPUT)) {
+          continue;
+        }
+        // rare, so decoding is acceptable 
+        byte[] lineBytes = new byte[end - off];
+        buf.get(off, lineBytes);
+        Matcher matcher = PATTERN_INPUT.matcher(new String(lineBytes));
         if (matcher.find()) {
           inFile = matcher.group(GRP_INPUT);
           assert inFile.endsWith(this.extension());
           // ignore return value 
-          updateIdent(new File(parent, inFile), fileId, patternAux);
+          updateIdentBibtex(new File(parent, inFile), fileId, stamps);
         }
       } // for 
-    } // try 
+    } finally {
+      releaseBuffer(buf);
+    }
     return fileId;
   }
 
+  private static ByteBuffer acquireBuffer() {
+    ByteBuffer buf = BUFFERS.get().pollFirst();
+    return buf == null 
+        ? ByteBuffer.allocate(BUFFER_CAPACITY).order(ByteOrder.LITTLE_ENDIAN)
+        : buf;
+  }
+
+  private static void releaseBuffer(ByteBuffer buf) {
+    buf.clear();
+    BUFFERS.get().addFirst(buf);
+  }
+
+  /**
+   * Reads <code>file</code> completely into <code>buf</code> 
+   * or into a larger buffer if <code>buf</code> is too small 
+   * and returns the buffer read into 
+   * with limit at the end of the content and position zero. 
+   *
+   * @throws IOException
+   *    if <code>file</code> could not be read completely. 
+   */
+  private static ByteBuffer readFully(File file, ByteBuffer buf) 
+      throws IOException {
+    buf.clear();
+    // may throw IOException 
+    try (FileChannel channel = FileChannel.open(file.toPath(), 
+        StandardOpenOption.READ)) {
+      // may throw IOException 
+      while (channel.read(buf) != -1) {
+        if (!buf.hasRemaining()) {
+          ByteBuffer larger = ByteBuffer.allocate(2 * buf.capacity())
+              .order(ByteOrder.LITTLE_ENDIAN);
+          buf.flip();
+          larger.put(buf);
+          buf = larger;
+        }
+      }
+    }
+    buf.flip();
+    return buf;
+  }
+
+  /**
+   * Returns the index of the line terminator 
+   * of the line starting at <code>off</code> in <code>buf</code> 
+   * or the limit of <code>buf</code> if there is none. 
+   * As for {@link java.io.BufferedReader#readLine()}, 
+   * line terminators are line feed, carriage return 
+   * and carriage return followed by line feed. 
+   */
+  private static int endOfLine(ByteBuffer buf, int off) {
+    int limit = buf.limit();
+    byte chr;
+    for (int idx = off; idx < limit; idx++) {
+      chr = buf.get(idx);
+      if (chr == '\n' || chr == '\r') {
+        return idx;
+      }
+    }
+    return limit;
+  }
+
+  /**
+   * Returns the start of the line after the line terminator at <code>end</code>, 
+   * which is the limit of <code>buf</code> if there is no further line. 
+   */
+  private static int nextLine(ByteBuffer buf, int end) {
+    int limit = buf.limit();
+    if (end < limit && buf.get(end) == '\r') {
+      end++;
+      if (end < limit && buf.get(end) == '\n') {
+        end++;
+      }
+      return end;
+    }
+    return end < limit ? end + 1 : end;
+  }
+
+  private static boolean startsWith(ByteBuffer buf, int off, int end, 
+      byte[] prefix) {
+    if (end - off < prefix.length) {
+      return false;
+    }
+    for (int idx = 0; idx < prefix.length; idx++) {
+      if (buf.get(off + idx) != prefix[idx]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean startsWithAny(ByteBuffer buf, int off, int end, 
+      byte[][] prefixes) {
+    for (byte[] prefix : prefixes) {
+      if (startsWith(buf, off, end, prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the files written by the auxiliary program 
+   * and read by the latex compiler. 
+   * If this is empty, which is the default, 
+   * the auxiliary program is run whenever required within a build, 
+   * because its output is not known. 
+   * Else, it is not run if its input and output are unchanged 
+   * since the last build as recorded in {@link AuxState}. 
+   * Currently, the output of pythontex is not known, 
+   * because it is written into a folder. 
+   */
+  Collection<File> getOutputFiles(LatexMainDesc desc) {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Returns the files the auxiliary program may write, 
+   * i.e. its output given by {@link #getOutputFiles(LatexMainDesc)} 
+   * also if not yet written, and its log files. 
+   * Auxiliary programs writing a common file 
+   * must not be run concurrently. 
+   * By default, these are the output files. 
+   *
+   * @throws IOException
+   *    if the files cannot be determined. 
+   *    Then the auxiliary program must not be run concurrently with others. 
+   */
+  Collection<File> getWrittenFiles(LatexMainDesc desc) throws IOException {
+    return getOutputFiles(desc);
+  }
+
+  /**
+   * Returns the files read by the auxiliary program 
+   * besides the file given by {@link #extension()}, 
+   * where files not in the directory of the latex main file, 
+   * e.g. installed styles, are not taken into account. 
+   * By default, there are no such files. 
+   *
+   * @param settings
+   *    the settings which may give style files as options. 
+   * @throws IOException
+   *    if the files cannot be determined. 
+   *    Then the auxiliary program must be run whenever required. 
+   */
+  Collection<File> getFurtherInputs(LatexMainDesc desc, Settings settings)
+      throws IOException {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Returns the command of the auxiliary program and its options 
+   * as given by <code>settings</code>, 
+   * so that the auxiliary program is rerun if they change. 
+   * By default, this is the empty string. 
+   *
+   * @throws BuildFailureException
+   *    TSS05-08 if the command is not valid. 
+   *    Then running the auxiliary program fails also. 
+   */
+  String getToolIdent(Settings settings) throws BuildFailureException {
+    return "";
+  }
+
+  /**
+   * Returns the style files given by option {@link #OPT_STYLE} 
+   * in <code>options</code> which exist in directory <code>dir</code>. 
+   */
+  private static Collection<File> getStyleFiles(String options, File dir) {
+    List<File> res = new ArrayList<File>();
+    String[] opts = options.trim().split("\\s+");
+    for (int idx = 0; idx < opts.length - 1; idx++) {
+      if (OPT_STYLE.equals(opts[idx])) {
+        addIfExists(res, new File(dir, opts[++idx]));
+      }
+    }
+    return res;
+  }
+
+  private static void addIfExists(Collection<File> files, File file) {
+    if (file.exists()) {
+      files.add(file);
+    }
+  }
+
+  /**
+   * Returns an identifier of the complete content of the files <code>files</code> 
+   * taken in the given ordering. 
+   *
+   * @throws IOException
+   *    if one of the files cannot be read completely, 
+   *    e.g. because it does not exist. 
+   */
+  static FileId getContentIdent(Collection<File> files) throws IOException {
+    FileId fileId = new FileId();
+    ByteBuffer buf = acquireBuffer();
+    try {
+      for (File file : files) {
+        // may throw IOException 
+        buf = readFully(file, buf);
+        fileId.update(buf, 0, buf.limit());
+      }
+    } finally {
+      releaseBuffer(buf);
+    }
+    return fileId.finalizFileId();
+  }
+
   boolean doesFitAuxiliary(File file, Pattern pattern) {
     if (!file.exists()) {
       return false;
@@ -0,0 +1,532 @@
+package eu.simuline.m2latex.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * The bounding box of a jpg-file or of a png-file 
+ * as determined by <code>ebb</code> 
+ * from the header of the file only, 
+ * i.e. from the number of pixels and from the resolution. 
+ * This allows to write <code>.xbb</code>-files and <code>.bb</code>-files 
+ * by {@link #write(File, String, String, boolean)} 
+ * without running <code>ebb</code> 
+ * as in {@link LatexPreProcessor#runEbbByConfig(File)}. 
+ * <p>
+ * For jpg-files, the number of pixels is read from the SOF segment 
+ * and the resolution from the JFIF segment or from the Exif segment. 
+ * For png-files, the number of pixels is read from the IHDR chunk 
+ * and the resolution from the pHYs chunk. 
+ * If the resolution is not given, it is assumed to be 72 dpi. 
+ * Files for which <code>ebb</code> does not determine 
+ * the bounding box unambiguously, 
+ * e.g. jpg-files with inconsistent resolutions 
+ * in the JFIF segment and in the Exif segment, 
+ * are not supported: {@link #read(File)} returns <code>null</code>. 
+ * <p>
+ * The format of the files written mimics that of <code>ebb</code> 
+ * up to the line starting with <code>%%Creator</code> 
+ * which is given by the <code>ebb</code> in use 
+ * and the time of creation. 
+ * Since this format may depend on the version of <code>ebb</code>, 
+ * the lines written by {@link #getLines(String, String, boolean)} 
+ * shall be compared with the output of <code>ebb</code> 
+ * for one file of each variant given by {@link #getVariant()} 
+ * before writing files with {@link #write(File, String, String, boolean)}. 
+ */
+final class BoundingBox {
+
+  /**
+   * The resolution in dpi assumed if not given. 
+   */
+  private static final double DPI_DEFAULT = 72.0;
+
+  /**
+   * The resolution in dpi assumed by <code>ebb</code> 
+   * for <code>.bb</code>-files, i.e. with option <code>-m</code>, 
+   * regardless of the resolution given by the file. 
+   */
+  private static final double DPI_COMPAT = 100.0;
+
+  private static final byte[] SIGNATURE_PNG =
+      new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+  /**
+   * The format of the time of creation as given by <code>asctime</code>. 
+   */
+  private static final DateTimeFormatter ASCTIME =
+      DateTimeFormatter.ofPattern("EEE MMM ppd HH:mm:ss yyyy", Locale.US);
+
+  /**
+   * The environment variable which, if set, 
+   * gives the time of creation in seconds since the epoch. 
+   */
+  private static final String SOURCE_DATE_EPOCH = "SOURCE_DATE_EPOCH";
+
+  /**
+   * The kind of the file and the way the resolution is given, 
+   * e.g. <code>jpg-jfif</code>. 
+   */
+  private final String variant;
+
+  /**
+   * The width in pixels. 
+   */
+  private final long width;
+
+  /**
+   * The height in pixels. 
+   */
+  private final long height;
+
+  /**
+   * The horizontal density in points per pixel. 
+   */
+  private final double xDensity;
+
+  /**
+   * The vertical density in points per pixel. 
+   */
+  private final double yDensity;
+
+  private BoundingBox(String variant, long width, long height,
+      double xDensity, double yDensity) {
+    this.variant = variant;
+    this.width = width;
+    this.height = height;
+    this.xDensity = xDensity;
+    this.yDensity = yDensity;
+  }
+
+  /**
+   * Returns the bounding box of the jpg-file or png-file <code>file</code> 
+   * or <code>null</code> if it cannot be read 
+   * or is not supported as described in the class documentation. 
+   */
+  static BoundingBox read(File file) {
+    try (DataInputStream inStream = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(file)))) {
+      // may throw IOException
+      int first = inStream.readUnsignedByte();
+      if (first == 0xFF) {
+        // may throw IOException
+        return readJpg(inStream);
+      }
+      if (first == (SIGNATURE_PNG[0] & 0xFF)) {
+        // may throw IOException
+        return readPng(inStream);
+      }
+      return null;
+    } catch (IOException ioe) {
+      return null;
+    }
+  }
+
+  // the first byte is already read
+  private static BoundingBox readJpg(DataInputStream inStream)
+      throws IOException {
+    if (inStream.readUnsignedByte() != 0xD8) {
+      return null;
+    }
+    // the resolution in dpi from the JFIF segment and from the Exif segment
+    double[] dpiJfif = null;
+    double[] dpiExif = null;
+    boolean isJfifAspect = false;
+    while (true) {
+      // may throw IOException, in particular EOFException
+      int marker = inStream.readUnsignedByte();
+      if (marker != 0xFF) {
+        return null;
+      }
+      do {
+        marker = inStream.readUnsignedByte();
+      } while (marker == 0xFF);
+      if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+        // no length
+        continue;
+      }
+      int length = inStream.readUnsignedShort() - 2;
+      if (length < 0) {
+        return null;
+      }
+      byte[] data = new byte[length];
+      inStream.readFully(data);
+      switch (marker) {
+        case 0xC0: case 0xC1: case 0xC2: case 0xC3:
+        case 0xC5: case 0xC6: case 0xC7:
+        case 0xC9: case 0xCA: case 0xCB:
+        case 0xCD: case 0xCE: case 0xCF:
+          // SOFn: precision, height, width
+          if (length < 5) {
+            return null;
+          }
+          long height = getUnsigned(data, 1, 2, true);
+          long width = getUnsigned(data, 3, 2, true);
+          return createJpg(width, height, dpiJfif, isJfifAspect, dpiExif);
+        case 0xE0:
+          // APP0
+          if (startsWith(data, "JFIF\0") && length >= 12) {
+            int units = data[7] & 0xFF;
+            long xDens = getUnsigned(data, 8, 2, true);
+            long yDens = getUnsigned(data, 10, 2, true);
+            switch (units) {
+              case 1:
+                dpiJfif = new double[] {xDens, yDens};
+                break;
+              case 2:
+                dpiJfif = new double[] {xDens * 2.54, yDens * 2.54};
+                break;
+              default:
+                // aspect ratio only
+                if (xDens != yDens) {
+                  return null;
+                }
+                isJfifAspect = true;
+                break;
+            }
+          }
+          break;
+        case 0xE1:
+          // APP1
+          if (startsWith(data, "Exif\0\0")) {
+            dpiExif = readExifDpi(data, 6);
+            if (dpiExif != null && dpiExif.length == 0) {
+              // resolution given but not supported
+              return null;
+            }
+          }
+          break;
+        case 0xDA:
+          // SOS before SOF
+          return null;
+        default:
+          // skip segment
+          break;
+      }
+    }
+  }
+
+  /**
+   * Returns the bounding box of a jpg-file 
+   * with the given width and height in pixels 
+   * and resolutions from the JFIF segment and from the Exif segment 
+   * or <code>null</code> if the resolution is ambiguous. 
+   */
+  private static BoundingBox createJpg(long width, long height,
+      double[] dpiJfif, boolean isJfifAspect, double[] dpiExif) {
+    double[] dpi;
+    String variant;
+    if (dpiExif == null) {
+      dpi = dpiJfif;
+      // the aspect ratio is verified separately 
+      variant = dpiJfif != null ? "jpg-jfif"
+          : isJfifAspect ? "jpg-jfif-aspect" : "jpg-none";
+    } else if (dpiJfif == null) {
+      if (isJfifAspect) {
+        // unclear whether the Exif resolution overwrites
+        return null;
+      }
+      dpi = dpiExif;
+      variant = "jpg-exif";
+    } else {
+      if (dpiJfif[0] != dpiExif[0] || dpiJfif[1] != dpiExif[1]) {
+        // inconsistent resolutions
+        return null;
+      }
+      dpi = dpiJfif;
+      variant = "jpg-jfif-exif";
+    }
+    if (dpi == null || (dpi[0] < 0.1 && dpi[1] < 0.1)) {
+      dpi = new double[] {DPI_DEFAULT, DPI_DEFAULT};
+    } else if (dpi[0] < 0.1 || dpi[1] < 0.1) {
+      return null;
+    }
+    return new BoundingBox(variant, width, height,
+        DPI_DEFAULT / dpi[0], DPI_DEFAULT / dpi[1]);
+  }
+
+  /**
+   * Returns the resolution in dpi given by the Exif segment <code>data</code> 
+   * with the TIFF header at <code>offset</code>, 
+   * <code>null</code> if no resolution is given 
+   * and an empty array if the resolution is given but not supported. 
+   */
+  private static double[] readExifDpi(byte[] data, int offset) {
+    double[] unsupported = new double[0];
+    if (data.length < offset + 8) {
+      return unsupported;
+    }
+    boolean isBigEndian;
+    if (data[offset] == 'M' && data[offset + 1] == 'M') {
+      isBigEndian = true;
+    } else if (data[offset] == 'I' && data[offset + 1] == 'I') {
+      isBigEndian = false;
+    } else {
+      return unsupported;
+    }
+    long ifd = offset + getUnsigned(data, offset + 4, 4, isBigEndian);
+    if (ifd + 2 > data.length) {
+      return unsupported;
+    }
+    int numEntries = (int) getUnsigned(data, (int) ifd, 2, isBigEndian);
+    double xRes = -1;
+    double yRes = -1;
+    int unit = -1;
+    for (int idx = 0; idx < numEntries; idx++) {
+      int entry = (int) ifd + 2 + 12 * idx;
+      if (entry + 12 > data.length) {
+        return unsupported;
+      }
+      int tag = (int) getUnsigned(data, entry, 2, isBigEndian);
+      int type = (int) getUnsigned(data, entry + 2, 2, isBigEndian);
+      long count = getUnsigned(data, entry + 4, 4, isBigEndian);
+      switch (tag) {
+        case 0x011A: // XResolution
+        case 0x011B: // YResolution
+          if (type != 5 || count != 1) {
+            return unsupported;
+          }
+          long pos = offset + getUnsigned(data, entry + 8, 4, isBigEndian);
+          if (pos + 8 > data.length) {
+            return unsupported;
+          }
+          long num = getUnsigned(data, (int) pos, 4, isBigEndian);
+          long den = getUnsigned(data, (int) pos + 4, 4, isBigEndian);
+          if (den == 0) {
+            return unsupported;
+          }
+          if (tag == 0x011A) {
+            xRes = (double) num / den;
+          } else {
+            yRes = (double) num / den;
+          }
+          break;
+        case 0x0128: // ResolutionUnit
+          if (type != 3 || count != 1) {
+            return unsupported;
+          }
+          unit = (int) getUnsigned(data, entry + 8, 2, isBigEndian);
+          break;
+        default:
+          break;
+      }
+    }
+    if (xRes < 0 && yRes < 0) {
+      return null;
+    }
+    if (xRes <= 0 || yRes <= 0) {
+      return unsupported;
+    }
+    switch (unit) {
+      case 2: // inch
+        return new double[] {xRes, yRes};
+      case 3: // cm
+        return new double[] {xRes * 2.54, yRes * 2.54};
+      default:
+        // no unit or unit not given
+        return unsupported;
+    }
+  }
+
+  // the first byte is already read
+  private static BoundingBox readPng(DataInputStream inStream)
+      throws IOException {
+    byte[] signature = new byte[SIGNATURE_PNG.length - 1];
+    inStream.readFully(signature);
+    for (int idx = 0; idx < signature.length; idx++) {
+      if (signature[idx] != SIGNATURE_PNG[idx + 1]) {
+        return null;
+      }
+    }
+    long width = -1;
+    long height = -1;
+    while (true) {
+      // may throw IOException, in particular EOFException
+      long length = inStream.readInt() & 0xFFFFFFFFL;
+      byte[] type = new byte[4];
+      inStream.readFully(type);
+      String typeStr = new String(type, StandardCharsets.US_ASCII);
+      switch (typeStr) {
+        case "IHDR":
+          if (length < 8) {
+            return null;
+          }
+          width = inStream.readInt() & 0xFFFFFFFFL;
+          height = inStream.readInt() & 0xFFFFFFFFL;
+          skip(inStream, length - 8 + 4);
+          break;
+        case "pHYs":
+          if (width < 0 || length < 9) {
+            return null;
+          }
+          long xPpu = inStream.readInt() & 0xFFFFFFFFL;
+          long yPpu = inStream.readInt() & 0xFFFFFFFFL;
+          int unit = inStream.readUnsignedByte();
+          if (unit != 1) {
+            // no unit: aspect ratio only
+            return new BoundingBox("png-phys", width, height, 1.0, 1.0);
+          }
+          return new BoundingBox("png-phys", width, height,
+              xPpu == 0 ? 1.0 : DPI_DEFAULT / 0.0254 / xPpu,
+              yPpu == 0 ? 1.0 : DPI_DEFAULT / 0.0254 / yPpu);
+        case "IDAT":
+        case "IEND":
+          // pHYs must precede IDAT
+          return width < 0 ? null
+              : new BoundingBox("png-none", width, height, 1.0, 1.0);
+        default:
+          // skip data and CRC
+          skip(inStream, length + 4);
+          break;
+      }
+    }
+  }
+
+  private static void skip(InputStream inStream, long num) throws IOException {
+    long rem = num;
+    while (rem > 0) {
+      long skipped = inStream.skip(rem);
+      if (skipped <= 0) {
+        throw new EOFException();
+      }
+      rem -= skipped;
+    }
+  }
+
+  private static boolean startsWith(byte[] data, String prefix) {
+    byte[] bytes = prefix.getBytes(StandardCharsets.US_ASCII);
+    if (data.length < bytes.length) {
+      return false;
+    }
+    for (int idx = 0; idx < bytes.length; idx++) {
+      if (data[idx] != bytes[idx]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long getUnsigned(byte[] data, int offset, int num,
+      boolean isBigEndian) {
+    long res = 0;
+    for (int idx = 0; idx < num; idx++) {
+      int pos = isBigEndian ? offset + idx : offset + num - 1 - idx;
+      res = (res << 8) | (data[pos] & 0xFF);
+    }
+    return res;
+  }
+
+  /**
+   * Returns the variant of the file this bounding box is read from, 
+   * i.e. its kind and the way the resolution is given. 
+   * Files of the same variant are treated alike by <code>ebb</code>. 
+   */
+  String getVariant() {
+    return this.variant;
+  }
+
+  /**
+   * Returns the lines of the <code>.xbb</code>-file 
+   * or of the <code>.bb</code>-file 
+   * except the last one giving the time of creation. 
+   *
+   * @param fileName
+   *    the name of the graphic file. 
+   * @param creator
+   *    the creator, i.e. the name and the version of <code>ebb</code>. 
+   * @param isCompat
+   *    whether to create the lines of a <code>.bb</code>-file, 
+   *    i.e. as <code>ebb</code> with option <code>-m</code>. 
+   */
+  String getLines(String fileName, String creator, boolean isCompat) {
+    double xDens = isCompat ? DPI_DEFAULT / DPI_COMPAT : this.xDensity;
+    double yDens = isCompat ? DPI_DEFAULT / DPI_COMPAT : this.yDensity;
+    double urx = xDens * this.width;
+    double ury = yDens * this.height;
+    StringBuilder lines = new StringBuilder();
+    lines.append("%%Title: " + fileName + "\n");
+    lines.append("%%Creator: " + creator + "\n");
+    lines.append("%%BoundingBox: 0 0 " + round(urx) + " " + round(ury) + "\n");
+    if (!isCompat) {
+      lines.append("%%HiResBoundingBox: " + format(0.0) + " " + format(0.0)
+          + " " + format(urx) + " " + format(ury) + "\n");
+    }
+    return lines.toString();
+  }
+
+  private static long round(double val) {
+    return (long) Math.floor(val + 0.5);
+  }
+
+  // as with format %f in C
+  private static String format(double val) {
+    return new BigDecimal(val).setScale(6, RoundingMode.HALF_EVEN)
+        .toPlainString();
+  }
+
+  /**
+   * Writes the <code>.xbb</code>-file or the <code>.bb</code>-file 
+   * <code>file</code> for the graphic file with name <code>fileName</code> 
+   * with lines given by {@link #getLines(String, String, boolean)} 
+   * followed by the time of creation. 
+   *
+   * @param file
+   *    the <code>.xbb</code>-file or the <code>.bb</code>-file to be written. 
+   * @param fileName
+   *    the name of the graphic file. 
+   * @param creator
+   *    the creator, i.e. the name and the version of <code>ebb</code>. 
+   * @param isCompat
+   *    whether to write a <code>.bb</code>-file. 
+   * @throws IOException
+   *    if <code>file</code> cannot be written. 
+   */
+  void write(File file, String fileName, String creator, boolean isCompat)
+      throws IOException {
+    // asctime ends with a newline 
+    String lines = getLines(fileName, creator, isCompat)
+        + "%%CreationDate: " + creationDate() + "\n\n";
+    // may throw IOException
+    try (OutputStream outStream = new FileOutputStream(file)) {
+      outStream.write(lines.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Returns the time of creation as written by <code>asctime</code> 
+   * without the trailing newline: 
+   * in UTC if {@link #SOURCE_DATE_EPOCH} is set, else in local time. 
+   */
+  private static String creationDate() {
+    String epoch = System.getenv(SOURCE_DATE_EPOCH);
+    ZonedDateTime time = null;
+    if (epoch != null) {
+      try {
+        time = Instant.ofEpochSecond(Long.parseLong(epoch.trim()))
+            .atZone(ZoneOffset.UTC);
+      } catch (NumberFormatException nfe) {
+        // ignore as ebb does
+      }
+    }
+    if (time == null) {
+      time = ZonedDateTime.now(ZoneId.systemDefault());
+    }
+    return ASCTIME.format(time);
+  }
+}
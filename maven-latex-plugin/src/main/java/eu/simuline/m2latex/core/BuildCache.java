@@ -0,0 +1,420 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk content-addressed cache for the results of converters, 
+ * shared across builds and across workspaces. 
+ * <p>
+ * An entry is keyed by a hash of the contents of the input files, 
+ * the converter command, its version 
+ * as determined by {@link MetaInfo.Version} 
+ * the argument array and the names of the output files, 
+ * computed by {@link #key(String, String, String[], File, Collection, File[])}. 
+ * An entry is a directory named by its key 
+ * containing a copy of each output file. 
+ * On a hit, {@link #restore(String, File[])} copies the output files 
+ * instead of running the converter. 
+ * Note that files are copied and not hard linked, 
+ * because converters may overwrite their output files in place 
+ * which would corrupt the cache. 
+ * <p>
+ * Entries are evicted least recently used first 
+ * by {@link #evict(LogWrapper)} if the size of the cache exceeds its limit. 
+ * Each hit touches its entry for that purpose. 
+ * New entries are created in a temporary directory 
+ * and moved into place as a whole, 
+ * so that concurrent builds on the same cache 
+ * never see partial entries. 
+ * <p>
+ * There is a single instance for each cache directory 
+ * obtained via {@link #getCache(File, long)}. 
+ * This class is thread safe. 
+ */
+final class BuildCache {
+
+  /**
+   * The name of the subdirectory of the cache directory 
+   * containing the entries. 
+   */
+  private final static String DIR_ENTRIES = "entries";
+
+  /**
+   * The name of the subdirectory of the cache directory 
+   * containing entries under construction. 
+   */
+  private final static String DIR_TMP = "tmp";
+
+  /**
+   * The version of the layout of the cache 
+   * which is part of each key. 
+   */
+  private final static String LAYOUT_VERSION = "1";
+
+  /**
+   * The algorithm of the message digest used for keys. 
+   */
+  private final static String ALGORITHM = "SHA-256";
+
+  /**
+   * The size of the buffer to read input files. 
+   */
+  private final static int SIZE_BUFFER = 1 << 16;
+
+  /**
+   * Maps each cache directory to its cache. 
+   */
+  private final static Map<File, BuildCache> DIR2CACHE =
+      new ConcurrentHashMap<File, BuildCache>();
+
+  /**
+   * Maps the tex path and the commands of converters separated by <code>|</code> 
+   * to their version text 
+   * as given by {@link MetaInfo.Version#getText()}. 
+   * A command is not mapped if its version has not yet been determined. 
+   * It is mapped to the empty string if its version cannot be determined. 
+   */
+  private final static Map<String, String> CMD2VERSION =
+      new ConcurrentHashMap<String, String>();
+
+  /**
+   * The directory containing the entries. 
+   */
+  private final Path entriesDir;
+
+  /**
+   * The directory containing entries under construction. 
+   */
+  private final Path tmpDir;
+
+  /**
+   * The maximal size of the cache in bytes 
+   * which is enforced by {@link #evict(LogWrapper)}. 
+   */
+  private volatile long maxBytes;
+
+  /**
+   * The number of invocations of {@link #restore(String, File[])} 
+   * which found an entry. 
+   */
+  private final AtomicLong numHits;
+
+  /**
+   * The number of invocations of {@link #restore(String, File[])} 
+   * which found no entry. 
+   */
+  private final AtomicLong numMisses;
+
+  private BuildCache(File cacheDir, long maxBytes) {
+    this.entriesDir = new File(cacheDir, DIR_ENTRIES).toPath();
+    this.tmpDir = new File(cacheDir, DIR_TMP).toPath();
+    this.maxBytes = maxBytes;
+    this.numHits = new AtomicLong(0);
+    this.numMisses = new AtomicLong(0);
+  }
+
+  /**
+   * Returns the cache in directory <code>cacheDir</code> 
+   * with maximal size <code>maxBytes</code>. 
+   *
+   * @param cacheDir
+   *    the cache directory which is created when storing the first entry. 
+   * @param maxBytes
+   *    the maximal size of the cache in bytes. 
+   *    This overwrites the maximal size given before for the same directory. 
+   * @return
+   *    the cache in <code>cacheDir</code>. 
+   */
+  static BuildCache getCache(File cacheDir, long maxBytes) {
+    BuildCache cache = DIR2CACHE.computeIfAbsent(cacheDir.getAbsoluteFile(),
+        (File dir) -> new BuildCache(dir, maxBytes));
+    cache.maxBytes = maxBytes;
+    return cache;
+  }
+
+  /**
+   * Returns the version text of the converter with command <code>command</code> 
+   * or <code>null</code> if it cannot be determined, 
+   * e.g. because <code>command</code> is no known {@link Converter}. 
+   * The version is determined only once for each command and tex path. 
+   *
+   * @param command
+   *    the command of a converter. 
+   * @param texPath
+   *    the tex path as given by {@link Settings#getTexPath()}. 
+   * @param executor
+   *    the executor to run <code>command</code> with 
+   *    to determine its version. 
+   * @return
+   *    the version text or <code>null</code>. 
+   */
+  static String getVersion(String command, File texPath,
+      CommandExecutor executor) {
+    String key = texPath + "|" + command;
+    String version = CMD2VERSION.get(key);
+    if (version == null) {
+      Converter conv = Converter.cmd2Conv(command);
+      version = "";
+      if (conv != null) {
+        try {
+          // may throw BuildFailureException TEX01
+          version = new MetaInfo.Version(conv, executor, texPath).getText();
+        } catch (BuildFailureException bfe) {
+          // version remains unknown
+        }
+      }
+      CMD2VERSION.put(key, version);
+    }
+    return version.isEmpty() ? null : version;
+  }
+
+  /**
+   * Returns the key of the cache entry 
+   * for running <code>command</code> with version <code>version</code> 
+   * and arguments <code>args</code> 
+   * on input files <code>inputs</code> creating <code>outputs</code>. 
+   *
+   * @param command
+   *    the command of the converter. 
+   * @param version
+   *    the version text of the converter. 
+   * @param args
+   *    the arguments the converter is invoked with. 
+   * @param workingDir
+   *    the working directory the converter is invoked in. 
+   *    The names of the files <code>inputs</code> and <code>outputs</code> 
+   *    enter the key relative to this directory, 
+   *    so that keys do not depend on the workspace. 
+   * @param inputs
+   *    the input files read by the converter. 
+   * @param outputs
+   *    the output files created by the converter. 
+   * @return
+   *    the key as a hexadecimal string. 
+   * @throws IOException
+   *    if an input file cannot be read. 
+   */
+  String key(String command, String version, String[] args, File workingDir,
+      Collection<File> inputs, File[] outputs) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalStateException(
+          "Message digest " + ALGORITHM + " not available. ", nsae);
+    }
+    update(digest, LAYOUT_VERSION);
+    update(digest, command);
+    update(digest, version);
+    for (String arg : args) {
+      update(digest, arg);
+    }
+    Path workingPath = workingDir.toPath().toAbsolutePath();
+    byte[] buffer = new byte[SIZE_BUFFER];
+    for (File input : inputs) {
+      update(digest, relativeName(workingPath, input));
+      // may throw IOException
+      try (InputStream inStream = Files.newInputStream(input.toPath())) {
+        for (int num = inStream.read(buffer); num != -1;
+            num = inStream.read(buffer)) {
+          digest.update(buffer, 0, num);
+        }
+      }
+    }
+    for (File output : outputs) {
+      update(digest, relativeName(workingPath, output));
+    }
+
+    StringBuilder res = new StringBuilder();
+    for (byte b : digest.digest()) {
+      res.append(String.format("%02x", b));
+    }
+    return res.toString();
+  }
+
+  private static String relativeName(Path workingPath, File file) {
+    return workingPath.relativize(file.toPath().toAbsolutePath()).toString();
+  }
+
+  /**
+   * Updates <code>digest</code> by <code>str</code> 
+   * followed by a separator which cannot occur in <code>str</code>. 
+   */
+  private static void update(MessageDigest digest, String str) {
+    digest.update(str.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Copies the output files of the entry with key <code>key</code> 
+   * to <code>outputs</code> if the entry exists 
+   * and marks the entry as recently used. 
+   *
+   * @param key
+   *    a key as returned by 
+   *    {@link #key(String, String, String[], File, Collection, File[])}. 
+   * @param outputs
+   *    the output files to be restored. 
+   * @return
+   *    whether the entry was found and the outputs are restored. 
+   * @throws IOException
+   *    if the entry was found but restoring failed. 
+   */
+  boolean restore(String key, File[] outputs) throws IOException {
+    Path entryDir = this.entriesDir.resolve(key);
+    if (!Files.isDirectory(entryDir)) {
+      this.numMisses.incrementAndGet();
+      return false;
+    }
+    for (File output : outputs) {
+      // may throw IOException
+      Files.copy(entryDir.resolve(output.getName()), output.toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+    // mark as recently used for eviction
+    Files.setLastModifiedTime(entryDir,
+        FileTime.fromMillis(System.currentTimeMillis()));
+    this.numHits.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Stores copies of <code>outputs</code> in the entry with key <code>key</code> 
+   * unless the entry exists already. 
+   *
+   * @param key
+   *    a key as returned by 
+   *    {@link #key(String, String, String[], File, Collection, File[])}. 
+   * @param outputs
+   *    the existing output files to be stored. 
+   * @throws IOException
+   *    if storing failed. 
+   */
+  void store(String key, File[] outputs) throws IOException {
+    Path entryDir = this.entriesDir.resolve(key);
+    if (Files.isDirectory(entryDir)) {
+      return;
+    }
+    // may throw IOException
+    Files.createDirectories(this.entriesDir);
+    Files.createDirectories(this.tmpDir);
+    Path newDir = this.tmpDir.resolve(key + "." + UUID.randomUUID());
+    Files.createDirectory(newDir);
+    try {
+      for (File output : outputs) {
+        Files.copy(output.toPath(), newDir.resolve(output.getName()));
+      }
+      Files.move(newDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ioe) {
+      if (Files.isDirectory(entryDir)) {
+        // stored concurrently by another build
+        deleteEntry(newDir);
+        return;
+      }
+      deleteEntry(newDir);
+      throw ioe;
+    }
+  }
+
+  /**
+   * Deletes the entry directory <code>dir</code> with all its files 
+   * and returns the number of bytes freed. 
+   */
+  private static long deleteEntry(Path dir) throws IOException {
+    long size = 0;
+    if (!Files.isDirectory(dir)) {
+      return size;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        size += Files.size(file);
+        Files.delete(file);
+      }
+    }
+    Files.delete(dir);
+    return size;
+  }
+
+  /**
+   * Returns the size of the entry directory <code>dir</code> in bytes. 
+   */
+  private static long sizeEntry(Path dir) throws IOException {
+    long size = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        size += Files.size(file);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Deletes entries least recently used first 
+   * until the size of the cache does not exceed its limit. 
+   * <p>
+   * Logging: 
+   * WBC02: if the cache cannot be read or an entry cannot be deleted. 
+   *
+   * @param log
+   *    the log to write on. 
+   */
+  void evict(LogWrapper log) {
+    if (!Files.isDirectory(this.entriesDir)) {
+      return;
+    }
+    List<Path> entries = new ArrayList<Path>();
+    long size = 0;
+    try (Stream<Path> dirs = Files.list(this.entriesDir)) {
+      dirs.forEach(entries::add);
+      for (Path entry : entries) {
+        size += sizeEntry(entry);
+      }
+    } catch (IOException ioe) {
+      log.warn("WBC02: Cannot determine size of build cache '"
+          + this.entriesDir + "'. ");
+      return;
+    }
+    if (size <= this.maxBytes) {
+      return;
+    }
+    entries.sort(Comparator.comparing((Path entry) -> entry.toFile().lastModified()));
+    for (Path entry : entries) {
+      if (size <= this.maxBytes) {
+        break;
+      }
+      try {
+        size -= deleteEntry(entry);
+      } catch (IOException ioe) {
+        log.warn("WBC02: Cannot evict entry '" + entry
+            + "' from build cache. ");
+      }
+    }
+  }
+
+  /**
+   * Returns a string with the number of hits and misses for diagnostics. 
+   */
+  String statistics() {
+    return "build cache: " + this.numHits.get() + " hits, "
+        + this.numMisses.get() + " misses. ";
+  }
+}
@@ -18,44 +18,83 @@
 
 package eu.simuline.m2latex.core;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
 
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-
-import        org.codehaus.plexus.util.cli.CommandLineException;
-import        org.codehaus.plexus.util.cli.Commandline;// constructor
-import static org.codehaus.plexus.util.cli.CommandLineUtils.executeCommandLine;
-import        org.codehaus.plexus.util.cli.CommandLineUtils.StringStreamConsumer;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Execution of an executable with given arguments 
  * in a given working directory logging on {@link #log}. 
- * Sole interface to <code>org.codehaus.plexus.util.cli</code>. 
+ * Commands are started by a {@link ProcessBuilder} directly, 
+ * i.e. without a shell, 
+ * and are killed together with their descendants 
+ * if they exceed the timeout set by {@link #setTimeouts(Map)}, 
+ * if the thread waiting for them is interrupted 
+ * or if the JVM shuts down. 
  */
 class CommandExecutor {
 
   /**
    * Represents the result of the invocation of a command 
-   * consisting of the {@link #output} and its {@link #returnCode}. 
+   * consisting of the output given by {@link #tail} and {@link #outputFile} 
+   * and its {@link #returnCode}. 
    * In addition the {@link CommandExecutor.ReturnCodeChecker} 
    * given by {@link #checker} plays a role to determine 
    * whether the return code signifies success, 
    * which is returned by {@link #getSuccess()}. 
    */
   static class CmdResult {
-    final String output;
+    /**
+     * The last lines of the output, i.e. of standard output and standard error, 
+     * each line terminated by a line separator, 
+     * comprising at most about {@link OutputCapture#TAIL_MAX_CHARS} characters. 
+     * This is the complete output if {@link #outputFile} is <code>null</code>. 
+     */
+    final String tail;
+
+    /**
+     * The file containing the complete output 
+     * or <code>null</code> if the output is given by {@link #tail} completely. 
+     * This file is deleted as described for {@link OutputCapture}. 
+     */
+    final File outputFile;
     final private ReturnCodeChecker checker;
     final int returnCode;
 
-    CmdResult(String output, ReturnCodeChecker checker, int returnCode) {
-      this.output = output;
+    CmdResult(String tail, File outputFile, ReturnCodeChecker checker,
+        int returnCode) {
+      this.tail = tail;
+      this.outputFile = outputFile;
       this.checker = checker;
       this.returnCode = returnCode;
     }
@@ -69,11 +108,260 @@ class CommandExecutor {
       res.append("<CmdResult>");
       res.append("\nreturnCode" + this.returnCode);
       res.append("\nsuccess" + this.getSuccess());
+      res.append("\noutputFile" + this.outputFile);
       res.append("\n</CmdResult>");
       return res.toString();
     }
   } // class CmdResult 
 
+  /**
+   * Captures the output of a command, i.e. its standard output 
+   * and its standard error, line by line in bounded memory. 
+   * Only the last lines, at most about {@link #TAIL_MAX_CHARS} characters, 
+   * are kept in memory. 
+   * If the output is longer, the lines dropped from the tail 
+   * are streamed to an output file 
+   * which finally contains the complete output. 
+   * These files are in a temporary directory 
+   * and of the files of closed captures 
+   * only the last {@link #NUM_OUTPUT_FILES} ones are kept, 
+   * so that also disk space is bounded. 
+   * The file of a capture not yet closed is never deleted, 
+   * so that commands running concurrently keep their complete output. 
+   * In addition, each line is passed to a line consumer, if given, 
+   * while the command is still running. 
+   * <p>
+   * Since the output is read in a thread 
+   * other than the one waiting for the command, 
+   * this class is thread safe. 
+   */
+  static final class OutputCapture {
+
+    /**
+     * The maximal number of characters of the tail 
+     * kept in memory, including line separators. 
+     * The tail always comprises the last line, even if it is longer. 
+     */
+    static final int TAIL_MAX_CHARS = 1 << 16;
+
+    /**
+     * The number of output files of closed captures kept. 
+     * When closing a capture exceeding this number, 
+     * the oldest output file of a closed capture is deleted. 
+     */
+    static final int NUM_OUTPUT_FILES = 16;
+
+    /**
+     * The output files of closed captures kept, the oldest one first. 
+     */
+    private static final Deque<File> OUTPUT_FILES_CLOSED =
+        new ArrayDeque<File>();
+
+    /**
+     * The number of output files created so far. 
+     */
+    private static long numOutputFiles = 0;
+
+    /**
+     * The temporary directory containing the output files 
+     * or <code>null</code> if not yet created. 
+     */
+    private static File outputDir = null;
+
+    private final String command;
+
+    /**
+     * The consumer each line is passed to or <code>null</code>. 
+     */
+    private final Consumer<String> lineConsumer;
+
+    private final LogWrapper log;
+
+    /**
+     * The last lines of the output. 
+     */
+    private final Deque<String> tail;
+
+    /**
+     * The number of characters of {@link #tail} 
+     * including a line separator for each line. 
+     */
+    private int numCharsTail;
+
+    /**
+     * The file containing the output 
+     * or <code>null</code> if the output is given by {@link #tail} completely. 
+     */
+    private File file;
+
+    /**
+     * The writer to {@link #file} 
+     * or <code>null</code> if there is no file 
+     * or if writing failed. 
+     */
+    private Writer writer;
+
+    /**
+     * Whether {@link #close(ReturnCodeChecker, int)} has been invoked. 
+     * Lines consumed afterwards are ignored. 
+     * This happens only if the command has been killed. 
+     */
+    private boolean isClosed;
+
+    OutputCapture(String command, Consumer<String> lineConsumer,
+        LogWrapper log) {
+      this.command = command;
+      this.lineConsumer = lineConsumer;
+      this.log = log;
+      this.tail = new ArrayDeque<String>();
+      this.numCharsTail = 0;
+      this.file = null;
+      this.writer = null;
+      this.isClosed = false;
+    }
+
+    /**
+     * Returns a new output file for a run of command <code>command</code>. 
+     *
+     * @throws IOException
+     *    if the temporary directory containing the output files 
+     *    cannot be created. 
+     */
+    private static synchronized File newOutputFile(String command)
+        throws IOException {
+      if (outputDir == null) {
+        // may throw IOException 
+        outputDir = Files.createTempDirectory("latex-maven-plugin-").toFile();
+        outputDir.deleteOnExit();
+      }
+      File res = new File(outputDir, String.format("%06d-%s.out",
+          numOutputFiles, new File(command).getName()));
+      res.deleteOnExit();
+      numOutputFiles++;
+      return res;
+    }
+
+    /**
+     * Records <code>file</code> as the output file of a capture just closed 
+     * deleting the oldest output file of a closed capture 
+     * if {@link #NUM_OUTPUT_FILES} are exceeded. 
+     */
+    private static synchronized void rotate(File file) {
+      OUTPUT_FILES_CLOSED.addLast(file);
+      while (OUTPUT_FILES_CLOSED.size() > NUM_OUTPUT_FILES) {
+        OUTPUT_FILES_CLOSED.removeFirst().delete();
+      }
+    }
+
+    /**
+     * Passes <code>line</code> to the line consumer, if any, 
+     * and appends it to the tail, 
+     * streaming the lines dropped from the tail to the output file. 
+     * <p>
+     * Logging: 
+     * WEX06: if the output file cannot be written. 
+     */
+    synchronized void consumeLine(String line) {
+      if (this.isClosed) {
+        return;
+      }
+      if (this.lineConsumer != null) {
+        this.lineConsumer.accept(line);
+      }
+      this.tail.addLast(line);
+      this.numCharsTail += line.length() + System.lineSeparator().length();
+      String first;
+      while (this.numCharsTail > TAIL_MAX_CHARS && this.tail.size() > 1) {
+        first = this.tail.removeFirst();
+        this.numCharsTail -= first.length() + System.lineSeparator().length();
+        // may log WEX06 
+        write(first);
+      }
+    }
+
+    // may log WEX06 
+    private void write(String line) {
+      try {
+        if (this.file == null) {
+          // may throw IOException 
+          this.file = newOutputFile(this.command);
+          this.writer = new BufferedWriter(new FileWriter(this.file));
+        }
+        if (this.writer != null) {
+          // may throw IOException 
+          this.writer.write(line);
+          this.writer.write(System.lineSeparator());
+        }
+      } catch (IOException ioe) {
+        this.log.warn("WEX06: Cannot write output of " + this.command
+            + " to file '" + this.file + "'; only its tail is kept. ");
+        closeWriter();
+      }
+    }
+
+    private void closeWriter() {
+      if (this.writer == null) {
+        return;
+      }
+      try {
+        // may throw IOException 
+        this.writer.close();
+      } catch (IOException ioe) {
+        this.log.warn("WEX06: Cannot write output of " + this.command
+            + " to file '" + this.file + "'; only its tail is kept. ");
+      }
+      this.writer = null;
+    }
+
+    /**
+     * Completes the output file, if any, 
+     * and returns the result of the command. 
+     * This is invoked after the command terminated 
+     * and all of its output is consumed. 
+     * From then on, the output file is subject to rotation 
+     * as described in the class documentation. 
+     * <p>
+     * Logging: 
+     * WEX06: if the output file cannot be written. 
+     *
+     * @param checker
+     *    the checker for the return code. 
+     * @param returnCode
+     *    the return code of the command. 
+     */
+    synchronized CmdResult close(ReturnCodeChecker checker, int returnCode) {
+      boolean wasClosed = this.isClosed;
+      this.isClosed = true;
+      StringBuilder tailStr = new StringBuilder();
+      for (String line : this.tail) {
+        tailStr.append(line).append(System.lineSeparator());
+      }
+      if (this.writer != null) {
+        try {
+          // may throw IOException 
+          this.writer.write(tailStr.toString());
+        } catch (IOException ioe) {
+          this.log.warn("WEX06: Cannot write output of " + this.command
+              + " to file '" + this.file + "'; only its tail is kept. ");
+        }
+      }
+      // may log WEX06 
+      closeWriter();
+      if (this.file != null && !wasClosed) {
+        rotate(this.file);
+      }
+      return new CmdResult(tailStr.toString(), this.file, checker, returnCode);
+    }
+
+    /**
+     * Returns whether {@link #close(ReturnCodeChecker, int)} 
+     * has been invoked. 
+     */
+    synchronized boolean isClosed() {
+      return this.isClosed;
+    }
+  } // class OutputCapture 
+
   /**
    * The way return codes are checked: Not at all, if nonzero and special treatments. 
    * This is used in 
@@ -138,6 +426,132 @@ class CommandExecutor {
     abstract boolean hasFailed(int returnCode);
   } // enum ReturnCodeChecker 
 
+  /**
+   * The fingerprint of a file consisting of its size, 
+   * its modification time in full resolution of the file system 
+   * and its file key which is typically given by device and inode if available. 
+   * A file is considered updated by a command 
+   * if its fingerprint after execution differs from the one before. 
+   * <p>
+   * For file systems with modification time in steps of seconds 
+   * a file rewritten within the same second with the same size and inode 
+   * cannot be distinguished from a file not rewritten. 
+   * Only for such file systems, 
+   * {@link CommandExecutor#execute(File, File, Map, String, ReturnCodeChecker, String[], Consumer, File...)} 
+   * waits before execution. 
+   * 
+   * @see CommandExecutor#fingerprintOrNull(File)
+   */
+  static final class Fingerprint {
+    private final long size;
+    private final FileTime lastModified;
+    private final Object fileKey;
+
+    Fingerprint(BasicFileAttributes attrs) {
+      this.size = attrs.size();
+      this.lastModified = attrs.lastModifiedTime();
+      this.fileKey = attrs.fileKey();
+    }
+
+    long lastModifiedMs() {
+      return this.lastModified.to(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns whether the modification time has a fraction of a second. 
+     * If so, the file system is proven to provide timestamps 
+     * finer than a second. 
+     */
+    boolean hasSubSecondTime() {
+      return this.lastModified.toInstant().getNano() != 0;
+    }
+
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Fingerprint)) {
+        return false;
+      }
+      Fingerprint other = (Fingerprint) obj;
+      return this.size == other.size
+          && this.lastModified.equals(other.lastModified)
+          && Objects.equals(this.fileKey, other.fileKey);
+    }
+
+    public int hashCode() {
+      return Objects.hash(this.size, this.lastModified, this.fileKey);
+    }
+
+    public String toString() {
+      return "<Fingerprint size=" + this.size + " lastModified="
+          + this.lastModified + " fileKey=" + this.fileKey + "/>";
+    }
+  } // class Fingerprint 
+
+  /**
+   * The set of directories containing target files 
+   * for which a modification time with a fraction of a second was observed, 
+   * proving that the file system provides fine timestamps. 
+   * As long as a directory is not in this set, 
+   * its file system is assumed to have timestamps in steps of seconds, 
+   * so that an update within the same second may be undetectable. 
+   * Since target files are located in few directories only, 
+   * this set is small, and as it is shared between executors, it is concurrent. 
+   */
+  private static final Set<File> DIRS_FINE_TIMESTAMPS =
+      ConcurrentHashMap.newKeySet();
+
+  /**
+   * The exit code a shell returns if a command cannot be found. 
+   * This is the return code if the executable of a command 
+   * cannot be resolved by {@link ExecutableResolver}. 
+   */
+  private static final int RETURN_CODE_NOT_FOUND = 127;
+
+  /**
+   * The time in milliseconds to wait for the output of a process 
+   * to be read completely after the process has been killed 
+   * or after its descendants keeping the output open have been killed. 
+   * If the output is not read completely by then, it is closed. 
+   * This is also the interval in which the descendants of a running process 
+   * are recorded and in which it is checked 
+   * whether they are still alive after the process terminated. 
+   */
+  private static final long KILL_WAIT_MS = 1000;
+
+  /**
+   * The pool of threads reading the output of the processes. 
+   * Threads are created on demand and reused, 
+   * so that the number of threads is bounded 
+   * by the number of processes running concurrently. 
+   * They are daemon threads, so they do not prevent the JVM from exiting. 
+   */
+  private static final ExecutorService PUMPS;
+
+  /**
+   * The processes currently running. 
+   * These are killed together with their descendants 
+   * by {@link #DESTROY_PROCESSES} 
+   * if the JVM shuts down, e.g. if the build is cancelled. 
+   * Access is synchronized on this set. 
+   */
+  private static final Set<Process> PROCESSES_RUNNING = new HashSet<Process>();
+
+  /**
+   * The shutdown hook killing the {@link #PROCESSES_RUNNING}. 
+   * It is registered only while processes are running, 
+   * so that no hook is left 
+   * referring to this class and thus to its class loader 
+   * if the JVM survives the build, e.g. in a maven daemon. 
+   */
+  private static final Thread DESTROY_PROCESSES = new Thread(() -> {
+    List<Process> processes;
+    synchronized (PROCESSES_RUNNING) {
+      processes = new ArrayList<Process>(PROCESSES_RUNNING);
+    }
+    for (Process process : processes) {
+      destroyTree(process);
+    }
+  }, "destroy-processes");
+
 
   /**
    * Represents an environment used to reproduce a given PDF file 
@@ -161,7 +575,8 @@ class CommandExecutor {
    * @see #ENV_TIMEZONE
    * @see #DATE_EPOCH
   */
-  // before using this, key DATE_EPOCH with according value is put 
+  // this one is immutable; 
+  // before using a copy, key DATE_EPOCH with according value is put 
   private static final Map<String, String> ENV_TIMESTAMP_FORCE_TZ;
 
   // this one is immutable 
@@ -197,6 +612,14 @@ class CommandExecutor {
     ENV_TIMEZONE.put("TZ","utc");
 
     ENV_EMPTY = new TreeMap<String, String>();
+
+    final AtomicInteger count = new AtomicInteger(0);
+    PUMPS = Executors.newCachedThreadPool((Runnable runnable) -> {
+      Thread thread =
+          new Thread(runnable, "output-pump-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   /*
@@ -205,6 +628,14 @@ class CommandExecutor {
    */
   private Map<String, String> env;
 
+  /**
+   * Maps commands to the timeout in milliseconds 
+   * after which they are killed. 
+   * Commands not in this map are not subject to a timeout. 
+   * This is set by {@link #setTimeouts(Map)} and never modified. 
+   */
+  private Map<String, Long> cmd2timeoutMs;
+
   private final LogWrapper log;
 
 
@@ -217,11 +648,43 @@ class CommandExecutor {
    */
   CommandExecutor(LogWrapper log) {
     envReset();
+    this.cmd2timeoutMs = Collections.emptyMap();
     this.log = log;
   }
 
 
 
+  /**
+   * Returns a new executor logging onto <code>log</code> 
+   * with the same environment as this one. 
+   * This is used to run commands concurrently, each logging on its own log. 
+   *
+   * @param log
+   *    the logger of the executor returned. 
+   */
+  CommandExecutor withLog(LogWrapper log) {
+    CommandExecutor res = new CommandExecutor(log);
+    res.env = this.env;
+    res.cmd2timeoutMs = this.cmd2timeoutMs;
+    return res;
+  }
+
+  /**
+   * Sets the timeouts of the commands executed by this executor 
+   * and by the executors created by {@link #withLog(LogWrapper)} afterwards. 
+   * A command running longer than its timeout 
+   * is killed together with its descendants. 
+   *
+   * @param cmd2timeoutMs
+   *    maps commands as passed to the <code>execute</code> methods 
+   *    to their timeouts in milliseconds. 
+   *    Commands not in this map are not subject to a timeout. 
+   */
+  void setTimeouts(Map<String, Long> cmd2timeoutMs) {
+    this.cmd2timeoutMs = Collections.unmodifiableMap(
+        new TreeMap<String, Long>(cmd2timeoutMs));
+  }
+
   void envReset() {
     this.env = ENV_EMPTY;
   }
@@ -230,9 +693,13 @@ class CommandExecutor {
     this.env = ENV_TIMEZONE;
   }
 
+  // the environment is a copy specific for this executor, 
+  // because executors for different latex main files run concurrently 
   void envSetTimestamp(long timestampSec) {
-    ENV_TIMESTAMP_FORCE_TZ.put(DATE_EPOCH, Long.toString(timestampSec));
-    this.env = ENV_TIMESTAMP_FORCE_TZ;
+    Map<String, String> envTimestamp =
+        new TreeMap<String, String>(ENV_TIMESTAMP_FORCE_TZ);
+    envTimestamp.put(DATE_EPOCH, Long.toString(timestampSec));
+    this.env = envTimestamp;
   }
 
   /**
@@ -243,7 +710,7 @@ class CommandExecutor {
    * given by <code>resFile</code> is not newly created, 
    * i.e. if it does not exist or is not updated. 
    * This is a convenience method of 
-   * {@link #execute(File, File, Map<String,String>, String, ReturnCodeChecker, String[], File... )}, 
+   * {@link #execute(File, File, Map<String,String>, String, ReturnCodeChecker, String[], Consumer, File... )}, 
    * where the boolean signifies whether the return code is checked. 
    * This is set to <code>true</code> in this method. 
    * <p>
@@ -258,8 +725,7 @@ class CommandExecutor {
    *
    * @param workingDir
    *    the working directory or <code>null</code>. 
-   *    The shell changes to that directory 
-   *    before invoking <code>command</code> 
+   *    The command <code>command</code> is started in that directory 
    *    with arguments <code>args</code> if this is not <code>null</code>. 
    *    Argument <code>null</code> is allowed only 
    *    if no result files are given by <code>resFile</code>. 
@@ -271,8 +737,7 @@ class CommandExecutor {
    * @param command
    *    the name of the program to be executed 
    * @param args
-   *    the list of arguments, 
-   *    each containing a blank enclosed in double quotes. 
+   *    the list of arguments which are passed literally. 
    * @param resFiles
    *    optional result files, i.e. target files which shall be updated 
    *    by this command. 
@@ -281,29 +746,61 @@ class CommandExecutor {
    *    and whether the return code is nonzero, i.e. the command succeeded. 
    *    The io stream is used in tests only whereas the return code is used for pdfdiffs. 
    * @throws BuildFailureException
+   *    <ul>
+   *    <li> 
    *    TEX01 if invocation of <code>command</code> fails very basically: 
    *    <ul>
-   *    <li><!-- see Commandline.execute() -->
+   *    <li> 
    *    the file expected to be the working directory 
    *    does not exist or is not a directory. 
-   *    <li><!-- see Commandline.execute() -->
-   *    {@link Runtime#exec(String, String[], File)} fails 
+   *    <li> 
+   *    {@link ProcessBuilder#start()} fails 
    *    throwing an {@link java.io.IOException}. 
-   *    <li> <!-- see CommandLineCallable.call() -->
-   *    an error inside systemOut parser occurs 
-   *    <li> <!-- see CommandLineCallable.call() -->
-   *    an error inside systemErr parser occurs 
+   *    <li> 
+   *    reading the output fails. 
    *    <li> Wrapping an {@link InterruptedException} 
    *    on the process to be executed thrown by {@link Process#waitFor()}. 
    *    </ul>
+   *    <li> 
+   *    TEX02 if <code>command</code> exceeds its timeout 
+   *    set by {@link #setTimeouts(Map)}. 
+   *    </ul>
+   */
+  CmdResult executeEnvR0(File workingDir,
+                    File pathToExecutable,
+                    String command,
+                    String[] args,
+                    File... resFiles) throws BuildFailureException {
+    return execute(workingDir, pathToExecutable, this.env,
+          command, ReturnCodeChecker.IsNonZero, args, null, resFiles);
+  }
+
+  /**
+   * Like {@link #executeEnvR0(File, File, String, String[], File...)} 
+   * but passing each line of the output to <code>lineConsumer</code> 
+   * while <code>command</code> is still running. 
+   * This allows to parse the output while it is produced 
+   * without keeping all of it in memory. 
+   * Note that <code>lineConsumer</code> is invoked 
+   * from the threads reading standard output and standard error 
+   * and so must be thread safe. 
+   * <p>
+   * Logging: as for {@link #executeEnvR0(File, File, String, String[], File...)} 
+   * and WEX06 if the output cannot be written to a file 
+   * and WEX07 if descendants keeping the output open are killed. 
+   *
+   * @throws BuildFailureException
+   *    TEX01 as for {@link #executeEnvR0(File, File, String, String[], File...)} 
+   *    and also if <code>lineConsumer</code> throws an exception. 
    */
   CmdResult executeEnvR0(File workingDir,
                     File pathToExecutable,
                     String command,
                     String[] args,
+                    Consumer<String> lineConsumer,
                     File... resFiles) throws BuildFailureException {
     return execute(workingDir, pathToExecutable, this.env,
-          command, ReturnCodeChecker.IsNonZero, args, resFiles);
+          command, ReturnCodeChecker.IsNonZero, args, lineConsumer, resFiles);
   }
 
   /**
@@ -325,8 +822,7 @@ class CommandExecutor {
    *
    * @param workingDir
    *    the working directory or <code>null</code>. 
-   *    The shell changes to that directory 
-   *    before invoking <code>command</code> 
+   *    The command <code>command</code> is started in that directory 
    *    with arguments <code>args</code> if this is not <code>null</code>. 
    *    Argument <code>null</code> is allowed only 
    *    if no result files are given by <code>resFile</code>. 
@@ -338,8 +834,7 @@ class CommandExecutor {
    * @param command
    *    the name of the program to be executed 
    * @param args
-   *    the list of arguments, 
-   *    each containing a blank enclosed in double quotes. 
+   *    the list of arguments which are passed literally. 
    * @param resFile
    *    a result file which must exist after this command has been processed. 
    *    It need  which shall be updated 
@@ -349,21 +844,25 @@ class CommandExecutor {
    *    and whether the return code is nonzero, i.e. the command succeeded. 
    *    The io stream is used in tests only whereas the return code is used for pdfdiffs. 
    * @throws BuildFailureException
+   *    <ul>
+   *    <li> 
    *    TEX01 if invocation of <code>command</code> fails very basically: 
    *    <ul>
-   *    <li><!-- see Commandline.execute() -->
+   *    <li> 
    *    the file expected to be the working directory 
    *    does not exist or is not a directory. 
-   *    <li><!-- see Commandline.execute() -->
-   *    {@link Runtime#exec(String, String[], File)} fails 
+   *    <li> 
+   *    {@link ProcessBuilder#start()} fails 
    *    throwing an {@link java.io.IOException}. 
-   *    <li> <!-- see CommandLineCallable.call() -->
-   *    an error inside systemOut parser occurs 
-   *    <li> <!-- see CommandLineCallable.call() -->
-   *    an error inside systemErr parser occurs 
+   *    <li> 
+   *    reading the output fails. 
    *    <li> Wrapping an {@link InterruptedException} 
    *    on the process to be executed thrown by {@link Process#waitFor()}. 
    *    </ul>
+   *    <li> 
+   *    TEX02 if <code>command</code> exceeds its timeout 
+   *    set by {@link #setTimeouts(Map)}. 
+   *    </ul>
    */
   CmdResult executeBuild(File workingDir,
                          File pathToExecutable,
@@ -390,23 +889,23 @@ class CommandExecutor {
    *      return code other than 0 and <code>checkReturnCode</code> is set. 
    * <li> EEX02: a target file after execution missing 
    * <li> EEX03: a target file is not updated, 
-   *      i.e. timestamp after not later than before. 
+   *      i.e. fingerprint after coincides with the one before. 
    *      This implies the file existed 
    *      before and after execution of <code>command</code> 
-   *      and that timestamps were readable before and after. 
-   * <li> WEX04: cannot read timestamp of a target file, 
+   *      and that fingerprints were readable before and after. 
+   * <li> WEX04: cannot read fingerprint of a target file, 
    *      either before execution or after. 
-   *      Readability of the timestamp before execution is checked only 
-   *      if the file exists and also readability of the timestamp after 
+   *      Readability of the fingerprint before execution is checked only 
+   *      if the file exists and also readability of the fingerprint after 
    *      is checked only if the file existed before and after execution. 
    * <li> WEX05: may emit false warnings: if modification times are too close 
+   *      on a file system with timestamps in steps of seconds 
    *      and this cannot be corrected by sleeping. 
    * </ul>
    *
    * @param workingDir
    *    the working directory or <code>null</code>. 
-   *    The shell changes to that directory 
-   *    before invoking <code>command</code> 
+   *    The command <code>command</code> is started in that directory 
    *    with arguments <code>args</code> if this is not <code>null</code>. 
    *    Argument <code>null</code> is allowed only 
    *    if no result files are given by <code>resFile</code>. 
@@ -421,11 +920,13 @@ class CommandExecutor {
    * @param command
    *    the name of the program to be executed 
    * @param args
-   *    the list of arguments, 
-   *    each containing a blank enclosed in double quotes. 
+   *    the list of arguments which are passed literally. 
    * @param checker
    *    the checker for the return code 
    *    which decides whether an execution error EEX01 has to be logged. 
+   * @param lineConsumer
+   *    the consumer each line of the output is passed to 
+   *    while the command is running or <code>null</code>. 
    * @param resFiles
    *    optional result files, i.e. target files which shall be updated 
    *    by this command. 
@@ -434,21 +935,25 @@ class CommandExecutor {
    *    and whether the return code is nonzero, i.e. the command succeeded. 
    *    The io stream is used in tests only whereas the return code is used for pdfdiffs. 
    * @throws BuildFailureException
+   *    <ul>
+   *    <li> 
    *    TEX01 if invocation of <code>command</code> fails very basically: 
    *    <ul>
-   *    <li><!-- see Commandline.execute() -->
+   *    <li> 
    *    the file expected to be the working directory 
    *    does not exist or is not a directory. 
-   *    <li><!-- see Commandline.execute() -->
-   *    {@link Runtime#exec(String, String[], File)} fails 
+   *    <li> 
+   *    {@link ProcessBuilder#start()} fails 
    *    throwing an {@link java.io.IOException}. 
-   *    <li> <!-- see CommandLineCallable.call() -->
-   *    an error inside systemOut parser occurs 
-   *    <li> <!-- see CommandLineCallable.call() -->
-   *    an error inside systemErr parser occurs 
+   *    <li> 
+   *    reading the output fails. 
    *    <li> Wrapping an {@link InterruptedException} 
    *    on the process to be executed thrown by {@link Process#waitFor()}. 
    *    </ul>
+   *    <li> 
+   *    TEX02 if <code>command</code> exceeds its timeout 
+   *    set by {@link #setTimeouts(Map)}. 
+   *    </ul>
    */
   private CmdResult execute(File workingDir,
                             File pathToExecutable,
@@ -456,39 +961,44 @@ class CommandExecutor {
                             String command,
                             ReturnCodeChecker checker,
                             String[] args,
+                            Consumer<String> lineConsumer,
                             File... resFiles) throws BuildFailureException {
     // analyze old result files 
     //assert resFile.length > 0;
 
-    // determine target files and their timestamps before execution 
+    // determine target files and their fingerprints before execution 
     boolean[] existsTarget = new boolean[resFiles.length];
-    Long[] lastModifiedTargetMs = new Long[resFiles.length];
+    Fingerprint[] fingerprintTarget = new Fingerprint[resFiles.length];
     long currentTimeMs = System.currentTimeMillis();
     long minTimePastMs = Long.MAX_VALUE;
-    Long modTimeOrNull;
+    Fingerprint fingerprint;
     for (int idx = 0; idx < resFiles.length; idx++) {
       existsTarget[idx] = resFiles[idx].exists();
       if (existsTarget[idx]) {
-        // if modification time undetermined: null and emit warning WEX04 
-        modTimeOrNull = modTimeOrNull(resFiles[idx]);
-        lastModifiedTargetMs[idx] = modTimeOrNull;
-        if (modTimeOrNull == null) {
+        // if fingerprint undetermined: null and emit warning WEX04 
+        fingerprint = fingerprintOrNull(resFiles[idx]);
+        fingerprintTarget[idx] = fingerprint;
+        if (fingerprint == null) {
           // Here, already a warning WEX04 has been emitted 
-          // also lastModifiedTargetMs[idx] == null 
+          // also fingerprintTarget[idx] == null 
+          continue;
+        }
+        if (!hasCoarseTimestamps(resFiles[idx], fingerprint)) {
+          // Here, an update within the same second is detected anyway. 
           continue;
         }
-        assert modTimeOrNull <= currentTimeMs;
-        // correct even if lastModifiedTarget[idx]==0 
-        minTimePastMs = Math.min(minTimePastMs, currentTimeMs - modTimeOrNull);
+        // correct even if lastModifiedMs()==0 
+        minTimePastMs = Math.min(minTimePastMs,
+            currentTimeMs - fingerprint.lastModifiedMs());
       }
     }
 
-    // FIXME: this is based on a file system 
-    // with modification time in steps of seconds, i.e. 1000ms 
+    // Only for file systems with modification time in steps of seconds, 
+    // i.e. 1000ms, an update in the same second may be undetectable. 
     if (minTimePastMs < 1001) {
       try {
         // 1001 is the minimal span of time to change modification time 
-        Thread.sleep(1001 - minTimePastMs);// for update control of target 
+        Thread.sleep(1001 - Math.max(0, minTimePastMs));// for update control of target 
       } catch (InterruptedException ie) {
         this.log.warn("WEX05: Update control may emit false warnings. ");
       }
@@ -501,13 +1011,13 @@ class CommandExecutor {
 
     // Proper execution 
     // may throw BuildFailureException TEX01, log warning EEX01 
-    CmdResult res =
-        execute(workingDir, pathToExecutable, env, command, checker, args);
+    CmdResult res = execute(workingDir, pathToExecutable, env, command,
+        checker, args, lineConsumer);
 
     // may log EEX02, EEX03, WEX04 
     for (int idx = 0; idx < resFiles.length; idx++) {
       isUpdatedOrWarn(command, resFiles[idx], existsTarget[idx],
-          lastModifiedTargetMs[idx]);
+          fingerprintTarget[idx]);
     }
 
     return res;
@@ -521,7 +1031,7 @@ class CommandExecutor {
                             String[] args,
                             File... resFiles) throws BuildFailureException {
     return execute(workingDir, pathToExecutable, ENV_EMPTY, 
-        command, checker, args, resFiles);
+        command, checker, args, null, resFiles);
   }
 
   // CmdResult executeEmptyEnvR0(File workingDir, File pathToExecutable,
@@ -532,21 +1042,21 @@ class CommandExecutor {
   // }
 
   /**
-   * Returns the time of modification of this file or <code>null</code> if not readable. 
+   * Returns the fingerprint of this file or <code>null</code> if not readable. 
    * 
    * Warnings: WEX04
    * 
    * @param file
    *    The file to be checked. 
    * @return
-   *    the time of modification of this file or <code>null</code> if not readable. 
+   *    the fingerprint of this file or <code>null</code> if not readable. 
    */
-  Long modTimeOrNull(File file) {
+  Fingerprint fingerprintOrNull(File file) {
     try {
       // may throw IOException 
-      FileTime fTime =
-          Files.getLastModifiedTime(file.toPath(), LinkOption.NOFOLLOW_LINKS);
-      return fTime.to(TimeUnit.MILLISECONDS);
+      BasicFileAttributes attrs = Files.readAttributes(file.toPath(),
+          BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      return new Fingerprint(attrs);
     } catch (IOException ioe) {
       this.log.warn("WEX04: Cannot read target file '" + file.getName()
       + "'; may be outdated. ");
@@ -554,6 +1064,36 @@ class CommandExecutor {
     }
   }
 
+  /**
+   * Returns whether the file system <code>file</code> is located in 
+   * is assumed to have modification times in steps of seconds 
+   * based on the fingerprint <code>fingerprint</code> of <code>file</code> 
+   * and of fingerprints of files in the same directory observed before. 
+   * This is conservative: 
+   * the file system is assumed coarse 
+   * until a single modification time with a fraction of a second 
+   * proves that timestamps are fine. 
+   * Note that a modification time in whole seconds 
+   * occurs also on fine file systems, but rarely. 
+   * 
+   * @param file
+   *    an existing file. 
+   * @param fingerprint
+   *    the fingerprint of <code>file</code>. 
+   * @return
+   *    whether the file system <code>file</code> is located in 
+   *    is assumed to have modification times in steps of seconds. 
+   * @see #DIRS_FINE_TIMESTAMPS
+   */
+  private static boolean hasCoarseTimestamps(File file, Fingerprint fingerprint) {
+    File dir = file.getAbsoluteFile().getParentFile();
+    if (fingerprint.hasSubSecondTime()) {
+      DIRS_FINE_TIMESTAMPS.add(dir);
+      return false;
+    }
+    return !DIRS_FINE_TIMESTAMPS.contains(dir);
+  }
+
   /**
    * If the given file <code>target</code> does not exist 
    * logs an error EEX02: no target file mentioning <code>command</code>. 
@@ -582,13 +1122,15 @@ class CommandExecutor {
    * by the command named <code>command</code> and 
    * emits a warning <code>EEX03</code> if it has not been updated. 
    * It is invoked only by 
-   * {@link #execute(File, File, Map<String,String>, String, ReturnCodeChecker, String[], File[])} 
+   * {@link #execute(File, File, Map<String,String>, String, ReturnCodeChecker, String[], Consumer, File[])} 
    * after the command has been invoked. 
    * The file <code>target</code> is updated if it exists and 
    * either did not exist before according to <code>existedBefore</code> 
-   * or has a readable modification time 
-   * later than the former modification time <code>lastModifiedBefore</code> 
+   * or has a readable fingerprint 
+   * differing from the former fingerprint <code>fingerprintBefore</code> 
    * which implies that this has been readable also, i.e. is not <code>null</code>. 
+   * Note that the fingerprint comprises the modification time 
+   * in full resolution of the file system, the size and the file key. 
    *
    * Logging: 
    * <ul>
@@ -603,8 +1145,8 @@ class CommandExecutor {
    *    The file to be supervised. 
    * @param existedBefore
    *    Whether the file existed before invoking <code>command</code>. 
-   * @param lastModifiedBefore
-   *    The time of last modification before invoking <code>command</code> if known; 
+   * @param fingerprintBefore
+   *    The fingerprint before invoking <code>command</code> if known; 
    *    else <code>null</code>. 
    * @return
    *    whether <code>target</code> has been updated. 
@@ -612,7 +1154,7 @@ class CommandExecutor {
   private boolean isUpdatedOrWarn(String command,
           File target,
           boolean existedBefore,
-          Long lastModifiedBefore) {
+          Fingerprint fingerprintBefore) {
     // may emit EEX02
     if (!existsOrErr(command, target)) {
       return false;
@@ -624,21 +1166,20 @@ class CommandExecutor {
     }
     assert existedBefore && target.exists();
 
-    if (lastModifiedBefore == null) {
-      // Here, orignal modification time was not readable  
+    if (fingerprintBefore == null) {
+      // Here, orignal fingerprint was not readable  
       // warning already emitted 
       return false;
     }
 
-    // if modification time undetermined: null and emit warning WEX04 
-    Long lastModifiedAfter = modTimeOrNull(target);//target.lastModified();
-    if (lastModifiedAfter == null) {
-      // modification time not readable; warning already emitted 
+    // if fingerprint undetermined: null and emit warning WEX04 
+    Fingerprint fingerprintAfter = fingerprintOrNull(target);
+    if (fingerprintAfter == null) {
+      // fingerprint not readable; warning already emitted 
       return false;
     }
 
-    if (lastModifiedAfter <= lastModifiedBefore) {
-      assert lastModifiedAfter == lastModifiedBefore;
+    if (fingerprintAfter.equals(fingerprintBefore)) {
       this.log.error("EEX03: Running " + command + " failed: Target file '"
           + target.getName() + "' is not updated. ");
       return false;
@@ -653,15 +1194,40 @@ class CommandExecutor {
    * and return the output. 
    * Here, <code>pathToExecutable</code> is the path 
    * to the executable. It may be null. 
+   * The command is started without a shell 
+   * by the absolute path of its executable 
+   * as given by {@link ExecutableResolver#resolve(File, String)}. 
+   * If it cannot be resolved, it is not started at all 
+   * but the result is as if a shell reported that the command is not found, 
+   * i.e. with return code {@link #RETURN_CODE_NOT_FOUND}. 
+   * Standard input of the command is closed, 
+   * so that a command waiting for input terminates. 
+   * Standard output and standard error are merged 
+   * and are read by a thread of {@link #PUMPS}. 
+   * <p>
+   * If a timeout is set for <code>command</code> by {@link #setTimeouts(Map)} 
+   * and the command does not terminate in time, 
+   * it is killed together with its descendants. 
+   * Likewise if the current thread is interrupted while waiting for it 
+   * or if <code>lineConsumer</code> throws an exception. 
+   * After the command terminated, its output is read completely 
+   * as long as no descendant is alive which could keep the output open. 
+   * Else the descendants are killed 
+   * and the output may be incomplete. 
    * <p>
    * Logging: 
-   * EEX01 for return code other than 0. 
+   * <ul>
+   * <li>EEX01 for return code other than 0. 
+   * <li>WEX06 if the output cannot be written to a file. 
+   * <li>WEX07 if descendants of the command were killed 
+   * because they kept the output open after the command terminated. 
+   * </ul>
    *
    * @param workingDir
    *    the working directory or <code>null</code>.
-   *    The shell changes to that directory 
-   *    before invoking <code>command</code> 
-   *    with arguments <code>args</code> if this is not <code>null</code>.
+   *    The command is started in that directory 
+   *    if this is not <code>null</code>, 
+   *    else in the current directory. 
    * @param pathToExecutable
    *    the path to the executable <code>command</code>. 
    *    This may be <code>null</code> if <code>command</code> 
@@ -669,75 +1235,351 @@ class CommandExecutor {
    * @param env
    *    the environment, i.e. the set of environment variables 
    *    the command below is to be executed. 
+   *    These are added to the environment of this JVM. 
    * @param command
    *    the name of the program to be executed. 
    * @param checker
    *    the checker for the return code 
    *    which decides whether an execution error EEX01 has to be logged. 
    * @param args
-   *    the list of arguments, 
-   *    each containing a blank enclosed in double quotes. 
+   *    the list of arguments. 
+   *    Since there is no shell, these are passed literally. 
+   * @param lineConsumer
+   *    the consumer each line of the output is passed to 
+   *    while the command is running or <code>null</code>. 
    * @return
-   *    the output of the command which comprises the output stream 
+   *    the output of the command captured by an {@link OutputCapture} 
    *    and whether the return code is nonzero, i.e. the command succeeded. 
    * @throws BuildFailureException
+   *    <ul>
+   *    <li> 
    *    TEX01 if invocation of <code>command</code> fails very basically: 
    *    <ul>
-   *    <li><!-- see Commandline.execute() -->
+   *    <li> 
    *    the file expected to be the working directory 
    *    does not exist or is not a directory. 
-   *    <li><!-- see Commandline.execute() -->
-   *    {@link Runtime#exec(String, String[], File)} fails 
+   *    <li> 
+   *    {@link ProcessBuilder#start()} fails 
    *    throwing an {@link java.io.IOException}. 
-   *    <li> <!-- see CommandLineCallable.call() -->
-   *    an error inside systemOut parser occurs 
-   *    <li> <!-- see CommandLineCallable.call() -->
-   *    an error inside systemErr parser occurs 
+   *    <li> 
+   *    reading the output fails or <code>lineConsumer</code> throws. 
    *    <li> Wrapping an {@link InterruptedException} 
    *    on the process to be executed thrown by {@link Process#waitFor()}. 
    *    </ul>
+   *    <li> 
+   *    TEX02 if <code>command</code> exceeds its timeout. 
+   *    </ul>
    */
   private CmdResult execute(File workingDir,
                             File pathToExecutable,
                             Map<String,String> env,
                             String command,
                             ReturnCodeChecker checker,
-                            String[] args) throws BuildFailureException {
+                            String[] args,
+                            Consumer<String> lineConsumer)
+      throws BuildFailureException {
     // prepare execution 
-    String executable = new File(pathToExecutable, command).getPath();
-    Commandline cl = new Commandline(executable);
-    cl.getShell().setQuotedArgumentsEnabled(true);
-    for (Map.Entry<String, String> entry : env.entrySet()) {
-      cl.addEnvironment(entry.getKey(), entry.getValue());
+    OutputCapture output = new OutputCapture(command, lineConsumer, this.log);
+    Long timeoutMs = this.cmd2timeoutMs.get(command);
+    File exe = ExecutableResolver.resolve(pathToExecutable, command);
+    int returnCode;
+    if (exe == null) {
+      log.debug("Not found: " + command + ". ");
+      // as a shell would do 
+      output.consumeLine(command + ": command not found");
+      returnCode = RETURN_CODE_NOT_FOUND;
+    } else {
+      List<String> cmdLine = new ArrayList<String>();
+      cmdLine.add(exe.getPath());
+      cmdLine.addAll(Arrays.asList(args));
+      ProcessBuilder builder = new ProcessBuilder(cmdLine);
+      builder.environment().putAll(env);
+      builder.redirectErrorStream(true);
+      if (workingDir != null) {
+        builder.directory(workingDir);
+      }
+      log.debug("Executing: " + String.join(" ", cmdLine) + " in: "
+          + workingDir + (timeoutMs == null ? "" : " with timeout "
+              + timeoutMs + " ms") + ". ");
+
+      // perform execution and collect results 
+      // may throw BuildFailureException TEX01, TEX02, may log WEX07 
+      returnCode = run(builder, command, timeoutMs, output);
     }
-    cl.addArguments(args);
-    if (workingDir != null) {
-      cl.setWorkingDirectory(workingDir.getPath());
+    if (checker.hasFailed(returnCode)) {
+      this.log.error("EEX01: Running " + command + " failed with return code "
+          + returnCode + ". ");
     }
-    StringStreamConsumer output = new StringStreamConsumer();
-    log.debug("Executing: " + cl + " in: " + workingDir + ". ");
 
-    // perform execution and collect results 
-    int returnCode = -1;
+    // may log WEX06 
+    CmdResult res = output.close(checker, returnCode);
+    log.debug((res.outputFile == null
+        ? "Output:\n"
+        : "Output (tail, complete in '" + res.outputFile + "'):\n")
+        + res.tail + "\n");
+    // TBD: fix bug: return code based on checker. 
+    // also not success but store return code itself 
+    return res;
+  }
+
+  /**
+   * Starts a process by <code>builder</code>, 
+   * passes its output to <code>output</code> 
+   * and returns its return code once it terminated 
+   * and its output is read completely 
+   * as described for 
+   * {@link #execute(File, File, Map, String, ReturnCodeChecker, String[], Consumer)}. 
+   * While the process is running, its descendants are recorded, 
+   * because once it terminated, they are no longer known as its descendants. 
+   * After it terminated, reading the output is awaited without bound 
+   * while no recorded descendant is alive, 
+   * because then the output is closed by the operating system. 
+   * In case of failure, <code>output</code> is closed. 
+   * <p>
+   * Logging: 
+   * WEX07 if recorded descendants are still alive 
+   * after the process terminated and so are killed. 
+   *
+   * @param timeoutMs
+   *    the timeout in milliseconds or <code>null</code> if there is none. 
+   *    This includes reading the output after the process terminated. 
+   * @throws BuildFailureException
+   *    TEX01, TEX02 as described for 
+   *    {@link #execute(File, File, Map, String, ReturnCodeChecker, String[], Consumer)}. 
+   */
+  private int run(ProcessBuilder builder,
+                  String command,
+                  Long timeoutMs,
+                  OutputCapture output) throws BuildFailureException {
+    Process process;
     try {
-      // may throw CommandLineException 
-      returnCode = executeCommandLine(cl, output, output);
-      if (checker.hasFailed(returnCode)) {
-          this.log.error("EEX01: Running " + command + " failed with return code "
-        + returnCode + ". ");
-      }
-    } catch (CommandLineException e) {
+      // may throw IOException 
+      process = builder.start();
+    } catch (IOException e) {
+      // may log WEX06 
+      output.close(ReturnCodeChecker.Never, -1);
       throw new BuildFailureException("TEX01: Error running " + command + ". ",
           e);
     }
-    // TBD: what if returnCode=-1 is not overwritten? 
-    // how to distinguish from real return code -1? 
-    // replace above by Integer returnCode = null;
-    // and insert here assert returnCode != null;
+    register(process);
+    // the descendants seen while the process is running 
+    Set<ProcessHandle> descendants = ConcurrentHashMap.newKeySet();
+    try {
+      try {
+        // may throw IOException 
+        process.getOutputStream().close();
+      } catch (IOException e) {
+        // ignored: the command may have closed standard input itself 
+      }
+      Future<?> pump = PUMPS.submit(() -> {
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(process.getInputStream()))) {
+          // may throw IOException 
+          for (String line = reader.readLine(); line != null;
+              line = reader.readLine()) {
+            // may throw RuntimeException 
+            output.consumeLine(line);
+          }
+        } catch (IOException | RuntimeException e) {
+          // terminate the command as early as possible 
+          destroyTree(process, descendants);
+          throw e;
+        }
+        return null;
+      });
 
-    log.debug("Output:\n" + output.getOutput() + "\n");
-    // TBD: fix bug: return code based on checker. 
-    // also not success but store return code itself 
-    return new CmdResult(output.getOutput(), checker, returnCode);
+      long deadline = timeoutMs == null ? Long.MAX_VALUE
+          : System.currentTimeMillis() + timeoutMs;
+      try {
+        // may throw InterruptedException 
+        while (!process.waitFor(waitMs(deadline), TimeUnit.MILLISECONDS)) {
+          process.descendants().forEach(descendants::add);
+          if (System.currentTimeMillis() >= deadline) {
+            // may throw InterruptedException, may log WEX06 
+            throw timedOut(process, descendants, pump, command, timeoutMs,
+                output);
+          }
+        }
+        // all output is read only if the pump is finished 
+        while (true) {
+          try {
+            // may throw ExecutionException, InterruptedException, 
+            // TimeoutException 
+            pump.get(waitMs(deadline), TimeUnit.MILLISECONDS);
+            break;
+          } catch (TimeoutException e) {
+            descendants.removeIf((ProcessHandle desc) -> !desc.isAlive());
+            if (!descendants.isEmpty()) {
+              // a descendant may keep the output open 
+              this.log.warn("WEX07: Killed descendants of " + command
+                  + " still running after it terminated; "
+                  + "output may be incomplete. ");
+              destroyTree(process, descendants);
+              // may throw InterruptedException 
+              awaitPump(process, pump);
+              break;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+              // may throw InterruptedException, may log WEX06 
+              throw timedOut(process, descendants, pump, command, timeoutMs,
+                  output);
+            }
+            // the output is closed by the operating system 
+          }
+        }
+        return process.exitValue();
+      } catch (ExecutionException e) {
+        // may log WEX06 
+        output.close(ReturnCodeChecker.Never, -1);
+        throw new BuildFailureException("TEX01: Error running " + command
+            + ". ", e.getCause());
+      } catch (InterruptedException e) {
+        // the build is cancelled 
+        destroyTree(process, descendants);
+        // the pump is not awaited, but it terminates if the output is closed 
+        closeOutput(process);
+        Thread.currentThread().interrupt();
+        // may log WEX06 
+        output.close(ReturnCodeChecker.Never, -1);
+        throw new BuildFailureException("TEX01: Error running " + command
+            + ". ", e);
+      }
+    } finally {
+      unregister(process);
+    }
+  }
+
+  /**
+   * Returns the time in milliseconds to wait 
+   * for a process or for reading its output 
+   * before checking its descendants again, 
+   * i.e. {@link #KILL_WAIT_MS} but at most up to <code>deadline</code> 
+   * which is given as for {@link System#currentTimeMillis()}. 
+   */
+  private static long waitMs(long deadline) {
+    return Math.max(0,
+        Math.min(KILL_WAIT_MS, deadline - System.currentTimeMillis()));
+  }
+
+  /**
+   * Kills <code>process</code> together with its descendants 
+   * because it exceeded its timeout <code>timeoutMs</code>, 
+   * closes <code>output</code> 
+   * and returns the exception to be thrown. 
+   * <p>
+   * Logging: 
+   * WEX06 if the output cannot be written to a file. 
+   *
+   * @throws InterruptedException
+   *    if the current thread is interrupted while waiting for <code>pump</code>. 
+   */
+  private static BuildFailureException timedOut(Process process,
+      Set<ProcessHandle> descendants, Future<?> pump, String command,
+      long timeoutMs, OutputCapture output) throws InterruptedException {
+    destroyTree(process, descendants);
+    // may throw InterruptedException 
+    awaitPump(process, pump);
+    // may log WEX06 
+    output.close(ReturnCodeChecker.Never, -1);
+    return new BuildFailureException("TEX02: Running " + command
+        + " timed out after " + timeoutMs + " ms. ");
+  }
+
+  /**
+   * Adds <code>process</code> to {@link #PROCESSES_RUNNING} 
+   * registering {@link #DESTROY_PROCESSES} if it is the only one. 
+   */
+  private static void register(Process process) {
+    synchronized (PROCESSES_RUNNING) {
+      if (PROCESSES_RUNNING.isEmpty()) {
+        try {
+          // may throw IllegalStateException 
+          Runtime.getRuntime().addShutdownHook(DESTROY_PROCESSES);
+        } catch (IllegalStateException e) {
+          // ignored: the JVM shuts down already 
+        }
+      }
+      PROCESSES_RUNNING.add(process);
+    }
+  }
+
+  /**
+   * Removes <code>process</code> from {@link #PROCESSES_RUNNING} 
+   * removing also {@link #DESTROY_PROCESSES} if no process is left. 
+   */
+  private static void unregister(Process process) {
+    synchronized (PROCESSES_RUNNING) {
+      PROCESSES_RUNNING.remove(process);
+      if (PROCESSES_RUNNING.isEmpty()) {
+        try {
+          // may throw IllegalStateException 
+          Runtime.getRuntime().removeShutdownHook(DESTROY_PROCESSES);
+        } catch (IllegalStateException e) {
+          // ignored: the JVM shuts down already 
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits at most {@link #KILL_WAIT_MS} for <code>pump</code> 
+   * reading the output of <code>process</code> 
+   * which terminated or has been killed. 
+   * If <code>pump</code> is not finished by then, 
+   * the output is closed by {@link #closeOutput(Process)} 
+   * to terminate <code>pump</code>. 
+   * Failures are ignored, because the process failed anyway 
+   * or the output is incomplete anyway. 
+   *
+   * @throws InterruptedException
+   *    if the current thread is interrupted while waiting. 
+   */
+  private static void awaitPump(Process process, Future<?> pump)
+      throws InterruptedException {
+    try {
+      // may throw ExecutionException, InterruptedException, TimeoutException 
+      pump.get(KILL_WAIT_MS, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      // ignored: output may be incomplete 
+    } catch (TimeoutException e) {
+      closeOutput(process);
+    }
+  }
+
+  /**
+   * Closes the output of <code>process</code>, 
+   * so that reading it terminates 
+   * even if a descendant of <code>process</code> keeps it open. 
+   */
+  private static void closeOutput(Process process) {
+    try {
+      // may throw IOException 
+      process.getInputStream().close();
+    } catch (IOException e) {
+      // ignored: output is incomplete anyway 
+    }
+  }
+
+  /**
+   * Kills <code>process</code> together with all of its descendants. 
+   * The descendants are killed first, 
+   * because once <code>process</code> terminated, 
+   * they are no longer known as its descendants. 
+   */
+  private static void destroyTree(Process process) {
+    destroyTree(process, Collections.emptySet());
+  }
+
+  /**
+   * Kills <code>process</code> together with all of its descendants 
+   * and with the descendants <code>descendants</code> recorded before, 
+   * which are no longer known as descendants 
+   * if <code>process</code> terminated already. 
+   */
+  private static void destroyTree(Process process,
+      Set<ProcessHandle> descendants) {
+    process.descendants().forEach(ProcessHandle::destroyForcibly);
+    descendants.forEach(ProcessHandle::destroyForcibly);
+    process.destroyForcibly();
   }
 }
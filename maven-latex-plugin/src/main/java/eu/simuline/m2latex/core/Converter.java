@@ -1049,6 +1049,9 @@ enum Converter {
    *    is passed options {@link #getVersionOption()} 
    *    to get version option and run 
    *    in the directory containing {@link TexFileUtils#getEmptyIdx()}. 
+   * @param texPath
+   *    the tex path as given by {@link Settings#getTexPath()} 
+   *    which is searched for the executable before the system path. 
    * @return
    *    the output of the invocation 
    *    which matches {@link #getVersionEnvironment()}. 
@@ -1069,9 +1072,10 @@ enum Converter {
    *    on the process to be executed thrown by {@link Process#waitFor()}. 
    *    </ul>
    */
-  String getVersionInfo(CommandExecutor executor) throws BuildFailureException {
-    return executor.executeEnvR0(TexFileUtils.getEmptyIdx().getParentFile(), null,
-        getCommand(), new String[] {getVersionOption()}).output;
+  String getVersionInfo(CommandExecutor executor, File texPath)
+      throws BuildFailureException {
+    return executor.executeEnvR0(TexFileUtils.getEmptyIdx().getParentFile(),
+        texPath, getCommand(), new String[] {getVersionOption()}).tail;
   }
 
 }
@@ -0,0 +1,333 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Records for a target of a latex main file 
+ * all files read to create the target, the artifacts created 
+ * and an identifier of the settings the target was created with, 
+ * so that the target need not be created again in the next build 
+ * if neither of these changed. 
+ * This is used for the up-to-date check 
+ * if {@link Settings#getDocManifestDirectory()} is set. 
+ * <p>
+ * Each file is recorded with its size, its modification time 
+ * and, if it is a source file, with an identifier of its content. 
+ * A file is regarded unchanged if it still exists 
+ * and has the same size and modification time 
+ * or, if it is a source file, the same content. 
+ * The latter is to tolerate touching source files, 
+ * e.g. by checking out from a version control system. 
+ * For files outside the tex source directory, 
+ * like packages of the TeX distribution, 
+ * only size and modification time are recorded, 
+ * so that recording is fast. 
+ * <p>
+ * Manifests are also used to record the files read 
+ * while dumping a {@link PreambleFormat}. 
+ * <p>
+ * The manifest is stored as a properties file 
+ * mapping {@link #KEY_SETTINGS} to the identifier of the settings 
+ * and {@link #PREFIX_INPUT} and {@link #PREFIX_OUTPUT} 
+ * followed by the absolute path of a file to its stamp. 
+ */
+final class DocManifest {
+
+  /**
+   * The suffix of manifest files. 
+   */
+  static final String SUFFIX_MANIFEST = ".manifest";
+
+  private static final String KEY_SETTINGS = "settings";
+  private static final String PREFIX_INPUT = "in:";
+  private static final String PREFIX_OUTPUT = "out:";
+
+  /**
+   * Separates the components of the stamp of a file. 
+   */
+  private static final String SEP = " ";
+
+  /**
+   * Signifies that the content of a file is not recorded. 
+   */
+  private static final String NO_CONTENT = "-";
+
+  /**
+   * The algorithm of the message digest 
+   * identifying the settings by {@link #getSettingsIdent(String)}. 
+   */
+  private static final String ALGORITHM = "SHA-256";
+
+  /**
+   * The manifest file. 
+   */
+  private final File file;
+
+  /**
+   * The content of the manifest as described in the class documentation. 
+   */
+  private final Properties props;
+
+  private DocManifest(File file, Properties props) {
+    this.file = file;
+    this.props = props;
+  }
+
+  /**
+   * Reads the manifest file <code>file</code>. 
+   * If there is no manifest file, the manifest returned is empty 
+   * and so is not up to date. 
+   * <p>
+   * Logging: 
+   * WDM01: if the manifest file exists but cannot be read. 
+   * Then the manifest returned is empty. 
+   *
+   * @param file
+   *    the manifest file of a target of a latex main file. 
+   * @param log
+   *    the log to write a warning on if reading fails. 
+   * @return
+   *    the manifest read. 
+   */
+  static DocManifest read(File file, LogWrapper log) {
+    Properties props = new Properties();
+    if (file.exists()) {
+      try (InputStream inStream = new FileInputStream(file)) {
+        // may throw IOException
+        props.load(inStream);
+      } catch (IOException ioe) {
+        log.warn("WDM01: Cannot read manifest '" + file
+            + "'; target is created again. ");
+        props.clear();
+      }
+    }
+    return new DocManifest(file, props);
+  }
+
+  /**
+   * Creates a manifest to be stored in <code>file</code> 
+   * with the given settings identifier, inputs and outputs. 
+   *
+   * @param file
+   *    the manifest file. 
+   * @param settingsIdent
+   *    an identifier of the settings the target was created with. 
+   * @param inputs
+   *    the files read to create the target. 
+   * @param outputs
+   *    the artifacts created. 
+   * @param srcDir
+   *    the tex source directory. 
+   *    Only the content of files therein is recorded. 
+   * @throws IOException
+   *    if the stamp of some file cannot be determined, 
+   *    e.g. because it does not exist. 
+   */
+  static DocManifest create(File file, String settingsIdent,
+      Collection<File> inputs, Collection<File> outputs, File srcDir)
+      throws IOException {
+    Properties props = new Properties();
+    props.setProperty(KEY_SETTINGS, settingsIdent);
+    String srcPath = srcDir.getAbsolutePath() + File.separator;
+    for (File input : inputs) {
+      props.setProperty(PREFIX_INPUT + input.getAbsolutePath(),
+          // may throw IOException
+          stamp(input, input.getAbsolutePath().startsWith(srcPath)));
+    }
+    for (File output : outputs) {
+      // may throw IOException
+      props.setProperty(PREFIX_OUTPUT + output.getAbsolutePath(),
+          stamp(output, true));
+    }
+    return new DocManifest(file, props);
+  }
+
+  /**
+   * Returns an identifier of the settings given by <code>settings</code> 
+   * to be recorded in a manifest. 
+   * This is the hex representation of the message digest 
+   * given by {@link #ALGORITHM}, 
+   * so that different settings have different identifiers 
+   * up to negligible probability. 
+   *
+   * @param settings
+   *    a description of the settings a target is created with. 
+   */
+  static String getSettingsIdent(String settings) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalStateException(
+          "Message digest " + ALGORITHM + " not available. ", nsae);
+    }
+    StringBuilder res = new StringBuilder();
+    for (byte b : digest.digest(settings.getBytes(StandardCharsets.UTF_8))) {
+      res.append(String.format("%02x", b));
+    }
+    return res.toString();
+  }
+
+  /**
+   * Returns the stamp of <code>file</code> 
+   * consisting of size, modification time 
+   * and, if <code>withContent</code> is set, 
+   * an identifier of the content. 
+   *
+   * @throws IOException
+   *    if <code>file</code> does not exist or cannot be read. 
+   */
+  private static String stamp(File file, boolean withContent)
+      throws IOException {
+    if (!file.isFile()) {
+      throw new IOException("Expected existing file " + file);
+    }
+    return file.length() + SEP + file.lastModified() + SEP
+        + (withContent
+            // may throw IOException
+            ? Auxiliary.getContentIdent(Collections.singletonList(file))
+                .toString().replace(' ', '/')
+            : NO_CONTENT);
+  }
+
+  /**
+   * Returns whether the file <code>file</code> recorded with stamp 
+   * <code>stamp</code> is unchanged as described in the class documentation. 
+   */
+  private static boolean isUnchanged(File file, String stamp) {
+    String[] comps = stamp.split(SEP);
+    if (comps.length != 3 || !file.isFile()) {
+      return false;
+    }
+    if (comps[0].equals(Long.toString(file.length()))
+        && comps[1].equals(Long.toString(file.lastModified()))) {
+      return true;
+    }
+    if (NO_CONTENT.equals(comps[2])) {
+      return false;
+    }
+    try {
+      // may throw IOException
+      return comps[2].equals(Auxiliary
+          .getContentIdent(Collections.singletonList(file))
+          .toString().replace(' ', '/'));
+    } catch (IOException ioe) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns whether the target this manifest was created for 
+   * is up to date, i.e. was created with settings 
+   * identified by <code>settingsIdent</code>, 
+   * all inputs recorded are unchanged 
+   * and all artifacts recorded are intact. 
+   * An empty manifest is never up to date. 
+   */
+  boolean isUpToDate(String settingsIdent) {
+    if (!settingsIdent.equals(this.props.getProperty(KEY_SETTINGS))) {
+      return false;
+    }
+    Map<String, String> name2stamp = new TreeMap<String, String>();
+    for (String key : this.props.stringPropertyNames()) {
+      name2stamp.put(key, this.props.getProperty(key));
+    }
+    boolean hasOutput = false;
+    for (Map.Entry<String, String> entry : name2stamp.entrySet()) {
+      String key = entry.getKey();
+      String path;
+      if (key.startsWith(PREFIX_INPUT)) {
+        path = key.substring(PREFIX_INPUT.length());
+      } else if (key.startsWith(PREFIX_OUTPUT)) {
+        path = key.substring(PREFIX_OUTPUT.length());
+        hasOutput = true;
+      } else {
+        continue;
+      }
+      if (!isUnchanged(new File(path), entry.getValue())) {
+        return false;
+      }
+    }
+    return hasOutput;
+  }
+
+  /**
+   * Returns the files recorded as read to create the target. 
+   * For an empty manifest, this is empty. 
+   */
+  Collection<File> getInputs() {
+    Collection<File> res = new TreeSet<File>();
+    for (String key : this.props.stringPropertyNames()) {
+      if (key.startsWith(PREFIX_INPUT)) {
+        res.add(new File(key.substring(PREFIX_INPUT.length())));
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Deletes the manifest file if it exists, 
+   * so that the target is created again in the next build 
+   * if creation fails in this build. 
+   * If the manifest file cannot be deleted, 
+   * it is overwritten by an empty manifest, which is never up to date. 
+   * <p>
+   * Logging: 
+   * WDM03: if the manifest file can neither be deleted nor overwritten. 
+   * Then the target may be regarded up to date in the next build 
+   * even if creation fails in this build. 
+   *
+   * @param log
+   *    the log to write a warning on if deleting fails. 
+   */
+  void delete(LogWrapper log) {
+    if (!this.file.exists() || this.file.delete()) {
+      return;
+    }
+    // cannot be deleted: at least make it empty 
+    this.props.clear();
+    try (OutputStream outStream = new FileOutputStream(this.file)) {
+      // may throw IOException
+      this.props.store(outStream, "inputs and outputs of a target");
+    } catch (IOException ioe) {
+      log.warn("WDM03: Cannot delete manifest '" + this.file
+          + "'; delete it if creating the target fails. ");
+    }
+  }
+
+  /**
+   * Writes this manifest to its file. 
+   * <p>
+   * Logging: 
+   * WDM02: if the manifest file cannot be written. 
+   * Then the target is created again in the next build 
+   * but this does not affect correctness. 
+   *
+   * @param log
+   *    the log to write a warning on if writing fails. 
+   */
+  void write(LogWrapper log) {
+    this.file.getParentFile().mkdirs();
+    try (OutputStream outStream = new FileOutputStream(this.file)) {
+      // may throw IOException
+      this.props.store(outStream, "inputs and outputs of a target");
+    } catch (IOException ioe) {
+      log.warn("WDM02: Cannot write manifest '" + this.file
+          + "'; target is created again. ");
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the commands of converters to their executables 
+ * within the JVM, i.e. without running <code>which</code> 
+ * and without letting the shell look up the command in each invocation. 
+ * The executable of a command is searched 
+ * first in the directory given by {@link Settings#getTexPath()}, if set, 
+ * and then in the directories of the environment variable <code>PATH</code>. 
+ * On Windows, the extensions given by <code>PATHEXT</code> are tried also. 
+ * <p>
+ * For each tex path, the directories to be searched are determined once 
+ * and for each command, the executable is resolved once; 
+ * both are kept for the lifetime of the JVM. 
+ * Commands which cannot be resolved are not kept 
+ * but searched again in each invocation, 
+ * so that a converter installed while the JVM runs, 
+ * e.g. between two builds in a long running process, is found. 
+ * This is used by {@link CommandExecutor} to invoke each command 
+ * by the absolute path of its executable 
+ * and by {@link MetaInfo} to determine whether a converter is installed. 
+ * Note that this class is thread safe. 
+ */
+final class ExecutableResolver {
+
+  /**
+   * Maps the tex path to the resolver for that tex path. 
+   * The tex path <code>null</code> is represented by the string 
+   * <code>"null"</code>. 
+   */
+  private static final Map<String, ExecutableResolver> TEX_PATH2RESOLVER =
+      new ConcurrentHashMap<String, ExecutableResolver>();
+
+  /**
+   * The tex path, i.e. the directory commands given by a relative path 
+   * are relative to, or <code>null</code>. 
+   */
+  private final File texPath;
+
+  /**
+   * The directories searched for executables in this order. 
+   */
+  private final List<File> dirs;
+
+  /**
+   * The extensions appended to a command when searching its executable 
+   * in this order, the first one being the empty string. 
+   */
+  private final List<String> extensions;
+
+  /**
+   * Maps the commands resolved so far to their executables. 
+   * Commands which cannot be resolved are not contained. 
+   */
+  private final Map<String, File> cmd2exe;
+
+  private ExecutableResolver(File texPath) {
+    this.texPath = texPath;
+    this.dirs = new ArrayList<File>();
+    if (texPath != null) {
+      this.dirs.add(texPath.getAbsoluteFile());
+    }
+    String path = System.getenv("PATH");
+    if (path != null) {
+      for (String dir : path.split(File.pathSeparator)) {
+        if (!dir.isEmpty()) {
+          this.dirs.add(new File(dir).getAbsoluteFile());
+        }
+      }
+    }
+
+    this.extensions = new ArrayList<String>();
+    this.extensions.add("");
+    String pathExt = System.getenv("PATHEXT");
+    if (pathExt != null && File.pathSeparatorChar == ';') {
+      // Windows only
+      for (String ext : pathExt.split(File.pathSeparator)) {
+        if (!ext.isEmpty()) {
+          this.extensions.add(ext.toLowerCase(Locale.ENGLISH));
+        }
+      }
+    }
+    this.cmd2exe = new ConcurrentHashMap<String, File>();
+  }
+
+  /**
+   * Returns the resolver for tex path <code>texPath</code>. 
+   *
+   * @param texPath
+   *    the tex path as given by {@link Settings#getTexPath()} 
+   *    which may be <code>null</code>. 
+   */
+  static ExecutableResolver get(File texPath) {
+    return TEX_PATH2RESOLVER.computeIfAbsent(String.valueOf(texPath),
+        (String key) -> new ExecutableResolver(texPath));
+  }
+
+  /**
+   * Returns the executable of command <code>command</code> 
+   * for tex path <code>texPath</code> 
+   * or <code>null</code> if it cannot be found. 
+   * This is a shortcut for 
+   * <code>get(texPath).resolve(command)</code>. 
+   */
+  static File resolve(File texPath, String command) {
+    return get(texPath).resolve(command);
+  }
+
+  /**
+   * Returns the absolute path of the executable of command <code>command</code> 
+   * or <code>null</code> if it cannot be found. 
+   * If <code>command</code> is a path, i.e. contains a file separator, 
+   * it is not searched in the directories 
+   * but is taken relative to the tex path if not absolute. 
+   *
+   * @param command
+   *    the name of a command. 
+   * @return
+   *    the absolute path of the executable or <code>null</code>. 
+   */
+  File resolve(String command) {
+    // search returns null if not found, which is not stored 
+    return this.cmd2exe.computeIfAbsent(command, this::search);
+  }
+
+  private File search(String command) {
+    List<File> dirsCmd = this.dirs;
+    if (command.indexOf('/') >= 0 || command.indexOf(File.separatorChar) >= 0) {
+      File cmdFile = new File(command);
+      if (cmdFile.isAbsolute()) {
+        return searchIn(Collections.singletonList(cmdFile.getParentFile()),
+            cmdFile.getName());
+      }
+      // relative to the tex path or to the current directory
+      dirsCmd = Collections.singletonList(this.texPath == null
+          ? new File("").getAbsoluteFile()
+          : this.texPath.getAbsoluteFile());
+    }
+    return searchIn(dirsCmd, command);
+  }
+
+  private File searchIn(List<File> dirsCmd, String command) {
+    File exe;
+    for (File dir : dirsCmd) {
+      for (String ext : this.extensions) {
+        exe = new File(dir, command + ext);
+        if (exe.isFile() && exe.canExecute()) {
+          return exe;
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -1,14 +1,19 @@
 package eu.simuline.m2latex.core;
 
-import java.io.File;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * Provides an immutable identifier for a file 
  * consisting of the number of relevant lines lines 
  * and a hash computed from these lines. 
- * The the hash is computed with fixed algorithm {@link #ALGORITHM}. 
+ * The hash is a fast non-cryptographic 64 bit hash 
+ * computed directly from the bytes of the lines, 
+ * i.e. without decoding into strings. 
+ * It is built from the primes, the round function and the final mix 
+ * of xxHash64, but it is not xxHash64: 
+ * each line is processed separately and followed by its length, 
+ * so that the hash differs from the xxHash64 of the file. 
  * <p>
  * The relevant parts of a file is given by an {@link Auxiliary}, 
  * So, the constructor has signature {@link #FileId()}. 
@@ -29,57 +34,100 @@ import java.security.NoSuchAlgorithmException;
  */
 public class FileId {
 
-  /**
-   * The algorithm used to compute the hash {@link #hash} 
-   * from lines of a file determined by an {@link Auxiliary}. 
-   * 
-   * @see #FileId()
-   */
-  private static final String ALGORITHM = "MD5";
+  // the primes of xxHash64
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
 
   /**
    * The number of lines written in a file relevant for the {@link Auxiliary} 
    * initialized by the constructor {@link #FileId()} 
-   * and incremented by {@link #update(String)}. 
+   * and incremented by {@link #update(ByteBuffer, int, int)}. 
    */
   private int numLines;
 
   /**
-   * The intermediate digest of a file relevant for the {@link Auxiliary} 
+   * The intermediate hash of a file relevant for the {@link Auxiliary} 
    * initialized by the constructor {@link #FileId()} 
-   * and incremented by {@link #update(String)}. 
+   * and updated by {@link #update(ByteBuffer, int, int)}. 
    * At the end, {@link #finalizFileId()} is invoked 
-   * which hashes the result and writes it into {@link #hash}. 
+   * which mixes the result and writes it into {@link #hash}. 
    */
-  private MessageDigest md;
+  private long acc;
 
   /**
    * The hash of lines the number of which is given by {@link #numLines} 
-   * computed from {@link #md}. 
-   * This is initially <code>null</code> 
-   * and properly initialized by {@link #finalizFileId()}. 
+   * computed from {@link #acc}. 
+   * This is properly initialized by {@link #finalizFileId()} 
+   * which also sets {@link #isFinal}. 
    */
-  private String hash;
+  private long hash;
 
+  /**
+   * Whether {@link #finalizFileId()} has been invoked. 
+   * After that, this identifier is immutable. 
+   */
+  private boolean isFinal;
 
   FileId() {
-    try {
-      this.md = MessageDigest.getInstance(ALGORITHM);
-    } catch (NoSuchAlgorithmException nsae) {
-      throw new IllegalStateException(
-          "Algorithm " + ALGORITHM + " should be known. ");
-    }
     this.numLines = 0;
-    this.hash = null;
+    this.acc = PRIME5;
+    this.hash = 0;
+    this.isFinal = false;
+  }
+
+  private static long round(long acc, long input) {
+    acc += input * PRIME2;
+    acc = Long.rotateLeft(acc, 31);
+    return acc * PRIME1;
   }
 
-  void update(String line) {
+  /**
+   * Updates this identifier with the line 
+   * given by the <code>len</code> bytes of <code>buf</code> 
+   * starting at index <code>off</code>, 
+   * excluding the line terminator. 
+   * The position of <code>buf</code> is not changed. 
+   */
+  void update(ByteBuffer buf, int off, int len) {
+    assert !this.isFinal;
+    assert buf.order() == ByteOrder.LITTLE_ENDIAN;
     this.numLines++;
-    this.md.update(line.getBytes());
+    long acc = this.acc;
+    int idx = off;
+    int end = off + len;
+    for (; idx + 8 <= end; idx += 8) {
+      acc ^= round(0, buf.getLong(idx));
+      acc = Long.rotateLeft(acc, 27) * PRIME1 + PRIME4;
+    }
+    if (idx + 4 <= end) {
+      acc ^= (buf.getInt(idx) & 0xFFFFFFFFL) * PRIME1;
+      acc = Long.rotateLeft(acc, 23) * PRIME2 + PRIME3;
+      idx += 4;
+    }
+    for (; idx < end; idx++) {
+      acc ^= (buf.get(idx) & 0xFFL) * PRIME5;
+      acc = Long.rotateLeft(acc, 11) * PRIME1;
+    }
+    // separates the lines, so that line breaks are taken into account
+    acc ^= round(0, len);
+    this.acc = Long.rotateLeft(acc, 27) * PRIME1 + PRIME4;
   }
 
   FileId finalizFileId() {
-    this.hash = new String(md.digest());
+    if (this.isFinal) {
+      return this;
+    }
+    long hash = this.acc ^ this.numLines;
+    hash ^= hash >>> 33;
+    hash *= PRIME2;
+    hash ^= hash >>> 29;
+    hash *= PRIME3;
+    hash ^= hash >>> 32;
+    this.hash = hash;
+    this.isFinal = true;
     return this;
   }
 
@@ -92,16 +140,15 @@ public class FileId {
       return false;
     }
     FileId other = (FileId) obj;
-    assert other.hash != null;
-    return this.numLines == other.numLines 
-    //&& new String(this.md.digest()).equals(new String(other.md.digest()));
-    //&& Arrays.equals(this.md.digest(), other.md.digest());
-    && this.hash.equals(other.hash);
+    assert this.isFinal && other.isFinal;
+    return this.numLines == other.numLines && this.hash == other.hash;
+  }
+
+  public int hashCode() {
+    return Long.hashCode(this.hash);
   }
 
   public String toString() {
-    return new String(this.hash) + " " + this.numLines;
-    //return this.hash + " " + this.numLines;
+    return Long.toHexString(this.hash) + " " + this.numLines;
   }
 }
-
@@ -0,0 +1,161 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the {@link FileId}s of files 
+ * as computed by {@link Auxiliary#getIdent(File)}, 
+ * so that files which did not change are not read again. 
+ * Since a {@link FileId} may depend on more than one file, 
+ * as for {@link Auxiliary#BibTex} which follows inputs, 
+ * each cached {@link FileId} is stored with the {@link Stamp}s 
+ * of all files it depends on. 
+ * It is valid as long as all these files have the same stamps. 
+ * <p>
+ * A stamp consists of the size, the modification time 
+ * and the file key, which is typically the inode, 
+ * so a file which is rewritten with the same size 
+ * within the resolution of the modification time of the file system 
+ * is not detected as modified. 
+ * This is rare, because modification times have a resolution 
+ * of nanoseconds on most file systems. 
+ * <p>
+ * The cache is scoped to a build: 
+ * it is emptied by {@link #clear()} at the end of each build, 
+ * so that the identifiers of files of former builds 
+ * do not accumulate in a long running process. 
+ * <p>
+ * Since documents are processed concurrently, 
+ * this class is thread safe. 
+ */
+final class FileIdCache {
+
+  /**
+   * The stamp of a file 
+   * consisting of its size, its modification time and its file key. 
+   */
+  static final class Stamp {
+    private final File file;
+    private final long size;
+    private final FileTime lastModified;
+    private final Object fileKey;
+
+    private Stamp(File file, BasicFileAttributes attrs) {
+      this.file = file;
+      this.size = attrs.size();
+      this.lastModified = attrs.lastModifiedTime();
+      this.fileKey = attrs.fileKey();
+    }
+
+    /**
+     * Returns the current stamp of <code>file</code>. 
+     *
+     * @throws IOException
+     *    if the attributes of <code>file</code> cannot be read, 
+     *    e.g. because it does not exist. 
+     */
+    static Stamp of(File file) throws IOException {
+      // may throw IOException
+      return new Stamp(file,
+          Files.readAttributes(file.toPath(), BasicFileAttributes.class));
+    }
+
+    /**
+     * Returns whether the file of this stamp has still this stamp. 
+     */
+    boolean isCurrent() {
+      try {
+        // may throw IOException
+        return equals(of(this.file));
+      } catch (IOException ioe) {
+        return false;
+      }
+    }
+
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Stamp)) {
+        return false;
+      }
+      Stamp other = (Stamp) obj;
+      return this.file.equals(other.file)
+          && this.size == other.size
+          && this.lastModified.equals(other.lastModified)
+          && Objects.equals(this.fileKey, other.fileKey);
+    }
+
+    public int hashCode() {
+      return Objects.hash(this.file, this.size, this.lastModified);
+    }
+  } // class Stamp
+
+  /**
+   * A cached {@link FileId} with the stamps of all files it depends on. 
+   */
+  private static final class Entry {
+    private final List<Stamp> stamps;
+    private final FileId fileId;
+
+    Entry(List<Stamp> stamps, FileId fileId) {
+      this.stamps = stamps;
+      this.fileId = fileId;
+    }
+  } // class Entry
+
+  /**
+   * Maps the absolute files to the cached entries. 
+   */
+  private final Map<File, Entry> file2entry;
+
+  FileIdCache() {
+    this.file2entry = new ConcurrentHashMap<File, Entry>();
+  }
+
+  /**
+   * Returns the {@link FileId} cached for <code>file</code> 
+   * if all files it depends on are unchanged, 
+   * else <code>null</code>. 
+   */
+  FileId get(File file) {
+    Entry entry = this.file2entry.get(file.getAbsoluteFile());
+    if (entry == null) {
+      return null;
+    }
+    for (Stamp stamp : entry.stamps) {
+      if (!stamp.isCurrent()) {
+        return null;
+      }
+    }
+    return entry.fileId;
+  }
+
+  /**
+   * Caches <code>fileId</code> for <code>file</code> 
+   * depending on the files with the stamps <code>stamps</code> 
+   * which must be taken before reading the files. 
+   *
+   * @param file
+   *    the file the identifier of which is cached. 
+   * @param stamps
+   *    the stamps of all files <code>fileId</code> depends on. 
+   * @param fileId
+   *    the finalized identifier of <code>file</code>. 
+   */
+  void put(File file, List<Stamp> stamps, FileId fileId) {
+    this.file2entry.put(file.getAbsoluteFile(), new Entry(stamps, fileId));
+  }
+
+  /**
+   * Removes all cached identifiers. 
+   */
+  void clear() {
+    this.file2entry.clear();
+  }
+}
@@ -0,0 +1,165 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records for the graphic files in a directory 
+ * the converter and its options the targets were created with. 
+ * This is used for incremental conversion of graphic files 
+ * if {@link Settings#getIncrementalGraphics()} is set: 
+ * A graphic file is converted again 
+ * if its converter signature 
+ * given by {@link LatexPreProcessor.SuffixHandler#getConverterSignature(Settings)} 
+ * differs from the one recorded, 
+ * even if its targets are more recent than the graphic file itself. 
+ * <p>
+ * The manifest is stored as a properties file {@link #FILE_NAME} 
+ * mapping the names of the graphic files to their signatures. 
+ * It is read by {@link #read(File, LogWrapper)} 
+ * and written by {@link #write(LogWrapper)} if modified. 
+ * Since graphic files are converted concurrently, 
+ * this class is thread safe. 
+ */
+final class GraphicsManifest {
+
+  /**
+   * The name of the manifest file in each directory 
+   * containing graphic files converted incrementally. 
+   */
+  static final String FILE_NAME = ".graphics.manifest";
+
+  /**
+   * The manifest file. 
+   */
+  private final File file;
+
+  /**
+   * Maps the names of the graphic files to the signatures recorded. 
+   */
+  private final Map<String, String> name2signature;
+
+  /**
+   * Whether {@link #name2signature} was modified since read. 
+   */
+  private volatile boolean isModified;
+
+  private GraphicsManifest(File file, Map<String, String> name2signature) {
+    this.file = file;
+    this.name2signature = name2signature;
+    this.isModified = false;
+  }
+
+  /**
+   * Reads the manifest in directory <code>dir</code>. 
+   * If there is no manifest file, the manifest returned is empty. 
+   * <p>
+   * Logging: 
+   * WGM01: if the manifest file exists but cannot be read. 
+   * Then the manifest returned is empty 
+   * which means that all graphic files are converted. 
+   *
+   * @param dir
+   *    a directory containing graphic files. 
+   * @param log
+   *    the log to write a warning on if reading fails. 
+   * @return
+   *    the manifest read. 
+   */
+  static GraphicsManifest read(File dir, LogWrapper log) {
+    File file = new File(dir, FILE_NAME);
+    Map<String, String> name2signature = new ConcurrentHashMap<String, String>();
+    if (file.exists()) {
+      Properties props = new Properties();
+      try (InputStream inStream = new FileInputStream(file)) {
+        // may throw IOException
+        props.load(inStream);
+        for (String name : props.stringPropertyNames()) {
+          name2signature.put(name, props.getProperty(name));
+        }
+      } catch (IOException ioe) {
+        log.warn("WGM01: Cannot read graphics manifest '" + file
+            + "'; convert all graphic files. ");
+        name2signature.clear();
+      }
+    }
+    return new GraphicsManifest(file, name2signature);
+  }
+
+  /**
+   * Returns whether <code>signature</code> is recorded 
+   * for graphic file <code>src</code>. 
+   */
+  boolean hasSignature(File src, String signature) {
+    return signature.equals(this.name2signature.get(src.getName()));
+  }
+
+  /**
+   * Records <code>signature</code> for graphic file <code>src</code>. 
+   * This is invoked after successful conversion of <code>src</code>. 
+   */
+  void putSignature(File src, String signature) {
+    String old = this.name2signature.put(src.getName(), signature);
+    if (!signature.equals(old)) {
+      this.isModified = true;
+    }
+  }
+
+  /**
+   * Removes the signature recorded for graphic file <code>src</code>. 
+   * This is invoked before conversion of <code>src</code>, 
+   * so that <code>src</code> is converted again next time 
+   * if conversion fails. 
+   */
+  void removeSignature(File src) {
+    if (this.name2signature.remove(src.getName()) != null) {
+      this.isModified = true;
+    }
+  }
+
+  /**
+   * Removes the signatures of all graphic files 
+   * the names of which are not in <code>names</code>, 
+   * e.g. because they were deleted. 
+   */
+  void retainSignatures(Collection<String> names) {
+    if (this.name2signature.keySet().retainAll(names)) {
+      this.isModified = true;
+    }
+  }
+
+  /**
+   * Writes this manifest to its file if it was modified since read. 
+   * <p>
+   * Logging: 
+   * WGM02: if the manifest file cannot be written. 
+   * Then graphic files may be converted although not needed 
+   * but this does not affect correctness. 
+   *
+   * @param log
+   *    the log to write a warning on if writing fails. 
+   */
+  void write(LogWrapper log) {
+    if (!this.isModified) {
+      return;
+    }
+    Properties props = new Properties();
+    props.putAll(this.name2signature);
+    try (OutputStream outStream = new FileOutputStream(this.file)) {
+      // may throw IOException
+      props.store(outStream, "converter signatures of graphic files");
+      this.isModified = false;
+    } catch (IOException ioe) {
+      log.warn("WGM02: Cannot write graphics manifest '" + this.file
+          + "'; graphic files may be converted again. ");
+    }
+  }
+}
@@ -134,7 +134,7 @@ public enum LatexDev {
    * representing all but text. 
    * This is used for processing fig-files and for processing svg-files 
    * in {@link LatexPreProcessor#runFig2DevInTex(File, LatexDev)} and 
-   * in {@link LatexPreProcessor#runSvg2Dev(File, LatexDev, boolean)}, 
+   * in {@link LatexPreProcessor#runSvg2Dev(java.util.List)}, 
    * whereas for conversion of gnuplot-files, 
    * this suffix is set automatically. 
    * Note also that this is used to clear the created files 
@@ -0,0 +1,236 @@
+package eu.simuline.m2latex.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import com.florianingerl.util.regex.Matcher;
+import com.florianingerl.util.regex.Pattern;
+
+/**
+ * Monitors the output of a LaTeX run line by line while it is written 
+ * and aborts the run at the first error 
+ * if {@link Settings#isFailFastLatex()} is set. 
+ * This is passed as line consumer to 
+ * {@link CommandExecutor#executeEnvR0(java.io.File, java.io.File, String, String[], Consumer, java.io.File...)}. 
+ * <p>
+ * An error is detected by {@link Settings#getPatternErrLatex()} 
+ * which is applied to each line separately. 
+ * The message of the error is the line matching. 
+ * The line number in the file causing the error 
+ * is read from the line starting with <code>l.</code> 
+ * which LaTeX emits shortly after the message. 
+ * The file is the one read last according to the parentheses 
+ * LaTeX emits when opening and closing a file. 
+ * Since LaTeX breaks long lines, this is a heuristics only. 
+ * If LaTeX runs with option <code>-file-line-error</code>, 
+ * errors are given by lines of the form <code>file:line: message</code> 
+ * instead of lines starting with <code>!</code>. 
+ * These are detected by {@link #PATTERN_FILE_LINE_ERROR} 
+ * independently of {@link Settings#getPatternErrLatex()} 
+ * and file and line are read from that line directly. 
+ * <p>
+ * To abort, {@link #accept(String)} throws a {@link FatalErrorException}, 
+ * which makes {@link CommandExecutor} kill the LaTeX process. 
+ * Whether the run was aborted is returned by {@link #hasAborted()} 
+ * and the error by {@link #getFirstError()}. 
+ */
+final class LatexErrorMonitor implements Consumer<String> {
+
+  /**
+   * Thrown by {@link LatexErrorMonitor#accept(String)} 
+   * to abort a LaTeX run at the first error. 
+   */
+  static final class FatalErrorException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    FatalErrorException(String message) {
+      super(message);
+    }
+  } // class FatalErrorException
+
+  /**
+   * The pattern of an error message 
+   * emitted with option <code>-file-line-error</code> 
+   * with groups for the file, the line and the message proper. 
+   * The file is required to have an extension 
+   * to avoid confusion with other messages containing colons. 
+   */
+  private static final Pattern PATTERN_FILE_LINE_ERROR =
+      PatternCache.compile("^(.+\\.\\w+):([0-9]+): (.*)$");
+
+  /**
+   * The pattern of the line giving the line number of an error 
+   * with a group for the line number. 
+   */
+  private static final Pattern PATTERN_LINE_NUMBER =
+      PatternCache.compile("^l\\.([0-9]+)");
+
+  /**
+   * The maximal number of lines after an error message 
+   * searched for the line number. 
+   * If no line number is found, the run is aborted without. 
+   */
+  private static final int MAX_LINES_AFTER_ERROR = 10;
+
+  /**
+   * The pattern of errors given by {@link Settings#getPatternErrLatex()}. 
+   */
+  private final Pattern patternErr;
+
+  /**
+   * The name of the latex main file 
+   * which is the file of an error if no other file is open. 
+   */
+  private final String texFileName;
+
+  /**
+   * For each opening parenthesis not yet closed, 
+   * the file opened or the empty string 
+   * if the parenthesis does not open a file. 
+   * The innermost one is first. 
+   */
+  private final Deque<String> files;
+
+  /**
+   * The first error message or <code>null</code> if no error occurred. 
+   */
+  private String errorMessage;
+
+  /**
+   * The file the first error occurred in 
+   * or <code>null</code> if no error occurred. 
+   */
+  private String errorFile;
+
+  /**
+   * The line number of the first error in {@link #errorFile} 
+   * or <code>null</code> if not (yet) known. 
+   */
+  private String errorLine;
+
+  /**
+   * The number of lines after {@link #errorMessage}. 
+   */
+  private int numLinesAfterError;
+
+  /**
+   * Whether this monitor aborted the run. 
+   */
+  private boolean hasAborted;
+
+  /**
+   * Creates a monitor of a LaTeX run on a latex main file. 
+   *
+   * @param patternErr
+   *    the pattern of errors given by {@link Settings#getPatternErrLatex()}. 
+   * @param texFileName
+   *    the name of the latex main file. 
+   */
+  LatexErrorMonitor(String patternErr, String texFileName) {
+    this.patternErr = PatternCache.compile(patternErr);
+    this.texFileName = texFileName;
+    this.files = new ArrayDeque<String>();
+    this.errorMessage = null;
+    this.errorFile = null;
+    this.errorLine = null;
+    this.numLinesAfterError = 0;
+    this.hasAborted = false;
+  }
+
+  /**
+   * Consumes the next line of the output of the LaTeX run. 
+   *
+   * @throws FatalErrorException
+   *    if the run shall be aborted because an error occurred. 
+   *    This is thrown once the line number of the error is found 
+   *    or {@link #MAX_LINES_AFTER_ERROR} lines after the error message. 
+   */
+  public synchronized void accept(String line) {
+    if (this.errorMessage == null) {
+      Matcher matcher = PATTERN_FILE_LINE_ERROR.matcher(line);
+      if (matcher.find()) {
+        this.errorFile = matcher.group(1);
+        this.errorLine = matcher.group(2);
+        this.errorMessage = matcher.group(3);
+        abort();
+      }
+      if (!this.patternErr.matcher(line).find()) {
+        trackFiles(line);
+        return;
+      }
+      this.errorMessage = line;
+      this.errorFile = this.files.stream().filter(file -> !file.isEmpty())
+          .findFirst().orElse(this.texFileName);
+      return;
+    }
+
+    Matcher matcher = PATTERN_LINE_NUMBER.matcher(line);
+    if (matcher.find()) {
+      this.errorLine = matcher.group(1);
+      abort();
+    }
+    this.numLinesAfterError++;
+    if (this.numLinesAfterError >= MAX_LINES_AFTER_ERROR) {
+      abort();
+    }
+  }
+
+  /**
+   * Updates {@link #files} according to the parentheses in <code>line</code>. 
+   * An opening parenthesis directly followed by a name with an extension 
+   * or by a path is assumed to open a file. 
+   */
+  private void trackFiles(String line) {
+    for (int idx = 0; idx < line.length(); idx++) {
+      switch (line.charAt(idx)) {
+        case '(':
+          int end = idx + 1;
+          while (end < line.length()
+              && " \t()".indexOf(line.charAt(end)) == -1) {
+            end++;
+          }
+          String name = line.substring(idx + 1, end);
+          int idxDot = name.lastIndexOf('.');
+          boolean isFile = name.startsWith("/") || name.startsWith("./")
+              || (idxDot > 0 && idxDot < name.length() - 1);
+          this.files.push(isFile ? name : "");
+          idx = end - 1;
+          break;
+        case ')':
+          // ignore unbalanced parentheses
+          this.files.poll();
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private void abort() {
+    this.hasAborted = true;
+    throw new FatalErrorException(getFirstError());
+  }
+
+  /**
+   * Returns whether this monitor aborted the LaTeX run. 
+   */
+  synchronized boolean hasAborted() {
+    return this.hasAborted;
+  }
+
+  /**
+   * Returns a description of the first error 
+   * comprising file, line if known and message 
+   * or <code>null</code> if no error occurred. 
+   */
+  synchronized String getFirstError() {
+    if (this.errorMessage == null) {
+      return null;
+    }
+    return "'" + this.errorFile + "'"
+        + (this.errorLine == null ? "" : ", line " + this.errorLine)
+        + ": " + this.errorMessage;
+  }
+}
@@ -2,6 +2,7 @@ package eu.simuline.m2latex.core;
 
 import java.io.File;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -32,6 +33,24 @@ class LatexMainDesc implements Comparable<LatexMainDesc> {
 
   final Map<Auxiliary, FileId> aux2fileId;
 
+  // the result of analyzing logFile after the last LaTeX run 
+  // set by LatexProcessor.runLatex2dev 
+  LogAnalysis.Result latexLogRes;
+
+  // whether bibliography, index, glossary and that like 
+  // have been created in the current build 
+  // set by LatexProcessor.preProcessLatex2dev 
+  // and shared by all targets created afterwards 
+  boolean isAuxProcessed;
+
+  // the state of the auxiliary programs recorded across builds 
+  // read lazily and written by LatexProcessor 
+  AuxState auxState;
+
+  // the registry of the artifacts created in the current build: 
+  // maps the device used by LaTeX to the artifacts created via that device, 
+  // each mapped to its modification time when registered 
+  private final Map<LatexDev, Map<File, Long>> dev2artifacts;
 
   private final MatchResult matchRes;
 
@@ -83,6 +102,27 @@ class LatexMainDesc implements Comparable<LatexMainDesc> {
     this.glgFile = withSuffix(LatexProcessor.SUFFIX_GLG);
     this.parentDir = this.texFile.getParentFile();
     this.aux2fileId = new EnumMap<>(Auxiliary.class);
+    this.latexLogRes = LogAnalysis.Result.UNREADABLE;
+    this.isAuxProcessed = false;
+    this.dev2artifacts = new EnumMap<>(LatexDev.class);
+  }
+
+  /**
+   * Returns a description of the latex main file 
+   * with the same name as the one described by this one 
+   * but in directory <code>dir</code>, 
+   * which is typically a copy of {@link #parentDir}. 
+   * The state of processing, 
+   * i.e. {@link #aux2fileId}, {@link #latexLogRes} and {@link #isAuxProcessed}, 
+   * is copied also. 
+   */
+  LatexMainDesc copyTo(File dir) {
+    LatexMainDesc res = 
+        new LatexMainDesc(new File(dir, this.texFile.getName()), this.matchRes);
+    res.aux2fileId.putAll(this.aux2fileId);
+    res.latexLogRes = this.latexLogRes;
+    res.isAuxProcessed = this.isAuxProcessed;
+    return res;
   }
 
   /**
@@ -128,6 +168,43 @@ class LatexMainDesc implements Comparable<LatexMainDesc> {
   //   return Optional.ofNullable(docClass);
   // }
 
+  /**
+   * Registers <code>artifact</code> as created in the current build 
+   * with LaTeX output device <code>dev</code> if it exists, 
+   * so that targets created later may reuse it 
+   * as long as it is fresh as given by {@link #isArtifactFresh(LatexDev, File)}. 
+   *
+   * @param dev
+   *    the device used by LaTeX to create <code>artifact</code>. 
+   * @param artifact
+   *    an artifact created from this latex main file. 
+   *    If it does not exist, e.g. because creation failed, 
+   *    it is not registered. 
+   */
+  void registerArtifact(LatexDev dev, File artifact) {
+    if (!artifact.exists()) {
+      return;
+    }
+    this.dev2artifacts.computeIfAbsent(dev, key -> new HashMap<File, Long>())
+        .put(artifact, artifact.lastModified());
+  }
+
+  /**
+   * Returns whether <code>artifact</code> was registered 
+   * by {@link #registerArtifact(LatexDev, File)} 
+   * with LaTeX output device <code>dev</code> in the current build 
+   * and was not modified or deleted since. 
+   */
+  boolean isArtifactFresh(LatexDev dev, File artifact) {
+    Map<File, Long> artifacts = this.dev2artifacts.get(dev);
+    if (artifacts == null) {
+      return false;
+    }
+    Long lastModified = artifacts.get(artifact);
+    return lastModified != null && artifact.exists()
+        && artifact.lastModified() == lastModified.longValue();
+  }
+
   File withSuffix(String suffix) {
     return TexFileUtils.appendSuffix(this.xxxFile, suffix);
   }
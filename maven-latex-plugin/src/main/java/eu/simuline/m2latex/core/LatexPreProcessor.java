@@ -20,15 +20,22 @@ package eu.simuline.m2latex.core;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The latex pre-processor is for preprocessing graphic files
@@ -89,9 +96,55 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
   private final static String SUFFIX_XBB = ".xbb";
   private final static String SUFFIX_BB = ".bb";
 
+  /**
+   * The options of the command to create bounding boxes 
+   * which allow writing bounding box files 
+   * without running the command as described for {@link BoundingBox}. 
+   */
+  private final static Set<String> EBB_OPTIONS_NATIVE =
+      new HashSet<String>(Arrays.asList("-v", "-q"));
+
+  private final static String EBB_CREATOR = "%%Creator: ";
+  private final static String EBB_CREATION_DATE = "%%CreationDate:";
+
+  /**
+   * Maps the texpath, the command to create bounding boxes 
+   * and the variant of a graphic file given by {@link BoundingBox#getVariant()} 
+   * to the creator written into bounding box files 
+   * or to the empty string if the command must be run for this variant. 
+   * This is determined by {@link #getEbbCreator(File, String, BoundingBox)}. 
+   */
+  private final static Map<String, String> VARIANT2EBB_CREATOR =
+      new ConcurrentHashMap<String, String>();
+
+  /**
+   * Maps the keys of {@link #VARIANT2EBB_CREATOR} to a lock 
+   * held while determining the creator for that key, 
+   * so that the command is run only once for each key 
+   * without blocking graphic files of other variants. 
+   */
+  private final static Map<String, Object> VARIANT2EBB_LOCK =
+      new ConcurrentHashMap<String, Object>();
+
+  /**
+   * The devices for which graphic files are created, 
+   * i.e. pdf-files for {@link LatexDev#pdf} 
+   * and eps-files and bounding box files for {@link LatexDev#dvips}. 
+   * By default, these are all devices. 
+   * Restricting them by {@link #withLatexDevs(Set)} 
+   * avoids conversions not needed for the targets to be created. 
+   */
+  private final Set<LatexDev> latexDevs;
+
   LatexPreProcessor(Settings settings, CommandExecutor executor, LogWrapper log,
       TexFileUtils fileUtils) {
+    this(settings, executor, log, fileUtils, EnumSet.allOf(LatexDev.class));
+  }
+
+  private LatexPreProcessor(Settings settings, CommandExecutor executor,
+      LogWrapper log, TexFileUtils fileUtils, Set<LatexDev> latexDevs) {
     super(settings, executor, log, fileUtils);
+    this.latexDevs = Collections.unmodifiableSet(EnumSet.copyOf(latexDevs));
   }
 
   // Formats that work with LaTeX (dvi mode, using dvips):
@@ -149,6 +202,19 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
       String getSuffix() {
         return LatexPreProcessor.SUFFIX_FIG;
       }
+
+      Collection<File> getTargets(File file, Settings settings,
+          Set<LatexDev> devs) {
+        return targetsPtxPdfEps(file, devs);
+      }
+
+      String getConverterSignature(Settings settings)
+          throws BuildFailureException {
+        return signature(settings, ConverterCategory.Fig2Dev,
+            settings.getFig2devGenOptions(),
+            settings.getFig2devPtxOptions(),
+            settings.getFig2devPdfEpsOptions());
+      }
     },
     /**
      * Handler for .gp-files representing the native gnuplot format.
@@ -170,6 +236,22 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
       String getSuffix() {
         return LatexPreProcessor.SUFFIX_GP;
       }
+
+      Collection<File> getTargets(File file, Settings settings,
+          Set<LatexDev> devs) {
+        return targetsPtxPdfEps(file, devs);
+      }
+
+      String getConverterSignature(Settings settings)
+          throws BuildFailureException {
+        return signature(settings, ConverterCategory.Gnuplot2Dev,
+            settings.getGnuplotOptions());
+      }
+
+      // data files read via plot or load are not known 
+      boolean hasUntrackedInputs() {
+        return true;
+      }
     },
     /**
      * Handler for .mp-files representing the metapost format.
@@ -191,6 +273,23 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
       String getSuffix() {
         return LatexPreProcessor.SUFFIX_MP;
       }
+
+      // mps-files can be included for all devices 
+      Collection<File> getTargets(File file, Settings settings,
+          Set<LatexDev> devs) {
+        return Arrays.asList(TexFileUtils.replaceSuffix(file, SUFFIX_MPS));
+      }
+
+      String getConverterSignature(Settings settings)
+          throws BuildFailureException {
+        return signature(settings, ConverterCategory.MetaPost,
+            settings.getMetapostOptions());
+      }
+
+      // files read via input are not known 
+      boolean hasUntrackedInputs() {
+        return true;
+      }
     },
     /**
      * Handler for .svg-files representing scaleable vector graphics.
@@ -217,6 +316,17 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
       String getSuffix() {
         return LatexPreProcessor.SUFFIX_SVG;
       }
+
+      Collection<File> getTargets(File file, Settings settings,
+          Set<LatexDev> devs) {
+        return targetsPtxPdfEps(file, devs);
+      }
+
+      String getConverterSignature(Settings settings)
+          throws BuildFailureException {
+        return signature(settings, ConverterCategory.Svg2Dev,
+            settings.getSvg2devOptions());
+      }
     },
     /**
      * Handler for .jpg-files representing a format
@@ -242,6 +352,17 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
       String getSuffix() {
         return LatexPreProcessor.SUFFIX_JPG;
       }
+
+      Collection<File> getTargets(File file, Settings settings,
+          Set<LatexDev> devs) {
+        return targetsXbbBb(file, settings, devs);
+      }
+
+      String getConverterSignature(Settings settings)
+          throws BuildFailureException {
+        return signature(settings, ConverterCategory.EbbCmd,
+            settings.getEbbOptions());
+      }
     },
     /**
      * Handler for .png-files
@@ -268,6 +389,17 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
       String getSuffix() {
         return LatexPreProcessor.SUFFIX_PNG;
       }
+
+      Collection<File> getTargets(File file, Settings settings,
+          Set<LatexDev> devs) {
+        return targetsXbbBb(file, settings, devs);
+      }
+
+      String getConverterSignature(Settings settings)
+          throws BuildFailureException {
+        return signature(settings, ConverterCategory.EbbCmd,
+            settings.getEbbOptions());
+      }
     },
     /**
      * Handler for .tex-files
@@ -487,6 +619,110 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
     boolean isToBePreprocessed() {
       return true;
     }
+
+    /**
+     * Returns the target files 
+     * created from <code>file</code> by {@link #procSrc(File, LatexPreProcessor)}. 
+     * This is used for incremental conversion 
+     * if {@link Settings#getIncrementalGraphics()} is set. 
+     * The collection returned is empty if no target files are created 
+     * as for {@link #tex} and {@link #bib} 
+     * and as for {@link #jpg} and {@link #png} 
+     * unless {@link Settings#getCreateBoundingBoxes()} is set 
+     * and <code>devs</code> contains {@link LatexDev#dvips}. 
+     *
+     * @param file
+     *    a file with ending given by {@link #getSuffix()}. 
+     * @param settings
+     *    the settings determining the target files. 
+     * @param devs
+     *    the devices for which target files are created. 
+     * @return
+     *    the target files created from <code>file</code>. 
+     */
+    // overwritten for all graphic files
+    Collection<File> getTargets(File file, Settings settings,
+        Set<LatexDev> devs) {
+      return Collections.emptyList();
+    }
+
+    /**
+     * Returns whether {@link #procSrc(File, LatexPreProcessor)} 
+     * may read files besides the source file which are not known, 
+     * e.g. data files of {@link #gp} or files input by {@link #mp}. 
+     * Then the targets may be outdated even if newer than the source file, 
+     * so that the source file is converted 
+     * even if {@link Settings#getIncrementalGraphics()} is set. 
+     * 
+     * @return
+     *    whether conversion may read files which are not known. 
+     */
+    // overwritten for gp and mp 
+    boolean hasUntrackedInputs() {
+      return false;
+    }
+
+    /**
+     * Returns a signature of the converter 
+     * used by {@link #procSrc(File, LatexPreProcessor)} 
+     * comprising its command, its options and the tex path. 
+     * If this signature changes, the targets are to be recreated, 
+     * even if they are more recent than the source. 
+     * The signature is recorded in a {@link GraphicsManifest}. 
+     *
+     * @param settings
+     *    the settings determining the converter and its options. 
+     * @return
+     *    the signature of the converter. 
+     * @throws BuildFailureException
+     *    TSS05-TSS08 if the converter command is not allowed 
+     *    as described for {@link Settings#getCommand(ConverterCategory)}. 
+     */
+    // overwritten for all graphic files
+    String getConverterSignature(Settings settings)
+        throws BuildFailureException {
+      return "";
+    }
+
+    /**
+     * Returns the signature of the converter given by <code>cat</code> 
+     * with options <code>options</code> 
+     * as described for {@link #getConverterSignature(Settings)}. 
+     */
+    private static String signature(Settings settings, ConverterCategory cat,
+        String... options) throws BuildFailureException {
+      StringBuilder res = new StringBuilder();
+      res.append(settings.getTexPath()).append('|');
+      // may throw BuildFailureException TSS05-TSS08
+      res.append(settings.getCommand(cat));
+      for (String option : options) {
+        res.append('|').append(option);
+      }
+      return res.toString();
+    }
+
+    private static Collection<File> targetsPtxPdfEps(File file,
+        Set<LatexDev> devs) {
+      if (devs.isEmpty()) {
+        return Collections.emptyList();
+      }
+      List<File> res = new ArrayList<File>();
+      res.add(TexFileUtils.replaceSuffix(file, SUFFIX_PTX));
+      for (LatexDev dev : devs) {
+        res.add(TexFileUtils.replaceSuffix(file, dev.getGraphicsInTexSuffix()));
+      }
+      return res;
+    }
+
+    private static Collection<File> targetsXbbBb(File file, Settings settings,
+        Set<LatexDev> devs) {
+      if (!settings.getCreateBoundingBoxes()
+          || !devs.contains(LatexDev.dvips)) {
+        return Collections.emptyList();
+      }
+      return Arrays.asList(TexFileUtils.replaceSuffix(file, SUFFIX_XBB),
+          TexFileUtils.replaceSuffix(file, SUFFIX_BB));
+    }
   } // enum SuffixHandler
 
   // FIXME: CAUTION with including pictures in xfig:
@@ -532,10 +768,12 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
    * Converts the fig-file <code>figFile</code>
    * into a tex-file with ending ptx
    * including a pdf-file or an eps-file also created.
-   * To that end, invokes {@link #runFig2DevInTex(File, LatexDev)} twice
-   * to create a pdf-file and an eps-file
+   * To that end, invokes {@link #runFig2DevInTex(File, LatexDev)} 
+   * for each device in {@link #latexDevs} 
+   * to create a pdf-file and an eps-file, respectively, 
    * and invokes {@link #runFig2TexInclDev(File)} (once)
-   * to create the tex-file.
+   * to create the tex-file. 
+   * If {@link #latexDevs} is empty, nothing is created. 
    * <p>
    * Logging:
    * <ul>
@@ -554,13 +792,18 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
    */
   // used in fig.procSrc(File, LatexPreProcessor) only
   private void runFig2Dev(File figFile) throws BuildFailureException {
+    if (this.latexDevs.isEmpty()) {
+      this.log.info("Fig-file '" + figFile + "' needs no processing. ");
+      return;
+    }
     this.log.info("Processing fig-file '" + figFile + "'. ");
 
-    // all three
+    // all
     // may throw BuildFailureException TEX01,
     // may log EEX01, EEX02, EEX03, WEX04, WEX05
-    runFig2DevInTex(figFile, LatexDev.pdf);
-    runFig2DevInTex(figFile, LatexDev.dvips);
+    for (LatexDev dev : this.latexDevs) {
+      runFig2DevInTex(figFile, dev);
+    }
     runFig2TexInclDev(figFile);
   }
 
@@ -598,11 +841,11 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
     this.log.debug("Running " + command + " -L pdftex/pstex  ... on '"
         + figFile.getName() + "'. ");
     // may throw BuildFailureException TEX01,
-    // may log EEX01, EEX02, EEX03, WEX04, WEX05
-    this.executor.executeEnvR0(figFile.getParentFile(),
-        this.settings.getTexPath(), // ****
+    // may log EEX01, EEX02, EEX03, WEX04, WEX05, WBC01
+    executeCached(figFile.getParentFile(),
         command,
         args,
+        Collections.singletonList(figFile),
         figInTexFile);
     // }
   }
@@ -757,11 +1000,11 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
     this.log.debug("Running " + command + " -L (pdf/ps)tex_t... on '"
         + figFile.getName() + "'. ");
     // may throw BuildFailureException TEX01,
-    // may log EEX01, EEX02, EEX03, WEX04, WEX05
-    this.executor.executeEnvR0(figFile.getParentFile(),
-        this.settings.getTexPath(), // ****
+    // may log EEX01, EEX02, EEX03, WEX04, WEX05, WBC01
+    executeCached(figFile.getParentFile(),
         command,
         args,
+        Collections.singletonList(figFile),
         ptxFile);
     // }
   }
@@ -862,9 +1105,11 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
   /**
    * Converts a gnuplot-file into a tex-file with ending ptx
    * including a pdf-file or an eps-file also created.
-   * To that end, invokes {@link #runGnuplot2Dev(File, LatexDev)} twice
-   * to create a pdf-file and an eps-file
-   * and to create the tex-file which can include both.
+   * To that end, invokes {@link #runGnuplot2Dev(File, LatexDev)} 
+   * for each device in {@link #latexDevs} 
+   * to create a pdf-file and an eps-file, respectively, 
+   * and to create the tex-file which can include both. 
+   * If {@link #latexDevs} is empty, nothing is created. 
    * <p>
    * Logging:
    * <ul>
@@ -881,11 +1126,21 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
    */
   // used in gp.procSrc(File, LatexPreProcessor) only
   private void runGnuplot2Dev(File gpFile) throws BuildFailureException {
+    if (this.latexDevs.isEmpty()) {
+      this.log.info("Gnuplot-file '" + gpFile + "' needs no processing. ");
+      return;
+    }
     this.log.info("Processing gnuplot-file '" + gpFile + "'. ");
-    // both may throw BuildFailureException TEX01,
+    // each run writes the ptx-file; 
+    // the last one for pdf, including the pdf-file if created 
+    // may throw BuildFailureException TEX01,
     // and may log EEX01, EEX02, EEX03, WEX04, WEX05
-    runGnuplot2Dev(gpFile, LatexDev.dvips);
-    runGnuplot2Dev(gpFile, LatexDev.pdf);
+    if (this.latexDevs.contains(LatexDev.dvips)) {
+      runGnuplot2Dev(gpFile, LatexDev.dvips);
+    }
+    if (this.latexDevs.contains(LatexDev.pdf)) {
+      runGnuplot2Dev(gpFile, LatexDev.pdf);
+    }
   }
 
   // may throw BuildFailureException TEX01,
@@ -960,10 +1215,10 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
     // FIXME: monitoring of those additional files. 
     // keep trying to be in one line with the latex processors 
     File logFile = TexFileUtils.replaceSuffix(mpFile, SUFFIX_LOG);
-    // may log WFU03, EAP01, EAP02, WAP04
-    logErrs (logFile, command, this.settings.getPatternErrMPost());
-    // may log warnings WFU03, WAP03, WAP04
-    logWarns(logFile, command, this.settings.getPatternWarnMPost());
+    // may log EAP01, EAP02, WAP03, WAP04, WFU03
+    logErrsWarns(logFile, command,
+        this.settings.getPatternErrMPost(),
+        this.settings.getPatternWarnMPost());
   }
 
   /**
@@ -1002,9 +1257,8 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
   /**
    * Converts an svg-file into a tex-file with ending ptx
    * including a pdf-file or an eps-file also created.
-   * To that end, invokes {@link #runSvg2Dev(File, LatexDev, boolean)} twice
-   * to create a pdf-file and an eps-file
-   * and to create the tex-file which can include both.
+   * To that end, invokes {@link #runSvg2Dev(List)} 
+   * with <code>svgFile</code> as the only svg-file. 
    * <p>
    * Logging:
    * <ul>
@@ -1018,77 +1272,185 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
    * @throws BuildFailureException
    *    TEX01 if invocation of the ptx/pdf-conversion built-in
    *    in svg2dev fails.
-   * @see #processGraphicsSelectMain(File, DirNode, boolean)
+   * @see #processGraphicsSelectMain(File, DirNode, Collection, Collection, boolean) 
    */
   // used in svg.procSrc(File, LatexPreProcessor) only
   private void runSvg2Dev(File svgFile) throws BuildFailureException {
-    this.log.info("Processing svg-file '" + svgFile + "'. ");
-    // both may throw BuildFailureException TEX01,
+    // may throw BuildFailureException TEX01,
     // and may log EEX01, EEX02, EEX03, WEX04, WEX05
     // EFU07, EFU08, EFU09
-    runSvg2Dev(svgFile, LatexDev.pdf, false);
-    runSvg2Dev(svgFile, LatexDev.dvips, true);
+    runSvg2Dev(Collections.singletonList(svgFile));
   }
 
-  // FIXME: still the included pdf/eps-file does not occur
-  // with full path in ptx-file
-  // may throw BuildFailureException TEX01,
-  // may log EEX01, EEX02, EEX03, WEX04, WEX05, EFU07, EFU08, EFU09
-  private void runSvg2Dev(File svgFile, LatexDev dev, boolean filterTex)
-      throws BuildFailureException {
+  /**
+   * Converts the svg-files <code>svgFiles</code> 
+   * in a common directory into tex-files with ending ptx 
+   * including a pdf-file or an eps-file also created, 
+   * running the command for {@link ConverterCategory#Svg2Dev} only once, 
+   * because starting inkscape takes far longer 
+   * than converting a single svg-file. 
+   * The pdf-file and the eps-file are exported at once 
+   * with option <code>--export-type</code>, 
+   * each together with a tex-file 
+   * if {@link Settings#getSvg2devOptions()} contains <code>--export-latex</code>. 
+   * Only the files for the devices in {@link #latexDevs} are exported. 
+   * The tex-file for the eps-file, or for the pdf-file if no eps-file is exported, 
+   * is filtered into the ptx-file 
+   * which can include both the pdf-file and the eps-file; 
+   * the other tex-files are deleted. 
+   * <p>
+   * Logging: 
+   * <ul>
+   * <li>EEX01, EEX02, EEX03, WEX04, WEX05: 
+   * if running the ptx/pdf-conversion built-in in svg2dev fails. 
+   * For each file not updated, EEX02, EEX03 or WEX04 is logged separately. 
+   * <li>EFU07, EFU08, EFU09 if filtering a file fails. 
+   * </ul>
+   *
+   * @param svgFiles
+   *    the svg-files in a common directory 
+   *    to be converted to pdf-files, eps-files and ptx-files. 
+   * @throws BuildFailureException
+   *    TEX01 if invocation of the ptx/pdf-conversion built-in 
+   *    in svg2dev fails. 
+   */
+  private void runSvg2Dev(List<File> svgFiles) throws BuildFailureException {
+    if (svgFiles.isEmpty()) {
+      return;
+    }
+    if (this.latexDevs.isEmpty()) {
+      for (File svgFile : svgFiles) {
+        this.log.info("Svg-file '" + svgFile + "' needs no processing. ");
+      }
+      return;
+    }
     // current:
-    // inkscape --export-filename=F4_07someSvg -D F4_07someSvg.svg
-    // --export-type=pdf,eps
-    // inkscape --export-filename=F4_07someSvg.pdf -D F4_07someSvg.svg
+    // inkscape --export-area-drawing --export-latex 
+    // --export-type=pdf,eps F4_07someSvg.svg F4_08otherSvg.svg
     //
     // --export-pdf-version=1.4 may be nice
     String command = this.settings.getCommand(ConverterCategory.Svg2Dev);
+    LatexDev[] devs = this.latexDevs.toArray(new LatexDev[this.latexDevs.size()]);
+    // the tex-file filtered into the ptx-file 
+    LatexDev devTex = this.latexDevs.contains(LatexDev.dvips)
+        ? LatexDev.dvips
+        : LatexDev.pdf;
+
+    List<File> resFiles = new ArrayList<File>();
+    for (File svgFile : svgFiles) {
+      this.log.info("Processing svg-file '" + svgFile + "'. ");
+      for (LatexDev dev : devs) {
+        resFiles.add(
+            TexFileUtils.replaceSuffix(svgFile, dev.getGraphicsInTexSuffix()));
+        resFiles.add(
+            TexFileUtils.replaceSuffix(svgFile, dev.getInkscapeTexSuffix()));
+      }
+    }
 
-    File grpFile =
-        TexFileUtils.replaceSuffix(svgFile, dev.getGraphicsInTexSuffix());
-    File texFile =
-        TexFileUtils.replaceSuffix(svgFile, dev.getInkscapeTexSuffix());
-
-    String[] args = buildArgumentsInkscp(grpFile,
-        this.settings.getSvg2devOptions(), svgFile);
-    this.log.debug("Running " + command + " on '" + svgFile.getName() + "'. ");
+    String[] args = buildArgumentsInkscp(devs,
+        this.settings.getSvg2devOptions(), svgFiles);
+    this.log.debug("Running " + command + " on " + svgFiles.size()
+        + " svg-files in '" + svgFiles.get(0).getParentFile() + "'. ");
     // may throw BuildFailureException TEX01,
-    // may log EEX01, EEX02, EEX03, WEX04, WEX05
-    this.executor.executeEnvR0(svgFile.getParentFile(),
-        this.settings.getTexPath(), // ****
+    // may log EEX01, EEX02, EEX03, WEX04, WEX05, WBC01
+    executeCached(svgFiles.get(0).getParentFile(),
         command,
         args,
-        grpFile,
-        texFile);
+        svgFiles,
+        resFiles.toArray(new File[resFiles.size()]));
 
-    if (filterTex) {
+    for (File svgFile : svgFiles) {
       // may log EFU07, EFU08, EFU09: cannot fiter
-      // for eps only 
-      String suffix = TexFileUtils.getSuffix(texFile);
-      assert SUFFIX_EPSTEX.equals(suffix) : "Expected suffix '" + SUFFIX_EPSTEX
-          + "' found '" + suffix + "'";
+      File texFile =
+          TexFileUtils.replaceSuffix(svgFile, devTex.getInkscapeTexSuffix());
       File destFile = TexFileUtils.replaceSuffix(texFile, SUFFIX_PTX);
       File bareFile = TexFileUtils.replaceSuffix(texFile, SUFFIX_VOID);
 
       this.fileUtils.filterInkscapeIncludeFile(texFile, destFile,
-          bareFile.getName(), SUFFIX_EPS);
+          bareFile.getName(), devTex.getGraphicsInTexSuffix());
+      for (LatexDev dev : devs) {
+        this.fileUtils.deleteOrError(
+            TexFileUtils.replaceSuffix(svgFile, dev.getInkscapeTexSuffix()),
+            false);
+      }
+    }
+  }
+
+  /**
+   * Processes the svg-files <code>svgFiles</code> in a common directory 
+   * invoking {@link #runSvg2Dev(List)} once for all of them 
+   * except those skipped by the manifest 
+   * as described for {@link #procSrcIncr(File, SuffixHandler, GraphicsManifest)}. 
+   * <p>
+   * Logging: as for {@link #runSvg2Dev(List)}. 
+   *
+   * @param svgFiles
+   *    the svg-files in a common directory. 
+   * @param manifest
+   *    the manifest of the directory containing <code>svgFiles</code> 
+   *    or <code>null</code> if not converting incrementally. 
+   * @throws BuildFailureException
+   *    <ul>
+   *    <li>TEX01 as for {@link #runSvg2Dev(List)} 
+   *    <li>TSS05-TSS08 if the converter is not allowed. 
+   *    </ul>
+   */
+  private void procSvgIncr(List<File> svgFiles, GraphicsManifest manifest)
+      throws BuildFailureException {
+    if (manifest == null) {
+      // may throw BuildFailureException TEX01
+      runSvg2Dev(svgFiles);
+      return;
+    }
+    // may throw BuildFailureException TSS05-TSS08
+    String signature = SuffixHandler.svg.getConverterSignature(this.settings);
+    List<File> srcs = new ArrayList<File>();
+    for (File src : svgFiles) {
+      if (manifest.hasSignature(src, signature)
+          && !needsUpdate(src, SuffixHandler.svg.getTargets(src, this.settings, this.latexDevs))) {
+        this.log.info("Skipping file '" + src + "': targets up to date. ");
+        continue;
+      }
+      // if processing fails, src shall be processed again next time 
+      manifest.removeSignature(src);
+      srcs.add(src);
+    }
+    // may throw BuildFailureException TEX01
+    runSvg2Dev(srcs);
+    for (File src : srcs) {
+      manifest.putSignature(src, signature);
     }
-    this.fileUtils.deleteOrError(texFile, false);
   }
 
-  protected static String[] buildArgumentsInkscp(File grpFile,
+  /**
+   * Returns the arguments of the command for {@link ConverterCategory#Svg2Dev} 
+   * exporting each of the svg-files <code>files</code> 
+   * into the formats given by {@link LatexDev#getGraphicsInTexSuffix()} 
+   * for all <code>devs</code> 
+   * with filenames derived from the names of the svg-files. 
+   * First come the options <code>options</code>, 
+   * then the export type and finally the names of the svg-files. 
+   */
+  protected static String[] buildArgumentsInkscp(LatexDev[] devs,
       String options,
-      File file) {
-    String optExp = "--export-filename=" + grpFile.getName();
-    if (options.isEmpty()) {
-      return new String[] {optExp, file.getName()};
+      List<File> files) {
+    List<String> args = new ArrayList<String>();
+    if (!options.isEmpty()) {
+      args.addAll(Arrays.asList(options.split(" ")));
     }
-    String[] optionsArr = options.split(" ");
-    String[] args = new String[optionsArr.length + 2];
-    System.arraycopy(optionsArr, 0, args, 1, optionsArr.length);
-    args[args.length - 1] = file.getName();
-    args[0] = optExp;
-    return args;
+    StringBuilder types = new StringBuilder();
+    for (LatexDev dev : devs) {
+      if (types.length() != 0) {
+        types.append(',');
+      }
+      // suffix without dot 
+      types.append(dev.getGraphicsInTexSuffix().substring(1));
+    }
+    args.add("--export-type=" + types);
+    for (File file : files) {
+      args.add(file.getName());
+    }
+    return args.toArray(new String[args.size()]);
   }
 
   // Additional research:
@@ -1097,7 +1459,9 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
   // Experiments show, that we can do without it in any case.
 
   private void runEbbByConfig(File file) throws BuildFailureException {
-    if (!this.settings.getCreateBoundingBoxes()) {
+    if (!this.settings.getCreateBoundingBoxes()
+        || !this.latexDevs.contains(LatexDev.dvips)) {
+      // bounding boxes are needed in dvi mode only 
       // suffix without dot 
       String suffix = TexFileUtils.getSuffix(file).substring(1);
       this.log.info(
@@ -1110,6 +1474,10 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
     }
 
     String command = this.settings.getCommand(ConverterCategory.EbbCmd);
+    // may throw BuildFailureException TEX01 
+    if (writeBoundingBoxes(file, command)) {
+      return;
+    }
     File workingDir = file.getParentFile();
     String[] args = buildNullArguments(this.settings.getEbbOptions(), file);
 
@@ -1121,17 +1489,183 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
     this.log
         .debug("Running " + command + " twice on '" + file.getName() + "'. ");
     // may throw BuildFailureException TEX01,
-    // may log EEX01, EEX02, EEX03, WEX04, WEX05
-    this.executor.executeEnvR0(workingDir, this.settings.getTexPath(), //****
-        command, args, resFile);
+    // may log EEX01, EEX02, EEX03, WEX04, WEX05, WBC01
+    executeCached(workingDir, command, args,
+        Collections.singletonList(file), resFile);
 
     // Creation of .bb files for driver dvipdfm
     // FIXME: literal
     args[0] = "-m";
     resFile = TexFileUtils.replaceSuffix(file, SUFFIX_BB);
 
-    this.executor.executeEnvR0(workingDir, this.settings.getTexPath(), //****
-        command, args, resFile);
+    executeCached(workingDir, command, args,
+        Collections.singletonList(file), resFile);
+  }
+
+  /**
+   * Writes the <code>.xbb</code>-file and the <code>.bb</code>-file 
+   * for the jpg-file or png-file <code>file</code> 
+   * without running the command <code>command</code> 
+   * as described for {@link BoundingBox} if possible. 
+   * This is not possible if {@link Settings#getEbbOptions()} 
+   * contains options other than <code>-v</code> and <code>-q</code>, 
+   * if the header of <code>file</code> is not supported 
+   * or if <code>command</code> yields different files 
+   * for some file of the same variant 
+   * as determined by {@link #getEbbCreator(File, String, BoundingBox)}. 
+   *
+   * @return
+   *    whether the files are written. 
+   *    If not, <code>command</code> must be run. 
+   * @throws BuildFailureException
+   *    TEX01 if invocation of <code>command</code> fails very basically. 
+   */
+  private boolean writeBoundingBoxes(File file, String command)
+      throws BuildFailureException {
+    String options = this.settings.getEbbOptions();
+    if (!options.isEmpty()) {
+      for (String option : options.split(" ")) {
+        if (!EBB_OPTIONS_NATIVE.contains(option)) {
+          return false;
+        }
+      }
+    }
+    BoundingBox bbox = BoundingBox.read(file);
+    if (bbox == null) {
+      this.log.debug("Header of '" + file.getName()
+          + "' not supported; run " + command + ". ");
+      return false;
+    }
+    // may throw BuildFailureException TEX01 
+    String creator = getEbbCreator(file, command, bbox);
+    if (creator == null) {
+      return false;
+    }
+    this.log.debug("Writing bounding boxes of '" + file.getName()
+        + "' without running " + command + ". ");
+    try {
+      // may throw IOException 
+      bbox.write(TexFileUtils.replaceSuffix(file, SUFFIX_XBB),
+          file.getName(), creator, false);
+      bbox.write(TexFileUtils.replaceSuffix(file, SUFFIX_BB),
+          file.getName(), creator, true);
+    } catch (IOException ioe) {
+      // command may succeed writing the files or report the failure 
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the creator, i.e. name and version of <code>command</code>, 
+   * as written into bounding box files 
+   * or <code>null</code> if bounding box files 
+   * for files of the variant {@link BoundingBox#getVariant()} 
+   * shall be created by running <code>command</code>. 
+   * To determine this, for the first file of each variant, 
+   * <code>command</code> is run with options <code>-x</code> and <code>-m</code> 
+   * writing to standard output 
+   * and the output is compared with {@link BoundingBox#getLines(String, String, boolean)}. 
+   * The result is kept for all further files of that variant. 
+   *
+   * @param file
+   *    the jpg-file or png-file. 
+   * @param command
+   *    the command to create bounding boxes. 
+   * @param bbox
+   *    the bounding box of <code>file</code>. 
+   * @throws BuildFailureException
+   *    TEX01 if invocation of <code>command</code> fails very basically. 
+   */
+  private String getEbbCreator(File file, String command, BoundingBox bbox)
+      throws BuildFailureException {
+    String key = this.settings.getTexPath() + "|" + command + "|"
+        + bbox.getVariant();
+    String creator = VARIANT2EBB_CREATOR.get(key);
+    if (creator == null) {
+      synchronized (VARIANT2EBB_LOCK.computeIfAbsent(key, k -> new Object())) {
+        // another thread may have determined the creator meanwhile 
+        creator = VARIANT2EBB_CREATOR.get(key);
+        if (creator == null) {
+          // may throw BuildFailureException TEX01 
+          creator = determineEbbCreator(file, command, bbox);
+          VARIANT2EBB_CREATOR.put(key, creator);
+        }
+      }
+    }
+    return creator.isEmpty() ? null : creator;
+  }
+
+  /**
+   * Returns the creator, i.e. name and version of <code>command</code>, 
+   * as written into bounding box files 
+   * or the empty string if bounding box files 
+   * for files of the variant {@link BoundingBox#getVariant()} 
+   * shall be created by running <code>command</code>. 
+   * This runs <code>command</code> on <code>file</code> 
+   * with options <code>-x</code> and <code>-m</code>. 
+   *
+   * @throws BuildFailureException
+   *    TEX01 if invocation of <code>command</code> fails very basically. 
+   */
+  private String determineEbbCreator(File file, String command,
+      BoundingBox bbox) throws BuildFailureException {
+    String creator = "";
+    for (boolean isCompat : new boolean[] {false, true}) {
+      // may throw BuildFailureException TEX01 
+      String creatorMode = getEbbCreator(file, command, bbox, isCompat);
+      if (creatorMode == null
+          || !(creator.isEmpty() || creator.equals(creatorMode))) {
+        creator = "";
+        break;
+      }
+      creator = creatorMode;
+    }
+    this.log.debug("Bounding boxes of variant " + bbox.getVariant()
+        + (creator.isEmpty() ? " are" : " are not") + " created by "
+        + command + ". ");
+    return creator;
+  }
+
+  /**
+   * Runs <code>command</code> on <code>file</code> 
+   * with option <code>-m</code> if <code>isCompat</code> 
+   * and else with option <code>-x</code>, writing to standard output, 
+   * and returns the creator given in the output 
+   * if the output coincides with {@link BoundingBox#getLines(String, String, boolean)} 
+   * except for the time of creation 
+   * or <code>null</code> otherwise. 
+   *
+   * @throws BuildFailureException
+   *    TEX01 if invocation of <code>command</code> fails very basically. 
+   */
+  private String getEbbCreator(File file, String command, BoundingBox bbox,
+      boolean isCompat) throws BuildFailureException {
+    String[] args = new String[] {isCompat ? "-m" : "-x", "-O", file.getName()};
+    // may throw BuildFailureException TEX01 
+    CommandExecutor.CmdResult res = this.executor.executeEmptyEnv(
+        file.getParentFile(), this.settings.getTexPath(), command,
+        CommandExecutor.ReturnCodeChecker.Never, args);
+    if (res.returnCode != 0) {
+      return null;
+    }
+    String creator = null;
+    StringBuilder lines = new StringBuilder();
+    for (String line : res.tail.split("\\R")) {
+      if (!line.startsWith("%%") || line.startsWith(EBB_CREATION_DATE)) {
+        // message or time of creation 
+        continue;
+      }
+      if (line.startsWith(EBB_CREATOR)) {
+        creator = line.substring(EBB_CREATOR.length());
+      }
+      lines.append(line + "\n");
+    }
+    if (creator == null || !lines.toString()
+        .equals(bbox.getLines(file.getName(), creator, isCompat))) {
+      return null;
+    }
+    return creator;
   }
 
   /**
@@ -1139,8 +1673,6 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
    * where the 0th entry is <code>null</code>
    * and a placeholder for option <code>-x</code> or <code>-m</code>
    * when used by {@link #runEbbByConfig(File)}
-   * and for the export option
-   * when used by {@link #runSvg2Dev(File, LatexDev, boolean)}
    * then follow the options from <code>options</code>
    * and finally comes the name of <code>file</code>.
    */
@@ -1183,13 +1715,22 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
    * EFU05: Failed to delete file
    */
   private void deleteIfExists(File file, String suffix) {
-    File delFile = TexFileUtils.replaceSuffix(file, suffix);
+    // may log EFU05
+    deleteIfExists(TexFileUtils.replaceSuffix(file, suffix));
+  }
+
+  /**
+   * Deletes <code>delFile</code> if it exists. 
+   * <p>
+   * Logging:
+   * EFU05: Failed to delete file
+   */
+  private void deleteIfExists(File delFile) {
     if (!delFile.exists()) {
       return;
     }
     // may log EFU05
     this.fileUtils.deleteOrError(delFile, false);
-    return;
   }
 
   /**
@@ -1467,6 +2008,7 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
    *    {@link LatexPreProcessor.SuffixHandler#gp} and
    *    {@link LatexPreProcessor.SuffixHandler#mp}
    *    because these invoke external programs.
+   *    TTP01 if interrupted while waiting for processing graphic files. 
    */
   private void processGraphicsSelectMain(File dir, DirNode node,
       Collection<String> skippedSuffixes,
@@ -1486,6 +2028,10 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
         new TreeSet<LatexMainDesc>();
     Map<File, SuffixHandler> file2handler = new TreeMap<File, SuffixHandler>();
     for (String fileName : node.getRegularFileNames()) {
+      if (GraphicsManifest.FILE_NAME.equals(fileName)) {
+        // created by this preprocessor if converting incrementally 
+        continue;
+      }
       file = new File(dir, fileName);
       if (file.isHidden()) {
         this.log.debug("Skipping hidden file '" + file + "'. ");
@@ -1554,14 +2100,156 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
     // FIXME: How to ensure, that nothing is overwritten?
     // NO: if a file is overwritten, then it is no source
     // and needs no processing
+    // The sources are independent, so they are processed concurrently 
+    // logging in the order of file2handler 
+    // If converting incrementally, sources with targets up to date are skipped 
+    // may log WGM01 
+    final GraphicsManifest manifest = this.settings.getIncrementalGraphics()
+        ? GraphicsManifest.read(dir, this.log) : null;
+    List<TaskPool.Task> tasks = new ArrayList<TaskPool.Task>();
+    // svg-files are converted by a single run of inkscape 
+    final List<File> svgFiles = new ArrayList<File>();
     for (Map.Entry<File, SuffixHandler> entry : file2handler.entrySet()) {
-      // procSrc may throw BuildFailureException TEX01
-      // and may log WFU03, WPP02,
-      // EEX01, EEX02, EEX03, WEX04, WEX05 and EFU07, EFU08, EFU09
-      entry.getValue().procSrc(entry.getKey(), this);
+      if (entry.getValue() == SuffixHandler.svg) {
+        svgFiles.add(entry.getKey());
+        continue;
+      }
+      tasks.add((LogWrapper taskLog) -> {
+        // procSrc may throw BuildFailureException TEX01, TSS05-TSS08
+        // and may log WFU03, WPP02,
+        // EEX01, EEX02, EEX03, WEX04, WEX05 and EFU07, EFU08, EFU09
+        withLog(taskLog).procSrcIncr(entry.getKey(), entry.getValue(), manifest);
+      });
+    }
+    if (!svgFiles.isEmpty()) {
+      tasks.add((LogWrapper taskLog) -> {
+        // may throw BuildFailureException TEX01, TSS05-TSS08
+        // and may log EEX01, EEX02, EEX03, WEX04, WEX05 and EFU07, EFU08, EFU09
+        withLog(taskLog).procSvgIncr(svgFiles, manifest);
+      });
+    }
+    try {
+      // may throw BuildFailureException TEX01, TSS05-TSS08, TTP01 
+      new TaskPool(this.settings.getNumThreadsGraphics(), "graphics")
+          .runAll(tasks, this.log);
+    } finally {
+      if (manifest != null) {
+        Collection<String> names = new ArrayList<String>();
+        for (File src : file2handler.keySet()) {
+          names.add(src.getName());
+        }
+        manifest.retainSignatures(names);
+        // may log WGM02 
+        manifest.write(this.log);
+      }
     }
   }
 
+  /**
+   * Processes the source file <code>src</code> with handler <code>handler</code> 
+   * as described for {@link SuffixHandler#procSrc(File, LatexPreProcessor)} 
+   * unless converting incrementally and the targets are up to date. 
+   * If <code>manifest</code> is <code>null</code>, 
+   * <code>src</code> is processed unconditionally. 
+   * Else, processing is skipped if <code>src</code> has targets, 
+   * i.e. {@link SuffixHandler#getTargets(File, Settings, Set)} is not empty, 
+   * if conversion reads no files besides <code>src</code> which are not known, 
+   * i.e. {@link SuffixHandler#hasUntrackedInputs()} is not set, 
+   * all of these exist and none is older than <code>src</code> 
+   * and if in addition the converter signature 
+   * given by {@link SuffixHandler#getConverterSignature(Settings)} 
+   * is the one recorded in <code>manifest</code>. 
+   * After processing, the converter signature is recorded in <code>manifest</code>. 
+   * <p>
+   * Logging: as for {@link SuffixHandler#procSrc(File, LatexPreProcessor)}. 
+   *
+   * @param src
+   *    a source file, typically a graphic file. 
+   * @param handler
+   *    the handler for <code>src</code>. 
+   * @param manifest
+   *    the manifest of the directory containing <code>src</code> 
+   *    or <code>null</code> if not converting incrementally. 
+   * @throws BuildFailureException
+   *    <ul>
+   *    <li>TEX01 as for {@link SuffixHandler#procSrc(File, LatexPreProcessor)} 
+   *    <li>TSS05-TSS08 if the converter is not allowed. 
+   *    </ul>
+   */
+  private void procSrcIncr(File src, SuffixHandler handler,
+      GraphicsManifest manifest) throws BuildFailureException {
+    if (manifest == null) {
+      // may throw BuildFailureException TEX01
+      handler.procSrc(src, this);
+      return;
+    }
+    Collection<File> targets = handler.getTargets(src, this.settings, this.latexDevs);
+    if (targets.isEmpty() || handler.hasUntrackedInputs()) {
+      // nothing to be up to date or up to date check not reliable 
+      // may throw BuildFailureException TEX01
+      handler.procSrc(src, this);
+      return;
+    }
+    // may throw BuildFailureException TSS05-TSS08
+    String signature = handler.getConverterSignature(this.settings);
+    if (manifest.hasSignature(src, signature) && !needsUpdate(src, targets)) {
+      this.log.info("Skipping file '" + src + "': targets up to date. ");
+      return;
+    }
+    // if processing fails, src shall be processed again next time 
+    manifest.removeSignature(src);
+    // may throw BuildFailureException TEX01
+    handler.procSrc(src, this);
+    manifest.putSignature(src, signature);
+  }
+
+  /**
+   * Returns whether some of the files <code>targets</code> 
+   * created from <code>src</code> 
+   * is missing or older than <code>src</code> 
+   * as determined by {@link #update(File, File)}. 
+   */
+  private boolean needsUpdate(File src, Collection<File> targets) {
+    for (File target : targets) {
+      if (update(src, target)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns this preprocessor if <code>log</code> is the log of this one, 
+   * else a preprocessor with the same settings 
+   * logging onto <code>log</code> 
+   * also via its {@link CommandExecutor} and its {@link TexFileUtils}. 
+   * This is used to process graphic files concurrently. 
+   */
+  private LatexPreProcessor withLog(LogWrapper log) {
+    if (log == this.log) {
+      return this;
+    }
+    return new LatexPreProcessor(this.settings, this.executor.withLog(log),
+        log, new TexFileUtils(log), this.latexDevs);
+  }
+
+  /**
+   * Returns this preprocessor if <code>latexDevs</code> 
+   * are the devices of this one given by {@link #latexDevs}, 
+   * else a preprocessor with the same settings and log 
+   * creating graphic files for <code>latexDevs</code> only. 
+   * This is used to create only the variants of graphic files 
+   * needed for the targets to be created 
+   * as given by {@link Target#getLatexDevs(Set, Settings)}. 
+   */
+  LatexPreProcessor withLatexDevs(Set<LatexDev> latexDevs) {
+    if (latexDevs.equals(this.latexDevs)) {
+      return this;
+    }
+    return new LatexPreProcessor(this.settings, this.executor, this.log,
+        this.fileUtils, latexDevs);
+  }
+
   /**
    * Like
    * {@link #processGraphicsSelectMain(File,DirNode,Collection,Collection,boolean)}
@@ -1583,6 +2271,73 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
     }
   }
 
+  /**
+   * Returns the union of the targets 
+   * specified by the magic comment <code>targets</code> 
+   * in the latex main files in the directory represented by <code>node</code> 
+   * and, if {@link Settings#getReadTexSrcProcDirRec()} is set, 
+   * in its subdirectories. 
+   * This is a quick scan before 
+   * {@link #processGraphicsSelectMain(File, DirNode, boolean)} 
+   * because the graphic files in a directory are converted 
+   * before the latex main files in later directories are known, 
+   * but the variants of the graphic files created 
+   * depend on the targets of all latex main files. 
+   * Since inclusion and exclusion of latex main files are not taken into account, 
+   * the result may be too large, which is harmless. 
+   * Files which cannot be read are skipped without warning, 
+   * because this is reported by 
+   * {@link #processGraphicsSelectMain(File, DirNode, boolean)} anyway. 
+   *
+   * @param dir
+   *    represents the tex source directory or a subdirectory. 
+   * @param node
+   *    a node associated with <code>dir</code>. 
+   * @return
+   *    the union of the targets specified by magic comments. 
+   * @throws BuildFailureException
+   *    <ul>
+   *    <li>TSS04 if a magic comment <code>targets</code> is invalid 
+   *    <li>TSS11 if a target in a magic comment occurs more than once 
+   *    </ul>
+   */
+  // used in LatexProcessor.create() only
+  Set<Target> getTargetsMagic(File dir, DirNode node)
+      throws BuildFailureException {
+    Set<Target> res = EnumSet.noneOf(Target.class);
+    File file;
+    FileMatch fileMatch;
+    Optional<String> targetsMagic;
+    for (String fileName : node.getRegularFileNames()) {
+      file = new File(dir, fileName);
+      if (file.isHidden() || !fileName.endsWith(SUFFIX_TEX)) {
+        continue;
+      }
+      // may log WFU03 cannot close
+      fileMatch = this.fileUtils.getMatchInFile(file,
+          this.settings.getPatternLatexMainFile());
+      if (!fileMatch.isFileReadable() || !fileMatch.doesExprMatch()) {
+        continue;
+      }
+      targetsMagic = new LatexMainDesc(file, fileMatch.getMatchResult())
+          .groupMatch(LatexMainParameterNames.targetsMagic);
+      if (targetsMagic.isPresent()) {
+        // may throw BuildFailureException TSS04, TSS11
+        res.addAll(Settings.getTargets(targetsMagic.get(),
+            TargetsContext.targetsMagic));
+      }
+    }
+
+    if (this.settings.getReadTexSrcProcDirRec()) {
+      for (Map.Entry<String, DirNode> entry : node.getSubdirs().entrySet()) {
+        // may throw BuildFailureException TSS04, TSS11
+        res.addAll(getTargetsMagic(new File(dir, entry.getKey()),
+            entry.getValue()));
+      }
+    }
+    return res;
+  }
+
   /**
    * Deletes all created files
    * in the directory represented by <code>texDir</code>
@@ -1680,6 +2435,8 @@ public class LatexPreProcessor extends AbstractLatexProcessor {
         entry.getValue().clearTarget(file, this);
       }
     }
+    // may log EFU05
+    deleteIfExists(new File(dir, GraphicsManifest.FILE_NAME));
   }
 
   // FIXME: suffix for tex files containing text and including pdf
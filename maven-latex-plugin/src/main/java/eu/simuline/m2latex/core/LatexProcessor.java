@@ -23,16 +23,23 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.time.Instant;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
 import com.florianingerl.util.regex.Matcher;
 import com.florianingerl.util.regex.Pattern;
@@ -96,6 +103,8 @@ public class LatexProcessor extends AbstractLatexProcessor {
   final static String SUFFIX_LOF = ".lof";
   final static String SUFFIX_LOT = ".lot";
   final static String SUFFIX_LOL = ".lol";
+  // hyperref: bookmarks 
+  final static String SUFFIX_OUT = ".out";
 
   final static String SUFFIX_AUX = ".aux";
   final static String SUFFIX_DVI = ".dvi";
@@ -140,6 +149,24 @@ public class LatexProcessor extends AbstractLatexProcessor {
   // pdftotext
   private final static String SUFFIX_TXT = ".txt";
 
+  /**
+   * The suffixes of graphic files which may be read by the dvi2pdf command 
+   * as determined by {@link #dvi2pdfInputs(LatexMainDesc)}. 
+   */
+  private final static Set<String> SUFFIXES_GRP_DVI2PDF =
+      new TreeSet<String>(Arrays.asList(SUFFIX_PDF,
+          LatexPreProcessor.SUFFIX_EPS, ".mps", ".png", ".jpg", ".jpeg",
+          ".xbb", ".bb"));
+
+  /**
+   * The suffixes of files in the directory of a latex main file 
+   * which are read by auxiliary programs but not by LaTeX 
+   * and thus are added to the inputs 
+   * in {@link #recordedDocInputs(LatexMainDesc, File)}. 
+   */
+  private final static Set<String> SUFFIXES_FURTHER_INPUTS =
+      new TreeSet<String>(Arrays.asList(".bib", ".bst", ".ist", ".xdy"));
+
   // ChkTeX: log file
   private final static String SUFFIX_CLG = ".clg";
 
@@ -197,6 +224,17 @@ public class LatexProcessor extends AbstractLatexProcessor {
    */
   private Optional<String> latex2PdfCmdMagic = Optional.empty();
 
+  /**
+   * The tex source processing directory 
+   * at the start of the current invocation of {@link #create(SortedSet)}, 
+   * the node describing the files therein at that time 
+   * and the time of that start in milliseconds. 
+   * These are used to tell source files from files created by the build 
+   * in {@link #isCreatedByBuild(File)}. 
+   */
+  private File texProcDirBuild;
+  private DirNode nodeBuildStart;
+  private long timeBuildStart;
 
   // also for tests
   LatexProcessor(Settings settings, CommandExecutor executor, LogWrapper log,
@@ -224,6 +262,8 @@ public class LatexProcessor extends AbstractLatexProcessor {
       ParameterAdapter paramAdapt) {
     this(settings, new CommandExecutor(log), log, new TexFileUtils(log),
         paramAdapt);
+    // Here, parameters are injected into settings 
+    this.settings.compilePatterns();
   }
 
   /**
@@ -375,6 +415,10 @@ public class LatexProcessor extends AbstractLatexProcessor {
     this.paramAdapt.initialize();
     this.log.info("-----------create-------------");
     this.log.debug("Settings: " + this.settings.toString());
+    logCommandsNotFound();
+    // may throw BuildFailureException TSS14
+    initTimeouts();
+    AuxSnapshot.resetStatistics();
 
     // may emit WSS01, WSS02 TBD: correct 
     // may throw BuildFailureException TSS04, TSS11, TBD: complete. 
@@ -393,7 +437,19 @@ public class LatexProcessor extends AbstractLatexProcessor {
 
     // constructor DirNode may log warning WFU01 Cannot read directory
     DirNode node = new DirNode(texProcDir, this.fileUtils);
+    this.texProcDirBuild = texProcDir;
+    this.nodeBuildStart = node;
+    this.timeBuildStart = System.currentTimeMillis();
     try {
+      // graphic files are converted only for the devices needed 
+      // also by targets given by magic comments overriding targetSet 
+      Set<LatexDev> latexDevs = Target.getLatexDevs(targetSet, this.settings);
+      if (!latexDevs.containsAll(EnumSet.allOf(LatexDev.class))) {
+        // may throw BuildFailureException TSS04, TSS11
+        latexDevs.addAll(Target.getLatexDevs(
+            this.preProc.getTargetsMagic(texProcDir, node), this.settings));
+      }
+
       // does two things at the same time 
       // - determine latexMainFiles 
       // - process graphics if preProcessInternally()
@@ -401,139 +457,24 @@ public class LatexProcessor extends AbstractLatexProcessor {
       // log warning WFU03, WPP02, WPP03,
       // EEX01, EEX02, EEX03, WEX04, WEX05, EFU07, EFU08, 
       //    EFU09: if filtering a file fails.
-      Collection<LatexMainDesc> latexMainDescs =
-          this.preProc.processGraphicsSelectMain(texProcDir, node, 
-          this.settings.getLatexmkUsage().preProcessInternally());
-
+      Collection<LatexMainDesc> latexMainDescs = this.preProc
+          .withLatexDevs(latexDevs)
+          .processGraphicsSelectMain(texProcDir, node,
+              this.settings.getLatexmkUsage().preProcessInternally());
+
+      // The documents are independent, so they are processed concurrently 
+      // logging in the order of latexMainDescs 
+      List<TaskPool.Task> tasks = new ArrayList<TaskPool.Task>();
       for (LatexMainDesc desc : latexMainDescs) {
-        File texFile = desc.texFile;
-        this.log.info("Processing LaTeX file '" + desc.texFile + "'. ");
-
-        // throws BuildFailureException TFU01
-        // if targetDir would be an existing non-directory
-        File targetDir = this.fileUtils.getTargetDirectory(texFile, texDir,
-            // throws BuildFailureException TSS03
-            // if exists and is no dir
-            this.settings.getOutputDirectoryFile());
-        assert !targetDir.exists()
-            || targetDir.isDirectory() : "Expected target folder " + targetDir
-                + " folder if exists. ";
-
-        Set<Target> targetsForBuild =
-          getTargetsForBuild(desc, docClasses2Targets, targetSet);
-        // currently, this is the only magic comment applying to all targets 
-        // even that is not really true: htlatex vs xhtlatex 
-        // and targets like txt 
-        // but chkDiff and latexmk are specific for target pdf 
-        // and targets is more globally and a special case. 
-        this.latex2PdfCmdMagic = desc
-          .groupMatch(LatexMainParameterNames.programMagic);
-        if (this.latex2PdfCmdMagic.isPresent()) {
-          // TBD: this comes before message converting to pdf: file. 
-          // Better: 
-          // - processing file.. 
-          // - then targets 
-          if (!this.latex2PdfCmdMagic.get().equals(this.settings.getCommand(ConverterCategory.LaTeX))) {
-            this.log.info("Magic comment 'program=" + this.latex2PdfCmdMagic.get() + "' overrides settings.");
-          }
-        }
-
-        // may throw BuildFailureException TSS04
-        for (Target target : targetsForBuild) {
-          Optional<File> pdfFileCmpOpt = Optional.empty();
-          boolean doDiff = target.hasDiffTool() && isChkDiff(desc);
-          if (doDiff) {
-            File pdfFileCmp = TexFileUtils.getPdfFileDiff(desc.pdfFile,
-                this.settings.getTexSrcDirectoryFile(),
-                this.settings.getDiffDirectoryFile().getAbsoluteFile());
-            this.log.debug(String.format("cmp file %s", pdfFileCmp));
-            pdfFileCmpOpt = Optional.of(pdfFileCmp);
-
-            // assert pdfFileCmp.exists();
-            if (pdfFileCmp.exists()) {
-              //runPdfInfo(desc.pdfFile);
-              long timestampSec = runPdfInfo(pdfFileCmp);
-              System.out.println("++pdf TS meta: " + timestampSec);
-              System.out.println("++pdf TS file: " + pdfFileCmp.lastModified() / 1000);
-
-              this.log.info("Process with timestamp "
-                    + Instant.ofEpochSecond(timestampSec)
-                    + " (" + timestampSec + "sec)");
-
-              assert pdfFileCmpOpt.isPresent();
-              this.executor.envSetTimestamp(timestampSec);
-            } else {
-              // just a placeholder to signify that a reproducible artifact must be created 
-              // but there is no original 
-              System.out.println("++pdf: no original exists ");
-              this.executor.envUtc();
-              this.log.info("Process with time zone UTC. ");
-            }
-          } else {
-            this.executor.envReset();
-            // process with empty environment: neither timestamp nor timezone 
-          }
-          // Here, metaDataDescOpt is either 
-          // - empty meaning no diff requested 
-          // - not empty but without timestamp 
-          //   meaning shall be reproducible, i.e. env=TZ
-          // - not empty with timestamp 
-          //   meaning reproducible with timestamp 
-          //   i.e. env=TZ, SOURCE_DATE_EPOCH, FORCE_SOURCE_DATE 
-          //   Strictly speaking, FORCE_SOURCE_DATE not needed for DVI2PDF 
-
-          // may throw BuildFailureException TEX01,
-          // log warning EEX01, EEX02, EEX03, WEX04, WEX05
-          //target.processSource(this, desc, timestampOpt);
-
-          target.processSource(this, desc);
-
-          FileFilter fileFilter = TexFileUtils.getFileFilter(texFile,
-              target.getPatternOutputFiles(this.settings), false);
-          // may throw BuildFailureException
-          // TFU03, TFU04, TFU05, TFU06
-          // may log warning WFU01 Cannot read directory
-          Set<File> targetFiles = this.fileUtils
-              .copyOutputToTargetFolder(texFile, fileFilter, targetDir);
-
-
-          if (!doDiff) {
-            this.log.debug("No artifact diff specified.");
-            continue;
-          }
-
-          assert targetFiles.size() == 1 : "Expected one target file, found "
-              + targetFiles + ". ";
-          File pdfFileAct = targetFiles.iterator().next();
-          this.log.debug(String.format("act file %s", pdfFileAct));
-          assert pdfFileAct.exists();// TBD: ensure that this file really exists. 
-
-
-          File pdfFileCmp = pdfFileCmpOpt.get();
-          if (!pdfFileCmp.exists()) {
-            // TBD: adapt identifier of warning 
-            // THis shall occur only if a newly created or changed file shall be reproducible 
-            // in the message: 'Modification of reproducible file?' - add artifact as original file ' 
-            this.log.warn("TLP02: Add file '" + pdfFileCmp
-                   + "' to compare with artifact '" + pdfFileAct + "'! ");
-            continue;
-          }
-          this.log.debug("Prepare verification by diffing: ");
-
-
-
-          // but this shall be clear also above before trying to copy to target folder 
-          boolean coincide = runDiffPdf(pdfFileCmpOpt.get(), pdfFileAct);
-          if (coincide) {
-            this.log.info("Checked result: coincides with expected artifact. ");
-            continue;
-          }
-          throw new BuildFailureException(
-              "TLP01: Artifact '" + pdfFileAct.getName() + 
-              "' from '" + texFile + "' could not be reproduced. ");
-
-        } // target
-      } // texFile
+        tasks.add((LogWrapper taskLog) -> {
+          // may throw BuildFailureException TEX01, TFU01, TSS03, TSS04, 
+          // TFU03, TFU04, TFU05, TFU06, TLP01 
+          withLog(taskLog).createDoc(desc, texDir, docClasses2Targets, targetSet);
+        });
+      }
+      // may throw BuildFailureException TEX01, TTP01, ... 
+      new TaskPool(this.settings.getNumThreadsDocuments(), "documents")
+          .runAll(tasks, this.log);
     } finally {
       if (this.settings.isCleanUp()) {
         // may log warning WFU01, EFU05
@@ -541,10 +482,584 @@ public class LatexProcessor extends AbstractLatexProcessor {
       }
       this.log.debug(this.settings.isCleanUp() ? ("cleanup: " + texProcDir)
           : "No cleanup");
+      this.log.debug(PatternCache.statistics());
+      this.log.info(AuxSnapshot.statistics());
+      Auxiliary.clearIdCaches();
+      File cacheDir = this.settings.getBuildCacheDirectory();
+      if (cacheDir != null) {
+        BuildCache cache = BuildCache.getCache(cacheDir,
+            this.settings.getBuildCacheMaxSize() * 1024L * 1024L);
+        // may log WBC02
+        cache.evict(this.log);
+        this.log.debug(cache.statistics());
+      }
       this.latex2PdfCmdMagic = Optional.empty();// superfluous
     }
   }
 
+  /**
+   * Creates the targets of the latex main file described by <code>desc</code> 
+   * and copies them to the target folder. 
+   * This is the part of {@link #create(SortedSet)} 
+   * specific for a single latex main file 
+   * and it is independent of all other latex main files. 
+   * Thus it may run concurrently with other ones 
+   * provided this processor is not shared, 
+   * i.e. is created by {@link #withLog(LogWrapper)}. 
+   * This is because the magic comment {@link #latex2PdfCmdMagic} 
+   * and the environment of {@link #executor} 
+   * are specific for the latex main file. 
+   * <p>
+   * Logging: as for {@link #create(SortedSet)}. 
+   *
+   * @param desc
+   *    the description of the latex main file to be processed. 
+   * @param texDir
+   *    the tex source directory. 
+   * @param docClasses2Targets
+   *    maps document classes to the targets allowed. 
+   * @param targetSet
+   *    the set of targets to be created by configuration. 
+   * @throws BuildFailureException
+   *    as for {@link #create(SortedSet)}. 
+   */
+  private void createDoc(LatexMainDesc desc, File texDir,
+      Map<String, Set<Target>> docClasses2Targets,
+      SortedSet<Target> targetSet) throws BuildFailureException {
+    File texFile = desc.texFile;
+    this.log.info("Processing LaTeX file '" + desc.texFile + "'. ");
+
+    // throws BuildFailureException TFU01
+    // if targetDir would be an existing non-directory
+    File targetDir = this.fileUtils.getTargetDirectory(texFile, texDir,
+        // throws BuildFailureException TSS03
+        // if exists and is no dir
+        this.settings.getOutputDirectoryFile());
+    assert !targetDir.exists()
+        || targetDir.isDirectory() : "Expected target folder " + targetDir
+            + " folder if exists. ";
+
+    Set<Target> targetsForBuild =
+      getTargetsForBuild(desc, docClasses2Targets, targetSet);
+    // currently, this is the only magic comment applying to all targets 
+    // even that is not really true: htlatex vs xhtlatex 
+    // and targets like txt 
+    // but chkDiff and latexmk are specific for target pdf 
+    // and targets is more globally and a special case. 
+    this.latex2PdfCmdMagic = desc
+      .groupMatch(LatexMainParameterNames.programMagic);
+    if (this.latex2PdfCmdMagic.isPresent()) {
+      // TBD: this comes before message converting to pdf: file. 
+      // Better: 
+      // - processing file.. 
+      // - then targets 
+      if (!this.latex2PdfCmdMagic.get().equals(this.settings.getCommand(ConverterCategory.LaTeX))) {
+        this.log.info("Magic comment 'program=" + this.latex2PdfCmdMagic.get() + "' overrides settings.");
+      }
+    }
+
+    // restore the output of the auxiliary programs removed by cleanup, 
+    // so that these need not be run if their input is unchanged 
+    // may log WAS01, WAS03 
+    getAuxState(desc).restoreOutputs(desc.parentDir, this.log);
+    try {
+      // may throw BuildFailureException TEX01, TSS04, 
+      // TFU03, TFU04, TFU05, TFU06, TFU07, TLP01, TTP01 
+      createTargets(desc, targetsForBuild, targetDir);
+    } finally {
+      if (desc.auxState != null) {
+        // may log WAS02 
+        desc.auxState.write(this.log);
+      }
+    }
+  }
+
+  /**
+   * Creates the targets <code>targetsForBuild</code> 
+   * of the latex main file described by <code>desc</code> 
+   * and copies them to the target folder <code>targetDir</code>. 
+   * Targets which are isolatable as given by {@link Target#isIsolatable()} 
+   * are created concurrently after all other targets 
+   * if so configured by {@link Settings#getNumThreadsTargets()}. 
+   * <p>
+   * Logging: as for {@link #create(SortedSet)}. 
+   *
+   * @param desc
+   *    the description of the latex main file to be processed. 
+   * @param targetsForBuild
+   *    the targets to be created. 
+   * @param targetDir
+   *    the target folder to copy the output files to. 
+   * @throws BuildFailureException
+   *    as for {@link #create(SortedSet)}. 
+   */
+  private void createTargets(LatexMainDesc desc, Set<Target> targetsForBuild,
+      File targetDir) throws BuildFailureException {
+    // targets which may be created in isolation are created afterwards 
+    // concurrently, each in a copy of the directory of the latex main file 
+    boolean isolate = this.settings.getNumThreadsTargets() != 1;
+    List<Target> targetsIsolated = new ArrayList<Target>();
+    // may throw BuildFailureException TSS04
+    for (Target target : targetsForBuild) {
+      if (isolate && target.isIsolatable()) {
+        targetsIsolated.add(target);
+        continue;
+      }
+      // may throw BuildFailureException TEX01, 
+      // TFU03, TFU04, TFU05, TFU06, TLP01 
+      createTarget(desc, target, targetDir);
+    } // target
+
+    if (targetsIsolated.isEmpty()) {
+      return;
+    }
+    // create bibliography, index, glossary and that like once 
+    // in place before copying, so that all copies share them 
+    for (Target target : targetsIsolated) {
+      // may throw BuildFailureException TEX01
+      target.processShared(this, desc);
+    }
+    List<TaskPool.Task> tasks = new ArrayList<TaskPool.Task>();
+    for (Target target : targetsIsolated) {
+      tasks.add((LogWrapper taskLog) -> {
+        // may throw BuildFailureException TEX01, 
+        // TFU03, TFU04, TFU05, TFU06, TFU07 
+        withLog(taskLog).createTargetIsolated(desc, target, targetDir);
+      });
+    }
+    // may throw BuildFailureException TEX01, TTP01, ... 
+    new TaskPool(this.settings.getNumThreadsTargets(), "targets")
+        .runAll(tasks, this.log);
+  }
+
+  /**
+   * Creates target <code>target</code> 
+   * of the latex main file described by <code>desc</code> 
+   * in its directory 
+   * and copies the output files to <code>targetDir</code>. 
+   * If specified, the result is checked against an expected artifact. 
+   * Else, if {@link Settings#getDocManifestDirectory()} is set, 
+   * the target is not created again if it is up to date 
+   * according to its {@link DocManifest}. 
+   * <p>
+   * Logging: as for {@link #create(SortedSet)} 
+   * and WDM01, WDM02, WDM03 if the manifest cannot be read, 
+   * written or deleted. 
+   *
+   * @param desc
+   *    the description of the latex main file to be processed. 
+   * @param target
+   *    the target to be created. 
+   * @param targetDir
+   *    the target folder to copy the output files to. 
+   * @throws BuildFailureException
+   *    as for {@link #create(SortedSet)}. 
+   */
+  private void createTarget(LatexMainDesc desc, Target target, File targetDir)
+      throws BuildFailureException {
+    File texFile = desc.texFile;
+    Optional<File> pdfFileCmpOpt = Optional.empty();
+    boolean doDiff = target.hasDiffTool() && isChkDiff(desc);
+    // may throw BuildFailureException TSS01 
+    File manifestFile = doDiff ? null : getDocManifestFile(desc, target);
+    if (manifestFile != null) {
+      // may log WDM01 
+      DocManifest manifest = DocManifest.read(manifestFile, this.log);
+      if (manifest.isUpToDate(getDocSettingsIdent(target))) {
+        this.log.info("Target '" + target + "' of '" + texFile
+            + "' is up to date. ");
+        return;
+      }
+      // so that the target is created again if creation fails 
+      // may log WDM03 
+      manifest.delete(this.log);
+    }
+    // in full seconds, as some file systems store modification times so 
+    long timeTargetStart = System.currentTimeMillis() / 1000 * 1000;
+    if (doDiff) {
+      File pdfFileCmp = TexFileUtils.getPdfFileDiff(desc.pdfFile,
+          this.settings.getTexSrcDirectoryFile(),
+          this.settings.getDiffDirectoryFile().getAbsoluteFile());
+      this.log.debug(String.format("cmp file %s", pdfFileCmp));
+      pdfFileCmpOpt = Optional.of(pdfFileCmp);
+
+      // assert pdfFileCmp.exists();
+      if (pdfFileCmp.exists()) {
+        //runPdfInfo(desc.pdfFile);
+        long timestampSec = runPdfInfo(pdfFileCmp);
+        this.log.debug("Timestamp of pdf in metadata: " + timestampSec
+            + " sec, of file: " + pdfFileCmp.lastModified() / 1000 + " sec. ");
+
+        this.log.info("Process with timestamp "
+              + Instant.ofEpochSecond(timestampSec)
+              + " (" + timestampSec + "sec)");
+
+        assert pdfFileCmpOpt.isPresent();
+        this.executor.envSetTimestamp(timestampSec);
+      } else {
+        // just a placeholder to signify that a reproducible artifact must be created 
+        // but there is no original 
+        this.log.debug("No original pdf exists. ");
+        this.executor.envUtc();
+        this.log.info("Process with time zone UTC. ");
+      }
+    } else {
+      this.executor.envReset();
+      // process with empty environment: neither timestamp nor timezone 
+    }
+    // Here, metaDataDescOpt is either 
+    // - empty meaning no diff requested 
+    // - not empty but without timestamp 
+    //   meaning shall be reproducible, i.e. env=TZ
+    // - not empty with timestamp 
+    //   meaning reproducible with timestamp 
+    //   i.e. env=TZ, SOURCE_DATE_EPOCH, FORCE_SOURCE_DATE 
+    //   Strictly speaking, FORCE_SOURCE_DATE not needed for DVI2PDF 
+
+    // may throw BuildFailureException TEX01,
+    // log warning EEX01, EEX02, EEX03, WEX04, WEX05
+    //target.processSource(this, desc, timestampOpt);
+
+    target.processSource(this, desc);
+
+    FileFilter fileFilter = TexFileUtils.getFileFilter(texFile,
+        target.getPatternOutputFiles(this.settings), false);
+    // may throw BuildFailureException
+    // TFU03, TFU04, TFU05, TFU06
+    // may log warning WFU01 Cannot read directory
+    Set<File> targetFiles = this.fileUtils
+        .copyOutputToTargetFolder(texFile, fileFilter, targetDir);
+
+
+    if (!doDiff) {
+      if (manifestFile != null) {
+        // may throw BuildFailureException TSS01 
+        // may log WFU01, WFU03, WDM02 
+        writeDocManifest(desc, target, manifestFile, timeTargetStart,
+            targetFiles);
+      }
+      this.log.debug("No artifact diff specified.");
+      return;
+    }
+
+    assert targetFiles.size() == 1 : "Expected one target file, found "
+        + targetFiles + ". ";
+    File pdfFileAct = targetFiles.iterator().next();
+    this.log.debug(String.format("act file %s", pdfFileAct));
+    assert pdfFileAct.exists();// TBD: ensure that this file really exists. 
+
+
+    File pdfFileCmp = pdfFileCmpOpt.get();
+    if (!pdfFileCmp.exists()) {
+      // TBD: adapt identifier of warning 
+      // THis shall occur only if a newly created or changed file shall be reproducible 
+      // in the message: 'Modification of reproducible file?' - add artifact as original file ' 
+      this.log.warn("TLP02: Add file '" + pdfFileCmp
+             + "' to compare with artifact '" + pdfFileAct + "'! ");
+      return;
+    }
+    this.log.debug("Prepare verification by diffing: ");
+
+
+
+    // but this shall be clear also above before trying to copy to target folder 
+    boolean coincide = runDiffPdf(pdfFileCmpOpt.get(), pdfFileAct);
+    if (coincide) {
+      this.log.info("Checked result: coincides with expected artifact. ");
+      return;
+    }
+    throw new BuildFailureException(
+        "TLP01: Artifact '" + pdfFileAct.getName() + 
+        "' from '" + texFile + "' could not be reproduced. ");
+
+  }
+
+  /**
+   * Returns the manifest file of target <code>target</code> 
+   * of the latex main file described by <code>desc</code> 
+   * or <code>null</code> if {@link Settings#getDocManifestDirectory()} 
+   * is not set. 
+   * The manifest file is in the manifest directory 
+   * at the path of the latex main file relative to the tex source directory 
+   * with the suffix replaced by the target 
+   * and {@link DocManifest#SUFFIX_MANIFEST}. 
+   *
+   * @throws BuildFailureException
+   *    TSS01 if the tex source directory does either not exist 
+   *    or is not a directory. 
+   */
+  private File getDocManifestFile(LatexMainDesc desc, Target target)
+      throws BuildFailureException {
+    File manifestDir = this.settings.getDocManifestDirectory();
+    if (manifestDir == null) {
+      return null;
+    }
+    // may throw BuildFailureException TSS01 
+    Path texPath = this.settings.getTexSrcDirectoryFile().toPath()
+        .toAbsolutePath().normalize();
+    Path relPath = texPath.relativize(
+        desc.withSuffix("." + target).toPath().toAbsolutePath().normalize());
+    return new File(manifestDir, relPath + DocManifest.SUFFIX_MANIFEST);
+  }
+
+  /**
+   * Returns an identifier of the settings target <code>target</code> 
+   * is created with, including the magic comment 
+   * {@link #latex2PdfCmdMagic} and the version of this software. 
+   */
+  private String getDocSettingsIdent(Target target) {
+    return DocManifest.getSettingsIdent(target + " " + this.latex2PdfCmdMagic
+        + " " + getClass().getPackage().getImplementationVersion() + " "
+        + this.settings);
+  }
+
+  /**
+   * Writes the manifest of target <code>target</code> 
+   * of the latex main file described by <code>desc</code> 
+   * into <code>manifestFile</code> 
+   * after the target has been created and copied to the output directory. 
+   * The inputs are as given by {@link #recordedDocInputs(LatexMainDesc, File)} 
+   * and the outputs are <code>targetFiles</code>. 
+   * If there is no recorder file written while creating the target, 
+   * e.g. because option <code>-recorder</code> is not given 
+   * or the target is not created by LaTeX, 
+   * no manifest is written, 
+   * so the target is created again in the next build. 
+   * <p>
+   * Logging: 
+   * <ul>
+   * <li>WFU01 if a directory cannot be read. 
+   * <li>WFU03 if the recorder file cannot be closed. 
+   * <li>WDM01 if the manifest of a preamble format cannot be read. 
+   * <li>WDM02 if the manifest cannot be written. 
+   * </ul>
+   *
+   * @throws BuildFailureException
+   *    TSS01 if the tex source directory does either not exist 
+   *    or is not a directory. 
+   */
+  private void writeDocManifest(LatexMainDesc desc, Target target,
+      File manifestFile, long timeTargetStart, Set<File> targetFiles)
+      throws BuildFailureException {
+    File flsFile = desc.withSuffix(SUFFIX_FLS);
+    if (!flsFile.exists() || flsFile.lastModified() < timeTargetStart) {
+      this.log.debug("No manifest for target '" + target + "' of '"
+          + desc.texFile + "' since no recorder file written. ");
+      return;
+    }
+    // may log WFU01, WFU03, WDM01 
+    Collection<File> inputs = recordedDocInputs(desc, flsFile);
+    if (inputs == null) {
+      this.log.debug("No manifest for target '" + target + "' of '"
+          + desc.texFile + "' since inputs cannot be determined. ");
+      return;
+    }
+    DocManifest manifest;
+    try {
+      // may throw IOException 
+      manifest = DocManifest.create(manifestFile, getDocSettingsIdent(target),
+          inputs, targetFiles,
+          // may throw BuildFailureException TSS01 
+          this.settings.getTexSrcDirectoryFile());
+    } catch (IOException ioe) {
+      this.log.debug("No manifest for target '" + target + "' of '"
+          + desc.texFile + "': " + ioe.getMessage());
+      return;
+    }
+    // may log WDM02 
+    manifest.write(this.log);
+  }
+
+  /**
+   * Returns the files read to create a target 
+   * of the latex main file described by <code>desc</code> 
+   * or <code>null</code> if the recorder file <code>flsFile</code> 
+   * cannot be read. 
+   * These are the files recorded as read in <code>flsFile</code> 
+   * except those created by the build as given by 
+   * {@link #isCreatedByBuild(File)}, 
+   * for these the source files with the same name 
+   * but a different suffix like graphic sources, 
+   * and the bibliography databases, bibliography styles 
+   * and index styles in the directory of the latex main file, 
+   * since these are not read by LaTeX. 
+   * For a format in {@link Settings#getPreambleFormatDirectory()} 
+   * the files read while dumping the preamble are added 
+   * as given by {@link PreambleFormat#getRecordedInputs(File, LogWrapper)}, 
+   * so that the target is created again if e.g. a package changes. 
+   * If these are not recorded, <code>null</code> is returned. 
+   * <p>
+   * Logging: 
+   * WFU01 if a directory cannot be read, 
+   * WFU03 if the recorder file cannot be closed and 
+   * WDM01 if the manifest of a format cannot be read. 
+   */
+  private Collection<File> recordedDocInputs(LatexMainDesc desc,
+      File flsFile) {
+    // may log WFU03 
+    Collection<File> recorded = this.fileUtils.getRecordedInputs(flsFile);
+    if (recorded == null) {
+      return null;
+    }
+    File fmtDir = this.settings.getPreambleFormatDirectory();
+    Collection<File> res = new TreeSet<File>();
+    for (File file : recorded) {
+      if (!file.isFile()) {
+        continue;
+      }
+      if (fmtDir != null
+          && PreambleFormat.SUFFIX_FMT.equals(TexFileUtils.getSuffix(file))
+          && fmtDir.getAbsoluteFile()
+              .equals(file.getAbsoluteFile().getParentFile())) {
+        // may log WDM01 
+        Collection<File> fmtInputs =
+            PreambleFormat.getRecordedInputs(file, this.log);
+        if (fmtInputs == null) {
+          return null;
+        }
+        res.add(file);
+        res.addAll(fmtInputs);
+        continue;
+      }
+      if (!isCreatedByBuild(file)) {
+        res.add(file);
+        continue;
+      }
+      String name = TexFileUtils.getFileNameWithoutSuffix(file);
+      // may log WFU01 
+      File[] srcFiles = this.fileUtils.listFilesOrWarn(file.getParentFile(),
+          (File src) -> src.isFile()
+              && name.equals(TexFileUtils.getFileNameWithoutSuffix(src))
+              && !isCreatedByBuild(src));
+      if (srcFiles != null) {
+        res.addAll(Arrays.asList(srcFiles));
+      }
+    }
+    // may log WFU01 
+    File[] furtherFiles = this.fileUtils.listFilesOrWarn(desc.parentDir,
+        (File src) -> src.isFile()
+            && SUFFIXES_FURTHER_INPUTS.contains(TexFileUtils.getSuffix(src)));
+    if (furtherFiles != null) {
+      res.addAll(Arrays.asList(furtherFiles));
+    }
+    return res;
+  }
+
+  /**
+   * Returns whether <code>file</code> is created by the current build, 
+   * i.e. is in the tex source processing directory 
+   * and either did not exist at the start of the build 
+   * or was modified afterwards. 
+   * Note that files outside the tex source processing directory 
+   * are never regarded as created by the build. 
+   */
+  private boolean isCreatedByBuild(File file) {
+    Path procPath = this.texProcDirBuild.toPath().toAbsolutePath().normalize();
+    Path path = file.toPath().toAbsolutePath().normalize();
+    if (!path.startsWith(procPath)) {
+      return false;
+    }
+    if (file.lastModified() >= this.timeBuildStart) {
+      return true;
+    }
+    Path relPath = procPath.relativize(path);
+    DirNode node = this.nodeBuildStart;
+    for (int idx = 0; idx < relPath.getNameCount() - 1; idx++) {
+      node = node.getSubdirs().get(relPath.getName(idx).toString());
+      if (node == null) {
+        return true;
+      }
+    }
+    return !node.getRegularFileNames()
+        .contains(relPath.getFileName().toString());
+  }
+
+  /**
+   * Creates target <code>target</code> 
+   * of the latex main file described by <code>desc</code> 
+   * in a temporary copy of its directory 
+   * and copies the output files both to <code>targetDir</code> 
+   * and back to the directory of the latex main file. 
+   * Thus this may run concurrently with the creation of other targets 
+   * provided this processor is not shared, 
+   * i.e. is created by {@link #withLog(LogWrapper)}. 
+   * Bibliography, index, glossary and that like 
+   * must have been created before 
+   * by {@link Target#processShared(LatexProcessor, LatexMainDesc)}; 
+   * they are not created again in the copy. 
+   * Note that files outside the directory of the latex main file 
+   * are not copied and so must be referred to by absolute paths. 
+   * <p>
+   * Logging: as for {@link #create(SortedSet)} 
+   * and EFU05 if the temporary copy cannot be deleted. 
+   *
+   * @param desc
+   *    the description of the latex main file to be processed. 
+   * @param target
+   *    the target to be created which is isolatable 
+   *    as given by {@link Target#isIsolatable()}. 
+   * @param targetDir
+   *    the target folder to copy the output files to. 
+   * @throws BuildFailureException
+   *    <ul>
+   *    <li>TFU07 if the directory of the latex main file cannot be copied. 
+   *    <li>TEX01 if invocation of an application fails. 
+   *    <li>TFU03, TFU04, TFU05, TFU06 if copying output files fails. 
+   *    </ul>
+   */
+  private void createTargetIsolated(LatexMainDesc desc, Target target,
+      File targetDir) throws BuildFailureException {
+    assert target.isIsolatable() && !target.hasDiffTool();
+    // process with empty environment: neither timestamp nor timezone 
+    this.executor.envReset();
+    // may throw BuildFailureException TFU07
+    File isoDir = this.fileUtils.copyToTempDirectory(desc.parentDir, 
+        "latex-" + target + "-");
+    try {
+      LatexMainDesc descIso = desc.copyTo(isoDir);
+      // may throw BuildFailureException TEX01,
+      // log warning EEX01, EEX02, EEX03, WEX04, WEX05
+      target.processSource(this, descIso);
+
+      FileFilter fileFilter = TexFileUtils.getFileFilter(descIso.texFile,
+          target.getPatternOutputFiles(this.settings), false);
+      // may throw BuildFailureException
+      // TFU03, TFU04, TFU05, TFU06
+      // may log warning WFU01 Cannot read directory
+      this.fileUtils
+          .copyOutputToTargetFolder(descIso.texFile, fileFilter, targetDir);
+      // so that the tree is as if the target was created in place 
+      this.fileUtils
+          .copyOutputToTargetFolder(descIso.texFile, fileFilter, desc.parentDir);
+    } finally {
+      // may log EFU05 
+      this.fileUtils.deleteOrError(isoDir, true);
+    }
+  }
+
+  /**
+   * Returns this processor if <code>log</code> is the log of this one, 
+   * else a processor with the same settings and parameter adapter 
+   * logging onto <code>log</code> 
+   * also via its {@link CommandExecutor} and its {@link TexFileUtils}. 
+   * The processor returned has its own {@link #latex2PdfCmdMagic} 
+   * and its own environment of its {@link CommandExecutor}, 
+   * so that it can be used to process latex main files concurrently 
+   * in {@link #createDoc(LatexMainDesc, File, Map, SortedSet)}. 
+   */
+  private LatexProcessor withLog(LogWrapper log) {
+    if (log == this.log) {
+      return this;
+    }
+    LatexProcessor res = new LatexProcessor(this.settings,
+        this.executor.withLog(log), log, new TexFileUtils(log), this.paramAdapt);
+    res.latex2PdfCmdMagic = this.latex2PdfCmdMagic;
+    res.texProcDirBuild = this.texProcDirBuild;
+    res.nodeBuildStart = this.nodeBuildStart;
+    res.timeBuildStart = this.timeBuildStart;
+    return res;
+  }
+
   // TBD: rework documentation 
   /**
    * Returns whether the pdf file under construction 
@@ -714,6 +1229,8 @@ public class LatexProcessor extends AbstractLatexProcessor {
    */
   // used in GraphicsMojo.execute() only
   public void processGraphics() throws BuildFailureException {
+    // may throw BuildFailureException TSS14
+    initTimeouts();
     // may throw BuildFailureException TSS02
     File texProcDir = this.settings.getTexSrcProcDirectoryFile();
     assert texProcDir.exists()
@@ -856,11 +1373,16 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * The output format of the LaTeX run is given by <code>dev</code>,
    * to be more precise by {@link LatexDev#getLatexOutputFormat()}.
    * <p>
+   * BibTeX, MakeIndex and that like are not run again 
+   * if already run for a previous target of the current build, 
+   * as signified by {@link LatexMainDesc#isAuxProcessed}, 
+   * and if their input is unchanged since. 
+   * <p>
    * A warning is logged if the LaTeX, a BibTeX run a MakeIndex
    * or a MakeGlossaries run fails
    * or if a BibTeX run or a MakeIndex or a MakeGlossary run issues a warning
    * in the according methods
-   * {@link #runLatex2dev(LatexMainDesc, LatexDev)} and 
+   * {@link #runLatex2dev(LatexMainDesc, LatexDev, boolean)} and 
    * {@link Auxiliary#process(LatexMainDesc, LatexProcessor)}. 
    * <p>
    * Logging:
@@ -883,10 +1405,18 @@ public class LatexProcessor extends AbstractLatexProcessor {
    *    the device describing the output format which is either pdf or
    *    dvi.
    *    See {@link LatexDev#getLatexOutputFormat()}.
+   * @param isDraft
+   *    whether the LaTeX run is in draft mode, 
+   *    i.e. without creating output 
+   *    as described for {@link #runLatex2dev(LatexMainDesc, LatexDev, boolean)}. 
    * @return
-   *    the number of LaTeX runs required after invocation of this method 
+   *    the number of LaTeX runs a fixed heuristic would force 
+   *    after invocation of this method 
    *    because bibtex, makeindex or makeglossaries had been run
-   *    or to update a table of contents or a list figures or tables.
+   *    or to update a table of contents or a list figures or tables. 
+   *    This is no longer used to force reruns, 
+   *    which are based on {@link AuxSnapshot}s instead, 
+   *    but only to count the reruns saved. 
    *    <ul>
    *    <li>
    *    If neither of these are present, no rerun is required.
@@ -913,24 +1443,23 @@ public class LatexProcessor extends AbstractLatexProcessor {
    *    from {@link Settings#getMakeGlossariesCommand()}
    *    </ul>
    * @see #processLatex2devCore(LatexMainDesc, LatexDev)
-   * @see #processLatex2html(LatexMainDesc)
-   * @see #processLatex2odt(LatexMainDesc)
-   * @see #processLatex2docx(LatexMainDesc)
+   * @see #processAuxShared(LatexMainDesc, LatexDev) 
    */
-  private int preProcessLatex2dev(LatexMainDesc desc, LatexDev dev)
-      throws BuildFailureException {
+  private int preProcessLatex2dev(LatexMainDesc desc, LatexDev dev,
+      boolean isDraft) throws BuildFailureException {
 
     // initial latex run
     // may throw BuildFailureException TEX01
     // may log warnings EEX01, EEX02, EEX03, WEX04, WEX05,
     // EAP01, EAP02, WAP04, WFU03
-    runLatex2dev(desc, dev);
+    runLatex2dev(desc, dev, isDraft);
     //File texFile = desc.texFile;
 
     // need not be a file with ending aux, but is source for an auxiliary process 
     File auxFile;
     boolean posterioryEntryInToc = false;
     int minNumRunsAfter = 0;
+    List<Auxiliary> auxsToProcess = new ArrayList<Auxiliary>();
     for (Auxiliary aux : Auxiliary.values()) {
       auxFile = desc.withSuffix(aux.extension());
       assert !auxFile.isDirectory();
@@ -938,13 +1467,27 @@ public class LatexProcessor extends AbstractLatexProcessor {
         continue;
       }
       // TBC: can additional keys occur later? 
-      desc.aux2fileId.put(aux, update(aux, auxFile));
+      FileId fileId = update(aux, auxFile);
+      if (desc.isAuxProcessed && fileId.equals(desc.aux2fileId.get(aux))) {
+        // processed already for a previous target and unchanged since 
+        this.log.debug("Reuse results of " + aux + " from previous target. ");
+        continue;
+      }
+      desc.aux2fileId.put(aux, fileId);
+      if (isAuxUpToDate(desc, aux, fileId)) {
+        // processed in a previous build and unchanged since 
+        this.log.debug("Skip " + aux + " because input and output unchanged. ");
+        continue;
+      }
 
       posterioryEntryInToc = aux.mayBeEntryInToc();
-      aux.process(desc, this);
       minNumRunsAfter = Math.max(minNumRunsAfter,aux.numRunsAfter());
+      auxsToProcess.add(aux);
     } // for 
     assert minNumRunsAfter >= 0 && minNumRunsAfter <= 2;
+    // may throw BuildFailureException TEX01, TTP01 
+    processAuxs(desc, auxsToProcess);
+    desc.isAuxProcessed = true;
 
     // // create bibliography, index and glossary by need
     // // may throw BuildFailureException TEX01
@@ -975,6 +1518,200 @@ public class LatexProcessor extends AbstractLatexProcessor {
 
   private static final FileId EMPTY_FILE_ID = new FileId().finalizFileId();
 
+  /**
+   * Returns the state of the auxiliary programs of the latex main file 
+   * described by <code>desc</code> recorded across builds, 
+   * read from its state file on first invocation. 
+   * <p>
+   * Logging: 
+   * WAS01: if the state file exists but cannot be read. 
+   */
+  private AuxState getAuxState(LatexMainDesc desc) {
+    if (desc.auxState == null) {
+      // may log WAS01 
+      desc.auxState = AuxState.read(
+          desc.withSuffix(AuxState.SUFFIX_AUX_STATE), this.log);
+    }
+    return desc.auxState;
+  }
+
+  /**
+   * Returns the identifiers of input and of output of <code>aux</code> 
+   * to be recorded in {@link AuxState} 
+   * or <code>null</code> if they cannot be determined. 
+   * The identifier of the input is based on <code>fileId</code>, 
+   * on {@link Auxiliary#getFurtherInputs(LatexMainDesc, Settings)} 
+   * and on {@link Auxiliary#getToolIdent(Settings)}, 
+   * the one of the output on {@link Auxiliary#getOutputFiles(LatexMainDesc)}. 
+   *
+   * @return
+   *    an array with the identifiers of input and of output 
+   *    or <code>null</code> if the output of <code>aux</code> is unknown, 
+   *    if <code>fileId</code> is degraded, 
+   *    if a file cannot be read 
+   *    or if the command of <code>aux</code> is invalid. 
+   */
+  private String[] auxStateIdents(LatexMainDesc desc, Auxiliary aux,
+      FileId fileId) {
+    Collection<File> outFiles = aux.getOutputFiles(desc);
+    if (outFiles.isEmpty() || fileId == EMPTY_FILE_ID) {
+      return null;
+    }
+    try {
+      // may throw IOException, BuildFailureException TSS05-08 
+      String inIdent = fileId + " " + Auxiliary.getContentIdent(
+          aux.getFurtherInputs(desc, this.settings)) + " " 
+          + aux.getToolIdent(this.settings);
+      // may throw IOException 
+      String outIdent = Auxiliary.getContentIdent(outFiles).toString();
+      return new String[] {inIdent, outIdent};
+    } catch (IOException | BuildFailureException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether the auxiliary program <code>aux</code> 
+   * need not be run, because both its input and its output 
+   * are as after its last run as recorded in {@link AuxState}, 
+   * possibly in a previous build. 
+   *
+   * @param fileId
+   *    the identifier of the input of <code>aux</code> 
+   *    given by {@link Auxiliary#getIdent(File)}. 
+   */
+  private boolean isAuxUpToDate(LatexMainDesc desc, Auxiliary aux,
+      FileId fileId) {
+    String[] idents = auxStateIdents(desc, aux, fileId);
+    return idents != null 
+        && getAuxState(desc).isUpToDate(aux, idents[0], idents[1]);
+  }
+
+  /**
+   * Runs the auxiliary programs <code>auxs</code> 
+   * via {@link #processAux(LatexMainDesc, Auxiliary, FileId)} 
+   * concurrently as configured by {@link Settings#getNumThreadsAuxiliaries()}. 
+   * This is possible, because the auxiliary programs read only files 
+   * written by LaTeX. 
+   * Yet auxiliary programs may write common files, 
+   * e.g. <code>makeglossaries</code> runs <code>makeindex</code> 
+   * if package glossaries is loaded with option <code>index</code>. 
+   * So auxiliary programs writing common files 
+   * according to {@link Auxiliary#getWrittenFiles(LatexMainDesc)} 
+   * are run sequentially as given by {@link #groupAuxs(LatexMainDesc, List)}. 
+   * This method returns only after all auxiliary programs finished, 
+   * so that the next LaTeX run sees all their outputs. 
+   * Logging is nevertheless in the order of <code>auxs</code>. 
+   *
+   * @param desc
+   *    the latex main file to be processed. 
+   * @param auxs
+   *    the auxiliary programs to be run 
+   *    with identifiers of their input given by {@link LatexMainDesc#aux2fileId}. 
+   * @throws BuildFailureException
+   *    <ul>
+   *    <li>TEX01 if running an auxiliary program fails. 
+   *    <li>TTP01 if interrupted while waiting for the auxiliary programs. 
+   *    </ul>
+   */
+  private void processAuxs(LatexMainDesc desc, List<Auxiliary> auxs)
+      throws BuildFailureException {
+    // read before concurrent access 
+    // may log WAS01 
+    getAuxState(desc);
+    List<TaskPool.Task> tasks = new ArrayList<TaskPool.Task>(auxs.size());
+    for (List<Auxiliary> group : groupAuxs(desc, auxs)) {
+      if (group.size() > 1) {
+        this.log.debug("Run " + group + " sequentially "
+            + "since they write common files. ");
+      }
+      tasks.add((LogWrapper taskLog) -> {
+        LatexProcessor proc = withLog(taskLog);
+        for (Auxiliary aux : group) {
+          // may throw BuildFailureException TEX01 
+          proc.processAux(desc, aux, desc.aux2fileId.get(aux));
+        }
+      });
+    }
+    // may throw BuildFailureException TEX01, TTP01 
+    new TaskPool(this.settings.getNumThreadsAuxiliaries(), "auxiliaries")
+        .runAll(tasks, this.log);
+  }
+
+  /**
+   * Partitions the auxiliary programs <code>auxs</code> into groups, 
+   * so that auxiliary programs in different groups write disjoint files 
+   * according to {@link Auxiliary#getWrittenFiles(LatexMainDesc)} 
+   * and so can be run concurrently. 
+   * If the files written by an auxiliary program cannot be determined, 
+   * it is in one group with all others. 
+   * Within a group and among the groups, 
+   * the auxiliary programs are in the order of <code>auxs</code>. 
+   */
+  // package visible for tests 
+  static List<List<Auxiliary>> groupAuxs(LatexMainDesc desc,
+      List<Auxiliary> auxs) {
+    List<List<Auxiliary>> groups = new ArrayList<List<Auxiliary>>();
+    // the files written by the groups, null if unknown 
+    List<Set<File>> groupsWritten = new ArrayList<Set<File>>();
+    for (Auxiliary aux : auxs) {
+      Set<File> written;
+      try {
+        // may throw IOException 
+        written = new TreeSet<File>(aux.getWrittenFiles(desc));
+      } catch (IOException e) {
+        written = null;
+      }
+      // merge aux with all groups writing a common file 
+      List<Auxiliary> group = new ArrayList<Auxiliary>();
+      int idx = 0;
+      while (idx < groups.size()) {
+        Set<File> groupWritten = groupsWritten.get(idx);
+        if (written != null && groupWritten != null
+            && Collections.disjoint(written, groupWritten)) {
+          idx++;
+          continue;
+        }
+        group.addAll(groups.remove(idx));
+        groupsWritten.remove(idx);
+        if (written != null && groupWritten != null) {
+          written.addAll(groupWritten);
+        } else {
+          written = null;
+        }
+      }
+      group.add(aux);
+      group.sort(Comparator.comparingInt(auxs::indexOf));
+      groups.add(group);
+      groupsWritten.add(written);
+    }
+    groups.sort(Comparator.comparingInt(group -> auxs.indexOf(group.get(0))));
+    return groups;
+  }
+
+  /**
+   * Runs the auxiliary program <code>aux</code> 
+   * and records its input and its output in {@link AuxState}. 
+   *
+   * @param fileId
+   *    the identifier of the input of <code>aux</code> 
+   *    given by {@link Auxiliary#getIdent(File)}. 
+   * @throws BuildFailureException
+   *    TEX01 if running <code>aux</code> fails. 
+   */
+  private void processAux(LatexMainDesc desc, Auxiliary aux, FileId fileId)
+      throws BuildFailureException {
+    AuxState auxState = getAuxState(desc);
+    // so that aux is run next time if running fails 
+    auxState.remove(aux);
+    // may throw BuildFailureException TEX01 
+    aux.process(desc, this);
+    String[] idents = auxStateIdents(desc, aux, fileId);
+    if (idents != null) {
+      auxState.put(aux, idents[0], idents[1], aux.getOutputFiles(desc));
+    }
+  }
+
   /**
    * Wraps {@link Auxiliary#getIdent(File)} 
    * catching the IOException 
@@ -994,7 +1731,7 @@ public class LatexProcessor extends AbstractLatexProcessor {
    */
   private FileId update(Auxiliary aux, File file) {
     try {
-      return aux.getIdent(file).finalizFileId();
+      return aux.getIdent(file);
     } catch(IOException ioe) {
       this.log.warn("WLP10: Degraded identifier for '" +file + 
       "'; augmented risk not to rerun although necessary. ");
@@ -1006,10 +1743,19 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * Runs LaTeX on the latex main file <code>texFile</code>
    * described by <code>desc</code> once,
    * runs BibTeX, MakeIndex and MakeGlossaries by need
-   * according to {@link #preProcessLatex2dev(LatexMainDesc,LatexDev)}
+   * according to {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)} 
    * and reruns MakeIndex, MakeGlossaries and LaTeX
    * as often as needed to get all links satisfied
    * or as threshold {@link Settings#maxNumReRunsLatex} specifies.
+   * LaTeX is rerun only if the files read by LaTeX 
+   * changed since the previous LaTeX run 
+   * as given by {@link AuxSnapshot}s 
+   * or if the log file indicates that a rerun is required 
+   * according to {@link Settings#getPatternReRunLatex()}. 
+   * If {@link Settings#isDraftIntermediateRuns()} is set, 
+   * runs likely followed by another run are in draft mode 
+   * and the last run is never in draft mode, 
+   * so that output is created. 
    * <p>
    * Note that still no logging of warnings from a latex run is done.
    * This is done
@@ -1036,7 +1782,7 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * (re)run MakeIndex/LaTeX required?
    * <li>WFU03: cannot close
    * <li>EEX01, EEX02, EEX03, WEX04, WEX05: as for
-   * {@link #preProcessLatex2dev(LatexMainDesc, LatexDev)}
+   * {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)} 
    * maybe caused by subsequent runs.
    * </ul>
    *
@@ -1049,7 +1795,7 @@ public class LatexProcessor extends AbstractLatexProcessor {
    *    See {@link LatexDev#getLatexOutputFormat()}.
    * @throws BuildFailureException
    *    TEX01 as for
-   *    {@link #preProcessLatex2dev(LatexMainDesc, LatexDev)}
+   *    {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)} 
    *    maybe caused by subsequent runs.
    * @see #processLatex2dvi(LatexMainDesc)
    * @see #processLatex2txt(LatexMainDesc)
@@ -1057,59 +1803,81 @@ public class LatexProcessor extends AbstractLatexProcessor {
   private void processLatex2devCore(LatexMainDesc desc, LatexDev dev)
       throws BuildFailureException {
 
+    // the files read by the first LaTeX run 
+    AuxSnapshot snapshot = AuxSnapshot.take(desc);
+    // creating the aux file implies another run 
+    boolean isDraft = getDraftOption(dev) != null
+        && !desc.withSuffix(SUFFIX_AUX).exists();
     // may throw BuildFailureException TEX01,
     // log warning WLP04, WLP05, EAP01, EAP02, WAP04, WLP02, WFU03, 
     // EEX01, EEX02, EEX03, WEX04, WEX05
-    int numLatexReRuns = preProcessLatex2dev(desc, dev);
+    int numReRunsForced = preProcessLatex2dev(desc, dev, isDraft);
+    assert numReRunsForced >= 0 && numReRunsForced <= 2;
 
     String latexCmd = getLatex2pdfCommand();
+    boolean needLatexReRun =
+        needRun(true, latexCmd, desc.logFile, desc.latexLogRes);
 
-    assert numLatexReRuns == 0 || numLatexReRuns == 1 || numLatexReRuns == 2;
-    if (numLatexReRuns > 0) {
-      // rerun LaTeX without makeindex and makeglossaries
-      this.log.debug("Rerun " + latexCmd + " to update table of contents, ... "
-          + "bibliography, index, or that like. ");
-      // may throw BuildFailureException TEX01
-      // may log warnings EEX01, EEX02, EEX03, WEX04, WEX05,
-      // EAP01, EAP02, WAP04, WFU03
-      runLatex2dev(desc, dev);
-      numLatexReRuns--;
-    }
-    assert numLatexReRuns == 0 || numLatexReRuns == 1;
-
-    boolean needLatexReRun = (numLatexReRuns == 1) 
-    || needRun(true, latexCmd,
-        desc.logFile, this.settings.getPatternReRunLatex());
-
+    int numReRuns = 0;
     int maxNumReruns = this.settings.getMaxNumReRunsLatex();
     for (int num = 0; maxNumReruns == -1 || num < maxNumReruns; num++) {
       FileId fileId;
+      List<Auxiliary> auxsToProcess = new ArrayList<Auxiliary>();
       for (Auxiliary aux : desc.aux2fileId.keySet()) {
-        System.out.println("----------AUX: "+aux);
+        this.log.debug("Check auxiliary file for " + aux + ". ");
         fileId = update(aux, desc.withSuffix(aux.extension()));
 
         if (desc.aux2fileId.get(aux).equals(fileId)) {
           continue;
         }
-        System.out.println("rerun!!!!");
+        this.log.debug("Auxiliary file for " + aux + " changed. ");
         desc.aux2fileId.put(aux, fileId);
-        aux.process(desc, this);
-        needLatexReRun = true;
+        auxsToProcess.add(aux);
       }
+      // may throw BuildFailureException TEX01, TTP01 
+      processAuxs(desc, auxsToProcess);
 
+      // the files read by the next LaTeX run if any 
+      AuxSnapshot snapshotNext = AuxSnapshot.take(desc);
+      if (!snapshotNext.isUnchanged(snapshot)) {
+        this.log.debug("Files read by " + latexCmd + " changed. ");
+        needLatexReRun = true;
+      }
       if (!needLatexReRun) {
+        if (isDraft) {
+          this.log.debug("Final run of " + latexCmd + " to create output. ");
+          // may throw BuildFailureException TEX01
+          // may log warnings EEX01, EEX02, EEX03, WEX04, WEX05,
+          // EAP01, EAP02, WAP04, WFU03
+          runLatex2dev(desc, dev, false);
+          numReRuns++;
+        }
+        AuxSnapshot.count(numReRuns, numReRunsForced);
+        this.log.debug("Reran " + latexCmd + " " + numReRuns + " times, "
+            + "forcing reruns would have required " + numReRunsForced + ". ");
         return;
       }
       this.log.debug("Latex must be rerun. ");
-
+      // snapshot was taken right before the previous run 
+      isDraft = getDraftOption(dev) != null
+          && snapshotNext.isFollowedByReRun(snapshot);
+      snapshot = snapshotNext;
 
       // may throw BuildFailureException TEX01
       // may log warnings EEX01, EEX02, EEX03, WEX04, WEX05,
       // EAP01, EAP02, WAP04, WFU03
-      runLatex2dev(desc, dev);
-      needLatexReRun = needRun(true, latexCmd, desc.logFile,
-          this.settings.getPatternReRunLatex());
+      runLatex2dev(desc, dev, isDraft);
+      numReRuns++;
+      needLatexReRun = needRun(true, latexCmd, desc.logFile, desc.latexLogRes);
     } // for 
+    if (isDraft) {
+      // may throw BuildFailureException TEX01
+      // may log warnings EEX01, EEX02, EEX03, WEX04, WEX05,
+      // EAP01, EAP02, WAP04, WFU03
+      runLatex2dev(desc, dev, false);
+      numReRuns++;
+    }
+    AuxSnapshot.count(numReRuns, numReRunsForced);
     this.log.warn("WLP01: LaTeX requires rerun but maximum number "
         + maxNumReruns + " reached. ");
   }
@@ -1117,15 +1885,15 @@ public class LatexProcessor extends AbstractLatexProcessor {
   /**
    * Returns whether a(n other) run (see <code>another</code>)
    * of the application <code>application</code> is necessary
-   * based on a pattern <code>pattern</code>
-   * matching in the log file <code>logFile</code>.
-   * Note that only <code>logFile</code> and <code>pattern</code>
-   * are required unless a warning needs to be issued.
+   * based on the pattern of kind {@link LogAnalysis.Kind#ReRun}
+   * matching in the log file <code>logFile</code>
+   * as recorded in the analysis <code>logRes</code> of that file.
+   * Note that only <code>logRes</code> is required
+   * unless a warning needs to be issued.
    * <p>
    * Logging:
    * <ul>
    * <li>WLP02: Cannot read log file: (re)run required?
-   * <li>WFU03: cannot close log file
    * </ul>
    *
    * @param another
@@ -1140,24 +1908,22 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * @param logAuxFile
    *    the log file or aux file which determines
    *    whether to rerun <code>cmdStr</code>.
-   * @param pattern
-   *    the pattern in the <code>logFile</code>
+   * @param logRes
+   *    the result of analyzing <code>logAuxFile</code>
    *    which determines whether to rerun <code>cmdStr</code>.
    * @return
    *    whether <code>cmdStr</code> needs to be rerun
-   *    based on a pattern <code>pattern</code>
+   *    based on a pattern of kind {@link LogAnalysis.Kind#ReRun}
    *    matching in the log file <code>logFile</code>.
-   * @see TexFileUtils#matchInFile(File, String)
+   * @see #logErrs(File, String)
    */
   // used in processLatex2devCore only
   // TBD: eliminate Converter again and replace by ConverterCategory
   // including also the rerun pattern.
   boolean needRun(boolean another, String cmdStr, File logAuxFile,
-      String pattern) {
-    // may log warning WFU03: cannot close
-    FileMatch fileMatch = this.fileUtils.getMatchInFile(logAuxFile, pattern);
-    if (fileMatch.isFileReadable()) {
-      return fileMatch.doesExprMatch();
+      LogAnalysis.Result logRes) {
+    if (logRes.isReadable()) {
+      return logRes.hasMatch(LogAnalysis.Kind.ReRun);
     }
     this.log
         .warn("WLP02: Cannot read " 
@@ -1200,7 +1966,7 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * @throws BuildFailureException
    *    TEX01 as for
    *    {@link #processLatex2devCore(LatexMainDesc, LatexDev)}.
-   * @see #needRun(boolean, String, File, String)
+   * @see #needRun(boolean, String, File, LogAnalysis.Result)
    * @see Target#pdf
    */
   private void processLatex2dev(LatexMainDesc desc, LatexDev dev)
@@ -1221,8 +1987,8 @@ public class LatexProcessor extends AbstractLatexProcessor {
     processLatex2devCore(desc, dev);
 
     // emit warnings (errors are emitted by runLatex2dev and that like.)
-    // may log warnings WFU03, WAP04, WLP03, WLP04
-    logWarns(desc.logFile, getLatex2pdfCommand());
+    // may log warnings WLP03, WLP04
+    logWarns(desc.latexLogRes, desc.logFile, getLatex2pdfCommand());
   }
 
   void processLatex2dvi(LatexMainDesc desc)
@@ -1258,6 +2024,7 @@ public class LatexProcessor extends AbstractLatexProcessor {
       // may log warning EEX01, EEX02, EEX03, WEX04, WEX05
       runDvi2pdf(desc);
     }
+    desc.registerArtifact(dev, desc.pdfFile);
   }
 
   /**
@@ -1271,6 +2038,11 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * In both cases, the message logged refers to the <code>command</code>
    * which failed.
    * <p>
+   * Reading the log file once, 
+   * also the patterns needed by {@link #logWarns(LogAnalysis.Result, File, String)} 
+   * and by {@link #needRun(boolean, String, File, LogAnalysis.Result)} 
+   * are detected, and the result is returned. 
+   * <p>
    * Logging:
    * <ul>
    * <li>EAP01: Running <code>command</code> failed. For details...
@@ -1278,16 +2050,34 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * <li>WAP04: if <code>logFile</code> is not readable.
    * <li>WFU03: cannot close
    * </ul>
+   *
+   * @return
+   *    the result of analyzing <code>logFile</code> 
+   *    with respect to errors, reruns, bad boxes and warnings, 
+   *    the latter two only if to be logged at all 
+   *    according to {@link Settings#getDebugBadBoxes()} 
+   *    and {@link Settings#getDebugWarnings()}. 
    */
-  private void logErrs(File logFile, String command) {
+  private LogAnalysis.Result logErrs(File logFile, String command) {
+    LogAnalysis analysis = new LogAnalysis()
+        .add(LogAnalysis.Kind.Error, this.settings.getPatternErrLatex())
+        .add(LogAnalysis.Kind.ReRun, this.settings.getPatternReRunLatex());
+    if (this.settings.getDebugBadBoxes()) {
+      analysis.add(LogAnalysis.Kind.BadBox, PATTERN_OUFULL_HVBOX);
+    }
+    if (this.settings.getDebugWarnings()) {
+      analysis.add(LogAnalysis.Kind.Warning, this.settings.getPatternWarnLatex());
+    }
     // may log warnings WFU03, EAP01, EAP02, WAP04
-    logErrs(logFile, command, this.settings.getPatternErrLatex());
+    return logErrs(logFile, command, analysis);
   }
 
   /**
-   * Logs warnings detected in the according log-file <code>logFile</code>:
+   * Logs warnings detected in the according log-file <code>logFile</code>
+   * as recorded in <code>logRes</code>:
    * Before logging warnings,
-   * errors are logged via {@link #logErrs(File, String)}.
+   * errors are logged via {@link #logErrs(File, String)}
+   * which also returns <code>logRes</code>.
    * So, if the log-file does not exist,
    * an error was already shown and so nothing is to be done here.
    * If the log-file exists, a <em>warning</em> is logged if
@@ -1309,36 +2099,107 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * <p>
    * Logging:
    * <ul>
-   * <li>WFU03: cannot close
-   * <li>WAP04: if <code>logFile</code> is not readable.
    * <li>WLP03: <code>command</code> created bad boxes
    * <li>WLP04: <code>command</code> emitted warnings
    * </ul>
    *
+   * @param logRes
+   *    the result of analyzing <code>logFile</code>
+   *    as returned by {@link #logErrs(File, String)}.
    * @param logFile
    *    the log-file to detect warnings in.
    * @param command
    *    the command which created <code>logFile</code>
    *    and which maybe created warnings.
    */
-  private void logWarns(File logFile, String command) {
-    if (!logFile.exists()) {
-      return;
-    }
-    // hasErrsWarns may log warnings WFU03 cannot close, WAP04 not readable
+  private void logWarns(LogAnalysis.Result logRes, File logFile,
+      String command) {
     if (this.settings.getDebugBadBoxes()
-        && hasErrsWarns(logFile, PATTERN_OUFULL_HVBOX)) {
+        && logRes.hasMatch(LogAnalysis.Kind.BadBox)) {
       this.log.warn("WLP03: Running " + command
           + " created bad boxes logged in '" + logFile.getName() + "'. ");
     }
 
     if (this.settings.getDebugWarnings()
-        && hasErrsWarns(logFile, this.settings.getPatternWarnLatex())) {
+        && logRes.hasMatch(LogAnalysis.Kind.Warning)) {
       // logs warning WAP03: emitted warnings
       logWarn(logFile, command);
     }
   }
 
+  /**
+   * Creates bibliography, index, glossary and that like 
+   * as required for targets {@link Target#html}, {@link Target#odt} 
+   * and {@link Target#docx} via {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)}, 
+   * unless already done for a previous target. 
+   * This is shared among all targets of the latex main file described by <code>desc</code>, 
+   * so that BibTeX, MakeIndex and that like are run once only. 
+   * Although the output of the LaTeX run is not used, 
+   * it is in draft mode only if {@link #getDraftOption(LatexDev)} 
+   * is not <code>null</code> for <code>dev</code>, 
+   * i.e. if <code>dev</code> creates pdf. 
+   * So the run for {@link Target#html} creating dvi is never in draft mode, 
+   * whereas the run for {@link Target#odt} and {@link Target#docx} 
+   * is in draft mode unless {@link Settings#getPdfViaDvi()} is set. 
+   * <p>
+   * Logging: as for {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)}. 
+   *
+   * @param desc
+   *    the latex main file to be processed. 
+   * @param dev
+   *    the device for the initial LaTeX run 
+   *    if bibliography, index and that like are not yet created. 
+   * @throws BuildFailureException
+   *    TEX01 as for {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)}. 
+   */
+  private void processAuxShared(LatexMainDesc desc, LatexDev dev)
+      throws BuildFailureException {
+    if (desc.isAuxProcessed) {
+      this.log.debug("Reuse bibliography, index, glossary and that like "
+          + "from previous target. ");
+      return;
+    }
+    // may throw BuildFailureException TEX01,
+    // log warning EAP01, EAP02, WLP04, WLP05, WAP04, WLP02, WFU03, 
+    // EEX01, EEX02, EEX03, WEX04, WEX05
+    // the output of the LaTeX run is not used, 
+    // but draft mode is supported for pdf only 
+    preProcessLatex2dev(desc, dev, getDraftOption(dev) != null);
+  }
+
+  /**
+   * Creates bibliography, index, glossary and that like 
+   * as required for {@link #processLatex2html(LatexMainDesc)} 
+   * unless already done for a previous target. 
+   *
+   * @param desc
+   *    the latex main file to be processed. 
+   * @throws BuildFailureException
+   *    TEX01 as for {@link #processAuxShared(LatexMainDesc, LatexDev)}. 
+   * @see Target#processShared(LatexProcessor, LatexMainDesc) 
+   */
+  void preProcessLatex2html(LatexMainDesc desc) throws BuildFailureException {
+    // may throw BuildFailureException TEX01
+    processAuxShared(desc, LatexDev.devViaDvi(true));
+  }
+
+  /**
+   * Creates bibliography, index, glossary and that like 
+   * as required for {@link #processLatex2odt(LatexMainDesc)} 
+   * and for {@link #processLatex2docx(LatexMainDesc)} 
+   * unless already done for a previous target. 
+   *
+   * @param desc
+   *    the latex main file to be processed. 
+   * @throws BuildFailureException
+   *    TEX01 as for {@link #processAuxShared(LatexMainDesc, LatexDev)}. 
+   * @see Target#processShared(LatexProcessor, LatexMainDesc) 
+   */
+  void preProcessLatex2odt(LatexMainDesc desc) throws BuildFailureException {
+    // may throw BuildFailureException TEX01
+    processAuxShared(desc, this.settings.getPdfViaDvi());
+  }
+
   /**
    * Runs conversion of <code>texFile</code> to html or xhtml
    * after processing latex to set up the references,
@@ -1361,10 +2222,10 @@ public class LatexProcessor extends AbstractLatexProcessor {
    *    the tex file to be processed.
    * @throws BuildFailureException
    *    TEX01 as for
-   *    {@link #preProcessLatex2dev(LatexMainDesc, LatexDev)}
+   *    {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)} 
    *    but also as for
    *    {@link #runLatex2html(LatexProcessor.LatexMainDesc)}.
-   * @see #preProcessLatex2dev(LatexMainDesc, LatexDev)
+   * @see #preProcessLatex2html(LatexMainDesc) 
    * @see #runLatex2html(LatexMainDesc)
    * @see Target#html
    */
@@ -1377,7 +2238,7 @@ public class LatexProcessor extends AbstractLatexProcessor {
     // may throw BuildFailureException TEX01,
     // log warning EAP01, EAP02, WLP04, WLP05, WAP04, WLP02, WFU03, 
     // EEX01, EEX02, EEX03, WEX04, WEX05
-    preProcessLatex2dev(desc, LatexDev.devViaDvi(true));
+    preProcessLatex2html(desc);
     // may throw BuildFailureException TEX01,
     // log warning EEX01, EEX02, EEX03, WEX04, WEX05
     runLatex2html(desc);
@@ -1406,10 +2267,10 @@ public class LatexProcessor extends AbstractLatexProcessor {
    *    the tex file to be processed.
    * @throws BuildFailureException
    *    TEX01 as for
-   *    {@link #preProcessLatex2dev(LatexMainDesc, LatexDev)}
+   *    {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)} 
    *    but also as for
    *    {@link #runLatex2odt(LatexProcessor.LatexMainDesc)}.
-   * @see #preProcessLatex2dev(LatexMainDesc, LatexDev)
+   * @see #preProcessLatex2odt(LatexMainDesc) 
    * @see #runLatex2odt(LatexMainDesc)
    * @see Target#odt
    */
@@ -1419,10 +2280,11 @@ public class LatexProcessor extends AbstractLatexProcessor {
     // may throw BuildFailureException TEX01,
     // log warning EAP01, EAP02, WAP04, WLP02, WFU03, WLP04, WLP05
     // EEX01, EEX02, EEX03, WEX04, WEX05
-    preProcessLatex2dev(desc, this.settings.getPdfViaDvi());
+    preProcessLatex2odt(desc);
     // may throw BuildFailureException TEX01,
     // log warning EEX01, EEX02, EEX03, WEX04, WEX05
     runLatex2odt(desc);
+    desc.registerArtifact(LatexDev.devViaDvi(true), desc.withSuffix(SUFFIX_ODT));
   }
 
   /**
@@ -1430,6 +2292,8 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * to docx or other MS word formats
    * after processing latex to set up the references,
    * bibliography, index and that like.
+   * If the odt file was created for target {@link Target#odt} 
+   * in the current build and is unchanged since, it is reused. 
    * <p>
    * Logging: FIXME: incomplete
    * <ul>
@@ -1448,11 +2312,11 @@ public class LatexProcessor extends AbstractLatexProcessor {
    *    the latex main file to be processed.
    * @throws BuildFailureException
    *    TEX01 as for
-   *    {@link #preProcessLatex2dev(LatexMainDesc, LatexDev)}
+   *    {@link #preProcessLatex2dev(LatexMainDesc, LatexDev, boolean)} 
    *    but also as for
    *    {@link #runLatex2odt(LatexProcessor.LatexMainDesc)}
    *    and for {@link #runOdt2doc(LatexMainDesc)}.
-   * @see #preProcessLatex2dev(LatexMainDesc, LatexDev)
+   * @see #preProcessLatex2odt(LatexMainDesc) 
    * @see #runLatex2odt(LatexMainDesc)
    * @see #runOdt2doc(LatexMainDesc)
    * @see Target#docx
@@ -1460,13 +2324,22 @@ public class LatexProcessor extends AbstractLatexProcessor {
   void processLatex2docx(LatexMainDesc desc)
       throws BuildFailureException {
     this.log.info("Converting into doc(x) format. ");
-    // may throw BuildFailureException TEX0,
-    // log warning EAP01, EAP02, WAP04, WLP02, WFU03, WLP04, WLP05
-    // EEX01, EEX02, EEX03, WEX04, WEX05
-    preProcessLatex2dev(desc, this.settings.getPdfViaDvi());
-    // may throw BuildFailureException TEX0,
-    // log warning EEX01, EEX02, EEX03, WEX04, WEX05
-    runLatex2odt(desc);
+    File odtFile = desc.withSuffix(SUFFIX_ODT);
+    // tex4ht creates odt via dvi 
+    LatexDev dev = LatexDev.devViaDvi(true);
+    if (desc.isArtifactFresh(dev, odtFile)) {
+      this.log.debug("Reuse '" + odtFile.getName() 
+          + "' created for a previous target. ");
+    } else {
+      // may throw BuildFailureException TEX0,
+      // log warning EAP01, EAP02, WAP04, WLP02, WFU03, WLP04, WLP05
+      // EEX01, EEX02, EEX03, WEX04, WEX05
+      preProcessLatex2odt(desc);
+      // may throw BuildFailureException TEX0,
+      // log warning EEX01, EEX02, EEX03, WEX04, WEX05
+      runLatex2odt(desc);
+      desc.registerArtifact(dev, odtFile);
+    }
     // may throw BuildFailureException TEX01,
     // log warning EEX01, EEX02, EEX03, WEX04, WEX05
     runOdt2doc(desc);
@@ -1503,6 +2376,8 @@ public class LatexProcessor extends AbstractLatexProcessor {
 
   /**
    * Runs conversion of <code>texFile</code> to txt format via pdf.
+   * If the pdf file was created for target {@link Target#pdf} 
+   * in the current build and is unchanged since, it is reused. 
    * <p>
    * Logging: FIXME: incomplete
    * <ul>
@@ -1527,14 +2402,20 @@ public class LatexProcessor extends AbstractLatexProcessor {
     this.log.info("Converting into txt format. ");
     LatexDev dev = this.settings.getPdfViaDvi();
 
-    // may throw BuildFailureException TEX01,
-    // log warning EAP01, EAP02, WAP04, WLP02, WFU03, WLP04, WLP05,
-    // EEX01, EEX02, EEX03, WEX04, WEX05
-    processLatex2devCore(desc, dev);
-    if (dev.isViaDvi()) {
+    if (desc.isArtifactFresh(dev, desc.pdfFile)) {
+      this.log.debug("Reuse '" + desc.pdfFile.getName() 
+          + "' created for a previous target. ");
+    } else {
       // may throw BuildFailureException TEX01,
-      // may log warning EEX01, EEX02, EEX03, WEX04, WEX05
-      runDvi2pdf(desc);
+      // log warning EAP01, EAP02, WAP04, WLP02, WFU03, WLP04, WLP05,
+      // EEX01, EEX02, EEX03, WEX04, WEX05
+      processLatex2devCore(desc, dev);
+      if (dev.isViaDvi()) {
+        // may throw BuildFailureException TEX01,
+        // may log warning EEX01, EEX02, EEX03, WEX04, WEX05
+        runDvi2pdf(desc);
+      }
+      desc.registerArtifact(dev, desc.pdfFile);
     }
 
     // warnings emitted by LaTex are ignored
@@ -1573,7 +2454,71 @@ public class LatexProcessor extends AbstractLatexProcessor {
     // may throw BuildFailureException TSS05
     SortedSet<Converter> convertersExcluded =
         this.settings.getConvertersExcluded();
-    return this.metaInfo.printMetaInfo(includeVersionInfo, convertersExcluded);
+    // may throw BuildFailureException TSS14
+    initTimeouts();
+    return this.metaInfo.printMetaInfo(includeVersionInfo, convertersExcluded,
+        this.settings.getTexPath(), this.settings.getVersionCacheFile());
+  }
+
+  /**
+   * Logs the commands configured for the {@link ConverterCategory}s 
+   * which cannot be resolved to executables by {@link ExecutableResolver}, 
+   * so that missing tools are reported in one place before any work starts. 
+   * This is just an information, 
+   * because typically not all converters are needed for the targets. 
+   * Commands which are not allowed are reported when used. 
+   */
+  private void logCommandsNotFound() {
+    SortedSet<String> commandsNotFound = new TreeSet<String>();
+    for (ConverterCategory cat : ConverterCategory.values()) {
+      String command;
+      try {
+        // may throw BuildFailureException TSS05-TSS08, 
+        // may throw UnsupportedOperationException if no command is configured 
+        command = this.settings.getCommand(cat);
+      } catch (BuildFailureException | UnsupportedOperationException e) {
+        continue;
+      }
+      if (ExecutableResolver.resolve(this.settings.getTexPath(),
+          command) == null) {
+        commandsNotFound.add(command);
+      }
+    }
+    if (!commandsNotFound.isEmpty()) {
+      this.log.info("Commands not found in texPath or on PATH: "
+          + commandsNotFound + ". ");
+    }
+  }
+
+  /**
+   * Sets the timeouts given by {@link Settings#getTimeouts()} 
+   * for the commands of the according categories in {@link #executor}. 
+   * For each category, this is the command configured 
+   * but also the commands of all registered converters of that category, 
+   * because the command may be overwritten by a magic comment. 
+   *
+   * @throws BuildFailureException
+   *    TSS14 if the timeouts are invalid. 
+   */
+  private void initTimeouts() throws BuildFailureException {
+    Map<String, Long> cmd2timeoutMs = new TreeMap<String, Long>();
+    // may throw BuildFailureException TSS14
+    for (Map.Entry<ConverterCategory, Integer> entry
+        : this.settings.getTimeouts().entrySet()) {
+      long timeoutMs = TimeUnit.SECONDS.toMillis(entry.getValue());
+      for (Converter conv : Converter.values()) {
+        if (conv.getCategory() == entry.getKey()) {
+          cmd2timeoutMs.put(conv.getCommand(), timeoutMs);
+        }
+      }
+      try {
+        // may throw BuildFailureException TSS05-TSS08 
+        cmd2timeoutMs.put(this.settings.getCommand(entry.getKey()), timeoutMs);
+      } catch (BuildFailureException e) {
+        // reported when the command is used 
+      }
+    }
+    this.executor.setTimeouts(cmd2timeoutMs);
   }
 
   boolean runBibtex(LatexMainDesc desc) throws BuildFailureException {
@@ -1586,10 +2531,10 @@ public class LatexProcessor extends AbstractLatexProcessor {
         this.settings.getTexPath(), command, args, desc.withSuffix(SUFFIX_BBL));
 
     File logFile = desc.withSuffix(SUFFIX_BLG);
-    // may log EAP01, EAP02, WAP04, WFU03
-    logErrs(logFile, command, this.settings.getPatternErrBibtex());
-    // may log warnings WFU03, WAP03, WAP04
-    logWarns(logFile, command, this.settings.getPatternWarnBibtex());
+    // may log EAP01, EAP02, WAP03, WAP04, WFU03
+    logErrsWarns(logFile, command,
+        this.settings.getPatternErrBibtex(),
+        this.settings.getPatternWarnBibtex());
     return true;
   }
 
@@ -1765,10 +2710,10 @@ public class LatexProcessor extends AbstractLatexProcessor {
         this.settings.getTexPath(), command, args, desc.indFile);
 
     // detect errors and warnings makeindex wrote into xxx.ilg
-    // may log EAP01, EAP02, WAP04, WFU03
-    logErrs(desc.ilgFile, command, this.settings.getPatternErrMakeIndex());
-    // may log warnings WFU03, WAP03, WAP04
-    logWarns(desc.ilgFile, command, this.settings.getPatternWarnMakeIndex());
+    // may log EAP01, EAP02, WAP03, WAP04, WFU03
+    logErrsWarns(desc.ilgFile, command,
+        this.settings.getPatternErrMakeIndex(),
+        this.settings.getPatternWarnMakeIndex());
   }
 
   /**
@@ -1894,11 +2839,9 @@ public class LatexProcessor extends AbstractLatexProcessor {
     File[] ilgFiles = files(filePrefix, explIdxIdent, SUFFIX_ILG);
     splitInxCmd = this.settings.getCommand(ConverterCategory.MakeIndex);
     for (int idx = 0; idx < explIdxIdent.size(); idx++) {
-      // may log EAP01, EAP02, WAP04, WFU03
-      logErrs(ilgFiles[idx], splitInxCmd,
-          this.settings.getPatternErrMakeIndex());
-      // may log warnings WFU03, WAP03, WAP04
-      logWarns(ilgFiles[idx], splitInxCmd,
+      // may log EAP01, EAP02, WAP03, WAP04, WFU03
+      logErrsWarns(ilgFiles[idx], splitInxCmd,
+          this.settings.getPatternErrMakeIndex(),
           this.settings.getPatternWarnMakeIndex());
     }
   }
@@ -1919,11 +2862,11 @@ public class LatexProcessor extends AbstractLatexProcessor {
 
     // detect errors and warnings makeglossaries wrote into xxx.glg
     File glgFile = desc.glgFile;
-    // may log EAP01, EAP02, WAP04, WFU03
-    logErrs(glgFile, command, this.settings.getPatternErrMakeGlossaries());
-    // may log warnings WFU03, WAP03, WAP04
-    logWarns(glgFile, command, this.settings.getPatternWarnMakeIndex() + "|"
-        + this.settings.getPatternWarnXindy());
+    // may log EAP01, EAP02, WAP03, WAP04, WFU03
+    logErrsWarns(glgFile, command,
+        this.settings.getPatternErrMakeGlossaries(),
+        this.settings.getPatternWarnMakeIndex() + "|"
+            + this.settings.getPatternWarnXindy());
         return true;
       } // runMakeGlossary
 
@@ -1962,10 +2905,10 @@ public class LatexProcessor extends AbstractLatexProcessor {
         args, repOutFile);
 
     File logFile = desc.withSuffix(SUFFIX_PLG);
-    // may log EAP01, EAP02, WAP04, WFU03
-    logErrs(logFile, command, this.settings.getPatternErrPyTex());
-    // may log warnings WFU03, WAP03, WAP04
-    logWarns(logFile, command, this.settings.getPatternWarnPyTex());
+    // may log EAP01, EAP02, WAP03, WAP04, WFU03
+    logErrsWarns(logFile, command,
+        this.settings.getPatternErrPyTex(),
+        this.settings.getPatternWarnPyTex());
     return true;
   } // runPythontex
 
@@ -2054,6 +2997,11 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * given by {@link #buildLatexArguments(Settings, LatexDev, File, boolean)}.
    * The output format of the LaTeX run is given by <code>dev</code>,
    * to be more precise by {@link LatexDev#getLatexOutputFormat()}.
+   * In draft mode, the option given by {@link #getDraftOption(LatexDev)} 
+   * is added, so that no pdf file is created. 
+   * If {@link Settings#getPreambleFormatDirectory()} is set, 
+   * the format given by {@link #getPreambleFormat(LatexMainDesc, String, String)} 
+   * is loaded instead of reading the preamble. 
    * <p>
    * Logs a warning or an error if the latex run failed
    * invoking {@link #logErrs(File, String)}
@@ -2070,6 +3018,9 @@ public class LatexProcessor extends AbstractLatexProcessor {
    * <li>WFU03: cannot close .log-file
    * <li>EEX01, EEX02, EEX03, WEX04, WEX05:
    * if running the latex2pdf command failed.
+   * <li>WLP11, WDM01, WDM02: 
+   * if the preamble could not be dumped into a format 
+   * as described for {@link #getPreambleFormat(LatexMainDesc, String, String)}. 
    * </ul>
    *
    * @param desc
@@ -2079,12 +3030,22 @@ public class LatexProcessor extends AbstractLatexProcessor {
    *     the device describing the output format 
    *     which is either pdf or dvi.
    *     See {@link LatexDev#getLatexOutputFormat()}.
+   * @param isDraft
+   *     whether to run in draft mode. 
+   *     This requires that {@link #getDraftOption(LatexDev)} 
+   *     is not <code>null</code>. 
    * @throws BuildFailureException
-   *     TEX01 if invocation of the latex2pdf command returned by
+   *     <ul>
+   *     <li>TEX01 if invocation of the latex2pdf command returned by 
    *     {@link #getLatex2pdfCommand()} failed.
+   *     <li>TLP04 if {@link Settings#isFailFastLatex()} is set 
+   *     and the run is aborted at the first error 
+   *     detected by a {@link LatexErrorMonitor}. 
+   *     </ul>
    */
   private void runLatex2dev(LatexMainDesc desc,
-                            LatexDev dev)
+                            LatexDev dev,
+                            boolean isDraft)
       throws BuildFailureException {
 
     File texFile = desc.texFile;
@@ -2097,40 +3058,236 @@ public class LatexProcessor extends AbstractLatexProcessor {
     //     Converter.XeLatex.getCommand().equals(settings.getLatex2pdfCommand());
     boolean isTypeXelatex =
         Converter.XeLatex.getCommand().equals(command);
+    String outputFormat = getOutputFormatOption(dev, isTypeXelatex);
+    // may log WLP11, WDM01, WDM02, EEX01, EEX02, EEX03, WEX04, WEX05 
+    PreambleFormat format = getPreambleFormat(desc, command, outputFormat);
+    String[] fmtArgs = format == null ? new String[] {}
+        : new String[] {format.getFmtOption()};
     String[] args =
-        buildLatexArguments(this.settings, dev, texFile, isTypeXelatex);
-    File latexTargetFile = dev.latexTargetFile(desc, isTypeXelatex);
-    // may throw BuildFailureException TEX01,
-    // may log warning EEX01, EEX02, EEX03, WEX04, WEX05
-    // CAUTION: an error also occurs if running xelatex in conjunction with dvi mode 
-    // because this engine creates xdv instead of dvi 
-    this.executor.executeEnvR0(desc.parentDir, // workingDir
-        this.settings.getTexPath(), command, args,
-        latexTargetFile);
+        buildLatexArguments(this.settings, dev, texFile, isTypeXelatex, fmtArgs);
+    File[] latexTargetFiles =
+        new File[] {dev.latexTargetFile(desc, isTypeXelatex)};
+    if (isDraft) {
+      String draftOption = getDraftOption(dev);
+      assert draftOption != null && dev.isDefault();
+      this.log.debug("Run " + command + " in draft mode. ");
+      String[] addArgs = Arrays.copyOf(fmtArgs, fmtArgs.length + 1);
+      addArgs[fmtArgs.length] = draftOption;
+      args = buildArguments(this.settings.getLatex2pdfOptions(), texFile,
+          addArgs);
+      // xelatex creates an xdv file, the others no output at all 
+      latexTargetFiles = isTypeXelatex ? new File[] {desc.xdvFile}
+          : new File[] {};
+    }
+    LatexErrorMonitor monitor = this.settings.isFailFastLatex()
+        ? new LatexErrorMonitor(this.settings.getPatternErrLatex(),
+            texFile.getName())
+        : null;
+    try {
+      // may throw BuildFailureException TEX01,
+      // may log warning EEX01, EEX02, EEX03, WEX04, WEX05
+      // CAUTION: an error also occurs if running xelatex in conjunction with dvi mode 
+      // because this engine creates xdv instead of dvi 
+      this.executor.executeEnvR0(desc.parentDir, // workingDir
+          this.settings.getTexPath(), command, args, monitor,
+          latexTargetFiles);
+    } catch (BuildFailureException e) {
+      if (monitor != null && monitor.hasAborted()) {
+        throw new BuildFailureException("TLP04: Aborted " + command + " on '"
+            + texFile.getName() + "' at first error "
+            + monitor.getFirstError() + ". ");
+      }
+      throw e;
+    }
 
     // logging errors (warnings are done in processLatex2pdf)
     // may log EAP01, EAP02, WAP04, WFU03
-    logErrs(desc.logFile, command);
+    desc.latexLogRes = logErrs(desc.logFile, command);
 
     // FIXME: documentation that in the dvi file,
     // png, jpg and svg are not visible, but present. 
   }
 
+  /**
+   * Returns the option of the command given by {@link #getLatex2pdfCommand()} 
+   * to run in draft mode, i.e. without creating a pdf file, 
+   * or <code>null</code> if runs are not in draft mode for <code>dev</code>. 
+   * This is <code>-draftmode</code> for <code>pdflatex</code> 
+   * and for <code>lualatex</code> 
+   * and <code>-no-pdf</code> for <code>xelatex</code> creating an xdv file, 
+   * provided that {@link Settings#isDraftIntermediateRuns()} is set 
+   * and that <code>dev</code> is the default, i.e. creating pdf. 
+   * For other commands, draft mode is not supported. 
+   *
+   * @throws BuildFailureException
+   *    TSS05, TSS06, TSS07, TSS08 
+   *    as for {@link Settings#getCommand(ConverterCategory)}. 
+   */
+  // also for tests 
+  String getDraftOption(LatexDev dev) throws BuildFailureException {
+    if (!this.settings.isDraftIntermediateRuns() || !dev.isDefault()) {
+      return null;
+    }
+    // TBD: this is not completely correct as for isTypeXelatex. 
+    // may throw BuildFailureException TSS05, TSS06, TSS07, TSS08 
+    String command = getLatex2pdfCommand();
+    if (Converter.XeLatex.getCommand().equals(command)) {
+      return "-no-pdf";
+    }
+    if (Converter.PdfLatex.getCommand().equals(command)
+        || Converter.LuaLatex.getCommand().equals(command)) {
+      return "-draftmode";
+    }
+    return null;
+  }
+
+  /**
+   * Returns the format the preamble of the latex main file 
+   * described by <code>desc</code> is dumped into 
+   * for running the LaTeX command <code>command</code> 
+   * with output format given by <code>outputFormat</code> 
+   * or <code>null</code> if no format shall be used. 
+   * The latter is the case if {@link Settings#getPreambleFormatDirectory()} 
+   * is not set, if the latex main file has no preamble 
+   * or if the format could not be dumped. 
+   * The format is dumped only if it is not up to date 
+   * according to {@link PreambleFormat#isUpToDate(LogWrapper)}. 
+   * Since the format may be shared by latex main files processed concurrently, 
+   * checking and dumping is synchronized on {@link PreambleFormat#getLock()}. 
+   * <p>
+   * Logging: 
+   * <ul>
+   * <li>WLP11: if the format could not be dumped. 
+   * Then the format is not tried to be dumped again in this build. 
+   * <li>WDM01, WDM02: 
+   * if the manifest of the format could not be read or written. 
+   * <li>EEX01, EEX02, EEX03, WEX04, WEX05: 
+   * if running <code>command</code> to dump the format failed. 
+   * </ul>
+   *
+   * @param desc
+   *    the description of a latex main file. 
+   * @param command
+   *    the LaTeX command. 
+   * @param outputFormat
+   *    the option of <code>command</code> determining the output format 
+   *    as returned by {@link #getOutputFormatOption(LatexDev, boolean)}. 
+   * @throws BuildFailureException
+   *    TEX01 if invocation of <code>command</code> fails very basically. 
+   */
+  private PreambleFormat getPreambleFormat(LatexMainDesc desc, String command,
+      String outputFormat) throws BuildFailureException {
+    File fmtDir = this.settings.getPreambleFormatDirectory();
+    if (fmtDir == null) {
+      return null;
+    }
+    PreambleFormat format;
+    try {
+      // may throw IOException 
+      format = PreambleFormat.create(fmtDir, desc, command,
+          BuildCache.getVersion(command, this.settings.getTexPath(),
+              this.executor), outputFormat);
+    } catch (IOException ioe) {
+      this.log.warn("WLP11: Cannot dump preamble of '" + desc.texFile
+          + "' into a format; run without format. ");
+      return null;
+    }
+    if (format == null || format.hasFailed()) {
+      return null;
+    }
+
+    synchronized (format.getLock()) {
+      // may log WDM01 
+      if (format.isUpToDate(this.log)) {
+        return format;
+      }
+      File fmtFile = format.getFmtFile();
+      fmtDir.mkdirs();
+      this.log.debug("Dumping preamble of '" + desc.texFile.getName()
+          + "' into '" + fmtFile.getName() + "'. ");
+      String[] args = buildArguments(this.settings.getLatex2pdfOptions(),
+          desc.texFile, format.getDumpArgs(command, outputFormat));
+      // may throw BuildFailureException TEX01,
+      // may log EEX01, EEX02, EEX03, WEX04, WEX05
+      CommandExecutor.CmdResult res = this.executor.executeEmptyEnv(
+          desc.parentDir, this.settings.getTexPath(), command,
+          CommandExecutor.ReturnCodeChecker.Never, args, fmtFile);
+      if (res.returnCode == 0 && fmtFile.isFile()) {
+        // may log WFU03 
+        Collection<File> recorded =
+            this.fileUtils.getRecordedInputs(format.getFlsFile());
+        if (recorded != null) {
+          Collection<File> inputs = new TreeSet<File>();
+          for (File file : recorded) {
+            // the document itself changes without affecting the preamble 
+            if (file.isFile() && !file.equals(desc.texFile)) {
+              inputs.add(file);
+            }
+          }
+          try {
+            // may throw IOException, may log WDM02 
+            format.recordInputs(inputs, this.log);
+            return format;
+          } catch (IOException ioe) {
+            // treated as failure below 
+          }
+        }
+      }
+      format.markFailed();
+      this.log.warn("WLP11: Cannot dump preamble of '" + desc.texFile
+          + "' into a format; run without format. ");
+      return null;
+    }
+  }
+
+  /**
+   * Returns the option of the LaTeX command 
+   * determining the output format given by <code>dev</code> 
+   * or the empty string if <code>dev</code> is the default, i.e. pdf. 
+   *
+   * @param dev
+   *    the device describing the output format. 
+   * @param isTypeXelatex
+   *    whether the LaTeX command is <code>xelatex</code>. 
+   */
+  private static String getOutputFormatOption(LatexDev dev,
+      boolean isTypeXelatex) {
+    if (dev.isDefault()) {
+      return "";
+    }
+    // Here we shall create dvi or xdv file 
+    // FIXME: this shall be based on analysis of the options of the converter, 
+    // not on its name 
+    return isTypeXelatex ? "-no-pdf"
+        : "-output-format=" + dev.getLatexOutputFormat();
+  }
+
   // also for tests
   protected static String[] buildLatexArguments(Settings settings, LatexDev dev,
       File texFile, boolean isTypeXelatex) throws BuildFailureException {
+    return buildLatexArguments(settings, dev, texFile, isTypeXelatex,
+        new String[] {});
+  }
+
+  /**
+   * Returns the arguments of the LaTeX command 
+   * as {@link #buildLatexArguments(Settings, LatexDev, File, boolean)} 
+   * but with the arguments <code>addArgs</code> added, 
+   * e.g. the option to load a preamble format. 
+   */
+  private static String[] buildLatexArguments(Settings settings, LatexDev dev,
+      File texFile, boolean isTypeXelatex, String[] addArgs)
+      throws BuildFailureException {
     // FIXME: here it should be taken xelatex into account, using different settings: 
     // added is dev==pdf, then nothing, else dev==dvi it is "-no-pdf". 
     String options = settings.getLatex2pdfOptions();
-    if (dev.isDefault()) {
-      return buildArguments(options, texFile);
+    String outputFormat = getOutputFormatOption(dev, isTypeXelatex);
+    if (outputFormat.isEmpty()) {
+      return buildArguments(options, texFile, addArgs);
     }
-      // Here we shall create dvi or xdv file 
-      // FIXME: this shall be based on analysis of the options of the converter, 
-      // not on its name 
-    return buildArguments(options, texFile, 
-      isTypeXelatex ? "-no-pdf"
-                    : "-output-format=" + dev.getLatexOutputFormat());
+    String[] args = Arrays.copyOf(addArgs, addArgs.length + 1);
+    args[addArgs.length] = outputFormat;
+    return buildArguments(options, texFile, args);
   }
 
   /**
@@ -2176,13 +3333,69 @@ public class LatexProcessor extends AbstractLatexProcessor {
     String[] args =
         buildArguments(this.settings.getDvi2pdfOptions(), desc.xxxFile);
     // may throw BuildFailureException TEX01,
-    // may log warning EEX01, EEX02, EEX03, WEX04, WEX05
-    this.executor.executeEnvR0(desc.parentDir, // workingDir
-        this.settings.getTexPath(), command, args, desc.pdfFile);
+    // may log warning EEX01, EEX02, EEX03, WEX04, WEX05, WBC01
+    executeCached(desc.parentDir, // workingDir
+        command, args, dvi2pdfInputs(desc), desc.pdfFile);
     // FIXME: what about error logging?
     // Seems not to create a log-file. 
   }
 
+  /**
+   * Returns the files read by {@link #runDvi2pdf(LatexMainDesc)} 
+   * to determine the key in the build cache 
+   * or <code>null</code> if these cannot be determined. 
+   * These are the dvi-file and the xdv-file if present 
+   * and the files recorded as read by the last LaTeX run 
+   * in the recorder file, 
+   * i.e. if option <code>-recorder</code> is given. 
+   * Since graphic files are read by the dvi2pdf command 
+   * rather than by LaTeX, 
+   * in addition all graphic files are read 
+   * which are in directories containing recorded files 
+   * inside the directory of the latex main file. 
+   */
+  private Collection<File> dvi2pdfInputs(LatexMainDesc desc) {
+    if (this.settings.getBuildCacheDirectory() == null) {
+      return null;
+    }
+    File flsFile = desc.withSuffix(SUFFIX_FLS);
+    if (!flsFile.exists()) {
+      return null;
+    }
+    // may log WFU03 
+    Collection<File> recorded = this.fileUtils.getRecordedInputs(flsFile);
+    if (recorded == null) {
+      return null;
+    }
+    Path parentPath = desc.parentDir.toPath().toAbsolutePath().normalize();
+    Collection<File> res = new TreeSet<File>();
+    Set<File> dirs = new TreeSet<File>();
+    for (File file : recorded) {
+      if (!file.toPath().toAbsolutePath().startsWith(parentPath)
+          || !file.isFile()) {
+        // files of the TeX distribution are covered by the version 
+        continue;
+      }
+      res.add(file);
+      dirs.add(file.getParentFile());
+    }
+    for (File dir : dirs) {
+      File[] grpFiles = dir.listFiles((File file) -> file.isFile()
+          && SUFFIXES_GRP_DVI2PDF.contains(TexFileUtils.getSuffix(file))
+          && !file.equals(desc.pdfFile));
+      if (grpFiles != null) {
+        res.addAll(Arrays.asList(grpFiles));
+      }
+    }
+    if (desc.dviFile.exists()) {
+      res.add(desc.dviFile);
+    }
+    if (desc.xdvFile.exists()) {
+      res.add(desc.xdvFile);
+    }
+    return res;
+  }
+
   /**
    * Runs the tex4ht command given by {@link Settings#getTex4htCommand()}
    * on <code>texFile</code> described by <code>desc</code>
@@ -2222,9 +3435,9 @@ public class LatexProcessor extends AbstractLatexProcessor {
 
     // logging errors and warnings
     // may log EAP01, EAP02, WAP04, WFU03
-    logErrs(desc.logFile, command);
-    // may log warnings WFU03, WAP04, WLP03, WLP04
-    logWarns(desc.logFile, command);
+    LogAnalysis.Result logRes = logErrs(desc.logFile, command);
+    // may log warnings WLP03, WLP04
+    logWarns(logRes, desc.logFile, command);
   }
 
   protected static String[] buildHtlatexArguments(Settings settings,
@@ -2321,9 +3534,9 @@ public class LatexProcessor extends AbstractLatexProcessor {
 
     // FIXME: logging refers to latex only, not to tex4ht or t4ht script
     // may log EAP01, EAP02, WAP04, WFU03
-    logErrs(desc.logFile, command);
-    // may log warnings WFU03, WAP04, WLP03, WLP04
-    logWarns(desc.logFile, command);
+    LogAnalysis.Result logRes = logErrs(desc.logFile, command);
+    // may log warnings WLP03, WLP04
+    logWarns(logRes, desc.logFile, command);
   }
 
   // FIXME: missing options.
@@ -2369,9 +3582,9 @@ public class LatexProcessor extends AbstractLatexProcessor {
     // FIXME: no validity check on suffix 
     assert suffix != null;
     // may throw BuildFailureException TEX01,
-    // may log warning EEX01, EEX02, EEX03, WEX04, WEX05
-    this.executor.executeEnvR0(desc.parentDir, this.settings.getTexPath(), command,
-        args, desc.withSuffix(suffix));
+    // may log warning EEX01, EEX02, EEX03, WEX04, WEX05, WBC01
+    executeCached(desc.parentDir, command, args,
+        Collections.singletonList(odtFile), desc.withSuffix(suffix));
     // FIXME: what about error logging?
     // Seems not to create a log-file.
   }
@@ -2402,9 +3615,9 @@ public class LatexProcessor extends AbstractLatexProcessor {
     this.log.debug("Running " + command + " on '" + pdfFile.getName() + "'. ");
     String[] args = buildArguments(this.settings.getPdf2txtOptions(), pdfFile);
     // may throw BuildFailureException TEX01,
-    // may log warning EEX01, EEX02, EEX03, WEX04, WEX05
-    this.executor.executeEnvR0(desc.parentDir, this.settings.getTexPath(), command,
-        args, desc.withSuffix(SUFFIX_TXT));
+    // may log warning EEX01, EEX02, EEX03, WEX04, WEX05, WBC01
+    executeCached(desc.parentDir, command, args,
+        Collections.singletonList(pdfFile), desc.withSuffix(SUFFIX_TXT));
     // FIXME: what about error logging?
     // Seems not to create a log-file.
   }
@@ -2578,10 +3791,10 @@ public class LatexProcessor extends AbstractLatexProcessor {
     CmdResult res = this.executor.executeEmptyEnv(null, // texFile.getParentFile(),
         this.settings.getTexPath(), command,
         CommandExecutor.ReturnCodeChecker.IsNonZero, args);
-    //System.out.println("pdfinfo yields\n"+res.output);
+    //System.out.println("pdfinfo yields\n"+res.tail);
     // TBD: eliminate literal 
-    Pattern pattern = Pattern.compile("CreationDate:\\s*(?<creationDate>.*)\\R");
-    Matcher matcher = pattern.matcher(res.output);
+    Pattern pattern = PatternCache.compile("CreationDate:\\s*(?<creationDate>.*)\\R");
+    Matcher matcher = pattern.matcher(res.tail);
     if (!matcher.find()) {
       // TBD: rethink 
       throw new RuntimeException("Found no creation date");
@@ -2589,7 +3802,7 @@ public class LatexProcessor extends AbstractLatexProcessor {
     String creationDateIso8601 = matcher.group("creationDate");// TBD: eliminate literal 
     long epochTimeSec = Instant.parse(creationDateIso8601).getEpochSecond();
 
-    // String[] lines = res.output.split("\\R");
+    // String[] lines = res.tail.split("\\R");
     // for (String line : lines) {
     //   line
     // }
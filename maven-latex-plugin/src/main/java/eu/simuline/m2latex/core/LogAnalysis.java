@@ -0,0 +1,168 @@
+package eu.simuline.m2latex.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.florianingerl.util.regex.Pattern;
+
+/**
+ * Describes which patterns shall be detected in a log file 
+ * and performs detection of all of them reading the log file only once. 
+ * Each pattern is registered for a {@link Kind} 
+ * via {@link #add(Kind, String)}. 
+ * The result of the analysis is a {@link Result} 
+ * which provides for each kind the numbers of the lines matching. 
+ * <p>
+ * Matching is linewise as for {@link TexFileUtils#getMatchInFile(java.io.File, String)} 
+ * for patterns not starting with <code>\\A</code>. 
+ * Note that the patterns are not combined into a single alternation, 
+ * because the patterns given by {@link Settings} may contain groups 
+ * and even back references which would be broken. 
+ * Instead, each line is matched against each pattern, 
+ * which still requires reading the log file only once. 
+ */
+final class LogAnalysis {
+
+  /**
+   * The kinds of entries in a log file to be detected. 
+   */
+  enum Kind {
+    /**
+     * Errors, e.g. given by {@link Settings#getPatternErrLatex()}. 
+     */
+    Error,
+    /**
+     * Warnings, e.g. given by {@link Settings#getPatternWarnLatex()}. 
+     */
+    Warning,
+    /**
+     * Bad boxes given by {@link LatexProcessor#PATTERN_OUFULL_HVBOX}. 
+     */
+    BadBox,
+    /**
+     * Request to rerun given by {@link Settings#getPatternReRunLatex()}. 
+     */
+    ReRun;
+  } // enum Kind
+
+  /**
+   * The result of analyzing a log file 
+   * by {@link LogAnalysis#analyze(BufferedReader)}. 
+   * This is either {@link #UNREADABLE} 
+   * or provides for each {@link Kind} 
+   * the numbers of the lines matching its pattern, 
+   * which is empty if the kind was not registered. 
+   */
+  static final class Result {
+
+    /**
+     * The result if the log file could not be read. 
+     */
+    static final Result UNREADABLE = new Result(null);
+
+    /**
+     * Maps each kind registered to the list of numbers of lines 
+     * matching the according pattern, starting with 1. 
+     * This is <code>null</code> for {@link #UNREADABLE}. 
+     */
+    private final Map<Kind, List<Integer>> kind2lines;
+
+    private Result(Map<Kind, List<Integer>> kind2lines) {
+      this.kind2lines = kind2lines;
+    }
+
+    /**
+     * Returns whether the log file could be read. 
+     * If not, no kind matches. 
+     */
+    boolean isReadable() {
+      return this.kind2lines != null;
+    }
+
+    /**
+     * Returns whether the pattern registered for <code>kind</code> 
+     * matches some line of the log file. 
+     */
+    boolean hasMatch(Kind kind) {
+      return !getLineNumbers(kind).isEmpty();
+    }
+
+    /**
+     * Returns the ascending list of numbers of lines 
+     * matching the pattern registered for <code>kind</code>. 
+     */
+    List<Integer> getLineNumbers(Kind kind) {
+      if (this.kind2lines == null) {
+        return Collections.emptyList();
+      }
+      List<Integer> res = this.kind2lines.get(kind);
+      return res == null ? Collections.<Integer>emptyList() : res;
+    }
+
+    public String toString() {
+      return isReadable() ? "LogAnalysis.Result" + this.kind2lines
+          : "LogAnalysis.Result<unreadable>";
+    }
+  } // class Result
+
+  /**
+   * Maps the kinds registered via {@link #add(Kind, String)} 
+   * to the patterns to be matched. 
+   */
+  private final Map<Kind, Pattern> kind2pattern;
+
+  /**
+   * Creates an analysis without patterns. 
+   * These are added via {@link #add(Kind, String)}. 
+   */
+  LogAnalysis() {
+    this.kind2pattern = new EnumMap<Kind, Pattern>(Kind.class);
+  }
+
+  /**
+   * Registers the pattern <code>regex</code> for kind <code>kind</code> 
+   * and returns this analysis. 
+   * The pattern is taken from {@link PatternCache}. 
+   */
+  LogAnalysis add(Kind kind, String regex) {
+    this.kind2pattern.put(kind, PatternCache.compile(regex, Pattern.MULTILINE));
+    return this;
+  }
+
+  /**
+   * Reads the lines provided by <code>reader</code> once 
+   * and matches each against all registered patterns. 
+   *
+   * @param reader
+   *    a reader for the log file to be analyzed. 
+   * @return
+   *    the result of the analysis which is readable. 
+   * @throws IOException
+   *    if reading fails. 
+   */
+  Result analyze(BufferedReader reader) throws IOException {
+    Map<Kind, List<Integer>> kind2lines =
+        new EnumMap<Kind, List<Integer>>(Kind.class);
+    for (Kind kind : this.kind2pattern.keySet()) {
+      kind2lines.put(kind, new ArrayList<Integer>());
+    }
+    int numLine = 0;
+    // readLine may throw IOException
+    for (String line = reader.readLine(); line != null;
+        // readLine may throw IOException
+        line = reader.readLine()) {
+      numLine++;
+      for (Map.Entry<Kind, Pattern> entry : this.kind2pattern.entrySet()) {
+        if (entry.getValue().matcher(line).find()) {
+          kind2lines.get(entry.getKey()).add(numLine);
+        }
+      }
+    } // for
+    return new Result(kind2lines);
+  }
+}
@@ -3,8 +3,7 @@ package eu.simuline.m2latex.core;
 //import org.apache.maven.project.io.xpp3.MavenXpp3Reader;
 //import org.apache.maven.project.Model;
 
-import eu.simuline.m2latex.core.CommandExecutor.CmdResult;
-
+import java.io.File;
 import java.io.InputStream;
 import java.io.IOException;
 
@@ -13,6 +12,8 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -453,7 +454,7 @@ public class MetaInfo {
 		/**
 		 * Create a version for a converter <code>conv</code> 
 		 * invoking it with the proper option using <code>executor</code>. 
-		 * This is used in {@link MetaInfo#printMetaInfo(boolean, SortedSet<Converter>)} 
+		 * This is used in {@link BuildCache#getVersion(String, File, CommandExecutor)} 
 		 * to create the version info of a converter. 
 		 * 
 		 * @param conv
@@ -461,19 +462,21 @@ public class MetaInfo {
 		 * @param executor
 		 *    an executor to execute the command of the converter 
 		 *    to obtain a feedback containing the version. 
+		 * @param texPath
+		 *    the tex path as given by {@link Settings#getTexPath()}. 
 		 * @throws BuildFailureException
 		 *    TEX01 if invocation of <code>command</code> fails very basically.
 		 */
-		Version(Converter conv, CommandExecutor executor)
+		Version(Converter conv, CommandExecutor executor, File texPath)
 				throws BuildFailureException {
 			this(conv.getVersionEnvironment(), conv.getVersionPattern(),
 					// may throw BuildFailureException
-					conv.getVersionInfo(executor));
+					conv.getVersionInfo(executor, texPath));
 		}
 
 		/**
 		 * Create a version from given pattern. 
-		 * This is used in {@link Version(Converter, CommandExecutor)} 
+		 * This is used in {@link Version(Converter, CommandExecutor, File)} 
 		 * to create the version info of a converter 
 		 * but also in {@link VersionInterval#VersionInterval(Converter, String)} 
 		 * to get the minimum/maximum expected version of a converter. 
@@ -758,7 +761,7 @@ public class MetaInfo {
 	private final static String VERSION_PROPS_FILE = "version.properties";
 
 	/**
-	 * Format string used in {@link #printMetaInfo(boolean, SortedSet<Converter>)} 
+	 * Format string used in {@link #printMetaInfo(boolean, SortedSet<Converter>, File, File)} 
 	 * to define a table of converters and their versions
 	 * with rows (warning), converter, version quote, 
 	 * actual version and allowed version interval.  
@@ -767,11 +770,6 @@ public class MetaInfo {
 
 
 
-	/**
-	 * The command <code>which</code> as a string. 
-	 */
-	private static final String CMD_WHICH = "which";
-
   private static final String COORDINATE_PROPERTY_FILE_NAME = 
   META_FOLDER + "maven/" + "eu.simuline.m2latex/"
 					+ "latex-maven-plugin/" + "pom.properties";
@@ -829,14 +827,26 @@ public class MetaInfo {
 	/**
 	 * Prints meta information, mainly version information 
 	 * on this software and on the converters and checker tools used. 
+	 * The versions of the converters are determined concurrently 
+	 * by {@link #probeVersion(Converter, File, VersionCache, CommandExecutor)} 
+	 * but are logged in the order of the converters. 
 	 * <p>
 	 * WMI01: If the version string of a converter cannot be read. 
 	 * WMI02: If the version of a converter is not as expected. 
+	 * WMI03, WMI04: If the version cache cannot be read or written. 
 	 *
 	 * @param includeVersionInfo
 	 *    whether to include plain version info; else warnings only.
    * @param convertersExcluded
    *    set of excluded converters. 
+   * @param texPath
+   *    the tex path as given by {@link Settings#getTexPath()}. 
+   *    The converters are searched there before on the system path. 
+   *    If this changed, the version cache is discarded. 
+   * @param versionCacheFile
+   *    the file of the version cache 
+   *    as given by {@link Settings#getVersionCacheFile()} 
+   *    or <code>null</code> if versions are not cached across builds. 
 	 * @return
 	 *    whether a warning has been issued. 
 	 * @throws BuildFailureException
@@ -852,7 +862,9 @@ public class MetaInfo {
 	 *    </ul>
 	 */
 	public boolean printMetaInfo(final boolean includeVersionInfo,
-                              SortedSet<Converter> convertersExcluded)
+                              SortedSet<Converter> convertersExcluded,
+                              File texPath,
+                              File versionCacheFile)
 			throws BuildFailureException {
 
 		String versionQuote = "";
@@ -942,6 +954,33 @@ public class MetaInfo {
 		// 		this.settings.getConvertersExcluded();
 		// collects converters not found but also not excluded. 
 		SortedSet<Converter> convertersNotFound = new TreeSet<Converter>();
+
+		// determine the versions concurrently, 
+		// because each requires launching up to two processes 
+		// may log WMI03
+		final VersionCache cache =
+				VersionCache.read(versionCacheFile, texPath, this.log);
+		final Map<Converter, Version> conv2version =
+				new ConcurrentHashMap<Converter, Version>();
+		List<TaskPool.Task> tasks = new ArrayList<TaskPool.Task>();
+		for (Converter conv : Converter.values()) {
+			if (convertersExcluded.contains(conv)) {
+				continue;
+			}
+			tasks.add((LogWrapper taskLog) -> {
+				// may throw BuildFailureException TEX01
+				Version version = probeVersion(conv, texPath, cache,
+						this.executor.withLog(taskLog));
+				if (version != null) {
+					conv2version.put(conv, version);
+				}
+			});
+		}
+		// may throw BuildFailureException TEX01
+		new TaskPool(0, "versions").runAll(tasks, this.log);
+		// may log WMI04
+		cache.write(this.log);
+
 		// TBD: try to deal with makeindex using stdin instead of dummy file: 
 		// InputStream sysInBackup = System.in;
 		for (Converter conv : Converter.values()) {
@@ -953,24 +992,18 @@ public class MetaInfo {
 			//System.setIn(new ByteArrayInputStream("\u0004\n".getBytes()));
 			cmd = conv.getCommand();
 
-      CmdResult resultWhich = this.executor.executeEmptyEnv(TexFileUtils.getEmptyIdx().getParentFile(),
-                    null,
-                    CMD_WHICH,
-                    CommandExecutor.ReturnCodeChecker.Never,
-                    new String[] {cmd});
-      if (resultWhich.returnCode == 1) {
-        // skip if command cmd is unknown to command which. 
+			// get actual version of the converter and expected version interval 
+			actVersionObj = conv2version.get(conv);
+			if (actVersionObj == null) {
+				// skip if command cmd cannot be resolved to an executable. 
 				// Note that converters which are not accessible (typically not installed) 
 				// do not cause warnings here, because when using them, the situation is pretty clear. 
 				// This is different for unexpected behavior caused by version not taken into account. 
 				// Nevertheless, the converters not found are listed as an information, 
 				// as the excluded are. 
-        convertersNotFound.add(conv);
-        continue;
-      }
-
-			// get actual version of the converter and expected version interval 
-			actVersionObj = new Version(conv, this.executor);
+				convertersNotFound.add(conv);
+				continue;
+			}
 			expVersion = versionProperties.getProperty(cmd);
 			expVersionItv = new VersionInterval(conv, expVersion);
 
@@ -1022,4 +1055,43 @@ public class MetaInfo {
 		}
 		return doWarnAny;
 	}
+
+	/**
+	 * Returns the version of converter <code>conv</code> 
+	 * or <code>null</code> if its command cannot be resolved to an executable 
+	 * by {@link ExecutableResolver}, 
+	 * i.e. if the converter is typically not installed. 
+	 * The version text is taken from <code>cache</code> 
+	 * if the executable the command is resolved to did not change. 
+	 * Else the converter is invoked to determine its version 
+	 * which is then recorded in <code>cache</code>. 
+	 *
+	 * @param conv
+	 *    a converter. 
+	 * @param texPath
+	 *    the tex path as given by {@link Settings#getTexPath()}. 
+	 * @param cache
+	 *    the cache of version texts. 
+	 * @param executor
+	 *    the executor to execute the converter. 
+	 * @throws BuildFailureException
+	 *    TEX01 if invocation of the converter fails very basically. 
+	 */
+	private static Version probeVersion(Converter conv, File texPath,
+			VersionCache cache, CommandExecutor executor)
+			throws BuildFailureException {
+		String cmd = conv.getCommand();
+		File exe = ExecutableResolver.resolve(texPath, cmd);
+		if (exe == null) {
+			return null;
+		}
+		String text = cache.get(cmd, exe);
+		if (text == null) {
+			// may throw BuildFailureException TEX01
+			text = conv.getVersionInfo(executor, texPath);
+			cache.put(cmd, exe, text);
+		}
+		return new Version(conv.getVersionEnvironment(), conv.getVersionPattern(),
+				text);
+	}
 }
@@ -0,0 +1,159 @@
+package eu.simuline.m2latex.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.florianingerl.util.regex.Pattern;
+
+/**
+ * A process-wide bounded cache of compiled {@link Pattern}s 
+ * keyed by the regular expression and the flags it is compiled with. 
+ * <p>
+ * The patterns given by {@link Settings} 
+ * are applied to each log file, to each aux file and to each tex file 
+ * and in reactor builds for each module again. 
+ * Since compilation is costly in particular for recursive patterns 
+ * like {@link Settings#getPatternLatexMainFile()}, 
+ * patterns are compiled only once and then taken from this cache. 
+ * If the cache exceeds {@link #MAX_NUM_PATTERNS}, 
+ * the least recently used pattern is evicted. 
+ * <p>
+ * For diagnostics, the number of hits and of misses are counted. 
+ * Note that this class is thread safe. 
+ */
+final class PatternCache {
+
+  /**
+   * The maximal number of patterns kept in {@link #CACHE}. 
+   */
+  private final static int MAX_NUM_PATTERNS = 256;
+
+  /**
+   * The key of {@link #CACHE} consisting of a regular expression 
+   * and the flags it is compiled with. 
+   */
+  private static final class Key {
+    private final String regex;
+    private final int flags;
+
+    Key(String regex, int flags) {
+      this.regex = regex;
+      this.flags = flags;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return this.flags == other.flags && this.regex.equals(other.regex);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.regex, this.flags);
+    }
+  } // class Key
+
+  /**
+   * Maps regular expressions and flags to compiled patterns. 
+   * This is in access order and thus 
+   * the eldest entry is the least recently used one 
+   * which is removed if the size exceeds {@link #MAX_NUM_PATTERNS}. 
+   * All accesses are synchronized on this map. 
+   */
+  private final static Map<Key, Pattern> CACHE =
+      new LinkedHashMap<Key, Pattern>(MAX_NUM_PATTERNS, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+          return size() > MAX_NUM_PATTERNS;
+        }
+      };
+
+  /**
+   * The number of invocations of {@link #compile(String, int)} 
+   * which found the pattern in {@link #CACHE}. 
+   */
+  private static long numHits = 0;
+
+  /**
+   * The number of invocations of {@link #compile(String, int)} 
+   * which had to compile the pattern. 
+   */
+  private static long numMisses = 0;
+
+  private PatternCache() {
+    // no instances
+  }
+
+  /**
+   * Returns the pattern compiled from <code>regex</code> 
+   * without flags. 
+   * This is a shortcut for {@link #compile(String, int)}. 
+   */
+  static Pattern compile(String regex) {
+    return compile(regex, 0);
+  }
+
+  /**
+   * Returns the pattern compiled from <code>regex</code> 
+   * with flags <code>flags</code>, 
+   * compiling it only if it is not yet in the cache. 
+   *
+   * @param regex
+   *    a regular expression. 
+   * @param flags
+   *    the flags as for {@link Pattern#compile(String, int)}. 
+   * @return
+   *    the pattern compiled from <code>regex</code> and <code>flags</code>. 
+   */
+  static Pattern compile(String regex, int flags) {
+    Key key = new Key(regex, flags);
+    synchronized (CACHE) {
+      Pattern pattern = CACHE.get(key);
+      if (pattern != null) {
+        numHits++;
+        return pattern;
+      }
+      numMisses++;
+      // compile outside would allow concurrent compilation,
+      // but patterns are few and compilation is rare.
+      pattern = Pattern.compile(regex, flags);
+      CACHE.put(key, pattern);
+      return pattern;
+    }
+  }
+
+  /**
+   * Returns the number of hits so far. 
+   */
+  static long getNumHits() {
+    synchronized (CACHE) {
+      return numHits;
+    }
+  }
+
+  /**
+   * Returns the number of misses so far, 
+   * i.e. the number of compilations. 
+   */
+  static long getNumMisses() {
+    synchronized (CACHE) {
+      return numMisses;
+    }
+  }
+
+  /**
+   * Returns a string with the number of hits and misses for diagnostics. 
+   */
+  static String statistics() {
+    synchronized (CACHE) {
+      return "pattern cache: " + numHits + " hits, " + numMisses + " misses, "
+          + CACHE.size() + " patterns. ";
+    }
+  }
+}
@@ -0,0 +1,306 @@
+package eu.simuline.m2latex.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.florianingerl.util.regex.Pattern;
+
+/**
+ * Describes the format file into which the preamble of a latex main file 
+ * is dumped, so that LaTeX runs need not parse the preamble again 
+ * but load the format instead. 
+ * This is used if {@link Settings#getPreambleFormatDirectory()} is set. 
+ * <p>
+ * The preamble is dumped by package <code>mylatexformat</code> 
+ * running the LaTeX command in ini mode 
+ * with arguments given by {@link #getDumpArgs(String, String)}. 
+ * The format file is in the format directory 
+ * and has a name given by a hash of the directory of the latex main file, 
+ * the text of the preamble, the LaTeX command, its version 
+ * and the output format, 
+ * so that a new format is created if one of these changes. 
+ * Since the preamble may read further files, 
+ * e.g. packages or files in the directory of the latex main file, 
+ * the files read while dumping are recorded in a {@link DocManifest} 
+ * and the format is dumped again if one of them changes. 
+ * These files are also recorded in the manifest of a document 
+ * loading the format as given by {@link #getRecordedInputs(File, LogWrapper)}, 
+ * because the recorder file of the document lists the format file only. 
+ * <p>
+ * Since latex main files are processed concurrently 
+ * and may share the same format, 
+ * dumping must be synchronized on {@link #getLock()}. 
+ */
+final class PreambleFormat {
+
+  /**
+   * The suffix of format files. 
+   */
+  static final String SUFFIX_FMT = ".fmt";
+
+  /**
+   * The file given to LaTeX in ini mode 
+   * to dump the preamble of a latex main file. 
+   * This is part of package <code>mylatexformat</code>. 
+   */
+  private static final String DUMPER = "mylatexformat.ltx";
+
+  private static final String ALGORITHM = "SHA-256";
+
+  /**
+   * The pattern of the line starting the document, 
+   * i.e. the first line after the preamble. 
+   */
+  private static final Pattern PATTERN_BEGIN_DOC =
+      PatternCache.compile("^[^%]*\\\\begin\\{document\\}");
+
+  /**
+   * Maps the names of the format files to the locks 
+   * to synchronize creating the format files. 
+   */
+  private static final Map<String, Object> NAME2LOCK =
+      new ConcurrentHashMap<String, Object>();
+
+  /**
+   * The names of the format files which could not be created. 
+   * These are not tried to be created again. 
+   */
+  private static final Set<String> NAMES_FAILED =
+      ConcurrentHashMap.newKeySet();
+
+  /**
+   * The directory containing the format file. 
+   */
+  private final File fmtDir;
+
+  /**
+   * The name of the format file without suffix. 
+   * This is also the job name of the LaTeX run dumping the format. 
+   */
+  private final String name;
+
+  /**
+   * The directory of the latex main file. 
+   * The contents of files read while dumping the format 
+   * are recorded only if in this directory. 
+   */
+  private final File parentDir;
+
+  private PreambleFormat(File fmtDir, String name, File parentDir) {
+    this.fmtDir = fmtDir;
+    this.name = name;
+    this.parentDir = parentDir;
+  }
+
+  /**
+   * Returns the format for the preamble of the latex main file 
+   * described by <code>desc</code> 
+   * or <code>null</code> if the latex main file has no preamble, 
+   * i.e. no line with <code>\begin{document}</code>. 
+   *
+   * @param fmtDir
+   *    the directory of the format files. 
+   * @param desc
+   *    the description of the latex main file. 
+   * @param command
+   *    the LaTeX command. 
+   * @param version
+   *    the version of <code>command</code> or <code>null</code>. 
+   * @param outputFormat
+   *    the argument of <code>command</code> determining the output format 
+   *    or the empty string for the default output format, i.e. pdf. 
+   * @throws IOException
+   *    if the latex main file cannot be read. 
+   */
+  static PreambleFormat create(File fmtDir, LatexMainDesc desc,
+      String command, String version, String outputFormat)
+      throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalStateException(
+          "Message digest " + ALGORITHM + " not available. ", nsae);
+    }
+    update(digest, desc.parentDir.getAbsolutePath());
+    update(digest, command);
+    update(digest, String.valueOf(version));
+    update(digest, outputFormat);
+    boolean hasPreamble = false;
+    // may throw IOException
+    try (BufferedReader reader =
+        new BufferedReader(new FileReader(desc.texFile))) {
+      // may throw IOException
+      for (String line = reader.readLine(); line != null;
+          line = reader.readLine()) {
+        if (PATTERN_BEGIN_DOC.matcher(line).find()) {
+          hasPreamble = true;
+          break;
+        }
+        update(digest, line);
+      }
+    }
+    if (!hasPreamble) {
+      return null;
+    }
+
+    StringBuilder name = new StringBuilder("preamble-");
+    for (byte b : digest.digest()) {
+      name.append(String.format("%02x", b));
+    }
+    return new PreambleFormat(fmtDir, name.toString(), desc.parentDir);
+  }
+
+  private static void update(MessageDigest digest, String str) {
+    digest.update(str.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Returns the format file. 
+   */
+  File getFmtFile() {
+    return new File(this.fmtDir, this.name + SUFFIX_FMT);
+  }
+
+  /**
+   * Returns the recorder file written while dumping the format. 
+   */
+  File getFlsFile() {
+    return new File(this.fmtDir, this.name + AbstractLatexProcessor.SUFFIX_FLS);
+  }
+
+  private File getManifestFile() {
+    return new File(this.fmtDir, this.name + DocManifest.SUFFIX_MANIFEST);
+  }
+
+  /**
+   * Returns the lock to synchronize on 
+   * while checking and creating the format file. 
+   */
+  Object getLock() {
+    return NAME2LOCK.computeIfAbsent(this.name, (String key) -> new Object());
+  }
+
+  /**
+   * Returns the option of the LaTeX command to load this format. 
+   */
+  String getFmtOption() {
+    return "-fmt=" + new File(this.fmtDir, this.name).getAbsolutePath();
+  }
+
+  /**
+   * Returns the arguments of the LaTeX command <code>command</code> 
+   * in ini mode to dump the preamble of the latex main file 
+   * <code>texFile</code> into the format file, 
+   * excluding the options and the latex main file itself. 
+   *
+   * @param command
+   *    the LaTeX command. 
+   * @param outputFormat
+   *    the argument of <code>command</code> determining the output format 
+   *    or the empty string for the default output format, i.e. pdf. 
+   */
+  String[] getDumpArgs(String command, String outputFormat) {
+    List<String> args = new ArrayList<String>();
+    args.add("-ini");
+    args.add("-recorder");
+    args.add("-jobname=" + this.name);
+    args.add("-output-directory=" + this.fmtDir.getAbsolutePath());
+    if (!outputFormat.isEmpty()) {
+      args.add(outputFormat);
+    }
+    // the format to start with is the one of the command itself 
+    args.add("&" + command);
+    args.add(DUMPER);
+    return args.toArray(new String[args.size()]);
+  }
+
+  /**
+   * Returns whether the format file exists 
+   * and all files read while dumping it are unchanged 
+   * as recorded by {@link #recordInputs(Collection, LogWrapper)}. 
+   * <p>
+   * Logging: 
+   * WDM01: if the manifest of the format cannot be read. 
+   */
+  boolean isUpToDate(LogWrapper log) {
+    // may log WDM01
+    return DocManifest.read(getManifestFile(), log).isUpToDate(this.name);
+  }
+
+  /**
+   * Returns the files read while dumping the format file <code>fmtFile</code> 
+   * as recorded by {@link #recordInputs(Collection, LogWrapper)} 
+   * or <code>null</code> if no files are recorded, 
+   * e.g. because the manifest of the format does not exist. 
+   * A document loading the format depends on these files 
+   * although its recorder file lists the format file only. 
+   * <p>
+   * Logging: 
+   * WDM01: if the manifest of the format cannot be read. 
+   *
+   * @param fmtFile
+   *    a format file with suffix {@link #SUFFIX_FMT}. 
+   * @param log
+   *    the log to write warnings on. 
+   */
+  static Collection<File> getRecordedInputs(File fmtFile, LogWrapper log) {
+    String name = TexFileUtils.getFileNameWithoutSuffix(fmtFile);
+    File manifestFile = new File(fmtFile.getParentFile(),
+        name + DocManifest.SUFFIX_MANIFEST);
+    // may log WDM01
+    Collection<File> res = DocManifest.read(manifestFile, log).getInputs();
+    return res.isEmpty() ? null : res;
+  }
+
+  /**
+   * Records the files <code>inputs</code> read while dumping the format 
+   * after dumping succeeded. 
+   * <p>
+   * Logging: 
+   * WDM02: if the manifest of the format cannot be written. 
+   *
+   * @param inputs
+   *    the files read while dumping the format 
+   *    except the latex main file itself. 
+   * @param log
+   *    the log to write warnings on. 
+   * @throws IOException
+   *    if one of the files cannot be read. 
+   */
+  void recordInputs(Collection<File> inputs, LogWrapper log)
+      throws IOException {
+    // may throw IOException
+    DocManifest.create(getManifestFile(), this.name, inputs,
+        Collections.singletonList(getFmtFile()), this.parentDir)
+        // may log WDM02
+        .write(log);
+  }
+
+  /**
+   * Marks this format as failed, so that it is not dumped again. 
+   */
+  void markFailed() {
+    NAMES_FAILED.add(this.name);
+  }
+
+  /**
+   * Returns whether dumping this format failed before. 
+   */
+  boolean hasFailed() {
+    return NAMES_FAILED.contains(this.name);
+  }
+}
@@ -299,6 +299,44 @@ public class Settings {
   @Parameter(name = "convertersExcluded", defaultValue = "")
   private String convertersExcluded = "";
 
+  /**
+   * The file caching the versions of the converters or <code>null</code>. 
+   * In the latter case, the versions are determined in each build 
+   * by invoking each converter not excluded by {@link #convertersExcluded}. 
+   * Else, the version of each converter is recorded in this file 
+   * together with the path, the size and the modification time 
+   * of its executable, 
+   * and a converter is invoked again only if its executable changed. 
+   * If {@link #texPath} changes, all versions are determined again. 
+   * This speeds up the version check of target 'vrs'. 
+   * Note that in the pom, <code>&lt;versionCacheFile/&gt;</code> 
+   * represents the <code>null</code>-File. 
+   * The default value is <code>null</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "versionCacheFile", defaultValue = "null")
+  private File versionCacheFile = null;
+
+  /**
+   * The timeouts of the converters of the various categories 
+   * as a whitespace separated list of entries 
+   * <code>category:seconds</code> 
+   * returned as a map by {@link #getTimeouts()}. 
+   * Here, <code>category</code> is the name of a {@link ConverterCategory} 
+   * as given by {@link ConverterCategory#getExtName()}, 
+   * e.g. <code>latex2pdf</code>, <code>svg2dev</code> or <code>gnuplot</code>, 
+   * and <code>seconds</code> is a positive number of seconds. 
+   * A converter of a category running longer than its timeout 
+   * is killed together with the processes it started 
+   * and the build fails. 
+   * Converters of categories not in the list are not subject to a timeout. 
+   * This prevents a hanging converter from blocking the build forever. 
+   * By default, this list is empty. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "timeouts", defaultValue = "")
+  private String timeouts = "";
+
   /**
    * The pattern to be applied to the beginning of the contents of TEX-files 
    * which identifies a latex main file and which extracts the document class 
@@ -454,6 +492,8 @@ public class Settings {
   /**
    * Path to the TeX scripts or <code>null</code>. 
    * In the latter case, the scripts must be on the system path. 
+   * Else, the commands of all converters are searched first in this directory 
+   * and then on the system path. 
    * Note that in the pom, <code>&lt;texPath/&gt;</code> 
    * and even <code>&lt;texPath&gt;    &lt;/texPath&gt;</code> 
    * represent the <code>null</code>-File. 
@@ -485,6 +525,12 @@ public class Settings {
   /**
    * Clean up the working directory in the end? 
    * May be used for debugging when setting to <code>false</code>. 
+   * Note that cleaning up keeps the state file <code>xxx.auxstate</code> 
+   * recording the input and the output of the auxiliary programs 
+   * BibTeX, MakeIndex and MakeGlossaries of a latex main file <code>xxx.tex</code>. 
+   * The output of these programs deleted by cleaning up 
+   * is restored from that file in the next build, 
+   * so that these programs are skipped if their input is unchanged. 
    * The default value is <code>true</code>. 
    */
   @RuntimeParameter
@@ -914,6 +960,14 @@ public class Settings {
    * to create <code>.bb</code>-files for driver <code>dvipdfm</code> and 
    * once with parameter <code>-x</code> 
    * to create <code>.xbb</code>-files for driver <code>dvipdfmx</code>. 
+   * For most jpg-files and png-files, the bounding box files 
+   * are written without running this command. 
+   * It is run only once for each kind of file 
+   * to make sure that the files written coincide with its output 
+   * and for files not supported, 
+   * e.g. with resolutions in the header which are inconsistent. 
+   * This does not apply if {@link #ebbOptions} 
+   * contains options other than <code>-v</code> and <code>-q</code>. 
    * The default value is <code>ebb</code>. 
    */
   @RuntimeParameter
@@ -931,6 +985,152 @@ public class Settings {
   @Parameter(name = "ebbOptions", defaultValue = "-v")
   private String ebbOptions = "-v";
 
+  /**
+   * The maximal number of graphic files in a directory 
+   * converted concurrently, 
+   * i.e. the number of converters like {@link #fig2devCommand}, 
+   * {@link #gnuplotCommand}, {@link #metapostCommand}, 
+   * {@link #svg2devCommand} and {@link #ebbCommand} 
+   * running at the same time. 
+   * Logging is nevertheless in the order of the graphic files. 
+   * The value <code>1</code> means sequential conversion. 
+   * A value which is not positive means the number of available processors. 
+   * The default value is <code>0</code>, 
+   * i.e. the number of available processors. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "numThreadsGraphics", defaultValue = "0")
+  private int numThreadsGraphics = 0;
+
+  /**
+   * Whether graphic files are converted incrementally. 
+   * If so, a graphic file is converted only 
+   * if some of its target files is missing or older than the graphic file 
+   * or if the converter or its options changed since the last conversion. 
+   * The latter are recorded in a manifest file 
+   * in each directory containing converted graphic files. 
+   * Gnuplot and metapost files are converted in any case, 
+   * because the files they read, e.g. data files, are not known. 
+   * Else all graphic files are converted in each build. 
+   * The default value is <code>false</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "incrementalGraphics", defaultValue = "false")
+  private boolean incrementalGraphics = false;
+
+  /**
+   * The directory of the build cache or <code>null</code>. 
+   * In the latter case, there is no build cache. 
+   * The build cache stores the results 
+   * of the converters for graphic files 
+   * except for {@link #gnuplotCommand} and {@link #metapostCommand} 
+   * and of {@link #dvi2pdfCommand}, {@link #pdf2txtCommand} 
+   * and {@link #odt2docCommand} 
+   * keyed by the contents of their input files, 
+   * the command, its version and its arguments. 
+   * If a result is found in the cache, it is copied 
+   * instead of running the converter. 
+   * Since the keys do not depend on the location of the input files, 
+   * the cache may be shared by builds in different workspaces, 
+   * e.g. with value <code>${user.home}/.m2/latex-cache</code>. 
+   * The size of the cache is limited by {@link #buildCacheMaxSize}. 
+   * Note that in the pom, <code>&lt;buildCacheDirectory/&gt;</code> 
+   * represents the <code>null</code>-File. 
+   * The default value is <code>null</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "buildCacheDirectory", defaultValue = "null")
+  private File buildCacheDirectory = null;
+
+  /**
+   * The maximal size of the build cache in megabytes. 
+   * If the build cache given by {@link #buildCacheDirectory} 
+   * exceeds this size at the end of a build, 
+   * the least recently used results are evicted. 
+   * The default value is <code>1024</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "buildCacheMaxSize", defaultValue = "1024")
+  private int buildCacheMaxSize = 1024;
+
+  /**
+   * The maximal number of latex main files processed concurrently. 
+   * Each latex main file is processed for all its targets 
+   * including copying the artifacts to the output directory 
+   * and checking them against the artifacts in the diff directory. 
+   * Logging is nevertheless in the order of the latex main files. 
+   * Note that latex main files in the same directory 
+   * must not create files with the same names 
+   * if processed concurrently. 
+   * The value <code>1</code> means sequential processing. 
+   * A value which is not positive means the number of available processors. 
+   * The default value is <code>1</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "numThreadsDocuments", defaultValue = "1")
+  private int numThreadsDocuments = 1;
+
+  /**
+   * The maximal number of targets of a latex main file created concurrently. 
+   * If this is not <code>1</code>, the targets 
+   * <code>html</code>, <code>odt</code>, <code>docx</code> and <code>rtf</code> 
+   * are created after all other targets, 
+   * concurrently, each in a temporary copy of the directory 
+   * of the latex main file. 
+   * Bibliography, index, glossary and that like 
+   * are created once before and shared by these copies. 
+   * Thus files outside the directory of the latex main file 
+   * must be referred to by absolute paths. 
+   * Logging is nevertheless in the order of the targets. 
+   * The value <code>1</code> means sequential processing in place. 
+   * A value which is not positive means the number of available processors. 
+   * The default value is <code>1</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "numThreadsTargets", defaultValue = "1")
+  private int numThreadsTargets = 1;
+
+  /**
+   * The maximal number of auxiliary programs of a latex main file 
+   * run concurrently between two LaTeX runs, 
+   * i.e. the number of programs like {@link #bibtexCommand}, 
+   * {@link #makeIndexCommand}, {@link #makeGlossariesCommand} 
+   * and {@link #pythontexCommand} running at the same time. 
+   * Logging is nevertheless in the order of the auxiliary programs. 
+   * The value <code>1</code> means sequential processing. 
+   * A value which is not positive means the number of available processors. 
+   * The default value is <code>0</code>, 
+   * i.e. the number of available processors. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "numThreadsAuxiliaries", defaultValue = "0")
+  private int numThreadsAuxiliaries = 0;
+
+  /**
+   * The directory of the manifests of the targets or <code>null</code>. 
+   * In the latter case, there is no up-to-date check for targets. 
+   * Else, after creating a target of a latex main file, 
+   * the files read as recorded by the LaTeX run 
+   * (option <code>-recorder</code> in {@link #latex2pdfOptions}), 
+   * the sources of the graphic files, the bibliography databases, 
+   * the artifacts copied to the output directory 
+   * and the settings are stored in a manifest in this directory. 
+   * In a later build, the target is not created again 
+   * if none of these changed, 
+   * skipping all LaTeX runs and auxiliary programs. 
+   * Source files are compared by content, 
+   * all other files by size and modification time. 
+   * This applies neither to targets checked against the diff directory 
+   * nor to targets created in isolation 
+   * as described for {@link #numThreadsTargets}. 
+   * Note that in the pom, <code>&lt;docManifestDirectory/&gt;</code> 
+   * represents the <code>null</code>-File. 
+   * The default value is <code>null</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "docManifestDirectory", defaultValue = "null")
+  private File docManifestDirectory = null;
+
   // parameters for latex2pdf-conversion 
 
   /**
@@ -1285,6 +1485,78 @@ public class Settings {
   @Parameter(name = "maxNumReRunsLatex", defaultValue = "5")
   private int maxNumReRunsLatex = 5;
 
+  /**
+   * Whether runs of {@link #latex2pdfCommand} 
+   * which are followed by another run 
+   * are performed in draft mode, i.e. without writing a pdf file. 
+   * This applies only if a pdf file is to be created 
+   * and if {@link #latex2pdfCommand} is <code>pdflatex</code> 
+   * or <code>lualatex</code> which are given option <code>-draftmode</code>, 
+   * or <code>xelatex</code> which is given option <code>-no-pdf</code>. 
+   * A run is performed in draft mode 
+   * if another run is expected to follow, 
+   * e.g. because the aux file or the table of contents is created newly 
+   * or because BibTeX wrote a new bbl file. 
+   * If nevertheless no further run is required, 
+   * a final run creates the pdf file. 
+   * The LaTeX run creating bibliography, index and that like 
+   * for odt and docx is in draft mode unless {@link #pdfViaDvi} is set, 
+   * whereas the one for html is not, because it creates dvi. 
+   * The default value is <code>true</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "draftIntermediateRuns", defaultValue = "true")
+  private boolean draftIntermediateRuns = true;
+
+  /**
+   * Whether runs of {@link #latex2pdfCommand} are aborted at the first error. 
+   * If set, the output of {@link #latex2pdfCommand} is monitored 
+   * while it is written 
+   * and as soon as a line matches {@link #patternErrLatex}, 
+   * or, with option <code>-file-line-error</code>, 
+   * a line of the form <code>file:line: message</code>, 
+   * the run is killed and the build fails 
+   * reporting the file and the line of the error. 
+   * So in nonstop mode, LaTeX does not run through subsequent errors 
+   * and no further runs are performed. 
+   * This requires that errors are written to standard output, 
+   * which is not the case in batch mode. 
+   * If not set, errors are detected in the log file 
+   * after the run finished and are logged without failing the build. 
+   * The default value is <code>false</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "failFastLatex", defaultValue = "false")
+  private boolean failFastLatex = false;
+
+  /**
+   * The directory of the formats the preambles of the latex main files 
+   * are dumped into or <code>null</code>. 
+   * In the latter case, the preamble is read in each run 
+   * of {@link #latex2pdfCommand}. 
+   * Else, the preamble of a latex main file, 
+   * i.e. the part before <code>\begin{document}</code>, 
+   * is dumped into a format in this directory 
+   * using package <code>mylatexformat</code> 
+   * and all runs of {@link #latex2pdfCommand} load this format 
+   * instead of reading the preamble again. 
+   * The format is dumped again 
+   * if the preamble, {@link #latex2pdfCommand}, its version 
+   * or one of the files read while dumping changes. 
+   * If {@link #docManifestDirectory} is set, 
+   * these files are recorded also in the manifests of the documents 
+   * loading the format, so that a document is created again 
+   * if one of them changes. 
+   * If dumping fails, e.g. because a package does not allow dumping, 
+   * the runs are without format. 
+   * Note that in the pom, <code>&lt;preambleFormatDirectory/&gt;</code> 
+   * represents the <code>null</code>-File. 
+   * The default value is <code>null</code>. 
+   */
+  @RuntimeParameter
+  @Parameter(name = "preambleFormatDirectory", defaultValue = "null")
+  private File preambleFormatDirectory = null;
+
   // parameters for bibliography 
 
   /**
@@ -2380,6 +2652,60 @@ public class Settings {
     return convSet;
   }
 
+  @RuntimeParameter
+  public File getVersionCacheFile() {
+    return this.versionCacheFile;
+  }
+
+  /**
+   * Returns the timeouts of the converters in seconds 
+   * for the categories given by {@link #timeouts}. 
+   *
+   * @return
+   *    the map from the categories to their timeouts in seconds. 
+   * @throws BuildFailureException
+   *    TSS14 if an entry is not of the form <code>category:seconds</code> 
+   *    with a known category and a positive number of seconds 
+   *    or if a category occurs more than once. 
+   */
+  public Map<ConverterCategory, Integer> getTimeouts()
+      throws BuildFailureException {
+    Map<ConverterCategory, Integer> result =
+        new TreeMap<ConverterCategory, Integer>();
+    if (this.timeouts.isEmpty()) {
+      return result;
+    }
+    Map<String, ConverterCategory> extName2cat =
+        new TreeMap<String, ConverterCategory>();
+    for (ConverterCategory cat : ConverterCategory.values()) {
+      try {
+        // may throw UnsupportedOperationException 
+        extName2cat.put(cat.getExtName(), cat);
+      } catch (UnsupportedOperationException uoe) {
+        // no command configured for this category 
+      }
+    }
+    for (String chunk : this.timeouts.split("\\s+")) {
+      int idxCol = chunk.indexOf(':');
+      ConverterCategory cat = idxCol == -1 ? null
+          : extName2cat.get(chunk.substring(0, idxCol));
+      int seconds;
+      try {
+        // may throw NumberFormatException 
+        seconds = idxCol == -1 ? 0
+            : Integer.parseInt(chunk.substring(idxCol + 1));
+      } catch (NumberFormatException nfe) {
+        seconds = 0;
+      }
+      if (cat == null || seconds <= 0 || result.put(cat, seconds) != null) {
+        throw new BuildFailureException("TSS14: Invalid timeout '" + chunk
+            + "'; expected unique 'category:seconds' with category in "
+            + extName2cat.keySet() + ". ");
+      }
+    }
+    return result;
+  }
+
   /**
    * Returns the converter name which is typically <code>convStr</code> 
    * and throws an exception if the converter given is invalid. 
@@ -2622,6 +2948,39 @@ public class Settings {
     return this.ebbOptions;
   }
 
+  public int getNumThreadsGraphics() {
+    return this.numThreadsGraphics;
+  }
+
+  public boolean getIncrementalGraphics() {
+    return this.incrementalGraphics;
+  }
+
+  public File getBuildCacheDirectory() {
+    return this.buildCacheDirectory;
+  }
+
+  public int getBuildCacheMaxSize() {
+    return this.buildCacheMaxSize;
+  }
+
+  public int getNumThreadsDocuments() {
+    return this.numThreadsDocuments;
+  }
+
+  public int getNumThreadsTargets() {
+    return this.numThreadsTargets;
+  }
+
+  public int getNumThreadsAuxiliaries() {
+    return this.numThreadsAuxiliaries;
+  }
+
+  @RuntimeParameter
+  public File getDocManifestDirectory() {
+    return this.docManifestDirectory;
+  }
+
   @RuntimeParameter
   public String getLatex2pdfCommand() throws BuildFailureException {
     return getCommand(ConverterCategory.LaTeX);
@@ -2670,6 +3029,40 @@ public class Settings {
     return this.maxNumReRunsLatex;
   }
 
+  public boolean isDraftIntermediateRuns() {
+    return this.draftIntermediateRuns;
+  }
+
+  public boolean isFailFastLatex() {
+    return this.failFastLatex;
+  }
+
+  @RuntimeParameter
+  public File getPreambleFormatDirectory() {
+    return this.preambleFormatDirectory;
+  }
+
+  /**
+   * Compiles all patterns applied to log files, aux files and tex files 
+   * via {@link PatternCache} with the flags used for matching, 
+   * so that they are compiled once after parameter injection 
+   * and not on each application. 
+   */
+  void compilePatterns() {
+    String[] multiline = new String[] {
+      this.patternLatexMainFile,
+      this.patternErrMPost, this.patternWarnMPost,
+      this.patternErrLatex, this.patternWarnLatex, this.patternReRunLatex,
+      this.patternErrBibtex, this.patternWarnBibtex,
+      this.patternErrMakeIndex, this.patternWarnMakeIndex,
+      this.patternErrMakeGlossaries, this.patternWarnXindy,
+      this.patternErrPyTex, this.patternWarnPyTex
+    };
+    for (String regex : multiline) {
+      PatternCache.compile(regex, Pattern.MULTILINE);
+    }
+  }
+
   // TBD: check category 
 
   // TBD: refer to annotation, not to field name. 
@@ -2969,6 +3362,14 @@ public class Settings {
     this.convertersExcluded = convertersExcluded.trim();
   }
 
+  public void setVersionCacheFile(File versionCacheFile) {
+    this.versionCacheFile = versionCacheFile;
+  }
+
+  public void setTimeouts(String timeouts) {
+    this.timeouts = timeouts.trim();
+  }
+
   // setter method for patternLatexMainFile in maven 
   // trims parameter before setting 
   public void setPatternLatexMainFile(String patternLatexMainFile) {
@@ -3147,6 +3548,38 @@ public class Settings {
     this.ebbOptions = beautifyOptions(ebbOptions);
   }
 
+  public void setNumThreadsGraphics(int numThreadsGraphics) {
+    this.numThreadsGraphics = numThreadsGraphics;
+  }
+
+  public void setIncrementalGraphics(boolean incrementalGraphics) {
+    this.incrementalGraphics = incrementalGraphics;
+  }
+
+  public void setBuildCacheDirectory(File buildCacheDirectory) {
+    this.buildCacheDirectory = buildCacheDirectory;
+  }
+
+  public void setBuildCacheMaxSize(int buildCacheMaxSize) {
+    this.buildCacheMaxSize = buildCacheMaxSize;
+  }
+
+  public void setNumThreadsDocuments(int numThreadsDocuments) {
+    this.numThreadsDocuments = numThreadsDocuments;
+  }
+
+  public void setNumThreadsTargets(int numThreadsTargets) {
+    this.numThreadsTargets = numThreadsTargets;
+  }
+
+  public void setNumThreadsAuxiliaries(int numThreadsAuxiliaries) {
+    this.numThreadsAuxiliaries = numThreadsAuxiliaries;
+  }
+
+  public void setDocManifestDirectory(File docManifestDirectory) {
+    this.docManifestDirectory = docManifestDirectory;
+  }
+
   public void setLatex2pdfCommand(String latex2pdfCommand) {
     this.latex2pdfCommand = latex2pdfCommand;
   }
@@ -3272,6 +3705,18 @@ public class Settings {
     this.maxNumReRunsLatex = maxNumReRunsLatex;
   }
 
+  public void setDraftIntermediateRuns(boolean draftIntermediateRuns) {
+    this.draftIntermediateRuns = draftIntermediateRuns;
+  }
+
+  public void setFailFastLatex(boolean failFastLatex) {
+    this.failFastLatex = failFastLatex;
+  }
+
+  public void setPreambleFormatDirectory(File preambleFormatDirectory) {
+    this.preambleFormatDirectory = preambleFormatDirectory;
+  }
+
   public void setBibtexCommand(String bibtexCommand) {
     this.bibtexCommand = bibtexCommand;
   }
@@ -1,5 +1,7 @@
 package eu.simuline.m2latex.core;
 
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * The enumeration of all supported (creational) targets.
@@ -32,6 +34,10 @@ public enum Target {
     public String getPatternOutputFiles(Settings settings) {
       return Target.NO_OUTPUT_FILES;
     }
+
+    public Set<LatexDev> getLatexDevs(Settings settings) {
+      return EnumSet.noneOf(LatexDev.class);
+    }
   },
   /**
    * standalone.
@@ -48,6 +54,10 @@ public enum Target {
     public String getPatternOutputFiles(Settings settings) {
       return "^(T$T\\.(dvi|xdv)|.+(\\.(ptx|eps|jpg|png)|\\d+\\.mps))$";
     }
+
+    public Set<LatexDev> getLatexDevs(Settings settings) {
+      return EnumSet.of(LatexDev.dvips);
+    }
   },
   /**
    * standalone.
@@ -63,6 +73,10 @@ public enum Target {
       return "^T$T\\.pdf$";
     }
 
+    public Set<LatexDev> getLatexDevs(Settings settings) {
+      return EnumSet.of(settings.getPdfViaDvi());
+    }
+
     public boolean hasDiffTool() {
       return true;
     }
@@ -80,6 +94,21 @@ public enum Target {
     public String getPatternOutputFiles(Settings settings) {
       return settings.getPatternT4htOutputFiles();
     }
+
+    // tex4ht works via dvi 
+    public Set<LatexDev> getLatexDevs(Settings settings) {
+      return EnumSet.of(LatexDev.dvips);
+    }
+
+    // may throw BuildFailureException TEX01
+    public void processShared(LatexProcessor latexProcessor, LatexMainDesc desc)
+        throws BuildFailureException {
+      latexProcessor.preProcessLatex2html(desc);
+    }
+
+    public boolean isIsolatable() {
+      return true;
+    }
   },
   /**
    * Based on {@link #pdf}
@@ -95,6 +124,21 @@ public enum Target {
     public String getPatternOutputFiles(Settings settings) {
       return "^T$T\\.(odt|fodt|uot|uot)$";
     }
+
+    // the pdf run is shared with target pdf, tex4ht works via dvi 
+    public Set<LatexDev> getLatexDevs(Settings settings) {
+      return EnumSet.of(settings.getPdfViaDvi(), LatexDev.dvips);
+    }
+
+    // may throw BuildFailureException TEX01
+    public void processShared(LatexProcessor latexProcessor, LatexMainDesc desc)
+        throws BuildFailureException {
+      latexProcessor.preProcessLatex2odt(desc);
+    }
+
+    public boolean isIsolatable() {
+      return true;
+    }
   },
   /**
    * Based on {@link #odt}
@@ -109,6 +153,21 @@ public enum Target {
     public String getPatternOutputFiles(Settings settings) {
       return "^T$T\\.(doc(|6|.95|.x|.x7)|rtf)$";
     }
+
+    // the pdf run is shared with target pdf, tex4ht works via dvi 
+    public Set<LatexDev> getLatexDevs(Settings settings) {
+      return EnumSet.of(settings.getPdfViaDvi(), LatexDev.dvips);
+    }
+
+    // may throw BuildFailureException TEX01
+    public void processShared(LatexProcessor latexProcessor, LatexMainDesc desc)
+        throws BuildFailureException {
+      latexProcessor.preProcessLatex2odt(desc);
+    }
+
+    public boolean isIsolatable() {
+      return true;
+    }
   },
   /**
    * standalone
@@ -123,6 +182,10 @@ public enum Target {
     public String getPatternOutputFiles(Settings settings) {
       return "^T$T\\.rtf$";
     }
+
+    public boolean isIsolatable() {
+      return true;
+    }
   },
   /**
    * Based on {@link #pdf}
@@ -137,6 +200,10 @@ public enum Target {
     public String getPatternOutputFiles(Settings settings) {
       return "^T$T\\.txt$";
     }
+
+    public Set<LatexDev> getLatexDevs(Settings settings) {
+      return EnumSet.of(settings.getPdfViaDvi());
+    }
   };
 
   /**
@@ -181,6 +248,42 @@ public enum Target {
    */
   public abstract String getPatternOutputFiles(Settings settings);
 
+  /**
+   * Returns the devices, i.e. the output formats of the LaTeX runs, 
+   * required to create this target with settings <code>settings</code>. 
+   * These determine the variants of graphic files to be created 
+   * by the {@link LatexPreProcessor}: 
+   * pdf-files for {@link LatexDev#pdf} and eps-files for {@link LatexDev#dvips}. 
+   * For example, {@link #pdf} requires {@link LatexDev#pdf} 
+   * unless created via dvi as given by {@link Settings#getPdfViaDvi()}. 
+   * By default, all devices are required. 
+   * This applies to {@link #rtf}, 
+   * because <code>latex2rtf</code> may include graphic files of all formats. 
+   *
+   * @param settings
+   *    the settings determining whether pdf is created via dvi. 
+   * @return
+   *    the devices required to create this target. 
+   *    This is empty for {@link #chk} which does not run LaTeX. 
+   */
+  public Set<LatexDev> getLatexDevs(Settings settings) {
+    return EnumSet.allOf(LatexDev.class);
+  }
+
+  /**
+   * Returns the devices required to create the targets <code>targets</code> 
+   * with settings <code>settings</code>, 
+   * i.e. the union of {@link #getLatexDevs(Settings)}. 
+   */
+  public static Set<LatexDev> getLatexDevs(Set<Target> targets,
+      Settings settings) {
+    Set<LatexDev> res = EnumSet.noneOf(LatexDev.class);
+    for (Target target : targets) {
+      res.addAll(target.getLatexDevs(settings));
+    }
+    return res;
+  }
+
   /**
    * Returns whether this target as an associated visual diff tool. 
    * Currently this is the case for {@link #pdf} only. 
@@ -192,4 +295,48 @@ public enum Target {
   public boolean hasDiffTool() {
     return false;
   }
+
+  /**
+   * Processes the part of the latex main file <code>texFile</code> 
+   * which is shared with other targets, 
+   * i.e. bibliography, index, glossary and that like, 
+   * delegating to <code>latexProcessor</code>. 
+   * This is done only if not yet done for another target. 
+   * By default, there is nothing to be shared. 
+   * This is invoked before the target is processed 
+   * by {@link #processSource(LatexProcessor, LatexMainDesc)} 
+   * in an isolated copy of the directory of the latex main file 
+   * (see {@link #isIsolatable()}), 
+   * so that the shared part is created once only. 
+   *
+   * @param latexProcessor
+   *    the processor to process <code>texFile</code> 
+   * @param desc
+   *    the latex main file to be processed. 
+   * @throws BuildFailureException
+   *    TEX01 if invocation of a command 
+   *    to transform <code>texFile</code> failed. 
+   */
+  public void processShared(LatexProcessor latexProcessor, LatexMainDesc desc)
+      throws BuildFailureException {
+    // by default nothing to be shared 
+  }
+
+  /**
+   * Returns whether this target may be created 
+   * in an isolated copy of the directory of the latex main file 
+   * concurrently with other targets. 
+   * This is the case if the target needs from the other targets 
+   * at most the part created by 
+   * {@link #processShared(LatexProcessor, LatexMainDesc)}. 
+   * Currently this is the case for 
+   * {@link #html}, {@link #odt}, {@link #docx} and {@link #rtf}. 
+   *
+   * @return
+   *    whether this target may be created in isolation. 
+   * @see Settings#getNumThreadsTargets() 
+   */
+  public boolean isIsolatable() {
+    return false;
+  }
 }
@@ -0,0 +1,278 @@
+package eu.simuline.m2latex.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a list of independent {@link Task}s 
+ * on a bounded pool of threads. 
+ * <p>
+ * Each task logs onto its own buffer 
+ * which is replayed on the common log after the task finished 
+ * and after all tasks before it have been replayed. 
+ * Thus, logging is in the order of the tasks 
+ * as if the tasks were executed sequentially, 
+ * although the tasks are executed concurrently. 
+ * <p>
+ * Execution is fail-fast: 
+ * As soon as a task throws a {@link BuildFailureException}, 
+ * tasks not yet started are not started any more, 
+ * the logs of the tasks before the failed one are replayed 
+ * and the exception is rethrown 
+ * after the tasks still running are finished. 
+ * <p>
+ * If there is at most one thread or at most one task, 
+ * the tasks are executed sequentially in the current thread 
+ * logging directly onto the common log. 
+ */
+final class TaskPool {
+
+  /**
+   * A task to be run by {@link TaskPool#runAll(List, LogWrapper)}. 
+   */
+  interface Task {
+    /**
+     * Runs this task logging onto <code>log</code>. 
+     *
+     * @param log
+     *    the log to write on. 
+     *    This is a buffer if run concurrently with other tasks. 
+     * @throws BuildFailureException
+     *    if running this task fails. 
+     */
+    void run(LogWrapper log) throws BuildFailureException;
+  } // interface Task
+
+  /**
+   * A log buffering all messages 
+   * to be replayed on another log by {@link #replay(LogWrapper)}. 
+   */
+  static final class BufferedLogWrapper implements LogWrapper {
+
+    private enum Level {
+      Error, Warn, Info, Debug;
+    }
+
+    private static final class Entry {
+      private final Level level;
+      private final String msg;
+      private final Throwable thrw;
+
+      Entry(Level level, String msg, Throwable thrw) {
+        this.level = level;
+        this.msg = msg;
+        this.thrw = thrw;
+      }
+    } // class Entry
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    public synchronized void error(String msg) {
+      this.entries.add(new Entry(Level.Error, msg, null));
+    }
+
+    public synchronized void warn(String msg) {
+      this.entries.add(new Entry(Level.Warn, msg, null));
+    }
+
+    public synchronized void warn(String msg, Throwable thrw) {
+      this.entries.add(new Entry(Level.Warn, msg, thrw));
+    }
+
+    public synchronized void info(String msg) {
+      this.entries.add(new Entry(Level.Info, msg, null));
+    }
+
+    public synchronized void debug(String msg) {
+      this.entries.add(new Entry(Level.Debug, msg, null));
+    }
+
+    /**
+     * Writes all messages buffered so far onto <code>log</code> 
+     * in the order they were logged and clears the buffer. 
+     */
+    synchronized void replay(LogWrapper log) {
+      for (Entry entry : this.entries) {
+        switch (entry.level) {
+          case Error:
+            log.error(entry.msg);
+            break;
+          case Warn:
+            if (entry.thrw == null) {
+              log.warn(entry.msg);
+            } else {
+              log.warn(entry.msg, entry.thrw);
+            }
+            break;
+          case Info:
+            log.info(entry.msg);
+            break;
+          case Debug:
+            log.debug(entry.msg);
+            break;
+          default:
+            throw new IllegalStateException("Found unknown level " + entry.level);
+        }
+      }
+      this.entries.clear();
+    }
+  } // class BufferedLogWrapper
+
+  /**
+   * Returns the number of threads to be used 
+   * if the number configured is <code>numThreadsConf</code>: 
+   * This is the number of available processors 
+   * if <code>numThreadsConf</code> is not positive, 
+   * else <code>numThreadsConf</code> itself. 
+   */
+  static int numThreads(int numThreadsConf) {
+    return numThreadsConf <= 0
+        ? Runtime.getRuntime().availableProcessors() : numThreadsConf;
+  }
+
+  /**
+   * The maximal number of threads used by {@link #runAll(List, LogWrapper)}. 
+   */
+  private final int numThreads;
+
+  /**
+   * The prefix of the names of the threads created. 
+   */
+  private final String name;
+
+  /**
+   * Creates a pool with the given number of threads. 
+   *
+   * @param numThreads
+   *    the number of threads as configured. 
+   *    If this is not positive, the number of available processors is used. 
+   *    See {@link #numThreads(int)}. 
+   * @param name
+   *    the prefix of the names of the threads created. 
+   */
+  TaskPool(int numThreads, String name) {
+    this.numThreads = numThreads(numThreads);
+    this.name = name;
+  }
+
+  /**
+   * Runs all tasks <code>tasks</code> 
+   * as described in the class documentation. 
+   *
+   * @param tasks
+   *    the tasks to be run which shall be independent of one another. 
+   * @param log
+   *    the common log which the logs of the tasks are replayed on. 
+   * @throws BuildFailureException
+   *    <ul>
+   *    <li>the exception thrown by the first task which failed 
+   *    <li>TTP01 if interrupted while waiting for the tasks. 
+   *    </ul>
+   */
+  void runAll(List<? extends Task> tasks, LogWrapper log)
+      throws BuildFailureException {
+    int numThreadsUsed = Math.min(this.numThreads, tasks.size());
+    if (numThreadsUsed <= 1) {
+      for (Task task : tasks) {
+        // may throw BuildFailureException
+        task.run(log);
+      }
+      return;
+    }
+
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    ExecutorService pool =
+        Executors.newFixedThreadPool(numThreadsUsed, newThreadFactory());
+    List<Future<?>> futures = new ArrayList<Future<?>>(tasks.size());
+    List<BufferedLogWrapper> logs =
+        new ArrayList<BufferedLogWrapper>(tasks.size());
+    try {
+      for (final Task task : tasks) {
+        final BufferedLogWrapper taskLog = new BufferedLogWrapper();
+        logs.add(taskLog);
+        futures.add(pool.submit(() -> {
+          if (failed.get()) {
+            // fail fast: another task failed already
+            return null;
+          }
+          try {
+            task.run(taskLog);
+          } catch (BuildFailureException | RuntimeException e) {
+            failed.set(true);
+            throw e;
+          }
+          return null;
+        }));
+      }
+
+      for (int idx = 0; idx < futures.size(); idx++) {
+        try {
+          // may throw ExecutionException, InterruptedException
+          futures.get(idx).get();
+          logs.get(idx).replay(log);
+        } catch (ExecutionException ee) {
+          logs.get(idx).replay(log);
+          Throwable cause = ee.getCause();
+          if (cause instanceof BuildFailureException) {
+            throw (BuildFailureException) cause;
+          }
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new IllegalStateException("Unexpected exception. ", cause);
+        } catch (CancellationException ce) {
+          throw new IllegalStateException("Task cancelled unexpectedly. ", ce);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new BuildFailureException(
+              "TTP01: Interrupted while waiting for " + this.name + ". ", ie);
+        }
+      } // for
+    } finally {
+      // tasks still waiting are not started any more
+      failed.set(true);
+      pool.shutdown();
+      // tasks running are finished, 
+      // so that on return no task touches the files any more 
+      awaitTermination(pool);
+    }
+  }
+
+  /**
+   * Waits until all tasks of <code>pool</code> which are running are finished. 
+   * If interrupted, the tasks are interrupted 
+   * and the interrupt status of the current thread is restored. 
+   */
+  private static void awaitTermination(ExecutorService pool) {
+    try {
+      while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+        // wait for running tasks 
+      }
+    } catch (InterruptedException ie) {
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private ThreadFactory newThreadFactory() {
+    final AtomicInteger count = new AtomicInteger(0);
+    return (Runnable runnable) -> {
+      Thread thread = new Thread(runnable,
+          this.name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
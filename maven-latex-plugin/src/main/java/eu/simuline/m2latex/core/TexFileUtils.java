@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import java.util.Collection;
@@ -103,7 +104,8 @@ class TexFileUtils {
    *    accepted by <code>filter</code>
    *    or <code>null</code> if <code>dir</code> is not readable. 
    */
-  // used by LatexProcessor.runMakeIndexByNeed only 
+  // used by LatexProcessor.runMakeIndexByNeed 
+  // and LatexProcessor.recordedDocInputs only 
   File[] listFilesOrWarn(File dir, FileFilter filter) {
     assert dir != null && dir.isDirectory() : "Expected folder found " + dir;
     File[] files = dir.listFiles(filter);
@@ -491,6 +493,7 @@ class TexFileUtils {
    * This is just a workaround because of inkscape's current flaw. 
    * It reads file <code>srcFile</code> 
    * which is expected to have name with ending <code>eps_tex</code> 
+   * or <code>pdf_tex</code> if no eps-file is created 
    * and writes a file with same name 
    * replacing ending by <code>tex</code> with following modifications: 
    * <ul>
@@ -680,12 +683,23 @@ class TexFileUtils {
     return false;
   }
 
+  /**
+   * The number of characters read in the first chunk 
+   * by {@link #getMatchAtStart(BufferedReader, Pattern)}. 
+   * Each further chunk doubles the size of the buffer read so far, 
+   * so that the overall matching effort is linear in the length of the prefix read. 
+   */
+  private final static int SIZE_FIRST_CHUNK = 1024;
+
   /**
    * Returns a descriptor for the match of regular expression <code>regex</code> 
    * in file <code>file</code>. 
    * Depending on whether <code>regex</code> starts with <code>\\A</code>, 
    * matching refers to the beginning of the file, 
    * else is linewise. 
+   * In the former case, 
+   * the file is read only as far as needed to decide whether there is a match 
+   * as described for {@link #getMatchAtStart(BufferedReader, Pattern)}. 
    * 
    * @param file
    *   a file to parse. 
@@ -698,28 +712,22 @@ class TexFileUtils {
    *   match some named groups from which further pieces of information can be extracted. 
    */
   FileMatch getMatchInFile(File file, String regex) {
-    Pattern pattern = Pattern.compile(regex, Pattern.MULTILINE);//
+    Pattern pattern = PatternCache.compile(regex, Pattern.MULTILINE);
     boolean fromStart = regex.startsWith("\\A");
-    String lines = "";
 
     try {
       // constructor of FileReader may throw FileNotFoundException < IOExcption 
       // BufferedReader for performance and to be able to read a line
       BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-      //CharBuffer chars = CharBuffer.allocate(1000);
       try {
-        // may throw IOException 
-        // int numRead = bufferedReader.read(chars);
-        // System.out.println("file: "+file);
-        // System.out.println("numRead: "+numRead);
-        // System.out.println("chars: '"+chars+"'");
-
+        if (fromStart) {
+          // may throw IOException 
+          return getMatchAtStart(bufferedReader, pattern);
+        }
 
         // FIXME: seemingly, 
         // find may not terminate in case ^(\s*)* but with ^s* 
         // but this seems a bug in java's regex engine 
-        //		return pattern.matcher(chars).find();
-
 
         // readLine may throw IOException 
         for (String line = bufferedReader.readLine(); line != null;
@@ -727,20 +735,13 @@ class TexFileUtils {
             line = bufferedReader.readLine()) {
           // FIXME: linewise matching is not appropriate 
           // for further patterns line patternReRunLatex 
-          // FIXME: seemingly, find may not terminate in case ^(\s*)* but with ^s* 
-          // but this seems a bug in java's regex engine 
-
-          lines = fromStart ? lines += line + "\n" : line;
-          Matcher matcher = pattern.matcher(lines);
+          Matcher matcher = pattern.matcher(line);
           if (matcher.find()) {
             this.log.debug("Matched line: '" + line + "'");
             return FileMatch.fileMatch(matcher);// as match result TBD: .toMatchResult()
           }
         } // for 
         // Here, the whole file has been read but no match 
-        // TBD: reimplement this: this is not performant: 
-        // If the pattern does not match, 
-        // this is detected not before the end of the file. 
         return FileMatch.noMatch();
       } catch (IOException ioe) {
         // Error/Warning must be issued by invoking method 
@@ -756,6 +757,107 @@ class TexFileUtils {
     }
   }
 
+  /**
+   * Returns a descriptor for the match of <code>pattern</code> 
+   * which is anchored at the beginning of the input 
+   * read from <code>reader</code>. 
+   * <p>
+   * The input is read in chunks of growing size into a single buffer 
+   * which is matched after each chunk. 
+   * Reading stops as soon as the outcome cannot change any more by further input: 
+   * if there is a match which does not require the end of input, 
+   * or if there is no match and the matcher did not hit the end of the input. 
+   * Thus, for a file not matching, typically only a short prefix is read, 
+   * and since the buffer doubles with each chunk, 
+   * the overall effort is linear in the size of the prefix read. 
+   * Note that this is correct only for patterns anchored at the start. 
+   *
+   * @param reader
+   *    a reader for the file to be matched. 
+   * @param pattern
+   *    a pattern starting with <code>\\A</code>. 
+   * @return
+   *    an object representing the match state of type {@link FileMatch} 
+   *    which is never {@link FileMatch#unreadable()}. 
+   * @throws IOException
+   *    if reading from <code>reader</code> fails. 
+   */
+  private FileMatch getMatchAtStart(BufferedReader reader, Pattern pattern)
+      throws IOException {
+    StringBuilder buffer = new StringBuilder(SIZE_FIRST_CHUNK);
+    char[] chunk = new char[SIZE_FIRST_CHUNK];
+    boolean isEof = false;
+    while (!isEof) {
+      // read until chunk is full or end of file is reached 
+      int toRead = Math.max(buffer.length(), SIZE_FIRST_CHUNK);
+      if (chunk.length < toRead) {
+        chunk = new char[toRead];
+      }
+      int numRead = 0;
+      while (numRead < toRead) {
+        // may throw IOException 
+        int num = reader.read(chunk, numRead, toRead - numRead);
+        if (num == -1) {
+          isEof = true;
+          break;
+        }
+        numRead += num;
+      }
+      buffer.append(chunk, 0, numRead);
+
+      Matcher matcher = pattern.matcher(buffer);
+      if (matcher.find()) {
+        if (isEof || !matcher.requireEnd()) {
+          this.log.debug("Matched prefix of length " + matcher.end() + ". ");
+          return FileMatch.fileMatch(matcher);// as match result TBD: .toMatchResult()
+        }
+        // Here, further input may destroy the match 
+        continue;
+      }
+      if (!matcher.hitEnd()) {
+        // Here, further input cannot create a match 
+        return FileMatch.noMatch();
+      }
+    } // while 
+    return FileMatch.noMatch();
+  }
+
+  /**
+   * Analyzes the file <code>file</code> as described by <code>analysis</code> 
+   * reading it only once. 
+   * <p>
+   * Logging: 
+   * WFU03 cannot close 
+   *
+   * @param file
+   *    a log file to be analyzed. 
+   * @param analysis
+   *    the patterns to be detected in <code>file</code> linewise. 
+   * @return
+   *    the result of the analysis 
+   *    which is {@link LogAnalysis.Result#UNREADABLE} 
+   *    if <code>file</code> could not be read. 
+   */
+  LogAnalysis.Result analyzeFile(File file, LogAnalysis analysis) {
+    try {
+      // constructor of FileReader may throw FileNotFoundException < IOExcption 
+      BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
+      try {
+        // may throw IOException 
+        return analysis.analyze(bufferedReader);
+      } catch (IOException ioe) {
+        // Error/Warning must be issued by invoking method 
+        return LogAnalysis.Result.UNREADABLE;
+      } finally {
+        // may log warning WFU03
+        closeQuietly(bufferedReader);
+      }
+    } catch (FileNotFoundException ffe) {
+      // Error/Warning must be issued by invoking method 
+      return LogAnalysis.Result.UNREADABLE;
+    }
+  }
+
   /**
    * Returns the set of strings representing the <code>idxGroup</code> 
    * of the pattern <code>regex</code> matching a line 
@@ -786,7 +888,7 @@ class TexFileUtils {
   // **** a lot of copying from method matchInFile 
   Collection<String> collectMatches(File file, String regex, int idxGroup) {
     Collection<String> res = new TreeSet<String>();
-    Pattern pattern = Pattern.compile(regex);
+    Pattern pattern = PatternCache.compile(regex);
 
     // may throw FileNotFoundException < IOExcption 
     try (FileReader fileReader = new FileReader(file)) {
@@ -815,6 +917,72 @@ class TexFileUtils {
     }
   }
 
+  /**
+   * The prefix of a line in a recorder file 
+   * indicating the working directory. 
+   */
+  private final static String PREFIX_FLS_PWD = "PWD ";
+
+  /**
+   * The prefix of a line in a recorder file 
+   * indicating a file read. 
+   */
+  private final static String PREFIX_FLS_INPUT = "INPUT ";
+
+  /**
+   * Returns the set of files recorded as read 
+   * in the recorder file <code>flsFile</code> 
+   * written by a TeX engine invoked with option <code>-recorder</code> 
+   * or returns <code>null</code> 
+   * in case of problems reading <code>flsFile</code>. 
+   * A recorder file consists of lines starting with <code>PWD</code> 
+   * followed by the working directory, 
+   * lines starting with <code>INPUT</code> followed by a file read 
+   * and lines starting with <code>OUTPUT</code> followed by a file written. 
+   * The names of files read which are relative 
+   * are resolved against the working directory. 
+   * <p>
+   * Logging: 
+   * WFU03 cannot close 
+   *
+   * @param flsFile
+   *    the recorder file written by a TeX engine. 
+   * @return
+   *    the set of normalized files recorded as read 
+   *    or <code>null</code> if <code>flsFile</code> cannot be read. 
+   */
+  Collection<File> getRecordedInputs(File flsFile) {
+    Collection<File> res = new TreeSet<File>();
+    File pwd = flsFile.getParentFile();
+    // may throw FileNotFoundException < IOExcption 
+    try (FileReader fileReader = new FileReader(flsFile)) {
+      BufferedReader bufferedReader = new BufferedReader(fileReader);
+      File file;
+      // readLine may throw IOException 
+      for (String line = bufferedReader.readLine();
+          line != null;
+          // readLine may throw IOException
+          line = bufferedReader.readLine()) {
+        if (line.startsWith(PREFIX_FLS_PWD)) {
+          pwd = new File(line.substring(PREFIX_FLS_PWD.length()));
+          continue;
+        }
+        if (!line.startsWith(PREFIX_FLS_INPUT)) {
+          continue;
+        }
+        file = new File(line.substring(PREFIX_FLS_INPUT.length()));
+        if (!file.isAbsolute()) {
+          file = new File(pwd, file.getPath());
+        }
+        res.add(file.toPath().normalize().toFile());
+      } // for 
+      return res;
+    } catch (IOException ioe) {
+      // Error/Warning must be issued by invoking method 
+      return null;
+    }
+  }
+
   // used in LatexPreProcessor and in LatexProcessor and in LatexDec
   // at numerous places 
   // TBD: clarify what is wrong with mock that we cannot make this static
@@ -926,6 +1094,42 @@ class TexFileUtils {
     }
   }
 
+  /**
+   * Copies directory <code>dir</code> recursively 
+   * into a newly created temporary directory and returns the latter. 
+   * This is used to process a target in isolation from other targets. 
+   * The copy shall be deleted via {@link #deleteOrError(File, boolean)} 
+   * if no longer needed. 
+   *
+   * @param dir
+   *    an existing directory to be copied. 
+   * @param prefix
+   *    the prefix of the name of the temporary directory. 
+   * @return
+   *    the temporary directory containing a copy of the content of <code>dir</code>. 
+   * @throws BuildFailureException
+   *    TFU07 if the temporary directory cannot be created 
+   *    or the content of <code>dir</code> cannot be copied. 
+   */
+  File copyToTempDirectory(File dir, String prefix)
+      throws BuildFailureException {
+    assert dir.isDirectory() : "Expected existing directory " + dir;
+    File tmpDir = null;
+    try {
+      // may throw IOException
+      tmpDir = Files.createTempDirectory(prefix).toFile();
+      // may throw IOException
+      FileUtils.copyDirectory(dir, tmpDir);
+      return tmpDir;
+    } catch (IOException e) {
+      if (tmpDir != null) {
+        FileUtils.deleteQuietly(tmpDir);
+      }
+      throw new BuildFailureException("TFU07: Cannot copy folder '"
+          + dir + "' to a temporary folder. ", e);
+    }
+  }
+
   /**
    * Deletes all files in <code>texDir</code> including subdirectories 
    * which are not in <code>orgNode</code>. 
@@ -960,6 +1164,8 @@ class TexFileUtils {
    * The background is, that <code>orgNode</code> represents the files 
    * originally in the directory and <code>currNode</code> 
    * the current ones at the end of the creating goal. 
+   * State files with suffix {@link AuxState#SUFFIX_AUX_STATE} are kept, 
+   * so that auxiliary programs need not be run in the next build. 
    * <p>
    * Logging: 
    * EFU05: Cannot delete... 
@@ -998,6 +1204,10 @@ class TexFileUtils {
     currFileNames.removeAll(origNode.getRegularFileNames());
 
     for (String fileName : currFileNames) {
+      if (fileName.endsWith(AuxState.SUFFIX_AUX_STATE)) {
+        // kept across builds to skip auxiliary programs 
+        continue;
+      }
       file = new File(dir, fileName);
       // may log error EFU05: Cannot delete file
       deleteOrError(file, false);
@@ -0,0 +1,179 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Caches the version texts of the {@link Converter}s 
+ * as returned by {@link Converter#getVersionInfo(CommandExecutor, File)}, 
+ * so that {@link MetaInfo#printMetaInfo(boolean, java.util.SortedSet, File, File)} 
+ * needs to invoke only converters which changed since the last build. 
+ * This is persisted if {@link Settings#getVersionCacheFile()} is set. 
+ * <p>
+ * The version text of a converter is recorded together with the stamp 
+ * of the executable the command of the converter is resolved to 
+ * by {@link ExecutableResolver}, 
+ * consisting of its absolute path, its size and its modification time. 
+ * A version text is valid only as long as this stamp is unchanged. 
+ * Since the executables depend on {@link Settings#getTexPath()}, 
+ * all version texts recorded are discarded if the tex path changed. 
+ * <p>
+ * The cache is stored as a properties file 
+ * mapping {@link #KEY_TEX_PATH} to the tex path 
+ * and {@link #PREFIX_STAMP} and {@link #PREFIX_VERSION} 
+ * followed by the command of a converter 
+ * to the stamp of its executable and to its version text, respectively. 
+ * Note that this class is thread safe. 
+ */
+final class VersionCache {
+
+  private static final String KEY_TEX_PATH = "texPath";
+  private static final String PREFIX_STAMP = "stamp.";
+  private static final String PREFIX_VERSION = "version.";
+
+  /**
+   * Separates the components of the stamp of an executable. 
+   */
+  private static final String SEP = "|";
+
+  /**
+   * The file the cache is persisted in 
+   * or <code>null</code> if it is not persisted. 
+   */
+  private final File file;
+
+  /**
+   * The content of the cache as described in the class documentation. 
+   */
+  private final Properties props;
+
+  /**
+   * Whether {@link #props} changed since read, 
+   * so that it must be written by {@link #write(LogWrapper)}. 
+   */
+  private boolean isModified;
+
+  private VersionCache(File file, Properties props, boolean isModified) {
+    this.file = file;
+    this.props = props;
+    this.isModified = isModified;
+  }
+
+  /**
+   * Reads the cache from <code>file</code> 
+   * discarding all entries if they were recorded for another tex path 
+   * than <code>texPath</code>. 
+   * If <code>file</code> is <code>null</code> or does not exist, 
+   * the cache returned is empty. 
+   * <p>
+   * Logging: 
+   * WMI03: if <code>file</code> exists but cannot be read. 
+   * Then the cache returned is empty. 
+   *
+   * @param file
+   *    the file the cache is persisted in or <code>null</code>. 
+   * @param texPath
+   *    the tex path as given by {@link Settings#getTexPath()}. 
+   * @param log
+   *    the log to write a warning on if reading fails. 
+   * @return
+   *    the cache read. 
+   */
+  static VersionCache read(File file, File texPath, LogWrapper log) {
+    Properties props = new Properties();
+    if (file != null && file.exists()) {
+      try (InputStream inStream = new FileInputStream(file)) {
+        // may throw IOException
+        props.load(inStream);
+      } catch (IOException ioe) {
+        log.warn("WMI03: Cannot read version cache '" + file
+            + "'; versions are determined again. ");
+        props.clear();
+      }
+    }
+    String texPathStr = String.valueOf(texPath);
+    if (texPathStr.equals(props.getProperty(KEY_TEX_PATH))) {
+      return new VersionCache(file, props, false);
+    }
+    props.clear();
+    props.setProperty(KEY_TEX_PATH, texPathStr);
+    return new VersionCache(file, props, true);
+  }
+
+  /**
+   * Returns the stamp of the executable <code>exe</code> 
+   * consisting of its absolute path, its size and its modification time 
+   * or <code>null</code> if it is no file. 
+   */
+  private static String stamp(File exe) {
+    if (!exe.isFile()) {
+      return null;
+    }
+    return exe.getAbsolutePath() + SEP + exe.length() + SEP
+        + exe.lastModified();
+  }
+
+  /**
+   * Returns the version text recorded for command <code>command</code> 
+   * resolved to the executable <code>exe</code> 
+   * or <code>null</code> if there is none 
+   * or if <code>exe</code> changed since recorded. 
+   */
+  synchronized String get(String command, File exe) {
+    String stamp = stamp(exe);
+    if (stamp == null
+        || !stamp.equals(this.props.getProperty(PREFIX_STAMP + command))) {
+      return null;
+    }
+    return this.props.getProperty(PREFIX_VERSION + command);
+  }
+
+  /**
+   * Records the version text <code>version</code> 
+   * for command <code>command</code> 
+   * resolved to the executable <code>exe</code>. 
+   * Nothing is recorded if <code>exe</code> is no file. 
+   */
+  synchronized void put(String command, File exe, String version) {
+    String stamp = stamp(exe);
+    if (stamp == null) {
+      return;
+    }
+    this.props.setProperty(PREFIX_STAMP + command, stamp);
+    this.props.setProperty(PREFIX_VERSION + command, version);
+    this.isModified = true;
+  }
+
+  /**
+   * Writes this cache to its file 
+   * if it is persisted and if it changed since read. 
+   * <p>
+   * Logging: 
+   * WMI04: if the file cannot be written. 
+   * Then the versions are determined again in the next build 
+   * but this does not affect correctness. 
+   *
+   * @param log
+   *    the log to write a warning on if writing fails. 
+   */
+  synchronized void write(LogWrapper log) {
+    if (this.file == null || !this.isModified) {
+      return;
+    }
+    File dir = this.file.getAbsoluteFile().getParentFile();
+    dir.mkdirs();
+    try (OutputStream outStream = new FileOutputStream(this.file)) {
+      // may throw IOException
+      this.props.store(outStream, "versions of converters");
+      this.isModified = false;
+    } catch (IOException ioe) {
+      log.warn("WMI04: Cannot write version cache '" + this.file
+          + "'; versions are determined again. ");
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+/**
+ * Tests {@link AuxSnapshot}, 
+ * in particular the sequence of draft runs and final runs 
+ * as determined in {@link LatexProcessor} 
+ * by {@link AuxSnapshot#isFollowedByReRun(AuxSnapshot)}. 
+ */
+public class AuxSnapshotTest {
+  private final static File WORKING_DIR = TestUtils.WORKING_DIR;
+
+  private final LatexMainDesc desc =
+      new LatexMainDesc(new File(WORKING_DIR, "test.tex"), null);
+
+  /**
+   * The files written by a LaTeX run and the auxiliary programs run after it, 
+   * as alternating file names and contents. 
+   */
+  private static final class Run {
+    private final String[] namesContents;
+
+    Run(String... namesContents) {
+      this.namesContents = namesContents;
+    }
+
+    void write() throws IOException {
+      for (int idx = 0; idx < this.namesContents.length; idx += 2) {
+        Files.write(new File(WORKING_DIR, this.namesContents[idx]).toPath(),
+            this.namesContents[idx + 1].getBytes(StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  /**
+   * Performs the LaTeX runs <code>runs</code> on a clean directory 
+   * as long as the files read by LaTeX change 
+   * and returns for each run whether it is in draft mode, 
+   * with a final run appended if the last run is in draft mode. 
+   * Runs beyond the given ones write the same files as the last one. 
+   * This is as in <code>LatexProcessor.processLatex2devCore</code>. 
+   */
+  private List<Boolean> drafts(Run... runs) throws IOException {
+    List<Boolean> res = new ArrayList<Boolean>();
+    AuxSnapshot snapshot = AuxSnapshot.take(this.desc);
+    // creating the aux file implies another run
+    boolean isDraft = !this.desc.withSuffix(LatexProcessor.SUFFIX_AUX).exists();
+    for (int num = 0; num < 10; num++) {
+      res.add(isDraft);
+      runs[Math.min(num, runs.length - 1)].write();
+      AuxSnapshot snapshotNext = AuxSnapshot.take(this.desc);
+      if (snapshotNext.isUnchanged(snapshot)) {
+        if (isDraft) {
+          res.add(false);
+        }
+        return res;
+      }
+      isDraft = snapshotNext.isFollowedByReRun(snapshot);
+      snapshot = snapshotNext;
+    }
+    throw new AssertionError("LaTeX runs do not terminate. ");
+  }
+
+  @Test
+  public void testPlain() throws IOException {
+    // the second run resolves the references only
+    assertEquals(Arrays.asList(true, false),
+        drafts(new Run("test.aux", "\\newlabel{a}{1}")));
+  }
+
+  @Test
+  public void testToc() throws IOException {
+    // the toc appears in the second run and shifts the pages
+    assertEquals(Arrays.asList(true, true, false),
+        drafts(new Run("test.aux", "\\newlabel{a}{1}", "test.toc", "1"),
+            new Run("test.aux", "\\newlabel{a}{2}", "test.toc", "2")));
+  }
+
+  @Test
+  public void testBibtex() throws IOException {
+    // bibtex writes a bbl file included in the second run
+    Run first = new Run("test.aux", "\\citation{a}", "test.bbl", "a");
+    Run second = new Run("test.aux", "\\citation{a}\\bibcite{a}{1}");
+    assertEquals(Arrays.asList(true, true, false), drafts(first, second));
+  }
+
+  @Test
+  public void testRebuild() throws IOException {
+    // rebuild without changes: a single run which is not in draft mode
+    Run run = new Run("test.aux", "\\newlabel{a}{1}");
+    run.write();
+    assertEquals(Arrays.asList(false), drafts(run));
+  }
+
+  @Test
+  public void testIsFollowedByReRun() throws IOException {
+    AuxSnapshot before = AuxSnapshot.take(this.desc);
+    new Run("test.aux", "1").write();
+    AuxSnapshot after = AuxSnapshot.take(this.desc);
+    assertFalse(after.isUnchanged(before));
+    assertFalse(after.isFollowedByReRun(before));
+
+    // an index written by makeindex
+    new Run("test.idx", "a", "test.ind", "a").write();
+    before = after;
+    after = AuxSnapshot.take(this.desc);
+    assertTrue(after.isFollowedByReRun(before));
+
+    // the index disappears
+    assertTrue(new File(WORKING_DIR, "test.ind").delete());
+    before = after;
+    after = AuxSnapshot.take(this.desc);
+    assertTrue(after.isFollowedByReRun(before));
+    assertTrue(AuxSnapshot.take(this.desc).isUnchanged(after));
+  }
+}
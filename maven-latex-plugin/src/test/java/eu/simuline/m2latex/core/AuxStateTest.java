@@ -0,0 +1,100 @@
+package eu.simuline.m2latex.core;
+
+import eu.simuline.m2latex.mojo.MavenLogWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+/**
+ * Tests {@link AuxState}, in particular that the output of auxiliary programs 
+ * deleted by cleanup is restored from the state file in the next build. 
+ */
+public class AuxStateTest {
+  private final static File WORKING_DIR = TestUtils.WORKING_DIR;
+
+  private final LogWrapper log = new MavenLogWrapper(this.getClass());
+
+  private static File write(String fileName, String content)
+      throws IOException {
+    File file = new File(WORKING_DIR, fileName);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()),
+        StandardCharsets.UTF_8);
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @Test
+  public void testRestoreOutputs() throws IOException {
+    File stateFile = new File(WORKING_DIR, "main" + AuxState.SUFFIX_AUX_STATE);
+    File ind = write("main.ind", "\\begin{theindex}\n\\end{theindex}\n");
+    File indSub = write("main-sub.ind", "sub\n");
+    File bbl = write("main.bbl", "\\begin{thebibliography}{1}\n");
+
+    AuxState state = AuxState.read(stateFile, this.log);
+    state.put(Auxiliary.Idx, "in", "out", Arrays.asList(ind, indSub));
+    state.put(Auxiliary.BibTex, "inBib", "outBib",
+        Collections.singletonList(bbl));
+    state.write(this.log);
+    assertTrue(stateFile.exists());
+
+    // cleanup at the end of the build
+    assertTrue(ind.delete());
+    assertTrue(indSub.delete());
+    // output of bibtex partially present: not restored
+    write("main.bbl", "other");
+
+    state = AuxState.read(stateFile, this.log);
+    assertTrue(state.isUpToDate(Auxiliary.Idx, "in", "out"));
+    state.restoreOutputs(WORKING_DIR, this.log);
+    assertEquals("\\begin{theindex}\n\\end{theindex}\n", read(ind));
+    assertEquals("sub\n", read(indSub));
+    assertEquals("other", read(bbl));
+
+    // removing the identifiers removes the output recorded
+    state.remove(Auxiliary.Idx);
+    assertFalse(state.isUpToDate(Auxiliary.Idx, "in", "out"));
+    assertTrue(ind.delete());
+    assertTrue(indSub.delete());
+    state.restoreOutputs(WORKING_DIR, this.log);
+    assertFalse(ind.exists());
+    assertFalse(indSub.exists());
+  }
+
+  @Test
+  public void testPutUnreadable() throws IOException {
+    File stateFile = new File(WORKING_DIR, "main" + AuxState.SUFFIX_AUX_STATE);
+    File gls = new File(WORKING_DIR, "main.gls");
+
+    AuxState state = AuxState.read(stateFile, this.log);
+    // output file missing: identifiers are recorded but no contents
+    state.put(Auxiliary.Glo, "in", "out", Collections.singletonList(gls));
+    assertTrue(state.isUpToDate(Auxiliary.Glo, "in", "out"));
+    state.restoreOutputs(WORKING_DIR, this.log);
+    assertFalse(gls.exists());
+  }
+}
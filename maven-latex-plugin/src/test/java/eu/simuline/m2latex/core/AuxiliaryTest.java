@@ -0,0 +1,91 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+/**
+ * Tests the files written by auxiliary programs 
+ * as given by {@link Auxiliary#getWrittenFiles(LatexMainDesc)} 
+ * and that auxiliary programs writing common files 
+ * are grouped to run sequentially 
+ * by {@link LatexProcessor#groupAuxs(LatexMainDesc, List)}. 
+ */
+public class AuxiliaryTest {
+  private final static File WORKING_DIR = TestUtils.WORKING_DIR;
+
+  private final LatexMainDesc desc =
+      new LatexMainDesc(new File(WORKING_DIR, "main.tex"), null);
+
+  private static void writeAux(String content) throws IOException {
+    Files.write(new File(WORKING_DIR, "main.aux").toPath(),
+        content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @Test
+  public void testWrittenFiles() throws IOException {
+    writeAux("\\@newglossary{main}{glg}{gls}{glo}\n");
+    Collection<File> glo = Auxiliary.Glo.getWrittenFiles(this.desc);
+    assertTrue(glo.contains(this.desc.glsFile));
+    assertTrue(glo.contains(this.desc.glgFile));
+    assertFalse(glo.contains(this.desc.indFile));
+
+    // option index of package glossaries: makeindex output
+    writeAux("\\@newglossary{main}{glg}{gls}{glo}\n"
+        + "\\@newglossary{index}{ilg}{ind}{idx}\n");
+    glo = Auxiliary.Glo.getWrittenFiles(this.desc);
+    assertTrue(glo.contains(this.desc.indFile));
+    assertTrue(glo.contains(this.desc.ilgFile));
+    Collection<File> idx = Auxiliary.Idx.getWrittenFiles(this.desc);
+    assertTrue(idx.contains(this.desc.indFile));
+    assertTrue(idx.contains(this.desc.ilgFile));
+  }
+
+  @Test
+  public void testGroupAuxs() throws IOException {
+    List<Auxiliary> auxs =
+        Arrays.asList(Auxiliary.BibTex, Auxiliary.Glo, Auxiliary.Idx);
+
+    // disjoint: all concurrently
+    writeAux("\\@newglossary{main}{glg}{gls}{glo}\n");
+    assertEquals(Arrays.asList(Collections.singletonList(Auxiliary.BibTex),
+        Collections.singletonList(Auxiliary.Glo),
+        Collections.singletonList(Auxiliary.Idx)),
+        LatexProcessor.groupAuxs(this.desc, auxs));
+
+    // makeglossaries and makeindex write the index: sequentially
+    writeAux("\\@newglossary{main}{glg}{gls}{glo}\n"
+        + "\\@newglossary{index}{ilg}{ind}{idx}\n");
+    assertEquals(Arrays.asList(Collections.singletonList(Auxiliary.BibTex),
+        Arrays.asList(Auxiliary.Glo, Auxiliary.Idx)),
+        LatexProcessor.groupAuxs(this.desc, auxs));
+
+    // files written by makeglossaries unknown: all sequentially
+    assertTrue(new File(WORKING_DIR, "main.aux").delete());
+    assertEquals(Collections.singletonList(auxs),
+        LatexProcessor.groupAuxs(this.desc, auxs));
+  }
+}
@@ -0,0 +1,281 @@
+package eu.simuline.m2latex.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+/**
+ * Tests {@link BoundingBox} on jpg-files and png-files 
+ * consisting of the headers read only. 
+ * The lines expected are those written by <code>ebb</code> 
+ * up to the creator. 
+ */
+public class BoundingBoxTest {
+  private final static File WORKING_DIR =
+      new File(System.getProperty("unitTestResourcesDir"));
+
+  private final static String CREATOR = "extractbb Version 20230311";
+
+  @Before
+  public void setUp() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  private static BoundingBox read(String fileName, byte[] content)
+      throws IOException {
+    File file = new File(WORKING_DIR, fileName);
+    Files.write(file.toPath(), content);
+    return BoundingBox.read(file);
+  }
+
+  private static String lines(String fileName, String bbox, String hiResBBox) {
+    return "%%Title: " + fileName + "\n" + "%%Creator: " + CREATOR + "\n"
+        + "%%BoundingBox: " + bbox + "\n"
+        + (hiResBBox == null ? "" : "%%HiResBoundingBox: " + hiResBBox + "\n");
+  }
+
+  // jpg-files
+
+  /**
+   * Returns the header of a jpg-file with the given segments 
+   * followed by a SOF0 segment with the given width and height. 
+   */
+  private static byte[] jpg(int width, int height, byte[]... segments)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeShort(0xFFD8);
+    for (byte[] segment : segments) {
+      out.write(segment);
+    }
+    // SOF0: precision, height, width, one component
+    out.writeShort(0xFFC0);
+    out.writeShort(2 + 9);
+    out.writeByte(8);
+    out.writeShort(height);
+    out.writeShort(width);
+    out.writeByte(1);
+    out.write(new byte[] {1, 0x11, 0});
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns a JFIF segment with the given unit and densities. 
+   */
+  private static byte[] jfif(int unit, int xDens, int yDens)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeShort(0xFFE0);
+    out.writeShort(2 + 14);
+    out.write("JFIF\0".getBytes(StandardCharsets.US_ASCII));
+    out.writeShort(0x0101);
+    out.writeByte(unit);
+    out.writeShort(xDens);
+    out.writeShort(yDens);
+    // no thumbnail
+    out.writeShort(0);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns a big endian Exif segment with the given resolutions in dpi. 
+   */
+  private static byte[] exif(int xRes, int yRes) throws IOException {
+    ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(tiff);
+    out.write("MM".getBytes(StandardCharsets.US_ASCII));
+    out.writeShort(42);
+    // offset of the IFD
+    out.writeInt(8);
+    out.writeShort(3);
+    // XResolution and YResolution: rationals behind the IFD
+    int offsetRationals = 8 + 2 + 3 * 12 + 4;
+    out.writeShort(0x011A);
+    out.writeShort(5);
+    out.writeInt(1);
+    out.writeInt(offsetRationals);
+    out.writeShort(0x011B);
+    out.writeShort(5);
+    out.writeInt(1);
+    out.writeInt(offsetRationals + 8);
+    // ResolutionUnit: inch
+    out.writeShort(0x0128);
+    out.writeShort(3);
+    out.writeInt(1);
+    out.writeShort(2);
+    out.writeShort(0);
+    // no next IFD
+    out.writeInt(0);
+    out.writeInt(xRes);
+    out.writeInt(1);
+    out.writeInt(yRes);
+    out.writeInt(1);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    out = new DataOutputStream(bytes);
+    out.writeShort(0xFFE1);
+    out.writeShort(2 + 6 + tiff.size());
+    out.write("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+    out.write(tiff.toByteArray());
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testJpgJfif() throws IOException {
+    BoundingBox bbox = read("jfif.jpg", jpg(600, 300, jfif(1, 300, 300)));
+    assertEquals("jpg-jfif", bbox.getVariant());
+    assertEquals(lines("jfif.jpg", "0 0 144 72",
+        "0.000000 0.000000 144.000000 72.000000"),
+        bbox.getLines("jfif.jpg", CREATOR, false));
+    // .bb-files always assume 100 dpi
+    assertEquals(lines("jfif.jpg", "0 0 432 216", null),
+        bbox.getLines("jfif.jpg", CREATOR, true));
+
+    // aspect ratio only: 72 dpi
+    bbox = read("aspect.jpg", jpg(600, 300, jfif(0, 1, 1)));
+    assertEquals("jpg-jfif-aspect", bbox.getVariant());
+    assertEquals(lines("aspect.jpg", "0 0 600 300",
+        "0.000000 0.000000 600.000000 300.000000"),
+        bbox.getLines("aspect.jpg", CREATOR, false));
+    // aspect ratio other than 1 is not supported
+    assertNull(read("aspect2.jpg", jpg(600, 300, jfif(0, 1, 2))));
+  }
+
+  @Test
+  public void testJpgExif() throws IOException {
+    BoundingBox bbox = read("exif.jpg", jpg(600, 300, exif(150, 150)));
+    assertEquals("jpg-exif", bbox.getVariant());
+    assertEquals(lines("exif.jpg", "0 0 288 144",
+        "0.000000 0.000000 288.000000 144.000000"),
+        bbox.getLines("exif.jpg", CREATOR, false));
+
+    // consistent with JFIF
+    bbox = read("both.jpg",
+        jpg(600, 300, jfif(1, 150, 150), exif(150, 150)));
+    assertEquals("jpg-jfif-exif", bbox.getVariant());
+    assertEquals(lines("both.jpg", "0 0 288 144",
+        "0.000000 0.000000 288.000000 144.000000"),
+        bbox.getLines("both.jpg", CREATOR, false));
+
+    // inconsistent with JFIF
+    assertNull(read("incons.jpg",
+        jpg(600, 300, jfif(1, 300, 300), exif(150, 150))));
+    // unclear whether Exif overwrites a JFIF aspect ratio
+    assertNull(read("aspectExif.jpg",
+        jpg(600, 300, jfif(0, 1, 1), exif(150, 150))));
+  }
+
+  @Test
+  public void testJpgNoDensity() throws IOException {
+    BoundingBox bbox = read("none.jpg", jpg(600, 300));
+    assertEquals("jpg-none", bbox.getVariant());
+    assertEquals(lines("none.jpg", "0 0 600 300",
+        "0.000000 0.000000 600.000000 300.000000"),
+        bbox.getLines("none.jpg", CREATOR, false));
+  }
+
+  // png-files
+
+  /**
+   * Returns the header of a png-file with the given width and height 
+   * followed by the given chunks and by an empty IDAT chunk. 
+   */
+  private static byte[] png(int width, int height, byte[]... chunks)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+    // IHDR: width, height, depth, color type, compression, filter, interlace
+    out.writeInt(13);
+    out.write("IHDR".getBytes(StandardCharsets.US_ASCII));
+    out.writeInt(width);
+    out.writeInt(height);
+    out.write(new byte[] {8, 0, 0, 0, 0});
+    // CRC is not checked
+    out.writeInt(0);
+    for (byte[] chunk : chunks) {
+      out.write(chunk);
+    }
+    out.writeInt(0);
+    out.write("IDAT".getBytes(StandardCharsets.US_ASCII));
+    out.writeInt(0);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns a pHYs chunk with the given pixels per unit and unit. 
+   */
+  private static byte[] phys(int xPpu, int yPpu, int unit) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(9);
+    out.write("pHYs".getBytes(StandardCharsets.US_ASCII));
+    out.writeInt(xPpu);
+    out.writeInt(yPpu);
+    out.writeByte(unit);
+    out.writeInt(0);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns a tEXt chunk which is to be skipped. 
+   */
+  private static byte[] text() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    byte[] text = "Comment\0fixture".getBytes(StandardCharsets.US_ASCII);
+    out.writeInt(text.length);
+    out.write("tEXt".getBytes(StandardCharsets.US_ASCII));
+    out.write(text);
+    out.writeInt(0);
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testPngPhys() throws IOException {
+    // 11811 pixels per meter is about 300 dpi
+    BoundingBox bbox =
+        read("phys.png", png(600, 300, text(), phys(11811, 11811, 1)));
+    assertEquals("png-phys", bbox.getVariant());
+    assertEquals(lines("phys.png", "0 0 144 72",
+        "0.000000 0.000000 144.000288 72.000144"),
+        bbox.getLines("phys.png", CREATOR, false));
+    assertEquals(lines("phys.png", "0 0 432 216", null),
+        bbox.getLines("phys.png", CREATOR, true));
+
+    // unknown unit: aspect ratio only
+    bbox = read("aspect.png", png(600, 300, phys(1, 1, 0)));
+    assertEquals("png-phys", bbox.getVariant());
+    assertEquals(lines("aspect.png", "0 0 600 300",
+        "0.000000 0.000000 600.000000 300.000000"),
+        bbox.getLines("aspect.png", CREATOR, false));
+  }
+
+  @Test
+  public void testPngNoPhys() throws IOException {
+    BoundingBox bbox = read("none.png", png(600, 300, text()));
+    assertEquals("png-none", bbox.getVariant());
+    assertEquals(lines("none.png", "0 0 600 300",
+        "0.000000 0.000000 600.000000 300.000000"),
+        bbox.getLines("none.png", CREATOR, false));
+
+    // neither jpg nor png
+    assertNull(read("other.png", "GIF89a".getBytes(StandardCharsets.US_ASCII)));
+  }
+}
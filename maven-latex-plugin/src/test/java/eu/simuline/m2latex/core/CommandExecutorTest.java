@@ -18,15 +18,19 @@
 
 package eu.simuline.m2latex.core;
 
-// import eu.simuline.m2latex.mojo.MavenLogWrapper;
+import eu.simuline.m2latex.mojo.MavenLogWrapper;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 // import junit.framework.TestCase;
 
 // import org.apache.maven.plugin.logging.SystemStreamLog;
 
 // import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 // import org.junit.Ignore;
@@ -37,27 +41,14 @@ public class CommandExecutorTest {
   private final static File WORKING_DIR =
       new File(System.getProperty("unitTestResourcesDir"));
 
-  // FIXME: occurs also in other testclasses: 
-  // to be unified. 
-  private static void cleanWorkingDir() {
-    assert WORKING_DIR.isDirectory() : "Expected directory. ";
-    File[] files = WORKING_DIR.listFiles();
-    assert files != null : "Working directory is not readable. ";
-    for (File file : files) {
-      if (!file.isHidden()) {
-        file.delete();
-      }
-    }
-  }
-
   @Before
   public void setUp() throws IOException {
-    cleanWorkingDir();
+    TestUtils.cleanWorkingDir();
   }
 
   @After
   public void tearDown() throws IOException {
-    cleanWorkingDir();
+    TestUtils.cleanWorkingDir();
   }
 
   @Test
@@ -73,6 +64,55 @@ public class CommandExecutorTest {
     //assertEquals(echoText, output.subSequence(0, echoText.length()));
   }
 
+  @Test
+  public void testTimeout() {
+    CommandExecutor executor =
+        new CommandExecutor(new MavenLogWrapper(this.getClass()));
+    executor.setTimeouts(Collections.singletonMap("sh", 500L));
+    long startMs = System.currentTimeMillis();
+    try {
+      // sleep is a descendant of sh and is killed as well 
+      executor.executeEmptyEnv(WORKING_DIR, null, "sh",
+          CommandExecutor.ReturnCodeChecker.Never,
+          new String[] {"-c", "echo started; sleep 30; echo finished"});
+      fail("Expected timeout. ");
+    } catch (BuildFailureException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("TEX02: "));
+    }
+    long durationMs = System.currentTimeMillis() - startMs;
+    // killed after timeout, without waiting for the sleep 
+    assertTrue("Took " + durationMs + " ms. ",
+        durationMs >= 500 && durationMs < 5000);
+  }
+
+  @Test
+  public void testOutputAfterExit() throws BuildFailureException {
+    CommandExecutor executor =
+        new CommandExecutor(new MavenLogWrapper(this.getClass()));
+    // the subshell writing the output terminates after sh 
+    CommandExecutor.CmdResult res = executor.executeEmptyEnv(WORKING_DIR,
+        null, "sh", CommandExecutor.ReturnCodeChecker.Never,
+        new String[] {"-c", "echo started; (sleep 2; echo finished) &"});
+    assertTrue(res.tail, res.tail.contains("started"));
+    // the output is read completely although this takes longer than a second 
+    assertTrue(res.tail, res.tail.contains("finished"));
+  }
+
+  @Test
+  public void testDescendantAlive() throws BuildFailureException {
+    CommandExecutor executor =
+        new CommandExecutor(new MavenLogWrapper(this.getClass()));
+    long startMs = System.currentTimeMillis();
+    // the sleep still running when sh terminated is killed 
+    CommandExecutor.CmdResult res = executor.executeEmptyEnv(WORKING_DIR,
+        null, "sh", CommandExecutor.ReturnCodeChecker.Never,
+        new String[] {"-c", "(sleep 30; echo late) & sleep 2; echo done"});
+    long durationMs = System.currentTimeMillis() - startMs;
+    assertTrue(res.tail, res.tail.contains("done"));
+    assertFalse(res.tail, res.tail.contains("late"));
+    assertTrue("Took " + durationMs + " ms. ", durationMs < 10000);
+  }
+
   // void mockExecute() throws BuildFailureException {
   // 	File res = new File("/tmp/exists.latexPlugin");
   // 	res.delete();
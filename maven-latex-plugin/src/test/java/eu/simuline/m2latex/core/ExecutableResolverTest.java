@@ -0,0 +1,115 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+/**
+ * Tests {@link ExecutableResolver}. 
+ * Since resolved executables are kept for the lifetime of the JVM, 
+ * each test uses commands of its own. 
+ * The extensions given by <code>PATHEXT</code> are tested on Windows only. 
+ */
+public class ExecutableResolverTest {
+  private final static File WORKING_DIR =
+      new File(System.getProperty("unitTestResourcesDir"));
+
+  private final static boolean IS_WINDOWS = File.pathSeparatorChar == ';';
+
+  /**
+   * Creates an executable file <code>fileName</code> in {@link #WORKING_DIR}. 
+   */
+  private static File createExecutable(String fileName) throws IOException {
+    File file = new File(WORKING_DIR, fileName);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(),
+        "#!/bin/sh\n".getBytes(StandardCharsets.US_ASCII));
+    assertTrue(file.setExecutable(true));
+    return file.getAbsoluteFile();
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @Test
+  public void testPath() {
+    // a command on the PATH
+    String command = IS_WINDOWS ? "cmd" : "sh";
+    File exe = ExecutableResolver.resolve(null, command);
+    assertNotNull(exe);
+    assertTrue(exe.isAbsolute());
+    assertTrue(exe.canExecute());
+    // with PATHEXT, the extension is appended
+    assertEquals(IS_WINDOWS ? "cmd.exe" : "sh",
+        exe.getName().toLowerCase(Locale.ENGLISH));
+    // kept
+    assertTrue(exe == ExecutableResolver.resolve(null, command));
+
+    assertNull(ExecutableResolver.resolve(null, "noSuchCommandForTest"));
+  }
+
+  @Test
+  public void testTexPath() throws IOException {
+    if (IS_WINDOWS) {
+      return;
+    }
+    File exe = createExecutable("texPathCmd");
+    assertEquals(exe, ExecutableResolver.resolve(WORKING_DIR, "texPathCmd"));
+    // not on the PATH
+    assertNull(ExecutableResolver.resolve(null, "texPathCmd"));
+
+    // not executable
+    File file = new File(WORKING_DIR, "texPathNoExe");
+    Files.write(file.toPath(), new byte[0]);
+    assertTrue(file.setExecutable(false));
+    assertNull(ExecutableResolver.resolve(WORKING_DIR, "texPathNoExe"));
+  }
+
+  @Test
+  public void testRelativeAndAbsolute() throws IOException {
+    if (IS_WINDOWS) {
+      return;
+    }
+    File exe = createExecutable("sub/relCmd");
+    // relative to the tex path
+    assertEquals(exe, ExecutableResolver.resolve(WORKING_DIR, "sub/relCmd"));
+    // a path is not searched in the tex path or on the PATH
+    assertNull(ExecutableResolver.resolve(WORKING_DIR, "relCmd"));
+    // relative to the current directory without tex path
+    String relPath = new File(WORKING_DIR, "sub/relCmd").getPath();
+    assertEquals(exe.getPath(),
+        ExecutableResolver.resolve(null, relPath).getPath());
+
+    // absolute
+    assertEquals(exe, ExecutableResolver.resolve(null, exe.getPath()));
+  }
+
+  @Test
+  public void testNotFoundNotKept() throws IOException {
+    if (IS_WINDOWS) {
+      return;
+    }
+    assertNull(ExecutableResolver.resolve(WORKING_DIR, "laterCmd"));
+    // installed meanwhile
+    File exe = createExecutable("laterCmd");
+    assertEquals(exe, ExecutableResolver.resolve(WORKING_DIR, "laterCmd"));
+  }
+}
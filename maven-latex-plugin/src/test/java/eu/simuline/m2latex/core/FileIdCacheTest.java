@@ -0,0 +1,109 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+/**
+ * Tests {@link FileId}s as computed by {@link Auxiliary#getIdent(File)} 
+ * and their caching by {@link FileIdCache}. 
+ */
+public class FileIdCacheTest {
+  private final static File WORKING_DIR =
+      new File(System.getProperty("unitTestResourcesDir"));
+
+  private static File write(String fileName, String content)
+      throws IOException {
+    File file = new File(WORKING_DIR, fileName);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    TestUtils.cleanWorkingDir();
+    Auxiliary.clearIdCaches();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TestUtils.cleanWorkingDir();
+    Auxiliary.clearIdCaches();
+  }
+
+  @Test
+  public void testFileId() throws IOException {
+    File file1 = write("a.idx", "\\indexentry{a}{1}\n\\indexentry{b}{2}\n");
+    File file2 = write("b.idx", "\\indexentry{a}{1}\r\n\\indexentry{b}{2}");
+    File file3 = write("c.idx", "\\indexentry{a}{1}\\indexentry{b}{2}\n");
+    File file4 = write("d.idx", "\\indexentry{b}{2}\n\\indexentry{a}{1}\n");
+
+    FileId fileId1 = Auxiliary.Idx.getIdent(file1);
+    // line terminators are not relevant
+    assertEquals(fileId1, Auxiliary.Idx.getIdent(file2));
+    assertEquals(fileId1.hashCode(), Auxiliary.Idx.getIdent(file2).hashCode());
+    // but line breaks are
+    assertFalse(fileId1.equals(Auxiliary.Idx.getIdent(file3)));
+    // and the order of the lines
+    assertFalse(fileId1.equals(Auxiliary.Idx.getIdent(file4)));
+  }
+
+  @Test
+  public void testCache() throws IOException {
+    File file = write("a.idx", "\\indexentry{a}{1}\n");
+    FileId fileId = Auxiliary.Idx.getIdent(file);
+    // unchanged: cached
+    assertSame(fileId, Auxiliary.Idx.getIdent(file));
+
+    // changed: read again
+    write("a.idx", "\\indexentry{a}{1}\n\\indexentry{b}{2}\n");
+    FileId fileIdNew = Auxiliary.Idx.getIdent(file);
+    assertFalse(fileId.equals(fileIdNew));
+    assertSame(fileIdNew, Auxiliary.Idx.getIdent(file));
+
+    // cleared at the end of a build
+    Auxiliary.clearIdCaches();
+    FileId fileIdBuild = Auxiliary.Idx.getIdent(file);
+    assertFalse(fileIdNew == fileIdBuild);
+    assertEquals(fileIdNew, fileIdBuild);
+  }
+
+  @Test
+  public void testCacheDependencies() throws IOException {
+    File aux = write("main.aux",
+        "\\relax\n\\citation{a}\n\\@input{chap.aux}\n\\bibdata{lit}\n");
+    write("chap.aux", "\\relax\n\\citation{b}\n");
+    FileId fileId = Auxiliary.BibTex.getIdent(aux);
+    assertSame(fileId, Auxiliary.BibTex.getIdent(aux));
+
+    // lines not relevant for bibtex do not change the identifier
+    write("chap.aux", "\\relax\n\\citation{b}\n\\newlabel{x}{1}\n");
+    FileId fileIdLabel = Auxiliary.BibTex.getIdent(aux);
+    assertFalse(fileId == fileIdLabel);
+    assertEquals(fileId, fileIdLabel);
+
+    // a file input changed although the main file did not
+    write("chap.aux", "\\relax\n\\citation{b}\n\\citation{c}\n");
+    assertFalse(fileId.equals(Auxiliary.BibTex.getIdent(aux)));
+
+    // deleted file: not cached any more
+    FileIdCache cache = new FileIdCache();
+    cache.put(aux, Collections.singletonList(FileIdCache.Stamp.of(aux)),
+        fileId);
+    assertSame(fileId, cache.get(aux));
+    assertTrue(aux.delete());
+    assertNull(cache.get(aux));
+  }
+}
@@ -0,0 +1,130 @@
+package eu.simuline.m2latex.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class LatexErrorMonitorTest {
+
+  private static LatexErrorMonitor newMonitor() {
+    return new LatexErrorMonitor(new Settings().getPatternErrLatex(),
+        "main.tex");
+  }
+
+  /**
+   * Feeds <code>lines</code> into <code>monitor</code>
+   * and returns the index of the line aborting the run
+   * or <code>-1</code> if the run is not aborted.
+   */
+  private static int feed(LatexErrorMonitor monitor, String... lines) {
+    for (int idx = 0; idx < lines.length; idx++) {
+      try {
+        monitor.accept(lines[idx]);
+      } catch (LatexErrorMonitor.FatalErrorException e) {
+        assertEquals(monitor.getFirstError(), e.getMessage());
+        return idx;
+      }
+    }
+    return -1;
+  }
+
+  @Test
+  public void testNoError() {
+    LatexErrorMonitor monitor = newMonitor();
+    assertEquals(-1, feed(monitor,
+        "This is pdfTeX, Version 3.141592653-2.6-1.40.25",
+        "(./main.tex LaTeX2e <2023-11-01>",
+        "(see the transcript file for additional information)",
+        "Output written on main.pdf (1 page, 1234 bytes)."));
+    assertFalse(monitor.hasAborted());
+    assertNull(monitor.getFirstError());
+  }
+
+  @Test
+  public void testErrorWithLineNumber() {
+    LatexErrorMonitor monitor = newMonitor();
+    // aborted at the line number, not at the message
+    assertEquals(4, feed(monitor,
+        "(./main.tex (./chap1.tex",
+        "! Undefined control sequence.",
+        "<recently read> \\foo ",
+        "",
+        "l.12 \\foo",
+        "          bar"));
+    assertTrue(monitor.hasAborted());
+    assertEquals("'./chap1.tex', line 12: ! Undefined control sequence.",
+        monitor.getFirstError());
+  }
+
+  @Test
+  public void testErrorWithoutLineNumber() {
+    LatexErrorMonitor monitor = newMonitor();
+    String[] lines = new String[12];
+    lines[0] = "! Emergency stop.";
+    for (int idx = 1; idx < lines.length; idx++) {
+      lines[idx] = "no line number";
+    }
+    // aborted after MAX_LINES_AFTER_ERROR lines
+    assertEquals(10, feed(monitor, lines));
+    assertTrue(monitor.hasAborted());
+    assertEquals("'main.tex': ! Emergency stop.", monitor.getFirstError());
+  }
+
+  @Test
+  public void testFileLineError() {
+    LatexErrorMonitor monitor = newMonitor();
+    // detected although the default pattern does not match
+    assertEquals(1, feed(monitor,
+        "(./main.tex (./chap1.tex",
+        "./chap1.tex:7: Undefined control sequence.",
+        "l.7 \\foo"));
+    assertTrue(monitor.hasAborted());
+    assertEquals("'./chap1.tex', line 7: Undefined control sequence.",
+        monitor.getFirstError());
+
+    // colons in other messages are no errors
+    monitor = newMonitor();
+    assertEquals(-1, feed(monitor,
+        "LaTeX Font Info:    Checking defaults for OML/cmm/m/it on input line 3.",
+        "Package hyperref Warning: Token not allowed: 1: in PDF string."));
+    assertFalse(monitor.hasAborted());
+  }
+
+  @Test
+  public void testNestedFiles() {
+    LatexErrorMonitor monitor = newMonitor();
+    // chap1 is closed, (see ... does not open a file
+    // and sub/chap2.tex is opened within the same line as closed chap1
+    assertEquals(4, feed(monitor,
+        "(./main.tex (/usr/share/texlive/article.cls (size10.clo))",
+        "(./chap1.tex) (see the transcript) (sub/chap2.tex",
+        "(./chap3.tex)",
+        "! Missing $ inserted.",
+        "l.30 x^"));
+    assertEquals("'sub/chap2.tex', line 30: ! Missing $ inserted.",
+        monitor.getFirstError());
+
+    // all files but the main file closed
+    monitor = newMonitor();
+    assertEquals(2, feed(monitor,
+        "(./main.tex (./chap1.tex (./chap2.tex))",
+        "! Missing $ inserted.",
+        "l.5 x^"));
+    assertEquals("'./main.tex', line 5: ! Missing $ inserted.",
+        monitor.getFirstError());
+
+    // no file opened at all
+    monitor = newMonitor();
+    try {
+      monitor.accept("! Missing $ inserted.");
+      monitor.accept("l.5 x^");
+      fail("Expected abort. ");
+    } catch (LatexErrorMonitor.FatalErrorException e) {
+      assertEquals("'main.tex', line 5: ! Missing $ inserted.", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package eu.simuline.m2latex.core;
+
+import eu.simuline.m2latex.mojo.MavenLogWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+public class LatexPreProcessorTest {
+  private final static File WORKING_DIR =
+      new File(System.getProperty("unitTestResourcesDir"));
+
+  private static void write(File file, String content) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private final Settings settings = new Settings();
+
+  private final LogWrapper log = new MavenLogWrapper(this.getClass());
+
+  private LatexPreProcessor newPreProcessor() {
+    return new LatexPreProcessor(this.settings, new CommandExecutor(this.log),
+        this.log, new TexFileUtils(this.log));
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @Test
+  public void testGetTargetsMagic() throws IOException, BuildFailureException {
+    write(new File(WORKING_DIR, "plain.tex"),
+        "\\documentclass{article}\n\\begin{document}\n\\end{document}\n");
+    write(new File(WORKING_DIR, "html.tex"),
+        "% !LMP targets=html\n\\documentclass{article}\n");
+    write(new File(WORKING_DIR, "sub/dvi.tex"),
+        "% !LMP targets=dvi,txt\n\\documentclass{article}\n");
+    // no latex main file, so the magic comment is not read
+    write(new File(WORKING_DIR, "sub/included.tex"),
+        "% !LMP targets=odt\n\\section{Included}\n");
+
+    // may throw BuildFailureException TSS04, TSS11
+    Set<Target> targets = newPreProcessor().getTargetsMagic(WORKING_DIR,
+        new DirNode(WORKING_DIR, new TexFileUtils(this.log)));
+    assertEquals(EnumSet.of(Target.dvi, Target.html, Target.txt), targets);
+
+    // targets given by magic comments add devices to those configured
+    Set<LatexDev> latexDevs =
+        Target.getLatexDevs(EnumSet.of(Target.pdf), this.settings);
+    assertEquals(EnumSet.of(LatexDev.pdf), latexDevs);
+    latexDevs.addAll(Target.getLatexDevs(targets, this.settings));
+    assertEquals(EnumSet.allOf(LatexDev.class), latexDevs);
+
+    // without recursion, subdirectories are not scanned
+    this.settings.setReadTexSrcProcDirRec(false);
+    targets = newPreProcessor().getTargetsMagic(WORKING_DIR,
+        new DirNode(WORKING_DIR, new TexFileUtils(this.log)));
+    assertEquals(EnumSet.of(Target.html), targets);
+  }
+}
@@ -58,6 +58,7 @@ import org.junit.After;
 // import org.junit.AfterClass;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 // FIXME: missing: test of logging
 // FIXME: mocking and verification in parallel
@@ -169,22 +170,9 @@ public class LatexProcessorTest {
 		doNothing().when(this.log).debug(anyString());
 	}
 
-	// FIXME: occurs also in other testclasses: 
-	// to be unified. 
-	private static void cleanWorkingDir() {
-		assert WORKING_DIR.isDirectory() : "Expected directory. ";
-		File[] files = WORKING_DIR.listFiles();
-		assert files != null : "Working directory is not readable. ";
-		for (File file : files) {
-			if (!file.isHidden()) {
-				file.delete();
-			}
-		}
-	}
-
 	@Before
 	public void setUp() throws IOException {
-		cleanWorkingDir();
+		TestUtils.cleanWorkingDir();
 		//this.texFile.createNewFile();
 		//this.auxFile.createNewFile();
 		this.logFile.createNewFile();
@@ -194,7 +182,7 @@ public class LatexProcessorTest {
 
 	@After
 	public void tearDown() throws IOException {
-		cleanWorkingDir();
+		TestUtils.cleanWorkingDir();
 	}
 
 	//@Ignore 
@@ -237,6 +225,22 @@ public class LatexProcessorTest {
 		//verifyNoMoreInteractions(this.log);
 	}
 
+	@Test
+	public void testGetDraftOption() throws BuildFailureException {
+		// default: lualatex 
+		assertEquals("-draftmode", this.processor.getDraftOption(LatexDev.pdf));
+		// no draft mode if creating dvi 
+		assertNull(this.processor.getDraftOption(LatexDev.devViaDvi(true)));
+
+		this.settings.setLatex2pdfCommand("pdflatex");
+		assertEquals("-draftmode", this.processor.getDraftOption(LatexDev.pdf));
+		this.settings.setLatex2pdfCommand("xelatex");
+		assertEquals("-no-pdf", this.processor.getDraftOption(LatexDev.pdf));
+
+		this.settings.setDraftIntermediateRuns(false);
+		assertNull(this.processor.getDraftOption(LatexDev.pdf));
+	}
+
 	private void mockProcessLatex2pdf(boolean needBibtex, boolean needMakeIndex,
 			boolean needMakeGlossaries) throws BuildFailureException {
 
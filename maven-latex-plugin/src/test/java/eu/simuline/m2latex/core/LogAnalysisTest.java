@@ -0,0 +1,108 @@
+package eu.simuline.m2latex.core;
+
+import eu.simuline.m2latex.mojo.MavenLogWrapper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LogAnalysis} with the patterns given by default 
+ * by {@link Settings} and by {@link LatexProcessor}. 
+ */
+public class LogAnalysisTest {
+
+  private static final String LOG = String.join("\n",
+      "This is pdfTeX, Version 3.141592653-2.6-1.40.25",
+      "LaTeX Warning: Reference `sec:x' on page 1 undefined on input line 7.",
+      "Overfull \\hbox (2.0pt too wide) in paragraph at lines 9--10",
+      "! Undefined control sequence.",
+      "l.12 \\foo",
+      "Underfull \\vbox (badness 10000) has occurred while \\output is active",
+      "LaTeX Warning: Label(s) may have changed. "
+          + "Rerun to get cross-references right.",
+      "Output written on main.pdf (1 page, 1234 bytes).");
+
+  private final Settings settings = new Settings();
+
+  private LogAnalysis newAnalysis() {
+    return new LogAnalysis()
+        .add(LogAnalysis.Kind.Error, this.settings.getPatternErrLatex())
+        .add(LogAnalysis.Kind.Warning, this.settings.getPatternWarnLatex())
+        .add(LogAnalysis.Kind.BadBox, LatexProcessor.PATTERN_OUFULL_HVBOX)
+        .add(LogAnalysis.Kind.ReRun, this.settings.getPatternReRunLatex());
+  }
+
+  private static LogAnalysis.Result analyze(LogAnalysis analysis, String log)
+      throws IOException {
+    return analysis.analyze(new BufferedReader(new StringReader(log)));
+  }
+
+  @Test
+  public void testAnalyze() throws IOException {
+    LogAnalysis.Result res = analyze(newAnalysis(), LOG);
+    assertTrue(res.isReadable());
+    assertEquals(Collections.singletonList(4),
+        res.getLineNumbers(LogAnalysis.Kind.Error));
+    // the request to rerun is also a warning
+    assertEquals(Arrays.asList(2, 7),
+        res.getLineNumbers(LogAnalysis.Kind.Warning));
+    assertEquals(Arrays.asList(3, 6),
+        res.getLineNumbers(LogAnalysis.Kind.BadBox));
+    assertEquals(Collections.singletonList(7),
+        res.getLineNumbers(LogAnalysis.Kind.ReRun));
+    assertTrue(res.hasMatch(LogAnalysis.Kind.ReRun));
+  }
+
+  @Test
+  public void testNoMatch() throws IOException {
+    LogAnalysis.Result res = analyze(newAnalysis(),
+        "This is pdfTeX\nOutput written on main.pdf (1 page, 1234 bytes).\n");
+    assertTrue(res.isReadable());
+    for (LogAnalysis.Kind kind : LogAnalysis.Kind.values()) {
+      assertFalse(res.hasMatch(kind));
+    }
+
+    // kinds not registered never match
+    res = analyze(new LogAnalysis()
+        .add(LogAnalysis.Kind.Error, this.settings.getPatternErrLatex()), LOG);
+    assertTrue(res.hasMatch(LogAnalysis.Kind.Error));
+    assertFalse(res.hasMatch(LogAnalysis.Kind.Warning));
+    assertEquals(Collections.emptyList(),
+        res.getLineNumbers(LogAnalysis.Kind.ReRun));
+  }
+
+  @Test
+  public void testGroupsAndBackReferences() throws IOException {
+    // patterns are not combined, so back references refer to their own groups
+    LogAnalysis analysis = new LogAnalysis()
+        .add(LogAnalysis.Kind.Error, "^(\\w+) \\1$")
+        .add(LogAnalysis.Kind.Warning, "^(\\w+)-\\1$");
+    LogAnalysis.Result res = analyze(analysis, "a a\na-a\na b\nb-b\n");
+    assertEquals(Collections.singletonList(1),
+        res.getLineNumbers(LogAnalysis.Kind.Error));
+    assertEquals(Arrays.asList(2, 4),
+        res.getLineNumbers(LogAnalysis.Kind.Warning));
+  }
+
+  @Test
+  public void testUnreadable() {
+    LogWrapper log = new MavenLogWrapper(this.getClass());
+    LogAnalysis.Result res = new TexFileUtils(log)
+        .analyzeFile(new File("noSuchFile.log"), newAnalysis());
+    assertTrue(res == LogAnalysis.Result.UNREADABLE);
+    assertFalse(res.isReadable());
+    for (LogAnalysis.Kind kind : LogAnalysis.Kind.values()) {
+      assertFalse(res.hasMatch(kind));
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package eu.simuline.m2latex.core;
+
+import eu.simuline.m2latex.core.CommandExecutor.OutputCapture;
+import eu.simuline.m2latex.mojo.MavenLogWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link OutputCapture}: 
+ * the bound of the tail kept in memory, 
+ * the output file containing the complete output, 
+ * passing lines to the line consumer, 
+ * closing and the rotation of output files. 
+ */
+public class OutputCaptureTest {
+
+  private final LogWrapper log = new MavenLogWrapper(this.getClass());
+
+  /**
+   * Returns the line with number <code>num</code> 
+   * of length about 100 characters. 
+   */
+  private static String line(int num) {
+    StringBuilder res = new StringBuilder("line " + num + " ");
+    while (res.length() < 100) {
+      res.append('x');
+    }
+    return res.toString();
+  }
+
+  /**
+   * Returns the lines with numbers from <code>0</code> 
+   * below <code>numLines</code>, each terminated by a line separator. 
+   */
+  private static String lines(int numLines) {
+    StringBuilder res = new StringBuilder();
+    for (int num = 0; num < numLines; num++) {
+      res.append(line(num)).append(System.lineSeparator());
+    }
+    return res.toString();
+  }
+
+  /**
+   * Returns a capture which consumed so many lines 
+   * that they overflow to an output file. 
+   */
+  private OutputCapture overflow() {
+    OutputCapture output = new OutputCapture("cmd", null, this.log);
+    for (int num = 0; num < 2 * OutputCapture.TAIL_MAX_CHARS / 100; num++) {
+      output.consumeLine(line(num));
+    }
+    return output;
+  }
+
+  @Test
+  public void testShort() {
+    OutputCapture output = new OutputCapture("cmd", null, this.log);
+    for (int num = 0; num < 10; num++) {
+      output.consumeLine(line(num));
+    }
+    CommandExecutor.CmdResult res =
+        output.close(CommandExecutor.ReturnCodeChecker.IsNonZero, 1);
+    // complete in the tail
+    assertEquals(lines(10), res.tail);
+    assertNull(res.outputFile);
+    assertEquals(1, res.returnCode);
+    assertFalse(res.getSuccess());
+  }
+
+  @Test
+  public void testOverflow() throws IOException {
+    int numLines = 2 * OutputCapture.TAIL_MAX_CHARS / 100;
+    OutputCapture output = new OutputCapture("cmd", null, this.log);
+    for (int num = 0; num < numLines; num++) {
+      output.consumeLine(line(num));
+    }
+    CommandExecutor.CmdResult res =
+        output.close(CommandExecutor.ReturnCodeChecker.IsNonZero, 0);
+    assertTrue(res.getSuccess());
+
+    // the tail is bounded and ends with the last line
+    assertTrue(res.tail.length() <= OutputCapture.TAIL_MAX_CHARS);
+    assertTrue(res.tail.length() > OutputCapture.TAIL_MAX_CHARS / 2);
+    assertTrue(lines(numLines).endsWith(res.tail));
+    assertTrue(res.tail.startsWith("line "));
+
+    // the output file is complete
+    assertNotNull(res.outputFile);
+    assertEquals(lines(numLines), new String(
+        Files.readAllBytes(res.outputFile.toPath()), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testLongLine() {
+    // the last line is kept even if longer than the bound
+    StringBuilder longLine = new StringBuilder();
+    while (longLine.length() <= OutputCapture.TAIL_MAX_CHARS) {
+      longLine.append(line(0));
+    }
+    OutputCapture output = new OutputCapture("cmd", null, this.log);
+    output.consumeLine(longLine.toString());
+    CommandExecutor.CmdResult res =
+        output.close(CommandExecutor.ReturnCodeChecker.Never, 0);
+    assertEquals(longLine + System.lineSeparator(), res.tail);
+    assertNull(res.outputFile);
+  }
+
+  @Test
+  public void testLineConsumer() {
+    List<String> consumed = new ArrayList<String>();
+    OutputCapture output = new OutputCapture("cmd", consumed::add, this.log);
+    output.consumeLine("a");
+    output.consumeLine("b");
+    assertEquals(2, consumed.size());
+    assertEquals("a", consumed.get(0));
+    assertEquals("b", consumed.get(1));
+
+    // lines consumed after closing are ignored
+    assertFalse(output.isClosed());
+    CommandExecutor.CmdResult res =
+        output.close(CommandExecutor.ReturnCodeChecker.Never, 0);
+    assertTrue(output.isClosed());
+    output.consumeLine("c");
+    assertEquals(2, consumed.size());
+    assertEquals("a" + System.lineSeparator() + "b" + System.lineSeparator(),
+        res.tail);
+  }
+
+  @Test
+  public void testRotation() {
+    // the output file of a capture still open is not deleted
+    OutputCapture open = overflow();
+    List<File> files = new ArrayList<File>();
+    for (int num = 0; num <= OutputCapture.NUM_OUTPUT_FILES; num++) {
+      files.add(overflow()
+          .close(CommandExecutor.ReturnCodeChecker.Never, 0).outputFile);
+    }
+    // only the oldest output file of a closed capture is deleted
+    assertFalse(files.get(0).exists());
+    for (File file : files.subList(1, files.size())) {
+      assertTrue(file.exists());
+    }
+    File fileOpen =
+        open.close(CommandExecutor.ReturnCodeChecker.Never, 0).outputFile;
+    assertTrue(fileOpen.exists());
+    assertFalse(files.get(1).exists());
+  }
+}
@@ -0,0 +1,46 @@
+package eu.simuline.m2latex.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import com.florianingerl.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class PatternCacheTest {
+
+  @Test
+  public void testCompile() {
+    long numHits = PatternCache.getNumHits();
+    long numMisses = PatternCache.getNumMisses();
+    Pattern pattern = PatternCache.compile("^PatternCacheTest(\\d+)$");
+    assertEquals(numMisses + 1, PatternCache.getNumMisses());
+
+    // taken from the cache
+    assertSame(pattern, PatternCache.compile("^PatternCacheTest(\\d+)$"));
+    assertSame(pattern, PatternCache.compile("^PatternCacheTest(\\d+)$", 0));
+    assertEquals(numHits + 2, PatternCache.getNumHits());
+    assertEquals(numMisses + 1, PatternCache.getNumMisses());
+
+    // other flags
+    Pattern patternMulti =
+        PatternCache.compile("^PatternCacheTest(\\d+)$", Pattern.MULTILINE);
+    assertFalse(pattern == patternMulti);
+    assertEquals(Pattern.MULTILINE, patternMulti.flags());
+    assertEquals(numMisses + 2, PatternCache.getNumMisses());
+  }
+
+  @Test
+  public void testEviction() {
+    Pattern pattern = PatternCache.compile("^PatternCacheTestEvicted$");
+    // more than the maximal number of patterns
+    for (int idx = 0; idx < 300; idx++) {
+      PatternCache.compile("^PatternCacheTestFill" + idx + "$");
+    }
+    long numMisses = PatternCache.getNumMisses();
+    // least recently used one is evicted and compiled again
+    assertFalse(pattern == PatternCache.compile("^PatternCacheTestEvicted$"));
+    assertEquals(numMisses + 1, PatternCache.getNumMisses());
+  }
+}
@@ -0,0 +1,165 @@
+package eu.simuline.m2latex.core;
+
+import eu.simuline.m2latex.mojo.MavenLogWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+
+/**
+ * Tests {@link PreambleFormat}: 
+ * the name of the format file depending on the preamble and the command, 
+ * the arguments to dump the preamble, 
+ * the up-to-date check based on the files read while dumping 
+ * and marking formats which could not be dumped. 
+ */
+public class PreambleFormatTest {
+  private final static File WORKING_DIR = TestUtils.WORKING_DIR;
+
+  private final static File FMT_DIR = new File(WORKING_DIR, "fmt");
+
+  private final LogWrapper log = new MavenLogWrapper(this.getClass());
+
+  private static File write(File dir, String fileName, String content)
+      throws IOException {
+    File file = new File(dir, fileName);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static PreambleFormat create(File dir, String content,
+      String command, String version, String outputFormat)
+      throws IOException {
+    File texFile = write(dir, "main.tex", content);
+    return PreambleFormat.create(FMT_DIR, new LatexMainDesc(texFile, null),
+        command, version, outputFormat);
+  }
+
+  private static String name(PreambleFormat format) {
+    return format.getFmtFile().getName();
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TestUtils.cleanWorkingDir();
+  }
+
+  @Test
+  public void testName() throws IOException {
+    String preamble = "\\documentclass{article}\n\\usepackage{x}\n";
+    String doc = preamble + "\\begin{document}\nA\n\\end{document}\n";
+    PreambleFormat format = create(WORKING_DIR, doc, "pdflatex", "1", "");
+    String name = name(format);
+    assertTrue(name.startsWith("preamble-"));
+    assertTrue(name.endsWith(PreambleFormat.SUFFIX_FMT));
+    assertEquals(FMT_DIR, format.getFmtFile().getParentFile());
+
+    // the body of the document is not relevant
+    assertEquals(name, name(create(WORKING_DIR,
+        preamble + "\\begin{document}\nB\n\\end{document}\n",
+        "pdflatex", "1", "")));
+
+    // but the preamble, the command, its version, the output format
+    // and the directory of the latex main file are
+    assertFalse(name.equals(name(create(WORKING_DIR,
+        preamble + "\\usepackage{y}\n\\begin{document}\n",
+        "pdflatex", "1", ""))));
+    assertFalse(name.equals(name(create(WORKING_DIR, doc,
+        "lualatex", "1", ""))));
+    assertFalse(name.equals(name(create(WORKING_DIR, doc,
+        "pdflatex", "2", ""))));
+    assertFalse(name.equals(name(create(WORKING_DIR, doc,
+        "pdflatex", null, ""))));
+    assertFalse(name.equals(name(create(WORKING_DIR, doc,
+        "pdflatex", "1", "-output-format=dvi"))));
+    assertFalse(name.equals(name(create(new File(WORKING_DIR, "sub"), doc,
+        "pdflatex", "1", ""))));
+
+    // no preamble, a comment does not start the document
+    assertNull(create(WORKING_DIR, preamble + "% \\begin{document}\n",
+        "pdflatex", "1", ""));
+  }
+
+  @Test
+  public void testDumpArgs() throws IOException {
+    PreambleFormat format = create(WORKING_DIR,
+        "\\documentclass{article}\n\\begin{document}\n", "pdflatex", "1", "");
+    String jobName = TexFileUtils.getFileNameWithoutSuffix(
+        format.getFmtFile());
+    String fmtPath = FMT_DIR.getAbsolutePath();
+    assertEquals(Arrays.asList("-ini", "-recorder", "-jobname=" + jobName,
+        "-output-directory=" + fmtPath, "&pdflatex", "mylatexformat.ltx"),
+        Arrays.asList(format.getDumpArgs("pdflatex", "")));
+    assertEquals(Arrays.asList("-ini", "-recorder", "-jobname=" + jobName,
+        "-output-directory=" + fmtPath, "-output-format=dvi", "&pdflatex",
+        "mylatexformat.ltx"),
+        Arrays.asList(format.getDumpArgs("pdflatex", "-output-format=dvi")));
+    assertEquals("-fmt=" + new File(FMT_DIR, jobName).getAbsolutePath(),
+        format.getFmtOption());
+    assertEquals(jobName + AbstractLatexProcessor.SUFFIX_FLS,
+        format.getFlsFile().getName());
+  }
+
+  @Test
+  public void testIsUpToDate() throws IOException {
+    PreambleFormat format = create(WORKING_DIR,
+        "\\documentclass{article}\n\\usepackage{local}\n\\begin{document}\n",
+        "pdflatex", "1", "");
+    File fmtFile = format.getFmtFile();
+    assertFalse(format.isUpToDate(this.log));
+    assertNull(PreambleFormat.getRecordedInputs(fmtFile, this.log));
+
+    // dumped
+    File sty = write(WORKING_DIR, "local.sty", "\\def\\a{a}\n");
+    write(FMT_DIR, fmtFile.getName(), "format");
+    format.recordInputs(Arrays.asList(sty), this.log);
+    assertTrue(format.isUpToDate(this.log));
+    // the inputs of a document loading the format
+    Collection<File> inputs = PreambleFormat.getRecordedInputs(fmtFile,
+        this.log);
+    assertEquals(1, inputs.size());
+    assertEquals(sty.getAbsoluteFile(), inputs.iterator().next());
+
+    // a package read while dumping changed
+    write(WORKING_DIR, "local.sty", "\\def\\a{b}\n");
+    assertTrue(sty.setLastModified(sty.lastModified() + 2000));
+    assertFalse(format.isUpToDate(this.log));
+
+    // the format file is missing
+    format.recordInputs(Arrays.asList(sty), this.log);
+    assertTrue(format.isUpToDate(this.log));
+    assertTrue(fmtFile.delete());
+    assertFalse(format.isUpToDate(this.log));
+  }
+
+  @Test
+  public void testFailed() throws IOException {
+    String doc = "\\documentclass{article}\n\\begin{document}\n";
+    PreambleFormat format = create(WORKING_DIR, doc, "failedlatex", "1", "");
+    PreambleFormat other = create(WORKING_DIR, doc, "failedlatex", "2", "");
+    assertFalse(format.hasFailed());
+    // not dumped again in this build
+    format.markFailed();
+    assertTrue(format.hasFailed());
+    assertTrue(create(WORKING_DIR, doc, "failedlatex", "1", "").hasFailed());
+    assertFalse(other.hasFailed());
+  }
+}
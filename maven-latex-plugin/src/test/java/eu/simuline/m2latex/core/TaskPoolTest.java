@@ -0,0 +1,93 @@
+package eu.simuline.m2latex.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TaskPoolTest {
+
+  /**
+   * Creates <code>num</code> tasks each logging its index as info
+   * where tasks with lower index take longer,
+   * so that they finish in reverse order if run concurrently.
+   */
+  private static List<TaskPool.Task> createTasks(int num) {
+    List<TaskPool.Task> tasks = new ArrayList<TaskPool.Task>();
+    for (int idx = 0; idx < num; idx++) {
+      final int val = idx;
+      tasks.add((LogWrapper log) -> {
+        try {
+          Thread.sleep(10L * (num - val));
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+        log.info("task " + val);
+      });
+    }
+    return tasks;
+  }
+
+  @Test
+  public void testRunAllLogsInOrder() throws BuildFailureException {
+    TaskPool.BufferedLogWrapper log = new TaskPool.BufferedLogWrapper();
+    new TaskPool(4, "test").runAll(createTasks(8), log);
+
+    final List<String> msgs = new ArrayList<String>();
+    log.replay(new LogWrapper() {
+      public void error(String msg) {
+        fail("Unexpected error: " + msg);
+      }
+      public void warn(String msg) {
+        fail("Unexpected warning: " + msg);
+      }
+      public void warn(String msg, Throwable thrw) {
+        fail("Unexpected warning: " + msg);
+      }
+      public void info(String msg) {
+        msgs.add(msg);
+      }
+      public void debug(String msg) {
+        fail("Unexpected debug: " + msg);
+      }
+    });
+    assertEquals(8, msgs.size());
+    for (int idx = 0; idx < 8; idx++) {
+      assertEquals("task " + idx, msgs.get(idx));
+    }
+  }
+
+  @Test
+  public void testRunAllFailsFast() {
+    final BuildFailureException bfe = new BuildFailureException("TXX01: test");
+    final AtomicInteger numRun = new AtomicInteger(0);
+    List<TaskPool.Task> tasks = new ArrayList<TaskPool.Task>();
+    tasks.add((LogWrapper log) -> {
+      throw bfe;
+    });
+    for (int idx = 0; idx < 100; idx++) {
+      tasks.add((LogWrapper log) -> {
+        try {
+          Thread.sleep(10L);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+        numRun.incrementAndGet();
+      });
+    }
+    try {
+      new TaskPool(2, "test").runAll(tasks, new TaskPool.BufferedLogWrapper());
+      fail("Expected exception. ");
+    } catch (BuildFailureException e) {
+      assertSame(bfe, e);
+    }
+    // at most a few tasks were started after the failure
+    assertTrue("Expected fail fast. ", numRun.get() < 100);
+  }
+}
@@ -0,0 +1,50 @@
+package eu.simuline.m2latex.core;
+
+import java.io.File;
+
+/**
+ * Utilities shared by the unit tests of this package. 
+ */
+final class TestUtils {
+
+  /**
+   * The directory the unit tests create their files in. 
+   * It contains a hidden file only to keep it in version control. 
+   */
+  final static File WORKING_DIR =
+      new File(System.getProperty("unitTestResourcesDir"));
+
+  private TestUtils() {
+    // no instances
+  }
+
+  /**
+   * Deletes all files and folders in {@link #WORKING_DIR} 
+   * except the hidden ones. 
+   */
+  static void cleanWorkingDir() {
+    cleanDirRec(WORKING_DIR);
+  }
+
+  /**
+   * Deletes all files and folders in <code>dir</code> recursively 
+   * except the hidden ones. 
+   * Note that this does not work for hidden directories. 
+   */
+  static void cleanDirRec(File dir) {
+    assert dir.isDirectory() : "Expected directory. ";
+    File[] files = dir.listFiles();
+    assert files != null : "Directory is not readable. ";
+    boolean proof;
+    for (File file : files) {
+      if (file.isDirectory()) {
+        assert !file.isHidden();
+        cleanDirRec(file);
+      }
+      if (!file.isHidden()) {
+        proof = file.delete();
+        assert proof : "Could not delete '" + file + "'. ";
+      }
+    }
+  }
+}
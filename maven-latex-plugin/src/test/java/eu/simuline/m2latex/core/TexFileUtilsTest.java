@@ -39,40 +39,14 @@ public class TexFileUtilsTest {
 	//private final static File KEEP_ME = 
 	//new File(System.getProperty("keepMe"));
 
-	// FIXME: occurs also in other testclasses: 
-	// to be unified. 
-	private static void cleanWorkingDir() {
-		cleanDirRec(WORKING_DIR);
-	}
-
-	// does not work for hidden directories 
-	private static void cleanDirRec(File dir) {
-		assert dir.isDirectory() : "Expected directory. ";
-		File[] files = dir.listFiles();
-		assert files != null : "Directory is not readable. ";
-		boolean proof;
-		for (File file : files) {
-			assert file.exists();
-			if (file.isDirectory()) {
-				assert !file.isHidden();
-				cleanDirRec(file);
-				assert file.listFiles().length == 0;
-			}
-			if (!file.isHidden()) {
-				proof = file.delete();
-				assert proof;
-			}
-		}
-	}
-
 	@Before
 	public void setUp() throws IOException {
-		cleanWorkingDir();
+		TestUtils.cleanWorkingDir();
 	}
 
 	@After
 	public void tearDown() throws IOException {
-		cleanWorkingDir();
+		TestUtils.cleanWorkingDir();
 	}
 
 	@Test